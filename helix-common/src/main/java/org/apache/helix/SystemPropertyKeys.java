@@ -37,6 +37,10 @@ public class SystemPropertyKeys {
   // Task executor threadpool reset timeout in ms
   public static final String TASK_THREADPOOL_RESET_TIMEOUT = "helixTask.threadpool.resetTimeout";
 
+  // Number of incremental AssignableInstance updates between two full quota reconciliations
+  public static final String TASK_ASSIGNABLE_INSTANCE_FULL_REBUILD_INTERVAL =
+      "helixTask.assignableInstance.fullRebuildInterval";
+
   // ZKHelixManager
   public static final String CLUSTER_MANAGER_VERSION = "cluster-manager-version.properties";
 
@@ -72,6 +76,35 @@ public class SystemPropertyKeys {
   // Controller
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
 
+  // Directory to write controller pipeline traces to, in Chrome trace viewer JSON format
+  public static final String CONTROLLER_PIPELINE_TRACE_DIR = "helix.controller.pipeline.traceDir";
+
+  // Max number of pipeline trace files kept in the trace directory, the oldest ones are deleted
+  public static final String CONTROLLER_PIPELINE_TRACE_MAX_FILES =
+      "helix.controller.pipeline.traceMaxFiles";
+
+  // Class name of a custom PipelineTraceSink for controller pipeline traces
+  public static final String CONTROLLER_PIPELINE_TRACE_SINK_CLASS =
+      "helix.controller.pipeline.traceSinkClass";
+
+  // Serve controller events by priority lanes instead of plain FIFO, disabled by default
+  public static final String CONTROLLER_EVENT_QUEUE_PRIORITY_LANES_ENABLED =
+      "helix.controller.eventQueue.priorityLanes.enabled";
+
+  // Max time in ms a controller event can be preempted by more urgent events
+  public static final String CONTROLLER_EVENT_QUEUE_MAX_LANE_WAIT =
+      "helix.controller.eventQueue.maxLaneWaitMs";
+
+  // Persist the WAGED assignment metadata as per-resource content-addressed chunks, so unchanged
+  // resource assignments are referenced instead of rewritten. Disabled by default since older
+  // controllers cannot read the chunked layout.
+  public static final String WAGED_ASSIGNMENT_METADATA_CHUNKED_WRITE_ENABLED =
+      "helix.controller.waged.assignmentMetadata.chunkedWrite.enabled";
+
+  // Max number of async ZK requests a bulk HelixAdmin operation keeps outstanding at a time
+  public static final String HELIX_ADMIN_BULK_OPERATION_BATCH_SIZE =
+      "helix.admin.bulkOperation.batchSize";
+
   // Message
   public static final String MESSAGE_EXPECTED_COMPLETION_PERIOD = "helix.controller.message.ExpectMessageCompletionPeriod";
 
@@ -79,6 +112,10 @@ public class SystemPropertyKeys {
   // MBean monitor for helix.
   public static final String HELIX_MONITOR_TIME_WINDOW_LENGTH_MS = "helix.monitor.slidingTimeWindow.ms";
 
+  // Interval in ms between full recounts of the incrementally updated resource state gauges
+  public static final String HELIX_MONITOR_RESOURCE_STATE_FULL_RECOUNT_INTERVAL_MS =
+      "helix.monitor.resourceState.fullRecountInterval.ms";
+
   // Multi-ZK mode enable/disable flag
   public static final String MULTI_ZK_ENABLED = "helix.multiZkEnabled";
 
@@ -90,4 +127,22 @@ public class SystemPropertyKeys {
 
   public static final String TASK_CURRENT_STATE_PATH_DISABLED =
       "helix.taskCurrentStatePathDisabled";
+
+  // Participant
+  // Batch the current state updates and message removals of completed state transitions
+  public static final String PARTICIPANT_TRANSITION_BATCH_ENABLED =
+      "helix.participant.transitionBatch.enabled";
+
+  // Max time in ms a completed state transition waits for its batch to be flushed
+  public static final String PARTICIPANT_TRANSITION_BATCH_FLUSH_LATENCY_MS =
+      "helix.participant.transitionBatch.flushLatencyMs";
+
+  // Max number of current state updates or message removals in a batch
+  public static final String PARTICIPANT_TRANSITION_BATCH_MAX_SIZE =
+      "helix.participant.transitionBatch.maxSize";
+
+  // Max time in ms a completed state transition waits for its batched current state update,
+  // before writing the update directly
+  public static final String PARTICIPANT_TRANSITION_BATCH_UPDATE_TIMEOUT_MS =
+      "helix.participant.transitionBatch.updateTimeoutMs";
 }
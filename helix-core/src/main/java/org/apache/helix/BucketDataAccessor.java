@@ -31,6 +31,23 @@ public interface BucketDataAccessor {
    */
   <T extends HelixProperty> boolean compressedBucketWrite(String path, T value) throws IOException;
 
+  /**
+   * Write a HelixProperty compressed, storing each simple field as a separate content-addressed
+   * chunk. Chunks whose content has been written before are referenced instead of rewritten, so
+   * the cost of a write scales with the changed simple fields. The data can be read back with
+   * {@link #compressedBucketRead(String, Class)}.
+   * Implementations that do not support chunking fall back to
+   * {@link #compressedBucketWrite(String, HelixProperty)}.
+   * @param path path to which the metadata will be written to
+   * @param value HelixProperty to write
+   * @param <T>
+   * @throws IOException
+   */
+  default <T extends HelixProperty> boolean compressedChunkedWrite(String path, T value)
+      throws IOException {
+    return compressedBucketWrite(path, value);
+  }
+
   /**
    * Read a HelixProperty that was written in buckets, compressed.
    * @param path
@@ -23,12 +23,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.helix.manager.zk.GenericZkHelixApiBuilder;
 import org.apache.helix.manager.zk.ZKUtil;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
 import org.apache.helix.model.CloudConfig;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ConfigScope;
@@ -48,6 +52,7 @@ import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.zookeeper.impl.client.FederatedZkClient;
 import org.apache.helix.zookeeper.impl.factory.SharedZkClientFactory;
+import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -215,8 +220,44 @@ public class ConfigAccessor {
       LOG.error("fail to get configs. invalid config scope. scope: {}, keys: {}.", scope, keys);
       return null;
     }
-    ZNRecord record = getConfigZnRecord(scope);
+    return getConfigs(scope, getConfigZnRecord(scope), keys);
+  }
+
+  /**
+   * get many config entries of many scopes. The config records of all the scopes are read with
+   * one batched async read instead of one read per scope.
+   * @param scopes scope specifications of the entity sets to query
+   * @param keys the identifiers of the configuration entries
+   * @return the configuration entries of each scope, organized by key, in the order of the scopes.
+   *         An entry is null if the scope is invalid or has no config.
+   */
+  public List<Map<String, String>> get(List<HelixConfigScope> scopes, List<String> keys) {
+    List<String> paths = new ArrayList<>();
+    Set<String> checkedClusters = new HashSet<>();
+    for (HelixConfigScope scope : scopes) {
+      if (scope == null || scope.getType() == null || !scope.isFullKey()) {
+        LOG.error("fail to get configs. invalid config scope. scope: {}, keys: {}.", scope, keys);
+        paths.add(null);
+        continue;
+      }
+      String clusterName = scope.getClusterName();
+      if (checkedClusters.add(clusterName) && !ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+        throw new HelixException(
+            "fail to get configs. cluster " + clusterName + " is not setup yet");
+      }
+      paths.add(scope.getZkPath());
+    }
+    List<ZNRecord> records = readConfigZnRecords(paths);
 
+    List<Map<String, String>> configs = new ArrayList<>(scopes.size());
+    for (int i = 0; i < scopes.size(); i++) {
+      configs.add(paths.get(i) == null ? null : getConfigs(scopes.get(i), records.get(i), keys));
+    }
+    return configs;
+  }
+
+  private Map<String, String> getConfigs(HelixConfigScope scope, ZNRecord record,
+      List<String> keys) {
     if (record == null) {
       LOG.warn("No config found at {}.", scope.getZkPath());
       return null;
@@ -247,6 +288,29 @@ public class ConfigAccessor {
     return map;
   }
 
+  /**
+   * Read the records of the given config paths with one batched async read. Null paths are skipped
+   * and the record of a path that does not exist is null.
+   */
+  private List<ZNRecord> readConfigZnRecords(List<String> paths) {
+    List<String> pathsToRead = new ArrayList<>();
+    for (String path : paths) {
+      if (path != null) {
+        pathsToRead.add(path);
+      }
+    }
+    List<ZNRecord> readRecords = pathsToRead.isEmpty() ? Collections.<ZNRecord>emptyList()
+        : new ZkBaseDataAccessor<ZNRecord>(_zkClient)
+            .get(pathsToRead, null, AccessOption.PERSISTENT, false);
+
+    List<ZNRecord> records = new ArrayList<>(paths.size());
+    int readIndex = 0;
+    for (String path : paths) {
+      records.add(path == null ? null : readRecords.get(readIndex++));
+    }
+    return records;
+  }
+
   private ZNRecord getConfigZnRecord(HelixConfigScope scope) {
     String clusterName = scope.getClusterName();
     if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
@@ -839,6 +903,37 @@ public class ConfigAccessor {
     return new ResourceConfig(record);
   }
 
+  /**
+   * Get the resource configs of the given resources in one batched read.
+   *
+   * @param clusterName
+   * @param resourceNames
+   *
+   * @return map from resource name to its config. Resources without config are not included.
+   */
+  public Map<String, ResourceConfig> getResourceConfigs(String clusterName,
+      List<String> resourceNames) {
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("fail to get configs. cluster " + clusterName + " is not setup yet");
+    }
+    List<String> paths = new ArrayList<>(resourceNames.size());
+    for (String resourceName : resourceNames) {
+      paths.add(new HelixConfigScopeBuilder(ConfigScopeProperty.RESOURCE).forCluster(clusterName)
+          .forResource(resourceName).build().getZkPath());
+    }
+    List<ZNRecord> records = readConfigZnRecords(paths);
+
+    Map<String, ResourceConfig> resourceConfigs = new LinkedHashMap<>();
+    for (int i = 0; i < resourceNames.size(); i++) {
+      if (records.get(i) == null) {
+        LOG.warn("No config found at {}.", paths.get(i));
+      } else {
+        resourceConfigs.put(resourceNames.get(i), new ResourceConfig(records.get(i)));
+      }
+    }
+    return resourceConfigs;
+  }
+
   /**
    * Set config of the given resource.
    * The current Resource config will be replaced with the given clusterConfig.
@@ -923,6 +1018,37 @@ public class ConfigAccessor {
     return new InstanceConfig(record);
   }
 
+  /**
+   * Get the instance configs of the given instances in one batched read. Unlike
+   * {@link #getInstanceConfig(String, String)}, instances that are not setup do not fail the call.
+   *
+   * @param clusterName
+   * @param instanceNames
+   *
+   * @return map from instance name to its config. Instances without config are not included.
+   */
+  public Map<String, InstanceConfig> getInstanceConfigs(String clusterName,
+      List<String> instanceNames) {
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("fail to get configs. cluster " + clusterName + " is not setup yet");
+    }
+    List<String> paths = new ArrayList<>(instanceNames.size());
+    for (String instanceName : instanceNames) {
+      paths.add(PropertyPathBuilder.instanceConfig(clusterName, instanceName));
+    }
+    List<ZNRecord> records = readConfigZnRecords(paths);
+
+    Map<String, InstanceConfig> instanceConfigs = new LinkedHashMap<>();
+    for (int i = 0; i < instanceNames.size(); i++) {
+      if (records.get(i) == null) {
+        LOG.warn("No config found at {}.", paths.get(i));
+      } else {
+        instanceConfigs.put(instanceNames.get(i), new InstanceConfig(records.get(i)));
+      }
+    }
+    return instanceConfigs;
+  }
+
   /**
    * Set config of the given instance config.
    * The current instance config will be replaced with the given instanceConfig.
@@ -983,6 +1109,67 @@ public class ConfigAccessor {
     }
   }
 
+  /**
+   * Update the InstanceConfigs of many instances, with the same merge semantics as
+   * {@link #updateInstanceConfig(String, String, InstanceConfig)}. The current configs are read
+   * and written back with batched async versioned updates instead of one read-modify-write per
+   * instance.
+   *
+   * @param clusterName
+   * @param instanceConfigs map from instance name to the config fields to update
+   */
+  public void updateInstanceConfigs(String clusterName,
+      Map<String, InstanceConfig> instanceConfigs) {
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("fail to setup config. cluster: " + clusterName + " is NOT setup.");
+    }
+    if (instanceConfigs.isEmpty()) {
+      return;
+    }
+
+    BaseDataAccessor<ZNRecord> baseDataAccessor = new ZkBaseDataAccessor<>(_zkClient);
+    List<String> instanceNames = new ArrayList<>(instanceConfigs.keySet());
+    List<String> paths = new ArrayList<>(instanceNames.size());
+    for (String instanceName : instanceNames) {
+      paths.add(PropertyPathBuilder.instanceConfig(clusterName, instanceName));
+    }
+    boolean[] exists = baseDataAccessor.exists(paths, AccessOption.PERSISTENT);
+    List<String> missingInstances = new ArrayList<>();
+    for (int i = 0; i < instanceNames.size(); i++) {
+      if (!exists[i]) {
+        missingInstances.add(instanceNames.get(i));
+      }
+    }
+    if (!missingInstances.isEmpty()) {
+      throw new HelixException(
+          "updateInstanceConfigs failed. Given InstanceConfigs do not already exist. instances: "
+              + missingInstances);
+    }
+
+    List<DataUpdater<ZNRecord>> updaters = new ArrayList<>(instanceNames.size());
+    for (String instanceName : instanceNames) {
+      ZNRecord record = instanceConfigs.get(instanceName).getRecord();
+      updaters.add(currentData -> {
+        if (currentData == null) {
+          return record;
+        }
+        currentData.update(record);
+        return currentData;
+      });
+    }
+    boolean[] success = baseDataAccessor.updateChildren(paths, updaters, AccessOption.PERSISTENT);
+    List<String> failedInstances = new ArrayList<>();
+    for (int i = 0; i < instanceNames.size(); i++) {
+      if (!success[i]) {
+        failedInstances.add(instanceNames.get(i));
+      }
+    }
+    if (!failedInstances.isEmpty()) {
+      throw new HelixException(
+          "updateInstanceConfigs failed to update instances: " + failedInstances);
+    }
+  }
+
   /**
    * Closes ConfigAccessor: closes the stateful resources including the ZkClient.
    */
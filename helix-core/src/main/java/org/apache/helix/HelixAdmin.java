@@ -20,6 +20,7 @@ package org.apache.helix;
  */
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -826,4 +827,127 @@ public interface HelixAdmin {
    * @return true if the instance is ready for preparing joining cluster.
    */
   boolean isReadyForPreparingJoiningCluster(String clusterName, String instancesNames);
+
+  /**
+   * Add resources to a cluster in bulk. The result of each resource is reported separately, so a
+   * failed resource does not fail the rest of the batch.
+   * @param clusterName
+   * @param idealStates the ideal states of the resources to add
+   * @return map from resource name to true if the resource has been added, false otherwise
+   */
+  default Map<String, Boolean> addResources(String clusterName, List<IdealState> idealStates) {
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      try {
+        addResource(clusterName, resourceName, idealState);
+        results.put(resourceName, true);
+      } catch (HelixException e) {
+        results.put(resourceName, false);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Set the ideal states of resources in bulk.
+   * @param clusterName
+   * @param idealStates the new ideal states, keyed by their resource names
+   * @return map from resource name to true if the ideal state has been set, false otherwise
+   */
+  default Map<String, Boolean> setResourceIdealStates(String clusterName,
+      List<IdealState> idealStates) {
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      try {
+        setResourceIdealState(clusterName, resourceName, idealState);
+        results.put(resourceName, true);
+      } catch (HelixException e) {
+        results.put(resourceName, false);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Drop resources from a cluster in bulk.
+   * @param clusterName
+   * @param resourceNames
+   * @return map from resource name to true if the resource has been dropped, false otherwise
+   */
+  default Map<String, Boolean> dropResources(String clusterName, List<String> resourceNames) {
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (String resourceName : resourceNames) {
+      try {
+        dropResource(clusterName, resourceName);
+        results.put(resourceName, true);
+      } catch (HelixException e) {
+        results.put(resourceName, false);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Set the instance configs of existing instances in bulk.
+   * @param clusterName
+   * @param instanceConfigs the new instance configs, keyed by their instance names
+   * @return map from instance name to true if the instance config has been set, false otherwise
+   */
+  default Map<String, Boolean> setInstanceConfigs(String clusterName,
+      List<InstanceConfig> instanceConfigs) {
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      String instanceName = instanceConfig.getInstanceName();
+      try {
+        results.put(instanceName, setInstanceConfig(clusterName, instanceName, instanceConfig));
+      } catch (HelixException e) {
+        results.put(instanceName, false);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Add a tag to instances in bulk.
+   * @param clusterName
+   * @param instanceNames
+   * @param tag
+   * @return map from instance name to true if the tag has been added, false otherwise
+   */
+  default Map<String, Boolean> addInstanceTag(String clusterName, List<String> instanceNames,
+      String tag) {
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (String instanceName : instanceNames) {
+      try {
+        addInstanceTag(clusterName, instanceName, tag);
+        results.put(instanceName, true);
+      } catch (HelixException e) {
+        results.put(instanceName, false);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Remove a tag from instances in bulk.
+   * @param clusterName
+   * @param instanceNames
+   * @param tag
+   * @return map from instance name to true if the tag has been removed, false otherwise
+   */
+  default Map<String, Boolean> removeInstanceTag(String clusterName, List<String> instanceNames,
+      String tag) {
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (String instanceName : instanceNames) {
+      try {
+        removeInstanceTag(clusterName, instanceName, tag);
+        results.put(instanceName, true);
+      } catch (HelixException e) {
+        results.put(instanceName, false);
+      }
+    }
+    return results;
+  }
 }
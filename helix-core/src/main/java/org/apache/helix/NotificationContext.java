@@ -19,8 +19,11 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Metadata associated with a notification event and the current state of the cluster
@@ -32,7 +35,8 @@ public class NotificationContext {
   public enum MapKey {
     TASK_EXECUTOR,
     CURRENT_STATE_UPDATE,
-    HELIX_TASK_RESULT
+    HELIX_TASK_RESULT,
+    CHANGED_PATHS
   }
 
   private Map<String, Object> _map;
@@ -92,6 +96,54 @@ public class NotificationContext {
     return copy;
   }
 
+  /**
+   * Merge an older notification that has not been processed yet into a copy of this one. The
+   * merged context carries the changed paths of both notifications and the creation time of the
+   * older one. INIT and FINALIZE notifications are not mergeable, see {@link #isMergeable()}.
+   *
+   * @param older the older notification
+   * @return the merged NotificationContext
+   */
+  public NotificationContext merge(NotificationContext older) {
+    NotificationContext merged = clone();
+    if (older == null) {
+      return merged;
+    }
+    for (Map.Entry<String, Object> entry : older._map.entrySet()) {
+      merged._map.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+    Set<String> changedPaths = new HashSet<>(older.getChangedPaths());
+    changedPaths.addAll(getChangedPaths());
+    merged._map.put(MapKey.CHANGED_PATHS.toString(), changedPaths);
+    merged.setCreationTime(Math.min(_creationTime, older._creationTime));
+    merged.setIsChildChange(_isChildChange || older._isChildChange);
+    return merged;
+  }
+
+  /**
+   * INIT and FINALIZE notifications mark the start and the end of a listener's lifecycle, so they
+   * must be handled on their own and not merged with other notifications.
+   *
+   * @return true if this notification can be merged with another one
+   */
+  public boolean isMergeable() {
+    return _type != Type.INIT && _type != Type.FINALIZE;
+  }
+
+  /**
+   * Get all the paths changed by this notification, including the ones of the notifications
+   * merged into it.
+   *
+   * @return set of changed paths
+   */
+  public Set<String> getChangedPaths() {
+    Object changedPaths = _map.get(MapKey.CHANGED_PATHS.toString());
+    if (changedPaths instanceof Set) {
+      return Collections.unmodifiableSet((Set<String>) changedPaths);
+    }
+    return _pathChanged == null ? Collections.emptySet() : Collections.singleton(_pathChanged);
+  }
+
   /**
    * Get the HelixManager associated with this notification
    *
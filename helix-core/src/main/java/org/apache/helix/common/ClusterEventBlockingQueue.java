@@ -20,7 +20,10 @@ package org.apache.helix.common;
  */
 import java.util.concurrent.BlockingQueue;
 
+import org.apache.helix.NotificationContext;
+import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventPriority;
 import org.apache.helix.controller.stages.ClusterEventType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,8 +31,11 @@ import org.slf4j.LoggerFactory;
 /**
  * A blocking queue of ClusterEvent objects to be used by the controller pipeline. This prevents
  * multiple events of the same type from flooding the controller and preventing progress from being
- * made. This queue has no capacity. This class is meant to be a limited implementation of the
- * {@link BlockingQueue} interface.
+ * made. Coalesced events are merged with {@link ClusterEvent#coalesce(ClusterEvent)}. Events with an
+ * INIT or FINALIZE change context are never coalesced. When priority
+ * lanes are enabled, events are served by their {@link ClusterEventPriority} first and FIFO within
+ * the same priority. This queue has no capacity. This class is meant to be a limited
+ * implementation of the {@link BlockingQueue} interface.
  *
  * This class is deprecated, please use {@link org.apache.helix.common.DedupEventBlockingQueue}.
  */
@@ -37,13 +43,48 @@ import org.slf4j.LoggerFactory;
 public class ClusterEventBlockingQueue {
   private static final Logger LOG = LoggerFactory.getLogger(ClusterEventBlockingQueue.class);
 
-  private DedupEventBlockingQueue<ClusterEventType, ClusterEvent> _eventQueue;
+  private final PriorityLaneEventBlockingQueue<ClusterEventType, ClusterEvent> _eventQueue;
 
   /**
-   * Instantiate the queue
+   * Instantiate a FIFO queue
    */
   public ClusterEventBlockingQueue() {
-    _eventQueue = new DedupEventBlockingQueue();
+    _eventQueue = new PriorityLaneEventBlockingQueue<>(1, type -> 0,
+        ClusterEventBlockingQueue::coalesce, 0L);
+  }
+
+  /**
+   * Instantiate a queue with one lane per {@link ClusterEventPriority}
+   * @param maxLaneWaitMs max time an event can be preempted by more urgent events, a non positive
+   *                      value means unlimited
+   */
+  public ClusterEventBlockingQueue(long maxLaneWaitMs) {
+    _eventQueue = new PriorityLaneEventBlockingQueue<>(ClusterEventPriority.values().length,
+        type -> ClusterEventPriority.of(type).ordinal(), ClusterEventBlockingQueue::coalesce,
+        maxLaneWaitMs);
+  }
+
+  private static ClusterEvent coalesce(ClusterEvent waitingEvent, ClusterEvent newEvent) {
+    // INIT and FINALIZE notifications are barriers, events are never merged across them
+    if (!isMergeable(waitingEvent) || !isMergeable(newEvent)) {
+      return null;
+    }
+    newEvent.coalesce(waitingEvent);
+    return newEvent;
+  }
+
+  private static boolean isMergeable(ClusterEvent event) {
+    NotificationContext context = event.getAttribute(AttributeName.changeContext.name());
+    return context == null || context.isMergeable();
+  }
+
+  /**
+   * Set a listener to monitor the lanes of this queue.
+   * @param listener
+   */
+  public void setLaneListener(
+      PriorityLaneEventBlockingQueue.LaneListener<ClusterEventType> listener) {
+    _eventQueue.setLaneListener(listener);
   }
 
   /**
@@ -54,7 +95,7 @@ public class ClusterEventBlockingQueue {
   }
 
   /**
-   * Add a single event to the queue, overwriting events with the same name
+   * Add a single event to the queue, coalescing it with the waiting event of the same type
    * @param event ClusterEvent event to add
    */
   public void put(ClusterEvent event) {
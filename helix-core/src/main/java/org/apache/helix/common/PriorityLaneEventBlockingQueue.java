@@ -0,0 +1,258 @@
+package org.apache.helix.common;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BinaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * A blocking queue of events with several priority lanes. Like {@link DedupEventBlockingQueue},
+ * events with the same "type" are coalesced while they wait in the queue, but the waiting event is
+ * merged with the new one by a caller supplied function instead of simply being replaced.
+ *
+ * Every type is mapped to a lane, lane 0 having the highest priority. take() returns the head of
+ * the highest priority non-empty lane, so urgent events preempt routine ones. To prevent
+ * starvation, the head of a lower priority lane is served first once it has waited longer than
+ * the configured max lane wait time. Within a lane the order is FIFO by first enqueue time.
+ * This class is meant to be a limited implementation of the {@link BlockingQueue} interface.
+ *
+ * T -- the Type of an event.
+ * E -- the event itself.
+ */
+public class PriorityLaneEventBlockingQueue<T, E> {
+  /**
+   * Listener of the queue activities, can be used for monitoring. It is invoked outside of the
+   * queue lock.
+   */
+  public interface LaneListener<T> {
+    /**
+     * Called when the number of events waiting in a lane changes.
+     * @param lane the lane index
+     * @param depth the number of events in the lane
+     */
+    void onLaneDepthChange(int lane, int depth);
+
+    /**
+     * Called when an event is taken from the queue.
+     * @param lane the lane index
+     * @param type the event type
+     * @param waitTimeMs time since the first event of this type entered the queue
+     */
+    void onTake(int lane, T type, long waitTimeMs);
+  }
+
+  private static class Entry<T, E> {
+    private final T _type;
+    private final int _lane;
+    private final long _enqueueTime;
+    private E _event;
+
+    Entry(T type, int lane, E event) {
+      _type = type;
+      _lane = lane;
+      _event = event;
+      _enqueueTime = System.currentTimeMillis();
+    }
+  }
+
+  private final ToIntFunction<T> _laneResolver;
+  private final BinaryOperator<E> _coalescer;
+  private final long _maxLaneWaitMs;
+  private final List<Queue<Entry<T, E>>> _lanes;
+  // Event type -> the last waiting entry of the type, which new events of the type coalesce into
+  private final Map<T, Entry<T, E>> _eventMap;
+  private int _size;
+  private volatile LaneListener<T> _listener;
+
+  /**
+   * Instantiate the queue
+   * @param laneCount number of lanes
+   * @param laneResolver maps an event type to a lane in [0, laneCount), 0 is the most urgent lane
+   * @param coalescer merges the waiting event (first argument) with a new event of the same type
+   *                  (second argument), the result replaces the waiting event. If it returns null,
+   *                  the events are not coalesced and the new event waits after the other one.
+   * @param maxLaneWaitMs max time the head of a lane can be preempted by more urgent lanes, a non
+   *                      positive value disables the starvation protection
+   */
+  public PriorityLaneEventBlockingQueue(int laneCount, ToIntFunction<T> laneResolver,
+      BinaryOperator<E> coalescer, long maxLaneWaitMs) {
+    if (laneCount <= 0) {
+      throw new IllegalArgumentException("Lane count must be positive, got " + laneCount);
+    }
+    _laneResolver = laneResolver;
+    _coalescer = coalescer;
+    _maxLaneWaitMs = maxLaneWaitMs;
+    _lanes = new ArrayList<>(laneCount);
+    for (int i = 0; i < laneCount; i++) {
+      _lanes.add(new LinkedList<>());
+    }
+    _eventMap = new HashMap<>();
+  }
+
+  public void setLaneListener(LaneListener<T> listener) {
+    _listener = listener;
+  }
+
+  public int getLaneCount() {
+    return _lanes.size();
+  }
+
+  /**
+   * Remove all events from the queue
+   */
+  public void clear() {
+    synchronized (this) {
+      _eventMap.clear();
+      _size = 0;
+      for (Queue<Entry<T, E>> lane : _lanes) {
+        lane.clear();
+      }
+    }
+    LaneListener<T> listener = _listener;
+    if (listener != null) {
+      for (int i = 0; i < _lanes.size(); i++) {
+        listener.onLaneDepthChange(i, 0);
+      }
+    }
+  }
+
+  /**
+   * Add a single event to the queue. If an event with the same type is already waiting, the two
+   * events are coalesced and the merged event keeps the position of the waiting one, unless the
+   * coalescer refuses to merge them.
+   */
+  public void put(T type, E event) {
+    int lane;
+    int depth;
+    synchronized (this) {
+      Entry<T, E> entry = _eventMap.get(type);
+      if (entry != null) {
+        E merged = _coalescer.apply(entry._event, event);
+        if (merged != null) {
+          entry._event = merged;
+          return;
+        }
+      }
+      lane = Math.min(Math.max(_laneResolver.applyAsInt(type), 0), _lanes.size() - 1);
+      entry = new Entry<>(type, lane, event);
+      _lanes.get(lane).offer(entry);
+      _eventMap.put(type, entry);
+      _size++;
+      depth = _lanes.get(lane).size();
+      notify();
+    }
+    LaneListener<T> listener = _listener;
+    if (listener != null) {
+      listener.onLaneDepthChange(lane, depth);
+    }
+  }
+
+  /**
+   * Remove the next event from the queue, blocking if none is available.
+   * @return the next event
+   * @throws InterruptedException if the wait for elements was interrupted
+   */
+  public E take() throws InterruptedException {
+    Entry<T, E> entry;
+    int depth;
+    synchronized (this) {
+      while (_size == 0) {
+        wait();
+      }
+      entry = nextEntry();
+      _lanes.get(entry._lane).remove(entry);
+      _eventMap.remove(entry._type, entry);
+      _size--;
+      depth = _lanes.get(entry._lane).size();
+    }
+    LaneListener<T> listener = _listener;
+    if (listener != null) {
+      listener.onLaneDepthChange(entry._lane, depth);
+      listener.onTake(entry._lane, entry._type,
+          System.currentTimeMillis() - entry._enqueueTime);
+    }
+    return entry._event;
+  }
+
+  /**
+   * Get the next event without removing it
+   * @return the next event, or null if none available
+   */
+  public synchronized E peek() {
+    Entry<T, E> entry = nextEntry();
+    return entry == null ? null : entry._event;
+  }
+
+  /**
+   * Get the queue size
+   * @return integer size of the queue
+   */
+  public synchronized int size() {
+    return _size;
+  }
+
+  /**
+   * Get the number of events waiting in a lane
+   * @param lane the lane index
+   * @return integer size of the lane
+   */
+  public synchronized int size(int lane) {
+    return _lanes.get(lane).size();
+  }
+
+  /**
+   * Check if the queue is empty
+   * @return true if events are not present, false otherwise
+   */
+  public synchronized boolean isEmpty() {
+    return _size == 0;
+  }
+
+  private Entry<T, E> nextEntry() {
+    Entry<T, E> next = null;
+    for (Queue<Entry<T, E>> lane : _lanes) {
+      Entry<T, E> head = lane.peek();
+      if (head != null) {
+        next = head;
+        break;
+      }
+    }
+    if (next == null || _maxLaneWaitMs <= 0) {
+      return next;
+    }
+    // Serve the starving head that has waited for the longest time, if any.
+    long starvingSince = System.currentTimeMillis() - _maxLaneWaitMs;
+    for (int i = next._lane + 1; i < _lanes.size(); i++) {
+      Entry<T, E> head = _lanes.get(i).peek();
+      if (head != null && head._enqueueTime < starvingSince
+          && head._enqueueTime < next._enqueueTime) {
+        next = head;
+      }
+    }
+    return next;
+  }
+}
@@ -20,10 +20,14 @@ package org.apache.helix.common.caches;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.collect.Maps;
 import org.apache.helix.HelixDataAccessor;
@@ -43,6 +47,11 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
 
   protected ControlContextProvider _controlContextProvider;
 
+  // Properties read from ZK ahead of the next refresh. The map is immutable and swapped
+  // atomically, so prefetching never blocks or races with an ongoing refresh.
+  private final AtomicReference<Map<PropertyKey, T>> _prefetchedPropertyMap =
+      new AtomicReference<>(Collections.emptyMap());
+
   public AbstractDataCache(ControlContextProvider controlContextProvider) {
     _controlContextProvider = controlContextProvider;
   }
@@ -63,6 +72,10 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
     // All new entries from zk not cached locally yet should be read from ZK.
     List<PropertyKey> reloadKeys = new ArrayList<>(reloadKeysIn);
     Map<PropertyKey, T> refreshedPropertyMap = Maps.newHashMap();
+    // Take over the prefetched properties, they are checked against the stats read below.
+    Map<PropertyKey, T> prefetchedPropertyMap =
+        _prefetchedPropertyMap.getAndSet(Collections.emptyMap());
+    Map<PropertyKey, HelixProperty.Stat> reloadKeyStats = new HashMap<>();
     List<HelixProperty.Stat> stats = accessor.getPropertyStats(cachedKeys);
     for (int i = 0; i < cachedKeys.size(); i++) {
       PropertyKey key = cachedKeys.get(i);
@@ -75,6 +88,7 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
         } else {
           // need update from zk
           reloadKeys.add(key);
+          reloadKeyStats.put(key, stat);
         }
       } else {
         LOG.warn("stat is null for key: " + key);
@@ -85,6 +99,12 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
     reloadedKeys.clear();
     reloadedKeys.addAll(reloadKeys);
 
+    int prefetchedCount = 0;
+    if (!prefetchedPropertyMap.isEmpty()) {
+      prefetchedCount = usePrefetchedProperties(accessor, reloadKeys, reloadKeyStats,
+          prefetchedPropertyMap, refreshedPropertyMap);
+    }
+
     List<T> reloadedProperty = accessor.getProperty(reloadKeys, true);
     Iterator<PropertyKey> csKeyIter = reloadKeys.iterator();
     for (T property : reloadedProperty) {
@@ -96,6 +116,10 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
       }
     }
 
+    if (prefetchedCount > 0) {
+      LogUtil.logInfo(LOG, genEventInfo(),
+          String.format("%s properties taken from the prefetched snapshot.", prefetchedCount));
+    }
     LogUtil.logInfo(LOG, genEventInfo(),
         String.format("%s properties refreshed from ZK.", reloadKeys.size()));
     LOG.debug("refreshed keys: {}", reloadKeys);
@@ -103,6 +127,84 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
     return refreshedPropertyMap;
   }
 
+  /**
+   * Move the reload keys whose prefetched property is still up to date with ZK from the reload
+   * list to the refreshed property map.
+   * @return the number of prefetched properties used
+   */
+  private int usePrefetchedProperties(HelixDataAccessor accessor, List<PropertyKey> reloadKeys,
+      Map<PropertyKey, HelixProperty.Stat> reloadKeyStats,
+      Map<PropertyKey, T> prefetchedPropertyMap, Map<PropertyKey, T> refreshedPropertyMap) {
+    // New keys have not been stat'ed yet
+    List<PropertyKey> statKeys = new ArrayList<>();
+    for (PropertyKey key : reloadKeys) {
+      if (!reloadKeyStats.containsKey(key) && prefetchedPropertyMap.containsKey(key)) {
+        statKeys.add(key);
+      }
+    }
+    if (!statKeys.isEmpty()) {
+      List<HelixProperty.Stat> stats = accessor.getPropertyStats(statKeys);
+      for (int i = 0; i < statKeys.size(); i++) {
+        if (stats.get(i) != null) {
+          reloadKeyStats.put(statKeys.get(i), stats.get(i));
+        }
+      }
+    }
+
+    int prefetchedCount = 0;
+    Iterator<PropertyKey> keyIter = reloadKeys.iterator();
+    while (keyIter.hasNext()) {
+      PropertyKey key = keyIter.next();
+      T prefetched = prefetchedPropertyMap.get(key);
+      HelixProperty.Stat stat = reloadKeyStats.get(key);
+      // Same stat means the node has not been changed since it was prefetched
+      if (prefetched != null && stat != null && prefetched.getBucketSize() == 0
+          && stat.equals(prefetched.getStat())) {
+        refreshedPropertyMap.put(key, prefetched);
+        keyIter.remove();
+        prefetchedCount++;
+      }
+    }
+    return prefetchedCount;
+  }
+
+  /**
+   * Read the given properties from ZK into the prefetched snapshot, so the next refresh can skip
+   * reading them if they are still up to date by then. This is safe to call concurrently with
+   * refresh.
+   * @param accessor
+   * @param keys the keys to be prefetched
+   * @return the number of properties prefetched
+   */
+  protected int prefetchProperties(HelixDataAccessor accessor, Collection<PropertyKey> keys) {
+    if (keys.isEmpty()) {
+      return 0;
+    }
+    List<PropertyKey> keyList = new ArrayList<>(keys);
+    List<T> properties = accessor.getProperty(keyList, false);
+    Map<PropertyKey, T> fetched = new HashMap<>();
+    for (int i = 0; i < keyList.size(); i++) {
+      if (properties.get(i) != null) {
+        fetched.put(keyList.get(i), properties.get(i));
+      }
+    }
+    if (!fetched.isEmpty()) {
+      _prefetchedPropertyMap.updateAndGet(current -> {
+        Map<PropertyKey, T> staged = new HashMap<>(current);
+        staged.putAll(fetched);
+        return Collections.unmodifiableMap(staged);
+      });
+    }
+    return fetched.size();
+  }
+
+  /**
+   * @return the number of properties waiting in the prefetched snapshot
+   */
+  public int getPrefetchedPropertyCount() {
+    return _prefetchedPropertyMap.get().size();
+  }
+
   protected String genEventInfo() {
     return String.format("%s::%s::%s", _controlContextProvider.getClusterName(),
         _controlContextProvider.getPipelineName(), _controlContextProvider.getClusterEventId());
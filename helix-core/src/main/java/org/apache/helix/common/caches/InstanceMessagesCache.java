@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -75,6 +76,11 @@ public class InstanceMessagesCache {
 
   private String _clusterName;
 
+  // Names of the resources whose messages were added or removed since the last
+  // getAndClearChangedResources(). Only tracked once a caller has asked for them.
+  private volatile boolean _trackChangedResources = false;
+  private final Set<String> _changedResources = ConcurrentHashMap.newKeySet();
+
   public InstanceMessagesCache(String clusterName) {
     _clusterName = clusterName;
     _relayMessageLifetime = HelixUtil
@@ -114,11 +120,12 @@ public class InstanceMessagesCache {
 
       long purgeStart = System.currentTimeMillis();
       // clear stale names
-      Iterator<String> cachedNamesIter = cachedMap.keySet().iterator();
-      while (cachedNamesIter.hasNext()) {
-        String messageName = cachedNamesIter.next();
-        if (!messageNames.contains(messageName)) {
-          cachedNamesIter.remove();
+      Iterator<Map.Entry<String, Message>> cachedMessageIter = cachedMap.entrySet().iterator();
+      while (cachedMessageIter.hasNext()) {
+        Map.Entry<String, Message> cachedMessage = cachedMessageIter.next();
+        if (!messageNames.contains(cachedMessage.getKey())) {
+          cachedMessageIter.remove();
+          recordChangedResource(cachedMessage.getValue());
         }
       }
       long purgeEnd = System.currentTimeMillis();
@@ -139,6 +146,7 @@ public class InstanceMessagesCache {
         if (message != null) {
           Map<String, Message> cachedMap = _messageCache.get(message.getTgtName());
           cachedMap.put(message.getId(), message);
+          recordChangedResource(message);
         }
       }
     }
@@ -518,6 +526,7 @@ public class InstanceMessagesCache {
         _messageCache.put(instanceName, Maps.<String, Message>newHashMap());
       }
       _messageCache.get(instanceName).put(message.getId(), message);
+      recordChangedResource(message);
 
       if (message.hasRelayMessages()) {
         for (Message relayMsg : message.getRelayMessages().values()) {
@@ -527,6 +536,28 @@ public class InstanceMessagesCache {
     }
   }
 
+  /**
+   * Returns the names of the resources whose messages have been added or removed since the
+   * previous call, and resets them. Changes are only tracked after the first call, so the first
+   * call returns null, meaning that the changes are unknown.
+   * @return names of the changed resources, or null if the changes have not been tracked
+   */
+  public Set<String> getAndClearChangedResources() {
+    if (!_trackChangedResources) {
+      _trackChangedResources = true;
+      return null;
+    }
+    Set<String> changedResources = new HashSet<>(_changedResources);
+    _changedResources.removeAll(changedResources);
+    return changedResources;
+  }
+
+  private void recordChangedResource(Message message) {
+    if (_trackChangedResources && message != null && message.getResourceName() != null) {
+      _changedResources.add(message.getResourceName());
+    }
+  }
+
   private void cacheRelayMessage(Message relayMessage, Message hostMessage) {
     String instanceName = relayMessage.getTgtName();
     if (!_relayMessageCache.containsKey(instanceName)) {
@@ -23,11 +23,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.collect.Maps;
 import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.controller.LogUtil;
@@ -42,7 +45,13 @@ public abstract class ParticipantStateCache<T> extends AbstractDataCache {
   private static Logger LOG = LoggerFactory.getLogger(ParticipantStateCache.class);
   protected Map<String, Map<String, Map<String, T>>> _participantStateMap;
 
-  protected Map<PropertyKey, T> _participantStateCache = Maps.newHashMap();
+  // Volatile since it is also read by prefetchParticipantStates() outside of the refresh thread
+  protected volatile Map<PropertyKey, T> _participantStateCache = Maps.newHashMap();
+
+  // Names of the resources whose participant states were added, changed or removed by refresh()
+  // since the last getAndClearChangedResources(). Only tracked once a caller has asked for them.
+  private volatile boolean _trackChangedResources = false;
+  private final Set<String> _changedResources = ConcurrentHashMap.newKeySet();
 
   public ParticipantStateCache(ControlContextProvider controlContextProvider) {
     super(controlContextProvider);
@@ -123,6 +132,14 @@ public abstract class ParticipantStateCache<T> extends AbstractDataCache {
             reloadedKeys));
 
     refreshSnapshot(newStateCache, _participantStateCache, reloadedKeys);
+    if (_trackChangedResources) {
+      recordChangedResources(reloadedKeys);
+      for (PropertyKey key : _participantStateCache.keySet()) {
+        if (!newStateCache.containsKey(key)) {
+          recordChangedResources(Collections.singleton(key));
+        }
+      }
+    }
 
     _participantStateCache = newStateCache;
 
@@ -136,6 +153,55 @@ public abstract class ParticipantStateCache<T> extends AbstractDataCache {
     }
   }
 
+  /**
+   * Prefetch the participant states of the given instances that differ from the cached ones into
+   * the prefetched snapshot, which the next refresh() takes over if the states have not been
+   * changed again by then. This can run concurrently with refresh().
+   * @param accessor
+   * @param liveInstanceMap the live instances to prefetch participant states of
+   * @return the number of participant states prefetched
+   */
+  public int prefetchParticipantStates(HelixDataAccessor accessor,
+      Map<String, LiveInstance> liveInstanceMap) {
+    Map<PropertyKey, T> cachedStates = _participantStateCache;
+    List<PropertyKey> keys = new ArrayList<>(PopulateParticipantKeys(accessor, liveInstanceMap));
+    List<HelixProperty.Stat> stats = accessor.getPropertyStats(keys);
+    Set<PropertyKey> changedKeys = new HashSet<>();
+    for (int i = 0; i < keys.size(); i++) {
+      T cached = cachedStates.get(keys.get(i));
+      if (stats.get(i) != null && (!(cached instanceof HelixProperty) || !stats.get(i)
+          .equals(((HelixProperty) cached).getStat()))) {
+        changedKeys.add(keys.get(i));
+      }
+    }
+    return prefetchProperties(accessor, changedKeys);
+  }
+
+  /**
+   * Returns the names of the resources whose participant states have been added, changed or removed
+   * by refresh() since the previous call, and resets them. Changes are only tracked after the first
+   * call, so the first call returns null, meaning that the changes are unknown.
+   * @return names of the changed resources, or null if the changes have not been tracked
+   */
+  public Set<String> getAndClearChangedResources() {
+    if (!_trackChangedResources) {
+      _trackChangedResources = true;
+      return null;
+    }
+    Set<String> changedResources = new HashSet<>(_changedResources);
+    _changedResources.removeAll(changedResources);
+    return changedResources;
+  }
+
+  private void recordChangedResources(Set<PropertyKey> keys) {
+    for (PropertyKey key : keys) {
+      String[] params = key.getParams();
+      if (params.length >= 4) {
+        _changedResources.add(params[3]);
+      }
+    }
+  }
+
   protected abstract Set<PropertyKey> PopulateParticipantKeys(HelixDataAccessor accessor,
       Map<String, LiveInstance> liveInstanceMap);
 
@@ -46,6 +46,7 @@ import org.apache.helix.HelixManager;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
 import org.apache.helix.api.listeners.ClusterConfigChangeListener;
 import org.apache.helix.api.listeners.ControllerChangeListener;
@@ -62,6 +63,7 @@ import org.apache.helix.api.listeners.ResourceConfigChangeListener;
 import org.apache.helix.api.listeners.TaskCurrentStateChangeListener;
 import org.apache.helix.common.ClusterEventBlockingQueue;
 import org.apache.helix.common.DedupEventProcessor;
+import org.apache.helix.common.PriorityLaneEventBlockingQueue;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
 import org.apache.helix.controller.dataproviders.ManagementControllerDataProvider;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
@@ -69,11 +71,14 @@ import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AsyncWorkerType;
 import org.apache.helix.controller.pipeline.Pipeline;
 import org.apache.helix.controller.pipeline.PipelineRegistry;
+import org.apache.helix.controller.pipeline.PipelineTrace;
+import org.apache.helix.controller.pipeline.PipelineTraceSink;
 import org.apache.helix.controller.rebalancer.StatefulRebalancer;
 import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
 import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.BestPossibleStateCalcStage;
 import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventPriority;
 import org.apache.helix.controller.stages.ClusterEventType;
 import org.apache.helix.controller.stages.CompatibilityCheckStage;
 import org.apache.helix.controller.stages.CurrentStateComputationStage;
@@ -110,6 +115,7 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.util.HelixUtil;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -141,6 +147,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
 
   private static final long EVENT_THREAD_JOIN_TIMEOUT = 1000;
   private static final int ASYNC_TASKS_THREADPOOL_SIZE = 10;
+  private static final long DEFAULT_EVENT_QUEUE_MAX_LANE_WAIT = 30 * 1000L;
   private final PipelineRegistry _registry;
   private final PipelineRegistry _taskRegistry;
   private final PipelineRegistry _managementModeRegistry;
@@ -711,7 +718,8 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     if (_enabledPipelineTypes.contains(Pipeline.Type.DEFAULT)) {
       logger.info("Initializing {} pipeline", Pipeline.Type.DEFAULT.name());
       _resourceControlDataProvider = new ResourceControllerDataProvider(clusterName);
-      _eventQueue = new ClusterEventBlockingQueue();
+      _eventQueue = createEventQueue();
+      _eventQueue.setLaneListener(new EventQueueLaneMonitor());
       _eventThread = new ClusterEventProcessor(_resourceControlDataProvider, _eventQueue,
           "default-" + clusterName);
       initPipeline(_eventThread, _resourceControlDataProvider);
@@ -725,7 +733,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     if (_enabledPipelineTypes.contains(Pipeline.Type.TASK)) {
       logger.info("Initializing {} pipeline", Pipeline.Type.TASK.name());
       _workflowControlDataProvider = new WorkflowControllerDataProvider(clusterName);
-      _taskEventQueue = new ClusterEventBlockingQueue();
+      _taskEventQueue = createEventQueue();
       _taskEventThread = new ClusterEventProcessor(_workflowControlDataProvider, _taskEventQueue,
           "task-" + clusterName);
       initPipeline(_taskEventThread, _workflowControlDataProvider);
@@ -739,7 +747,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     logger.info("Initializing {} pipeline", Pipeline.Type.MANAGEMENT_MODE.name());
     _managementControllerDataProvider =
         new ManagementControllerDataProvider(clusterName, Pipeline.Type.MANAGEMENT_MODE.name());
-    _managementModeEventQueue = new ClusterEventBlockingQueue();
+    _managementModeEventQueue = createEventQueue();
     _managementModeEventThread =
         new ClusterEventProcessor(_managementControllerDataProvider, _managementModeEventQueue,
             Pipeline.Type.MANAGEMENT_MODE.name() + "-" + clusterName);
@@ -749,6 +757,25 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     addController(this);
   }
 
+  /**
+   * Create a controller event queue. If enabled by system property, the events are served
+   * by their priority lanes, so urgent changes such as a participant going away preempt the
+   * routine state updates.
+   */
+  private static ClusterEventBlockingQueue createEventQueue() {
+    if (!isEventQueuePriorityLaneEnabled()) {
+      return new ClusterEventBlockingQueue();
+    }
+    return new ClusterEventBlockingQueue(HelixUtil
+        .getSystemPropertyAsLong(SystemPropertyKeys.CONTROLLER_EVENT_QUEUE_MAX_LANE_WAIT,
+            DEFAULT_EVENT_QUEUE_MAX_LANE_WAIT));
+  }
+
+  private static boolean isEventQueuePriorityLaneEnabled() {
+    return Boolean.parseBoolean(System
+        .getProperty(SystemPropertyKeys.CONTROLLER_EVENT_QUEUE_PRIORITY_LANES_ENABLED, "false"));
+  }
+
   private void initializeAsyncFIFOWorkers() {
     for (AsyncWorkerType type : AsyncWorkerType.values()) {
       DedupEventProcessor<String, Runnable> worker =
@@ -897,39 +924,61 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     long startTime = System.currentTimeMillis();
     boolean helixMetaDataAccessRebalanceFail = false;
     boolean rebalanceFail = false;
-    for (Pipeline pipeline : pipelines) {
-      event.addAttribute(AttributeName.PipelineType.name(), pipeline.getPipelineType());
-      try {
-        pipeline.handle(event);
-        pipeline.finish();
-      } catch (Exception e) {
-        logger.error(
-            "Exception while executing {} pipeline for cluster {}. Will not continue to next pipeline",
-            dataProvider.getPipelineName(), _clusterName, e);
-        if (e instanceof HelixMetaDataAccessException) {
-          helixMetaDataAccessRebalanceFail = true;
-          // If pipeline failed due to read/write fails to zookeeper, retry the pipeline.
-          dataProvider.requireFullRefresh();
-          logger.warn("Rebalance pipeline failed due to read failure from zookeeper, cluster: " + _clusterName);
-
-          // only push a retry event when there is no pending event in the corresponding event queue.
-          if (isEventQueueEmpty(isTaskFrameworkPipeline)) {
-            _continuousRebalanceFailureCount ++;
-            long delay = getRetryDelay(_continuousRebalanceFailureCount);
-            if (delay == 0) {
-              forceRebalance(manager, ClusterEventType.RetryRebalance);
-            } else {
-              _asyncTasksThreadPool
-                  .schedule(new RebalanceTask(manager, ClusterEventType.RetryRebalance), delay,
-                      TimeUnit.MILLISECONDS);
+    // One trace covers all the pipelines of the event, and is exported once they all ran
+    PipelineTraceSink traceSink = getTraceSink(pipelines);
+    PipelineTrace trace = null;
+    if (traceSink != null) {
+      trace = new PipelineTrace(event.getClusterName(), dataProvider.getPipelineName(),
+          event.getEventId(), String.valueOf(event.getEventType()));
+      event.setTrace(trace);
+      PipelineTrace.setCurrent(trace);
+    }
+    try {
+      for (Pipeline pipeline : pipelines) {
+        event.addAttribute(AttributeName.PipelineType.name(), pipeline.getPipelineType());
+        try {
+          pipeline.handle(event);
+          pipeline.finish();
+        } catch (Exception e) {
+          logger.error(
+              "Exception while executing {} pipeline for cluster {}. Will not continue to next pipeline",
+              dataProvider.getPipelineName(), _clusterName, e);
+          if (e instanceof HelixMetaDataAccessException) {
+            helixMetaDataAccessRebalanceFail = true;
+            // If pipeline failed due to read/write fails to zookeeper, retry the pipeline.
+            dataProvider.requireFullRefresh();
+            logger.warn("Rebalance pipeline failed due to read failure from zookeeper, cluster: " + _clusterName);
+
+            // only push a retry event when there is no pending event in the corresponding event queue.
+            if (isEventQueueEmpty(isTaskFrameworkPipeline)) {
+              _continuousRebalanceFailureCount ++;
+              long delay = getRetryDelay(_continuousRebalanceFailureCount);
+              if (delay == 0) {
+                forceRebalance(manager, ClusterEventType.RetryRebalance);
+              } else {
+                _asyncTasksThreadPool
+                    .schedule(new RebalanceTask(manager, ClusterEventType.RetryRebalance), delay,
+                        TimeUnit.MILLISECONDS);
+              }
+              logger.info("Retry rebalance pipeline with delay " + delay + "ms for cluster: " + _clusterName);
             }
-            logger.info("Retry rebalance pipeline with delay " + delay + "ms for cluster: " + _clusterName);
           }
+          _clusterStatusMonitor.reportRebalanceFailure();
+          updateContinuousRebalancedFailureCount(isTaskFrameworkPipeline, false /*resetToZero*/);
+          rebalanceFail = true;
+          break;
+        }
+      }
+    } finally {
+      if (trace != null) {
+        event.setTrace(null);
+        PipelineTrace.setCurrent(null);
+        try {
+          traceSink.export(trace);
+        } catch (Exception e) {
+          logger.warn("Failed to export trace of {} pipeline for event {}",
+              dataProvider.getPipelineName(), event.getEventId(), e);
         }
-        _clusterStatusMonitor.reportRebalanceFailure();
-        updateContinuousRebalancedFailureCount(isTaskFrameworkPipeline, false /*resetToZero*/);
-        rebalanceFail = true;
-        break;
       }
     }
     if (!helixMetaDataAccessRebalanceFail) {
@@ -998,6 +1047,18 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     }
   }
 
+  /**
+   * @return the trace sink of the first pipeline that has one, or null if none of them has
+   */
+  private static PipelineTraceSink getTraceSink(List<Pipeline> pipelines) {
+    for (Pipeline pipeline : pipelines) {
+      if (pipeline.getTraceSink() != null) {
+        return pipeline.getTraceSink();
+      }
+    }
+    return null;
+  }
+
   /**
    * get the delay on next retry rebalance due to zk read failure, We use a simple exponential
    * backoff to make the delay between [10ms, 1000ms]
@@ -1019,6 +1080,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     notifyCaches(changeContext, ChangeType.CURRENT_STATE);
     pushToEventQueues(ClusterEventType.CurrentStateChange, changeContext, Collections
         .<String, Object>singletonMap(AttributeName.instanceName.name(), instanceName));
+    prefetchCurrentStates(instanceName, changeContext);
     logger.info("END: GenericClusterController.onStateChange()");
   }
 
@@ -1309,6 +1371,38 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
         event.clone(String.format("%s_%s", uid, Pipeline.Type.TASK.name())));
   }
 
+  /**
+   * In the pipelined refresh mode, read the changed current states of the instance from ZK while
+   * the default pipeline is still busy with the previous event, so the refresh of the next event
+   * only has to take them over. Prefetches of the same instance are deduplicated.
+   */
+  private void prefetchCurrentStates(String instanceName, NotificationContext changeContext) {
+    if (_inManagementMode || _resourceControlDataProvider == null || _eventThread == null
+        || !_eventThread.isProcessing() || changeContext == null
+        || changeContext.getType() != NotificationContext.Type.CALLBACK) {
+      return;
+    }
+    ClusterConfig clusterConfig = _resourceControlDataProvider.getClusterConfig();
+    if (clusterConfig == null || !clusterConfig.isPipelinedRefreshEnabled()) {
+      return;
+    }
+    DedupEventProcessor<String, Runnable> prefetchWorker =
+        _asyncFIFOWorkerPool.get(AsyncWorkerType.DataPrefetchWorker);
+    final HelixDataAccessor accessor = changeContext.getManager().getHelixDataAccessor();
+    prefetchWorker.queueEvent(instanceName, () -> {
+      try {
+        int prefetched = _resourceControlDataProvider
+            .prefetchCurrentStates(accessor, Collections.singletonList(instanceName));
+        logger.debug("Prefetched {} current states of instance {} for cluster {}", prefetched,
+            instanceName, _clusterName);
+      } catch (Exception e) {
+        // The next refresh reads the current states from ZK anyway
+        logger.warn("Failed to prefetch current states of instance {} for cluster {}",
+            instanceName, _clusterName, e);
+      }
+    });
+  }
+
   private void enqueueEvent(ClusterEventBlockingQueue queue, ClusterEvent event) {
     if (event == null || queue == null) {
       return;
@@ -1526,12 +1620,39 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     }
   }
 
+  /**
+   * Report the per lane queue depth and wait time of the default pipeline event queue.
+   */
+  private class EventQueueLaneMonitor
+      implements PriorityLaneEventBlockingQueue.LaneListener<ClusterEventType> {
+    private final boolean _priorityLaneEnabled = isEventQueuePriorityLaneEnabled();
+
+    @Override
+    public void onLaneDepthChange(int lane, int depth) {
+      if (_isMonitoring) {
+        _clusterStatusMonitor.updateClusterEventQueueLaneDepth(getLaneName(lane), depth);
+      }
+    }
+
+    @Override
+    public void onTake(int lane, ClusterEventType type, long waitTimeMs) {
+      if (_isMonitoring) {
+        _clusterStatusMonitor.updateClusterEventQueueLaneWaitTime(getLaneName(lane), waitTimeMs);
+      }
+    }
+
+    private String getLaneName(int lane) {
+      return _priorityLaneEnabled ? ClusterEventPriority.values()[lane].name() : "FIFO";
+    }
+  }
+
   // TODO: refactor this to use common/ClusterEventProcessor.
   @Deprecated
   private class ClusterEventProcessor extends Thread {
     private final BaseControllerDataProvider _cache;
     private final ClusterEventBlockingQueue _eventBlockingQueue;
     private final String _processorName;
+    private volatile boolean _processing = false;
 
     ClusterEventProcessor(BaseControllerDataProvider cache,
         ClusterEventBlockingQueue eventBlockingQueue, String processorName) {
@@ -1551,7 +1672,12 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
           String threadName = String.format(
               "HelixController-pipeline-%s-(%s)", _processorName, newClusterEvent.getEventId());
           this.setName(threadName);
-          handleEvent(newClusterEvent, _cache);
+          _processing = true;
+          try {
+            handleEvent(newClusterEvent, _cache);
+          } finally {
+            _processing = false;
+          }
         } catch (InterruptedException e) {
           logger.warn("ClusterEventProcessor interrupted " + _processorName, e);
           interrupt();
@@ -1569,6 +1695,13 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
       }
       logger.info("END ClusterEventProcessor thread " + _processorName);
     }
+
+    /**
+     * @return true if a pipeline is running on an event
+     */
+    boolean isProcessing() {
+      return _processing;
+    }
   }
 
   private void initPipeline(Thread eventThread, BaseControllerDataProvider cache) {
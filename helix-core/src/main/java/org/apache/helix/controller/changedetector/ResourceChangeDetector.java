@@ -71,8 +71,46 @@ public class ResourceChangeDetector implements ChangeDetector {
       Map<String, ? extends HelixProperty> newPropertyMap) {
     Collection<String> changedItems = new HashSet<>();
     oldPropertyMap.forEach((name, property) -> {
-      if (newPropertyMap.containsKey(name)
-          && !property.getRecord().equals(newPropertyMap.get(name).getRecord())) {
+      HelixProperty newProperty = newPropertyMap.get(name);
+      // The data provider keeps the same instance if the property has not been changed
+      if (newProperty != null && newProperty.getRecord() != property.getRecord()
+          && !property.getRecord().equals(newProperty.getRecord())) {
+        changedItems.add(name);
+      }
+    });
+    return changedItems;
+  }
+
+  /**
+   * Compare the fingerprints of the trimmed properties and produce a collection of names of
+   * changed properties. Different fingerprints prove that the trimmed properties differ, equal
+   * fingerprints do not prove that they are equal. So properties with equal fingerprints are
+   * compared by their trimmed copies, unless the record is the same instance as in the previous
+   * snapshot.
+   * @return
+   */
+  private Collection<String> getChangedFingerprints(HelixConstants.ChangeType changeType,
+      Map<String, Long> oldFingerprints, Map<String, Long> newFingerprints) {
+    Map<String, ? extends HelixProperty> oldPropertyMap =
+        determinePropertyMapByType(changeType, _oldSnapshot);
+    Map<String, ? extends HelixProperty> newPropertyMap =
+        determinePropertyMapByType(changeType, _newSnapshot);
+    Collection<String> changedItems = new HashSet<>();
+    oldFingerprints.forEach((name, fingerprint) -> {
+      Long newFingerprint = newFingerprints.get(name);
+      if (newFingerprint == null) {
+        return;
+      }
+      if (!newFingerprint.equals(fingerprint)) {
+        changedItems.add(name);
+        return;
+      }
+      HelixProperty oldProperty = oldPropertyMap.get(name);
+      HelixProperty newProperty = newPropertyMap.get(name);
+      if (oldProperty != null && newProperty != null
+          && oldProperty.getRecord() != newProperty.getRecord()
+          && !ResourceChangeSnapshot.trimProperty(changeType, oldProperty).getRecord()
+          .equals(ResourceChangeSnapshot.trimProperty(changeType, newProperty).getRecord())) {
         changedItems.add(name);
       }
     });
@@ -162,9 +200,15 @@ public class ResourceChangeDetector implements ChangeDetector {
 
   @Override
   public synchronized Collection<String> getChangesByType(HelixConstants.ChangeType changeType) {
-    return _changedItems.computeIfAbsent(changeType,
-        changedItems -> getChangedItems(determinePropertyMapByType(changeType, _oldSnapshot),
-            determinePropertyMapByType(changeType, _newSnapshot)));
+    return _changedItems.computeIfAbsent(changeType, changedItems -> {
+      Map<String, Long> oldFingerprints = _oldSnapshot.getTrimmedFingerprints(changeType);
+      Map<String, Long> newFingerprints = _newSnapshot.getTrimmedFingerprints(changeType);
+      if (oldFingerprints != null && newFingerprints != null) {
+        return getChangedFingerprints(changeType, oldFingerprints, newFingerprints);
+      }
+      return getChangedItems(determinePropertyMapByType(changeType, _oldSnapshot),
+          determinePropertyMapByType(changeType, _newSnapshot));
+    });
   }
 
   @Override
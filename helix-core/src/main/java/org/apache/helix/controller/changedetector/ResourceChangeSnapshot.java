@@ -19,6 +19,7 @@ package org.apache.helix.controller.changedetector;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -26,7 +27,9 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.helix.HelixConstants;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.controller.changedetector.trimmer.ClusterConfigTrimmer;
+import org.apache.helix.controller.changedetector.trimmer.HelixPropertyTrimmer;
 import org.apache.helix.controller.changedetector.trimmer.IdealStateTrimmer;
 import org.apache.helix.controller.changedetector.trimmer.InstanceConfigTrimmer;
 import org.apache.helix.controller.changedetector.trimmer.ResourceConfigTrimmer;
@@ -57,6 +60,8 @@ class ResourceChangeSnapshot {
   private Map<String, LiveInstance> _allLiveInstances;
   private Map<String, LiveInstance> _assignableLiveInstances;
   private ClusterConfig _clusterConfig;
+  // Change type -> (name -> trimmed fingerprint). Only recorded if non-topology changes are ignored.
+  private Map<HelixConstants.ChangeType, Map<String, Long>> _trimmedFingerprints;
 
   /**
    * Default constructor that constructs an empty snapshot.
@@ -70,6 +75,7 @@ class ResourceChangeSnapshot {
     _allLiveInstances = new HashMap<>();
     _assignableLiveInstances = new HashMap<>();
     _clusterConfig = null;
+    _trimmedFingerprints = null;
   }
 
   /**
@@ -84,29 +90,26 @@ class ResourceChangeSnapshot {
   ResourceChangeSnapshot(ResourceControllerDataProvider dataProvider,
       boolean ignoreNonTopologyChange) {
     _changedTypes = new HashSet<>(dataProvider.getRefreshedChangeTypes());
-    _allInstanceConfigMap = ignoreNonTopologyChange ?
-        dataProvider.getInstanceConfigMap().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> InstanceConfigTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getInstanceConfigMap());
-    _assignableInstanceConfigMap = ignoreNonTopologyChange ?
-        dataProvider.getAssignableInstanceConfigMap().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> InstanceConfigTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getAssignableInstanceConfigMap());
-    _idealStateMap = ignoreNonTopologyChange ?
-        dataProvider.getIdealStates().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> IdealStateTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getIdealStates());
-    _resourceConfigMap = ignoreNonTopologyChange ?
-        dataProvider.getResourceConfigMap().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> ResourceConfigTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getResourceConfigMap());
-    _clusterConfig = ignoreNonTopologyChange ?
-        ClusterConfigTrimmer.getInstance().trimProperty(dataProvider.getClusterConfig()) :
-        dataProvider.getClusterConfig();
+    _allInstanceConfigMap = new HashMap<>(dataProvider.getInstanceConfigMap());
+    _assignableInstanceConfigMap = new HashMap<>(dataProvider.getAssignableInstanceConfigMap());
+    _idealStateMap = new HashMap<>(dataProvider.getIdealStates());
+    _resourceConfigMap = new HashMap<>(dataProvider.getResourceConfigMap());
+    _clusterConfig = dataProvider.getClusterConfig();
+    if (ignoreNonTopologyChange) {
+      // Instead of keeping trimmed copies, keep the fingerprints of the trimmed properties. The
+      // trimmers cache the fingerprints, so unchanged properties are not trimmed again.
+      _trimmedFingerprints = new HashMap<>();
+      _trimmedFingerprints.put(HelixConstants.ChangeType.INSTANCE_CONFIG,
+          computeTrimmedFingerprints(_assignableInstanceConfigMap,
+              InstanceConfigTrimmer.getInstance()));
+      _trimmedFingerprints.put(HelixConstants.ChangeType.IDEAL_STATE,
+          computeTrimmedFingerprints(_idealStateMap, IdealStateTrimmer.getInstance()));
+      _trimmedFingerprints.put(HelixConstants.ChangeType.RESOURCE_CONFIG,
+          computeTrimmedFingerprints(_resourceConfigMap, ResourceConfigTrimmer.getInstance()));
+      _trimmedFingerprints.put(HelixConstants.ChangeType.CLUSTER_CONFIG, _clusterConfig == null
+          ? Collections.emptyMap() : Collections.singletonMap(_clusterConfig.getClusterName(),
+          ClusterConfigTrimmer.getInstance().getTrimmedFingerprint(_clusterConfig)));
+    }
     _allLiveInstances = new HashMap<>(dataProvider.getLiveInstances());
     _assignableLiveInstances = new HashMap<>(dataProvider.getAssignableLiveInstances());
   }
@@ -124,6 +127,33 @@ class ResourceChangeSnapshot {
     _allLiveInstances = new HashMap<>(snapshot._allLiveInstances);
     _assignableLiveInstances = new HashMap<>(snapshot._assignableLiveInstances);
     _clusterConfig = snapshot._clusterConfig;
+    _trimmedFingerprints = snapshot._trimmedFingerprints;
+  }
+
+  private static <T extends HelixProperty> Map<String, Long> computeTrimmedFingerprints(
+      Map<String, T> propertyMap, HelixPropertyTrimmer<T> trimmer) {
+    return propertyMap.entrySet().parallelStream().collect(
+        Collectors.toMap(Map.Entry::getKey, e -> trimmer.getTrimmedFingerprint(e.getValue())));
+  }
+
+  /**
+   * @return the trimmed copy of the property of the change type, made by the trimmer that the
+   *         fingerprints of the change type are computed with
+   */
+  static HelixProperty trimProperty(HelixConstants.ChangeType changeType,
+      HelixProperty property) {
+    switch (changeType) {
+    case INSTANCE_CONFIG:
+      return InstanceConfigTrimmer.getInstance().trimProperty((InstanceConfig) property);
+    case IDEAL_STATE:
+      return IdealStateTrimmer.getInstance().trimProperty((IdealState) property);
+    case RESOURCE_CONFIG:
+      return ResourceConfigTrimmer.getInstance().trimProperty((ResourceConfig) property);
+    case CLUSTER_CONFIG:
+      return ClusterConfigTrimmer.getInstance().trimProperty((ClusterConfig) property);
+    default:
+      return property;
+    }
   }
 
   Set<HelixConstants.ChangeType> getChangedTypes() {
@@ -157,4 +187,12 @@ class ResourceChangeSnapshot {
   ClusterConfig getClusterConfig() {
     return _clusterConfig;
   }
+
+  /**
+   * @return the fingerprints of the trimmed properties of the change type, or null if the
+   *         properties of the change type are compared without trimming.
+   */
+  Map<String, Long> getTrimmedFingerprints(HelixConstants.ChangeType changeType) {
+    return _trimmedFingerprints == null ? null : _trimmedFingerprints.get(changeType);
+  }
 }
@@ -24,6 +24,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 
@@ -40,6 +42,11 @@ public abstract class HelixPropertyTrimmer<T extends HelixProperty> {
     SIMPLE_FIELD, LIST_FIELD, MAP_FIELD
   }
 
+  // Source record -> {content hash of the source record, content hash of the trimmed copy}.
+  // The weak keys are compared by identity.
+  private final Cache<ZNRecord, long[]> _trimmedFingerprintCache =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   /**
    * @param property
    * @return a map contains the field keys of all non-trimmable field values that need to be kept.
@@ -68,6 +75,27 @@ public abstract class HelixPropertyTrimmer<T extends HelixProperty> {
    */
   public abstract T trimProperty(T property);
 
+  /**
+   * Return the content hash of the trimmed copy of the property, see
+   * {@link ZNRecord#getContentHash()}. Two properties with different trimmed fingerprints differ in
+   * their non-trimmable fields.
+   * The fingerprint is cached per record instance, so it is only computed again if the content hash
+   * of the record has changed. Repeated calls on an unchanged property do not trim it again.
+   * @param property
+   * @return the content hash of the trimmed property.
+   */
+  public long getTrimmedFingerprint(T property) {
+    ZNRecord record = property.getRecord();
+    long sourceHash = record.getContentHash();
+    long[] cachedHashes = _trimmedFingerprintCache.getIfPresent(record);
+    if (cachedHashes != null && cachedHashes[0] == sourceHash) {
+      return cachedHashes[1];
+    }
+    long trimmedHash = trimProperty(property).getRecord().getContentHash();
+    _trimmedFingerprintCache.put(record, new long[] { sourceHash, trimmedHash });
+    return trimmedHash;
+  }
+
   // TODO: Simplify or remove the trim logic when we clearly separate the input and output ZNode.
   // TODO: e.g. Resource Config for user input and the Ideal State for the Helix output.
   /**
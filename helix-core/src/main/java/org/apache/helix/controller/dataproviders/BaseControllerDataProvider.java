@@ -48,6 +48,8 @@ import org.apache.helix.common.caches.TaskCurrentStateCache;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.controller.LogUtil;
+import org.apache.helix.controller.pipeline.PipelineSpan;
+import org.apache.helix.controller.pipeline.PipelineTrace;
 import org.apache.helix.controller.rebalancer.constraint.MonitoredAbnormalResolver;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ClusterConstraints;
@@ -78,6 +80,7 @@ import org.slf4j.LoggerFactory;
  */
 public class BaseControllerDataProvider implements ControlContextProvider {
   private static final Logger logger = LoggerFactory.getLogger(BaseControllerDataProvider.class);
+  protected static final String REFRESH_SPAN_CATEGORY = "refresh";
 
   // We only refresh EV and TEV the very first time the cluster data cache is initialized
   private static final List<HelixConstants.ChangeType> _noFullRefreshProperty = Arrays
@@ -533,6 +536,29 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     doRefresh(accessor);
   }
 
+  /**
+   * Prefetch the changed current states of the given instances from ZK while a pipeline is still
+   * running on the current snapshot. The next refresh() takes over the prefetched states that are
+   * still up to date instead of reading them again. Unlike refresh(), this method does not lock
+   * the data provider, so it can overlap with a running pipeline.
+   * @param accessor
+   * @param instanceNames the instances whose current states have changed
+   * @return the number of current states prefetched
+   */
+  public int prefetchCurrentStates(HelixDataAccessor accessor, Collection<String> instanceNames) {
+    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
+    for (String instanceName : instanceNames) {
+      LiveInstance liveInstance = _allLiveInstanceCache.getPropertyByName(instanceName);
+      if (liveInstance != null) {
+        liveInstanceMap.put(instanceName, liveInstance);
+      }
+    }
+    if (liveInstanceMap.isEmpty()) {
+      return 0;
+    }
+    return _currentStateCache.prefetchParticipantStates(accessor, liveInstanceMap);
+  }
+
   /**
    * @param accessor
    * @return The types that has been updated during the refresh.
@@ -541,15 +567,28 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     Set<HelixConstants.ChangeType> refreshedTypes = new HashSet<>();
 
     // Refresh raw data
-    refreshClusterConfig(accessor, refreshedTypes);
-    refreshIdealState(accessor, refreshedTypes);
-    refreshLiveInstances(accessor, refreshedTypes);
-    refreshInstanceConfigs(accessor, refreshedTypes);
+    try (PipelineSpan span = PipelineTrace.span("refreshClusterConfig", REFRESH_SPAN_CATEGORY)) {
+      refreshClusterConfig(accessor, refreshedTypes);
+    }
+    try (PipelineSpan span = PipelineTrace.span("refreshIdealState", REFRESH_SPAN_CATEGORY)) {
+      refreshIdealState(accessor, refreshedTypes);
+    }
+    try (PipelineSpan span = PipelineTrace.span("refreshLiveInstances", REFRESH_SPAN_CATEGORY)) {
+      refreshLiveInstances(accessor, refreshedTypes);
+    }
+    try (PipelineSpan span = PipelineTrace.span("refreshInstanceConfigs", REFRESH_SPAN_CATEGORY)) {
+      refreshInstanceConfigs(accessor, refreshedTypes);
+    }
     updateInstanceSets(_allInstanceConfigCache.getPropertyMap(), _allLiveInstanceCache.getPropertyMap(),
         _clusterConfig);
-    refreshResourceConfig(accessor, refreshedTypes);
-    _stateModelDefinitionCache.refresh(accessor);
-    _clusterConstraintsCache.refresh(accessor);
+    try (PipelineSpan span = PipelineTrace.span("refreshResourceConfig", REFRESH_SPAN_CATEGORY)) {
+      refreshResourceConfig(accessor, refreshedTypes);
+    }
+    try (PipelineSpan span = PipelineTrace.span("refreshStateModelDefsAndConstraints",
+        REFRESH_SPAN_CATEGORY)) {
+      _stateModelDefinitionCache.refresh(accessor);
+      _clusterConstraintsCache.refresh(accessor);
+    }
     refreshManagementSignals(accessor);
     timeoutNodesDuringMaintenance(accessor, _clusterConfig, _isMaintenanceModeEnabled);
 
@@ -559,8 +598,12 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     // Refresh derived data
     // Must use _liveInstanceCache instead of _assignableLiveInstancesMap because we need to
     // know about the messages and current state of all instances including the SWAP_IN ones.
-    _instanceMessagesCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap());
-    _currentStateCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap());
+    try (PipelineSpan span = PipelineTrace.span("refreshMessages", REFRESH_SPAN_CATEGORY)) {
+      _instanceMessagesCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap());
+    }
+    try (PipelineSpan span = PipelineTrace.span("refreshCurrentStates", REFRESH_SPAN_CATEGORY)) {
+      _currentStateCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap());
+    }
 
     // current state must be refreshed before refreshing relay messages
     // because we need to use current state to validate all relay messages.
@@ -932,6 +975,26 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     _instanceMessagesCache.cacheMessages(messages);
   }
 
+  /**
+   * Returns the names of the resources whose CurrentStates (regular or task) or messages have been
+   * added, changed or removed since the previous call, and resets them. Changes are only tracked
+   * after the first call, so the first call returns null.
+   * @return names of the changed resources, or null if the changes are unknown
+   */
+  public Set<String> getAndClearChangedStateResources() {
+    Set<String> currentStateChanges = _currentStateCache.getAndClearChangedResources();
+    Set<String> taskCurrentStateChanges = _taskCurrentStateCache.getAndClearChangedResources();
+    Set<String> messageChanges = _instanceMessagesCache.getAndClearChangedResources();
+    if (currentStateChanges == null || taskCurrentStateChanges == null
+        || messageChanges == null) {
+      return null;
+    }
+    Set<String> changedResources = new HashSet<>(currentStateChanges);
+    changedResources.addAll(taskCurrentStateChanges);
+    changedResources.addAll(messageChanges);
+    return changedResources;
+  }
+
   /**
    * Provides the state model definition for a given state model
    * @param stateModelDefRef
@@ -39,9 +39,14 @@ import org.apache.helix.common.caches.PropertyCache;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.common.CapacityNode;
 import org.apache.helix.controller.pipeline.Pipeline;
+import org.apache.helix.controller.pipeline.PipelineSpan;
+import org.apache.helix.controller.pipeline.PipelineTrace;
 import org.apache.helix.controller.rebalancer.strategy.GreedyRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.topology.Topology;
+import org.apache.helix.controller.rebalancer.topology.TopologyCache;
 import org.apache.helix.controller.rebalancer.waged.WagedInstanceCapacity;
 import org.apache.helix.controller.rebalancer.waged.WagedResourceWeightsProvider;
+import org.apache.helix.controller.stages.BestPossibleStateOutput;
 import org.apache.helix.controller.stages.MissingTopStateRecord;
 import org.apache.helix.model.CustomizedState;
 import org.apache.helix.model.CustomizedStateConfig;
@@ -81,6 +86,10 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
   private Map<String, Map<String, MissingTopStateRecord>> _missingTopStateMap;
   private Map<String, Map<String, String>> _lastTopStateLocationMap;
 
+  // the best possible state output of the last pipeline run, for monitoring the changed partitions
+  private volatile BestPossibleStateOutput _lastBestPossibleStateOutput;
+  private volatile long _lastBestPossibleStateVersion;
+
   // Maintain a set of all ChangeTypes for change detection
   private Set<HelixConstants.ChangeType> _refreshedChangeTypes;
   private Set<String> _aggregationEnabledTypes = new HashSet<>();
@@ -96,6 +105,10 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
   // TODO: cause shuffling. So it is not backward compatible.
   private final Map<String, List<String>> _stablePartitionListCache = new HashMap<>();
 
+  // Topology trees shared by the topology-aware rebalance strategies across resources and pipeline
+  // runs. The trees are keyed by their content, so no invalidation is needed on refresh.
+  private final TopologyCache _topologyCache = new TopologyCache();
+
   // WAGED specific capacity / weight provider
   WagedInstanceCapacity _wagedInstanceCapacity;
   WagedResourceWeightsProvider _wagedPartitionWeightProvider;
@@ -164,12 +177,17 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     }
 
     // Refresh resource controller specific property caches
-    refreshCustomizedStateConfig(accessor);
-    _customizedStateCache.setAggregationEnabledTypes(_aggregationEnabledTypes);
-    _customizedStateCache.refresh(accessor, getLiveInstanceCache().getPropertyMap());
-    refreshExternalViews(accessor);
-    refreshTargetExternalViews(accessor);
-    refreshCustomizedViewMap(accessor);
+    try (PipelineSpan span = PipelineTrace.span("refreshCustomizedStates",
+        REFRESH_SPAN_CATEGORY)) {
+      refreshCustomizedStateConfig(accessor);
+      _customizedStateCache.setAggregationEnabledTypes(_aggregationEnabledTypes);
+      _customizedStateCache.refresh(accessor, getLiveInstanceCache().getPropertyMap());
+    }
+    try (PipelineSpan span = PipelineTrace.span("refreshViews", REFRESH_SPAN_CATEGORY)) {
+      refreshExternalViews(accessor);
+      refreshTargetExternalViews(accessor);
+      refreshCustomizedViewMap(accessor);
+    }
 
     // This is part of the backward compatible workaround to fix
     // https://github.com/apache/helix/issues/940.
@@ -383,6 +401,26 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     return _lastTopStateLocationMap;
   }
 
+  /**
+   * @return the best possible state output of the last pipeline run, or null if there is none
+   */
+  public BestPossibleStateOutput getLastBestPossibleStateOutput() {
+    return _lastBestPossibleStateOutput;
+  }
+
+  /**
+   * @return the version of the best possible state output of the last pipeline run, which is
+   *         increased every time the output is set
+   */
+  public long getLastBestPossibleStateVersion() {
+    return _lastBestPossibleStateVersion;
+  }
+
+  public void setLastBestPossibleStateOutput(BestPossibleStateOutput bestPossibleStateOutput) {
+    _lastBestPossibleStateOutput = bestPossibleStateOutput;
+    _lastBestPossibleStateVersion++;
+  }
+
   /**
    * Get cached resourceAssignment (bestPossible mapping) for a resource
    * @param resource
@@ -499,6 +537,24 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     }
   }
 
+  /**
+   * Return the cluster Topology built on the given instances and the current assignable instance
+   * configs. The returned tree may be shared with other resources and must not be modified.
+   *
+   * @param allNodes           all instances to be included in the tree.
+   * @param liveNodes          live instances.
+   * @param faultZoneLevelOnly whether to skip the non-faultZone levels above the end-nodes.
+   */
+  public Topology getTopology(List<String> allNodes, List<String> liveNodes,
+      boolean faultZoneLevelOnly) {
+    return _topologyCache.getTopology(allNodes, liveNodes, getAssignableInstanceConfigMap(),
+        getClusterConfig(), faultZoneLevelOnly);
+  }
+
+  public TopologyCache getTopologyCache() {
+    return _topologyCache;
+  }
+
   /**
    * Set the WAGED algorithm specific instance capacity provider and resource weight provider.
    * @param capacityProvider - the capacity provider for instances
@@ -32,6 +32,8 @@ import org.apache.helix.common.caches.AbstractDataCache;
 import org.apache.helix.common.caches.TaskDataCache;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.pipeline.Pipeline;
+import org.apache.helix.controller.pipeline.PipelineSpan;
+import org.apache.helix.controller.pipeline.PipelineTrace;
 import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.AssignableInstanceManager;
@@ -87,12 +89,17 @@ public class WorkflowControllerDataProvider extends BaseControllerDataProvider {
   public synchronized void refresh(HelixDataAccessor accessor) {
     long startTime = System.currentTimeMillis();
     Set<HelixConstants.ChangeType> propertyRefreshed = super.doRefresh(accessor);
-    _taskCurrentStateCache.refresh(accessor, getLiveInstanceCache().getPropertyMap());
+    try (PipelineSpan span = PipelineTrace.span("refreshTaskCurrentStates",
+        REFRESH_SPAN_CATEGORY)) {
+      _taskCurrentStateCache.refresh(accessor, getLiveInstanceCache().getPropertyMap());
+    }
 
     refreshClusterStateChangeFlags(propertyRefreshed);
 
     // Refresh TaskCache
-    _taskDataCache.refresh(accessor, getResourceConfigMap());
+    try (PipelineSpan span = PipelineTrace.span("refreshTaskData", REFRESH_SPAN_CATEGORY)) {
+      _taskDataCache.refresh(accessor, getResourceConfigMap());
+    }
 
     long duration = System.currentTimeMillis() - startTime;
     LogUtil.logInfo(logger, getClusterEventId(), String.format(
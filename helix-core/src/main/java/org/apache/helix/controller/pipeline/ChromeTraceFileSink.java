@@ -0,0 +1,175 @@
+package org.apache.helix.controller.pipeline;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.helix.SystemPropertyKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A PipelineTraceSink that writes each pipeline trace to a JSON file in the Trace Event Format,
+ * which can be loaded by the Chrome trace viewer (chrome://tracing) or Perfetto.
+ * Files are named {cluster}_{pipelineType}_{eventId}.json under the configured directory.
+ * Traces are written by a background thread so that the pipeline thread is not blocked on disk IO.
+ * If the writer falls behind, traces beyond the queue capacity are dropped. At most maxFiles trace
+ * files are kept in the directory; the oldest ones are deleted first.
+ */
+public class ChromeTraceFileSink implements PipelineTraceSink {
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeTraceFileSink.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String TRACE_FILE_SUFFIX = ".json";
+  private static final int DEFAULT_MAX_FILES = 1000;
+  private static final int MAX_PENDING_TRACES = 100;
+
+  private final File _traceDir;
+  private final int _maxFiles;
+  // Trace files in the directory from the oldest to the newest, only accessed by the writer thread
+  private final Deque<File> _traceFiles = new ArrayDeque<>();
+  private final ThreadPoolExecutor _writer;
+
+  public ChromeTraceFileSink(String traceDir) {
+    this(traceDir, Integer
+        .getInteger(SystemPropertyKeys.CONTROLLER_PIPELINE_TRACE_MAX_FILES, DEFAULT_MAX_FILES));
+  }
+
+  /**
+   * @param traceDir directory to write the trace files to
+   * @param maxFiles max number of trace files kept in the directory
+   */
+  public ChromeTraceFileSink(String traceDir, int maxFiles) {
+    _traceDir = new File(traceDir);
+    _maxFiles = Math.max(1, maxFiles);
+    if (!_traceDir.exists() && !_traceDir.mkdirs()) {
+      LOG.warn("Failed to create pipeline trace directory {}", traceDir);
+    }
+    _writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(MAX_PENDING_TRACES), r -> {
+          Thread thread = new Thread(r, "ChromeTraceFileSink-" + _traceDir.getName());
+          thread.setDaemon(true);
+          return thread;
+        });
+    // Files left by an earlier controller count towards the limit as well
+    _writer.execute(this::loadExistingTraceFiles);
+  }
+
+  @Override
+  public void export(PipelineTrace trace) {
+    try {
+      _writer.execute(() -> writeTraceFile(trace));
+    } catch (RejectedExecutionException e) {
+      LOG.warn("Pipeline trace writer is behind, dropping trace of {} pipeline for event {}",
+          trace.getPipelineType(), trace.getEventId());
+    }
+  }
+
+  private void writeTraceFile(PipelineTrace trace) {
+    File traceFile = new File(_traceDir, String
+        .format("%s_%s_%s%s", trace.getClusterName(), trace.getPipelineType(),
+            trace.getEventId(), TRACE_FILE_SUFFIX));
+    // Write to a temporary file first, so a trace file is never seen half written
+    File tmpFile = new File(_traceDir, traceFile.getName() + ".tmp");
+    try {
+      MAPPER.writeValue(tmpFile, toTraceEvents(trace));
+      Files.move(tmpFile.toPath(), traceFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.warn("Failed to write pipeline trace to {}", traceFile, e);
+      tmpFile.delete();
+      return;
+    }
+    _traceFiles.remove(traceFile);
+    _traceFiles.addLast(traceFile);
+    while (_traceFiles.size() > _maxFiles) {
+      File oldestFile = _traceFiles.removeFirst();
+      if (!oldestFile.delete() && oldestFile.exists()) {
+        LOG.warn("Failed to delete pipeline trace file {}", oldestFile);
+      }
+    }
+  }
+
+  private void loadExistingTraceFiles() {
+    File[] files = _traceDir.listFiles((dir, name) -> name.endsWith(TRACE_FILE_SUFFIX));
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    _traceFiles.addAll(Arrays.asList(files));
+  }
+
+  /**
+   * Stop the writer thread once the pending traces are written.
+   * @param timeoutMs max time in ms to wait for the pending traces
+   * @return true if all pending traces were written in time
+   */
+  public boolean shutdown(long timeoutMs) throws InterruptedException {
+    _writer.shutdown();
+    return _writer.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Convert a trace to the Trace Event Format. Every span becomes a complete ("X") event with
+   * microsecond timestamps based on the wall clock time when the trace was started.
+   * @param trace
+   * @return the JSON object node
+   */
+  public static ObjectNode toTraceEvents(PipelineTrace trace) {
+    ObjectNode root = MAPPER.createObjectNode();
+    ArrayNode events = root.putArray("traceEvents");
+    long baseMicros = trace.getStartTimeMillis() * 1000L;
+    for (PipelineSpan span : trace.getSpans()) {
+      ObjectNode event = events.addObject();
+      event.put("name", span.getName());
+      event.put("cat", span.getCategory());
+      event.put("ph", "X");
+      event.put("ts", baseMicros + (span.getStartNanos() - trace.getStartNanos()) / 1000L);
+      event.put("dur", span.getDurationNanos() / 1000L);
+      event.put("pid", trace.getPipelineType());
+      event.put("tid", span.getThreadName());
+      if (!span.getArgs().isEmpty()) {
+        ObjectNode args = event.putObject("args");
+        for (Map.Entry<String, Object> arg : span.getArgs().entrySet()) {
+          args.put(arg.getKey(), String.valueOf(arg.getValue()));
+        }
+      }
+    }
+    ObjectNode metadata = root.putObject("otherData");
+    metadata.put("cluster", trace.getClusterName());
+    metadata.put("pipeline", trace.getPipelineType());
+    metadata.put("eventId", trace.getEventId());
+    metadata.put("eventType", trace.getEventType());
+    return root;
+  }
+}
@@ -21,7 +21,9 @@ package org.apache.helix.controller.pipeline;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.ClusterEvent;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
@@ -30,7 +32,9 @@ import org.slf4j.LoggerFactory;
 
 public class Pipeline {
   private static final Logger logger = LoggerFactory.getLogger(Pipeline.class.getName());
+  private static final PipelineTraceSink DEFAULT_TRACE_SINK = createDefaultTraceSink();
   private final String _pipelineType;
+  private volatile PipelineTraceSink _traceSink = DEFAULT_TRACE_SINK;
   List<Stage> _stages;
 
   public enum Type {
@@ -64,31 +68,90 @@ public class Pipeline {
     return _pipelineType;
   }
 
+  /**
+   * Set the sink that receives the trace of every event handled by this pipeline. Tracing is
+   * disabled if the sink is null.
+   * @param traceSink
+   */
+  public void setTraceSink(PipelineTraceSink traceSink) {
+    _traceSink = traceSink;
+  }
+
+  public PipelineTraceSink getTraceSink() {
+    return _traceSink;
+  }
+
   public void handle(ClusterEvent event) throws Exception {
     if (_stages == null) {
       return;
     }
-    for (Stage stage : _stages) {
-      long startTime = System.currentTimeMillis();
-
-      stage.preProcess();
-      stage.process(event);
-      stage.postProcess();
-
-      long endTime = System.currentTimeMillis();
-      long duration = endTime - startTime;
-      logger.info(String.format("END %s for %s pipeline for cluster %s. took: %d ms for event %s",
-          stage.getStageName(), _pipelineType, event.getClusterName(), duration,
-          event.getEventId()));
-
-      ClusterStatusMonitor clusterStatusMonitor =
-          event.getAttribute(AttributeName.clusterStatusMonitor.name());
-      if (clusterStatusMonitor != null) {
-        clusterStatusMonitor.updateClusterEventDuration(stage.getStageName(), duration);
+    // If the event is already traced, e.g. across all the pipelines of the event by the controller,
+    // the stages are recorded in that trace and the owner of the trace exports it.
+    PipelineTraceSink traceSink = _traceSink;
+    PipelineTrace trace = null;
+    if (event.getTrace() == null && traceSink != null) {
+      trace = new PipelineTrace(event.getClusterName(), _pipelineType, event.getEventId(),
+          String.valueOf(event.getEventType()));
+      event.setTrace(trace);
+      PipelineTrace.setCurrent(trace);
+    }
+    try {
+      for (Stage stage : _stages) {
+        long startTime = System.nanoTime();
+
+        try (PipelineSpan span = event.startSpan(stage.getStageName(), "stage")) {
+          stage.preProcess();
+          stage.process(event);
+          stage.postProcess();
+        }
+
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        logger.info(String.format("END %s for %s pipeline for cluster %s. took: %d ms for event %s",
+            stage.getStageName(), _pipelineType, event.getClusterName(), duration,
+            event.getEventId()));
+
+        ClusterStatusMonitor clusterStatusMonitor =
+            event.getAttribute(AttributeName.clusterStatusMonitor.name());
+        if (clusterStatusMonitor != null) {
+          clusterStatusMonitor.updateClusterEventDuration(stage.getStageName(), duration);
+        }
+      }
+    } finally {
+      if (trace != null) {
+        event.setTrace(null);
+        PipelineTrace.setCurrent(null);
+        try {
+          traceSink.export(trace);
+        } catch (Exception e) {
+          logger.warn("Failed to export trace of {} pipeline for event {}", _pipelineType,
+              event.getEventId(), e);
+        }
       }
     }
   }
 
+  /**
+   * Create the trace sink configured through system properties. A custom sink class takes
+   * precedence over the trace directory. Returns null if tracing is not configured.
+   */
+  private static PipelineTraceSink createDefaultTraceSink() {
+    String sinkClass = System.getProperty(SystemPropertyKeys.CONTROLLER_PIPELINE_TRACE_SINK_CLASS);
+    if (sinkClass != null && !sinkClass.isEmpty()) {
+      try {
+        return (PipelineTraceSink) Class.forName(sinkClass).getDeclaredConstructor().newInstance();
+      } catch (Exception e) {
+        logger.error("Failed to create pipeline trace sink {}, pipeline tracing is disabled",
+            sinkClass, e);
+        return null;
+      }
+    }
+    String traceDir = System.getProperty(SystemPropertyKeys.CONTROLLER_PIPELINE_TRACE_DIR);
+    if (traceDir != null && !traceDir.isEmpty()) {
+      return new ChromeTraceFileSink(traceDir);
+    }
+    return null;
+  }
+
   public void finish() {
 
   }
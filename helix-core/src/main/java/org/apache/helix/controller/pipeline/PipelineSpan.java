@@ -0,0 +1,117 @@
+package org.apache.helix.controller.pipeline;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed section of a controller pipeline run, such as a stage, a data refresh step or the
+ * computation of a single resource. Spans are measured with System.nanoTime() and are recorded in
+ * the owning PipelineTrace when closed. Use with try-with-resources:
+ * <pre>
+ * try (PipelineSpan span = event.startSpan("computeBestPossible")) {
+ *   ...
+ * }
+ * </pre>
+ */
+public class PipelineSpan implements AutoCloseable {
+  /**
+   * Span returned when tracing is disabled. All operations on it are no-ops.
+   */
+  public static final PipelineSpan NOOP = new PipelineSpan(null, "", "");
+
+  private final PipelineTrace _trace;
+  private final String _name;
+  private final String _category;
+  private final long _threadId;
+  private final String _threadName;
+  private final long _startNanos;
+  private long _endNanos = -1L;
+  private Map<String, Object> _args;
+
+  PipelineSpan(PipelineTrace trace, String name, String category) {
+    _trace = trace;
+    _name = name;
+    _category = category;
+    Thread currentThread = Thread.currentThread();
+    _threadId = currentThread.getId();
+    _threadName = currentThread.getName();
+    _startNanos = trace == null ? 0L : System.nanoTime();
+  }
+
+  /**
+   * Attach an argument to this span, e.g. the number of resources processed.
+   * @param key argument name
+   * @param value argument value
+   * @return this span
+   */
+  public PipelineSpan addArg(String key, Object value) {
+    if (_trace != null) {
+      if (_args == null) {
+        _args = new LinkedHashMap<>();
+      }
+      _args.put(key, value);
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    if (_trace != null && _endNanos < 0) {
+      _endNanos = System.nanoTime();
+      _trace.addFinishedSpan(this);
+    }
+  }
+
+  public String getName() {
+    return _name;
+  }
+
+  public String getCategory() {
+    return _category;
+  }
+
+  public long getThreadId() {
+    return _threadId;
+  }
+
+  public String getThreadName() {
+    return _threadName;
+  }
+
+  public long getStartNanos() {
+    return _startNanos;
+  }
+
+  public long getEndNanos() {
+    return _endNanos;
+  }
+
+  public long getDurationNanos() {
+    return _endNanos < 0 ? 0L : _endNanos - _startNanos;
+  }
+
+  public Map<String, Object> getArgs() {
+    return _args == null ? Collections.<String, Object> emptyMap()
+        : Collections.unmodifiableMap(_args);
+  }
+}
@@ -0,0 +1,142 @@
+package org.apache.helix.controller.pipeline;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the PipelineSpans recorded while a ClusterEvent is handled by a Pipeline.
+ * The trace is bound to the handling thread for the duration of Pipeline.handle(), so code that
+ * does not have access to the event (e.g. the controller data providers) can record spans through
+ * {@link #span(String)}. When no trace is bound, span() returns {@link PipelineSpan#NOOP}, so
+ * instrumentation costs a thread-local lookup when tracing is disabled.
+ */
+public class PipelineTrace {
+  private static final ThreadLocal<PipelineTrace> CURRENT_TRACE = new ThreadLocal<>();
+
+  private final String _clusterName;
+  private final String _pipelineType;
+  private final String _eventId;
+  private final String _eventType;
+  private final long _startTimeMillis;
+  private final long _startNanos;
+  private final ConcurrentLinkedQueue<PipelineSpan> _spans = new ConcurrentLinkedQueue<>();
+
+  public PipelineTrace(String clusterName, String pipelineType, String eventId, String eventType) {
+    _clusterName = clusterName;
+    _pipelineType = pipelineType;
+    _eventId = eventId;
+    _eventType = eventType;
+    _startTimeMillis = System.currentTimeMillis();
+    _startNanos = System.nanoTime();
+  }
+
+  /**
+   * Start a span in this trace.
+   * @param name span name
+   * @param category span category, e.g. "stage" or "refresh"
+   * @return the started span; close it to record it in this trace
+   */
+  public PipelineSpan startSpan(String name, String category) {
+    return new PipelineSpan(this, name, category);
+  }
+
+  void addFinishedSpan(PipelineSpan span) {
+    _spans.add(span);
+  }
+
+  /**
+   * @return the finished spans of this trace, in the order they were closed
+   */
+  public List<PipelineSpan> getSpans() {
+    return new ArrayList<>(_spans);
+  }
+
+  public String getClusterName() {
+    return _clusterName;
+  }
+
+  public String getPipelineType() {
+    return _pipelineType;
+  }
+
+  public String getEventId() {
+    return _eventId;
+  }
+
+  public String getEventType() {
+    return _eventType;
+  }
+
+  /**
+   * @return wall clock time in ms when this trace was started
+   */
+  public long getStartTimeMillis() {
+    return _startTimeMillis;
+  }
+
+  /**
+   * @return System.nanoTime() when this trace was started; span timestamps are relative to it
+   */
+  public long getStartNanos() {
+    return _startNanos;
+  }
+
+  /**
+   * Bind a trace to the current thread. Pass null to unbind.
+   * @param trace
+   */
+  public static void setCurrent(PipelineTrace trace) {
+    if (trace == null) {
+      CURRENT_TRACE.remove();
+    } else {
+      CURRENT_TRACE.set(trace);
+    }
+  }
+
+  /**
+   * @return the trace bound to the current thread, or null if tracing is not enabled
+   */
+  public static PipelineTrace current() {
+    return CURRENT_TRACE.get();
+  }
+
+  /**
+   * Start a span in the trace bound to the current thread.
+   * @param name span name
+   * @return the started span, or {@link PipelineSpan#NOOP} if no trace is bound
+   */
+  public static PipelineSpan span(String name) {
+    return span(name, "");
+  }
+
+  /**
+   * Start a span in the trace bound to the current thread.
+   * @param name span name
+   * @param category span category
+   * @return the started span, or {@link PipelineSpan#NOOP} if no trace is bound
+   */
+  public static PipelineSpan span(String name, String category) {
+    PipelineTrace trace = CURRENT_TRACE.get();
+    return trace == null ? PipelineSpan.NOOP : trace.startSpan(name, category);
+  }
+}
@@ -0,0 +1,34 @@
+package org.apache.helix.controller.pipeline;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Receives the trace of each pipeline run once all the stages of the pipeline have finished.
+ * Implementations must be thread-safe since pipelines of different types run concurrently, and
+ * should not block for long since export happens on the pipeline thread.
+ */
+public interface PipelineTraceSink {
+
+  /**
+   * Export the trace of a finished pipeline run.
+   * @param trace the trace to export
+   */
+  void export(PipelineTrace trace);
+}
@@ -37,7 +37,6 @@ import org.apache.helix.controller.rebalancer.strategy.crushMapping.CRUSHPlaceme
 import org.apache.helix.controller.rebalancer.topology.InstanceNode;
 import org.apache.helix.controller.rebalancer.topology.Node;
 import org.apache.helix.controller.rebalancer.topology.Topology;
-import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.util.JenkinsHash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,9 +74,8 @@ public class CrushRebalanceStrategy implements RebalanceStrategy<ResourceControl
   public ZNRecord computePartitionAssignment(final List<String> allNodes,
       final List<String> liveNodes, final Map<String, Map<String, String>> currentMapping,
       ResourceControllerDataProvider clusterData) throws HelixException {
-    Map<String, InstanceConfig> instanceConfigMap = clusterData.getAssignableInstanceConfigMap();
-    _clusterTopo =
-        new Topology(allNodes, liveNodes, instanceConfigMap, clusterData.getClusterConfig(), true);
+    _clusterTopo = clusterData.getTopology(allNodes, liveNodes, true);
+    placementAlgorithm = new CRUSHPlacementAlgorithm(false, _clusterTopo);
     Node topNode = _clusterTopo.getRootNode();
 
     // for log only
@@ -31,6 +31,7 @@ import java.util.Set;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import org.apache.helix.controller.rebalancer.topology.Node;
+import org.apache.helix.controller.rebalancer.topology.Topology;
 import org.apache.helix.util.JenkinsHash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +54,8 @@ public class CRUSHPlacementAlgorithm {
 
   private final boolean keepOffset;
   private final Map<Long,Integer> roundOffset;
+  private final Topology topology;
+  private final JenkinsHash hashFunction = new JenkinsHash();
 
   /**
    * Creates the crush placement object.
@@ -66,8 +69,17 @@ public class CRUSHPlacementAlgorithm {
    * kept for the duration of this object for successive selection of the same input.
    */
   public CRUSHPlacementAlgorithm(boolean keepOffset) {
+    this(keepOffset, null);
+  }
+
+  /**
+   * Creates the crush placement algorithm that reuses the straw tables cached by the given
+   * topology for the nodes of its tree, instead of recomputing them on every selection step.
+   */
+  public CRUSHPlacementAlgorithm(boolean keepOffset, Topology topology) {
     this.keepOffset = keepOffset;
     roundOffset = keepOffset ? new HashMap<Long,Integer>() : null;
+    this.topology = topology;
   }
 
   /**
@@ -119,7 +131,7 @@ public class CRUSHPlacementAlgorithm {
           retryNode = false; // initialize at the outset
           rPrime = r + offset + failure;
           logger.trace("{}.select({}, {})", new Object[] {in, input, rPrime});
-          Selector selector = new Selector(in);
+          Selector selector = new Selector(getStrawTable(in), hashFunction);
           out = selector.select(input, rPrime);
           if (!out.getType().equalsIgnoreCase(type)) {
             logger.trace("selected output {} for data {} didn't match the type {}: walking down " +
@@ -219,81 +231,98 @@ public class CRUSHPlacementAlgorithm {
     return true;
   }
 
+  private Map<Node,Long> getStrawTable(Node node) {
+    if (topology == null) {
+      return computeStraws(node);
+    }
+    return topology.getStrawTable(node, CRUSHPlacementAlgorithm::computeStraws);
+  }
+
   /**
-   * Selection algorithm based on the "straw" bucket type as described in the CRUSH algorithm.
+   * Computes the straws of the children of the given node for the "straw" bucket type as described
+   * in the CRUSH algorithm. The result only depends on the children and their weights.
    */
-  private class Selector {
-    private final Map<Node,Long> straws = new HashMap<Node,Long>();
-    private final JenkinsHash hashFunction;
-
-    public Selector(Node node) {
-      if (!node.isLeaf()) {
-        // create a map from the nodes to their values
-        List<Node> sortedNodes = sortNodes(node.getChildren()); // do a reverse sort by weight
+  private static Map<Node,Long> computeStraws(Node node) {
+    Map<Node,Long> straws = new HashMap<Node,Long>();
+    if (!node.isLeaf()) {
+      // create a map from the nodes to their values
+      List<Node> sortedNodes = sortNodes(node.getChildren()); // do a reverse sort by weight
 
-        int numLeft = sortedNodes.size();
-        float straw = 1.0f;
-        float wbelow = 0.0f;
-        float lastw = 0.0f;
-        int i = 0;
-        final int length = sortedNodes.size();
-        while (i < length) {
-          Node current = sortedNodes.get(i);
-          if (current.getWeight() == 0) {
-            straws.put(current, 0L);
-            i++;
-            continue;
-          }
-          straws.put(current, (long)(straw*0x10000));
+      int numLeft = sortedNodes.size();
+      float straw = 1.0f;
+      float wbelow = 0.0f;
+      float lastw = 0.0f;
+      int i = 0;
+      final int length = sortedNodes.size();
+      while (i < length) {
+        Node current = sortedNodes.get(i);
+        if (current.getWeight() == 0) {
+          straws.put(current, 0L);
           i++;
-          if (i == length) {
-            break;
-          }
+          continue;
+        }
+        straws.put(current, (long)(straw*0x10000));
+        i++;
+        if (i == length) {
+          break;
+        }
 
-          current = sortedNodes.get(i);
-          Node previous = sortedNodes.get(i-1);
-          if (current.getWeight() == previous.getWeight()) {
-            continue;
-          }
-          wbelow += (float)(previous.getWeight() - lastw)*numLeft;
-          for (int j = i; j < length; j++) {
-            if (sortedNodes.get(j).getWeight() == current.getWeight()) {
-              numLeft--;
-            } else {
-              break;
-            }
+        current = sortedNodes.get(i);
+        Node previous = sortedNodes.get(i-1);
+        if (current.getWeight() == previous.getWeight()) {
+          continue;
+        }
+        wbelow += (float)(previous.getWeight() - lastw)*numLeft;
+        for (int j = i; j < length; j++) {
+          if (sortedNodes.get(j).getWeight() == current.getWeight()) {
+            numLeft--;
+          } else {
+            break;
           }
-          float wnext = (float)(numLeft * (current.getWeight() - previous.getWeight()));
-          float pbelow = wbelow/(wbelow + wnext);
-          straw *= Math.pow(1.0/pbelow, 1.0/numLeft);
-          lastw = previous.getWeight();
         }
+        float wnext = (float)(numLeft * (current.getWeight() - previous.getWeight()));
+        float pbelow = wbelow/(wbelow + wnext);
+        straw *= Math.pow(1.0/pbelow, 1.0/numLeft);
+        lastw = previous.getWeight();
       }
-      hashFunction = new JenkinsHash();
     }
+    return straws;
+  }
 
-    /**
-     * Returns a new list that's sorted in the reverse order of the weight.
-     */
-    private List<Node> sortNodes(List<Node> nodes) {
-      List<Node> ret = new ArrayList<Node>(nodes);
-      sortNodesInPlace(ret);
-      return ret;
-    }
+  /**
+   * Returns a new list that's sorted in the reverse order of the weight.
+   */
+  private static List<Node> sortNodes(List<Node> nodes) {
+    List<Node> ret = new ArrayList<Node>(nodes);
+    sortNodesInPlace(ret);
+    return ret;
+  }
 
-    /**
-     * Sorts the list in place in the reverse order of the weight.
-     */
-    private void sortNodesInPlace(List<Node> nodes) {
-      Collections.sort(nodes, new Comparator<Node>() {
-        public int compare(Node n1, Node n2) {
-          if (n2.getWeight() == n1.getWeight()) {
-            return 0;
-          }
-          return (n2.getWeight() - n1.getWeight() > 0) ? 1 : -1;
-          // sort by weight only in the reverse order
+  /**
+   * Sorts the list in place in the reverse order of the weight.
+   */
+  private static void sortNodesInPlace(List<Node> nodes) {
+    Collections.sort(nodes, new Comparator<Node>() {
+      public int compare(Node n1, Node n2) {
+        if (n2.getWeight() == n1.getWeight()) {
+          return 0;
         }
-      });
+        return (n2.getWeight() - n1.getWeight() > 0) ? 1 : -1;
+        // sort by weight only in the reverse order
+      }
+    });
+  }
+
+  /**
+   * Selection algorithm based on the "straw" bucket type as described in the CRUSH algorithm.
+   */
+  private static class Selector {
+    private final Map<Node,Long> straws;
+    private final JenkinsHash hashFunction;
+
+    public Selector(Map<Node,Long> straws, JenkinsHash hashFunction) {
+      this.straws = straws;
+      this.hashFunction = hashFunction;
     }
 
     public Node select(long input, long round) {
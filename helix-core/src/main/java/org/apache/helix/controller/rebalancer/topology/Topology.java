@@ -24,10 +24,12 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.apache.helix.HelixException;
 import org.apache.helix.model.ClusterConfig;
@@ -57,6 +59,11 @@ public class Topology {
   private final List<String> _liveInstances;
   private final Map<String, InstanceConfig> _instanceConfigMap;
   private final ClusterTopologyConfig _clusterTopologyConfig;
+  // Nodes of the tree rooted at _root, compared by identity.
+  private final Set<Node> _treeNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+  // Placement selection tables of the tree nodes, computed on first use.
+  private final Map<Node, Map<Node, Long>> _strawTables =
+      Collections.synchronizedMap(new IdentityHashMap<>());
 
   /**
    * Create a Topology for a cluster.
@@ -86,6 +93,7 @@ public class Topology {
     }
     _clusterTopologyConfig = ClusterTopologyConfig.createFromClusterConfig(clusterConfig);
     _root = createClusterTree(clusterConfig, faultZoneLevelOnly);
+    collectTreeNodes(_root);
   }
 
   /**
@@ -113,6 +121,23 @@ public class Topology {
     return _root;
   }
 
+  /**
+   * Return the straw table used by the CRUSH placement to select among the children of the given
+   * node. The table of a node that belongs to this topology tree is computed once and then shared,
+   * so the tree must not be modified after it has been used for placement. Tables of other nodes,
+   * such as the nodes of a tree returned by {@link #clone(Node, Map, Set)}, are not cached.
+   *
+   * @param node           the parent node.
+   * @param strawTableFunc the function that computes the straw table of a node.
+   * @return the straw table, which must not be modified by the caller.
+   */
+  public Map<Node, Long> getStrawTable(Node node, Function<Node, Map<Node, Long>> strawTableFunc) {
+    if (!_treeNodes.contains(node)) {
+      return strawTableFunc.apply(node);
+    }
+    return _strawTables.computeIfAbsent(node, strawTableFunc);
+  }
+
   public List<Node> getFaultZones() {
     if (_root != null) {
       return _root.findChildren(getFaultZoneType());
@@ -174,6 +199,13 @@ public class Topology {
     return newRoot;
   }
 
+  private void collectTreeNodes(Node node) {
+    _treeNodes.add(node);
+    for (Node child : node.getChildren()) {
+      collectTreeNodes(child);
+    }
+  }
+
   private Node createClusterTree(ClusterConfig clusterConfig, boolean faultZoneLevelOnly) {
     // root
     Node root = new Node();
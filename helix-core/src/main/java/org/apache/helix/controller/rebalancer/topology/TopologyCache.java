@@ -0,0 +1,140 @@
+package org.apache.helix.controller.rebalancer.topology;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
+
+
+/**
+ * A bounded cache of {@link Topology} trees shared by the resources rebalanced in the same
+ * controller. Most resources of a cluster are placed on the same instance list, so the tree only
+ * needs to be built once per distinct cluster shape instead of once per resource.
+ *
+ * The cache key is computed from the content the tree is built on: the ordered instance list, the
+ * live state, weight, domain, zone and enabled flag of each instance, and the topology settings of
+ * the cluster config. Version based keys are not sufficient since some strategies modify the
+ * in-memory instance weights before computing the assignment.
+ *
+ * The cached trees are shared, so callers must not modify them. Use
+ * {@link Topology#clone(Node, Map, Set)} to derive a modified tree.
+ */
+public class TopologyCache {
+  public static final int DEFAULT_MAX_SIZE = 64;
+
+  private final Map<List<Object>, Topology> _topologyMap;
+  private final AtomicLong _hitCount = new AtomicLong();
+  private final AtomicLong _missCount = new AtomicLong();
+
+  public TopologyCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public TopologyCache(final int maxSize) {
+    _topologyMap = new LinkedHashMap<List<Object>, Topology>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, Topology> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Return the Topology of the given instances, building it only if no tree with the same content
+   * has been cached.
+   *
+   * @param allNodes           all instances to be included in the tree, in placement order.
+   * @param liveNodes          live instances.
+   * @param instanceConfigMap  instance configs of at least all the instances in allNodes.
+   * @param clusterConfig      cluster config.
+   * @param faultZoneLevelOnly see {@link Topology#Topology(List, List, Map, ClusterConfig, boolean)}
+   */
+  public Topology getTopology(List<String> allNodes, List<String> liveNodes,
+      Map<String, InstanceConfig> instanceConfigMap, ClusterConfig clusterConfig,
+      boolean faultZoneLevelOnly) {
+    if (instanceConfigMap == null || !instanceConfigMap.keySet().containsAll(allNodes)) {
+      // Let the Topology constructor report the invalid input.
+      return new Topology(allNodes, liveNodes, instanceConfigMap, clusterConfig,
+          faultZoneLevelOnly);
+    }
+    List<Object> key =
+        computeKey(allNodes, liveNodes, instanceConfigMap, clusterConfig, faultZoneLevelOnly);
+    synchronized (_topologyMap) {
+      Topology topology = _topologyMap.get(key);
+      if (topology != null) {
+        _hitCount.incrementAndGet();
+        return topology;
+      }
+    }
+    _missCount.incrementAndGet();
+    Topology topology = new Topology(new ArrayList<>(allNodes), new ArrayList<>(liveNodes),
+        instanceConfigMap, clusterConfig, faultZoneLevelOnly);
+    synchronized (_topologyMap) {
+      _topologyMap.put(key, topology);
+    }
+    return topology;
+  }
+
+  public void clear() {
+    synchronized (_topologyMap) {
+      _topologyMap.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (_topologyMap) {
+      return _topologyMap.size();
+    }
+  }
+
+  public long getHitCount() {
+    return _hitCount.get();
+  }
+
+  public long getMissCount() {
+    return _missCount.get();
+  }
+
+  private static List<Object> computeKey(List<String> allNodes, List<String> liveNodes,
+      Map<String, InstanceConfig> instanceConfigMap, ClusterConfig clusterConfig,
+      boolean faultZoneLevelOnly) {
+    Set<String> liveNodeSet = new HashSet<>(liveNodes);
+    List<Object> key = new ArrayList<>(allNodes.size() + 4);
+    key.add(faultZoneLevelOnly);
+    key.add(clusterConfig.isTopologyAwareEnabled());
+    key.add(clusterConfig.getTopology());
+    key.add(clusterConfig.getFaultZoneType());
+    for (String instanceName : allNodes) {
+      InstanceConfig config = instanceConfigMap.get(instanceName);
+      key.add(Arrays.asList(instanceName, liveNodeSet.contains(instanceName), config.getWeight(),
+          config.getDomainAsString(), config.getZoneId(), config.getInstanceEnabled()));
+    }
+    return key;
+  }
+}
@@ -27,6 +27,7 @@ import java.util.Map;
 import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixProperty;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.manager.zk.ZkBucketDataAccessor;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -46,6 +47,9 @@ public class AssignmentMetadataStore {
   private static final ZkSerializer SERIALIZER = new ZNRecordJacksonSerializer();
 
   private final BucketDataAccessor _dataAccessor;
+  // Write each resource assignment as a separate chunk so unchanged assignments are not rewritten
+  private final boolean _chunkedWriteEnabled =
+      Boolean.getBoolean(SystemPropertyKeys.WAGED_ASSIGNMENT_METADATA_CHUNKED_WRITE_ENABLED);
   private final String _baselinePath;
   private final String _bestPossiblePath;
   // volatile for double-checked locking
@@ -122,7 +126,11 @@ public class AssignmentMetadataStore {
     // Persist to ZK
     HelixProperty combinedAssignments = combineAssignments(key, newAssignment);
     try {
-      _dataAccessor.compressedBucketWrite(path, combinedAssignments);
+      if (_chunkedWriteEnabled) {
+        _dataAccessor.compressedChunkedWrite(path, combinedAssignments);
+      } else {
+        _dataAccessor.compressedBucketWrite(path, combinedAssignments);
+      }
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to persist %s assignment to path %s", key, path), e);
     }
@@ -38,6 +38,7 @@ import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
+import org.apache.helix.controller.pipeline.PipelineSpan;
 import org.apache.helix.controller.pipeline.StageException;
 import org.apache.helix.controller.rebalancer.CustomRebalancer;
 import org.apache.helix.controller.rebalancer.DelayedAutoRebalancer;
@@ -100,6 +101,11 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     addSwapInInstancesToBestPossibleState(resourceMap, bestPossibleStateOutput, cache);
 
     event.addAttribute(AttributeName.BEST_POSSIBLE_STATE.name(), bestPossibleStateOutput);
+    final BestPossibleStateOutput lastBestPossibleStateOutput =
+        cache.getLastBestPossibleStateOutput();
+    cache.setLastBestPossibleStateOutput(bestPossibleStateOutput);
+    // The reports run asynchronously, so they carry the version to be applied in order
+    final long bestPossibleStateVersion = cache.getLastBestPossibleStateVersion();
 
     final Map<String, InstanceConfig> allInstanceConfigMap = cache.getInstanceConfigMap();
     final Map<String, StateModelDefinition> stateModelDefMap = cache.getStateModelDefMap();
@@ -123,7 +129,8 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
               continue;
             }
             IdealState is = idealStateMap.get(resourceName);
-            reportResourceState(clusterStatusMonitor, bestPossibleStateOutput, resourceName, is,
+            reportResourceState(clusterStatusMonitor, bestPossibleStateOutput,
+                lastBestPossibleStateOutput, bestPossibleStateVersion, resourceName, is,
                 externalViewMap.get(resourceName), stateModelDefMap.get(is.getStateModelDefRef()));
           }
         }
@@ -237,11 +244,14 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
   }
 
   private void reportResourceState(ClusterStatusMonitor clusterStatusMonitor,
-      BestPossibleStateOutput bestPossibleStateOutput, String resourceName, IdealState is,
-      ExternalView ev, StateModelDefinition stateModelDef) {
+      BestPossibleStateOutput bestPossibleStateOutput,
+      BestPossibleStateOutput lastBestPossibleStateOutput, long bestPossibleStateVersion,
+      String resourceName, IdealState is, ExternalView ev, StateModelDefinition stateModelDef) {
     // Create a temporary local IdealState object for monitoring. This is to avoid modifying
     // the IdealState cache.
     IdealState tmpIdealState = new IdealState(is.getRecord());
+    // The partitions whose best possible states changed since the last report, null if unknown
+    Set<String> changedPartitions = null;
 
     if (bestPossibleStateOutput.containsResource(resourceName)) {
       // Merge the best possible state output for resource status monitoring.
@@ -250,15 +260,46 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
       tmpIdealState.getRecord().setListFields(preferenceLists);
       Map<Partition, Map<String, String>> stateMap =
           bestPossibleStateOutput.getPartitionStateMap(resourceName).getStateMap();
-      tmpIdealState.getRecord().setMapFields(stateMap.entrySet().stream()
-          .collect(Collectors.toMap(e -> e.getKey().getPartitionName(), Map.Entry::getValue)));
+      Map<Partition, Map<String, String>> lastStateMap = null;
+      if (lastBestPossibleStateOutput != null
+          && lastBestPossibleStateOutput.containsResource(resourceName)) {
+        lastStateMap =
+            lastBestPossibleStateOutput.getPartitionStateMap(resourceName).getStateMap();
+        changedPartitions = new HashSet<>();
+      }
+      // Compare with the last output in the same pass that copies the state maps
+      Map<String, Map<String, String>> mapFields = new HashMap<>();
+      int lastPartitionCount = 0;
+      for (Map.Entry<Partition, Map<String, String>> entry : stateMap.entrySet()) {
+        String partitionName = entry.getKey().getPartitionName();
+        mapFields.put(partitionName, entry.getValue());
+        if (lastStateMap != null) {
+          Map<String, String> lastPartitionStateMap = lastStateMap.get(entry.getKey());
+          if (lastPartitionStateMap != null) {
+            lastPartitionCount++;
+          }
+          if (!entry.getValue().equals(lastPartitionStateMap)) {
+            changedPartitions.add(partitionName);
+          }
+        }
+      }
+      tmpIdealState.getRecord().setMapFields(mapFields);
+      if (lastStateMap != null && lastPartitionCount != lastStateMap.size()) {
+        // Some partitions of the last output were removed
+        for (Partition partition : lastStateMap.keySet()) {
+          if (!stateMap.containsKey(partition)) {
+            changedPartitions.add(partition.getPartitionName());
+          }
+        }
+      }
     } else {
       LogUtil.logWarn(logger, _eventId, String.format(
           "Cannot find the best possible state of resource %s. "
               + "Will update the resource status based on the content of the IdealState.",
           resourceName));
     }
-    clusterStatusMonitor.setResourceState(resourceName, ev, tmpIdealState, stateModelDef);
+    clusterStatusMonitor.setResourceState(resourceName, ev, tmpIdealState, stateModelDef,
+        changedPartitions, bestPossibleStateVersion);
   }
 
   private BestPossibleStateOutput compute(ClusterEvent event, Map<String, Resource> resourceMap,
@@ -279,9 +320,13 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
 
     final List<String> failureResources = new ArrayList<>();
 
-    Map<String, Resource> calculatedResourceMap =
-        computeResourceBestPossibleStateWithWagedRebalancer(wagedRebalancer, cache,
-            currentStateOutput, resourceMap, output, failureResources);
+    Map<String, Resource> calculatedResourceMap;
+    try (PipelineSpan span = event.startSpan("wagedRebalance", "compute")) {
+      calculatedResourceMap =
+          computeResourceBestPossibleStateWithWagedRebalancer(wagedRebalancer, cache,
+              currentStateOutput, resourceMap, output, failureResources);
+      span.addArg("resources", calculatedResourceMap.size());
+    }
 
     Map<String, Resource> remainingResourceMap = new HashMap<>(resourceMap);
     remainingResourceMap.keySet().removeAll(calculatedResourceMap.keySet());
@@ -293,7 +338,7 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     while (itr.hasNext()) {
       Resource resource = itr.next();
       boolean result = false;
-      try {
+      try (PipelineSpan span = event.startSpan(resource.getResourceName(), "compute")) {
         result = computeSingleResourceBestPossibleState(event, cache, currentStateOutput, resource,
             output);
       } catch (HelixException ex) {
@@ -23,6 +23,9 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.helix.NotificationContext;
+import org.apache.helix.controller.pipeline.PipelineSpan;
+import org.apache.helix.controller.pipeline.PipelineTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +36,7 @@ public class ClusterEvent {
   private long _creationTime;
   private String _clusterName;
   private String _eventId;
+  private volatile PipelineTrace _trace;
 
   @Deprecated
   public ClusterEvent(ClusterEventType eventType) {
@@ -90,6 +94,62 @@ public class ClusterEvent {
     return _eventId;
   }
 
+  /**
+   * Coalesce an older event of the same type, which has not been processed yet, into this event.
+   * This event keeps its own attributes, but inherits the missing ones and the creation time of
+   * the older event, and the change contexts of both events are merged.
+   * @param olderEvent the older event
+   */
+  public void coalesce(ClusterEvent olderEvent) {
+    if (olderEvent == null || olderEvent == this) {
+      return;
+    }
+    _creationTime = Math.min(_creationTime, olderEvent.getCreationTime());
+    NotificationContext olderContext =
+        olderEvent.getAttribute(AttributeName.changeContext.name());
+    NotificationContext context = getAttribute(AttributeName.changeContext.name());
+    if (olderContext != null && context != null) {
+      addAttribute(AttributeName.changeContext.name(), context.merge(olderContext));
+    }
+    for (Map.Entry<String, Object> attr : olderEvent._eventAttributeMap.entrySet()) {
+      _eventAttributeMap.putIfAbsent(attr.getKey(), attr.getValue());
+    }
+  }
+
+  /**
+   * Attach a trace to this event. Spans started through startSpan() are recorded in it.
+   * @param trace the trace, or null to disable tracing for this event
+   */
+  public void setTrace(PipelineTrace trace) {
+    _trace = trace;
+  }
+
+  public PipelineTrace getTrace() {
+    return _trace;
+  }
+
+  /**
+   * Start a timed span for this event. If tracing is not enabled for this event, a no-op span is
+   * returned.
+   * @param name span name
+   * @return the started span; close it to record it
+   */
+  public PipelineSpan startSpan(String name) {
+    return startSpan(name, "");
+  }
+
+  /**
+   * Start a timed span for this event. If tracing is not enabled for this event, a no-op span is
+   * returned.
+   * @param name span name
+   * @param category span category, e.g. "stage" or "compute"
+   * @return the started span; close it to record it
+   */
+  public PipelineSpan startSpan(String name, String category) {
+    PipelineTrace trace = _trace;
+    return trace == null ? PipelineSpan.NOOP : trace.startSpan(name, category);
+  }
+
   public boolean containsAttribute(String attrName) {
     return _eventAttributeMap.containsKey(attrName);
   }
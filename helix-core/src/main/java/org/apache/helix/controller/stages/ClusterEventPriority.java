@@ -0,0 +1,67 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The priority lanes of the controller event queues. Events in a more urgent lane are processed
+ * before the ones in a less urgent lane, regardless of the order they were enqueued in.
+ */
+public enum ClusterEventPriority {
+  /**
+   * Changes to the cluster membership or to cluster wide configuration. They usually invalidate
+   * the result of any routine pipeline run, so they should be handled as soon as possible.
+   */
+  URGENT,
+  /**
+   * Changes to the resources and explicit rebalance requests.
+   */
+  NORMAL,
+  /**
+   * High volume state updates reported by the participants, and periodic work.
+   */
+  ROUTINE;
+
+  /**
+   * @param eventType
+   * @return the lane that the events of the given type go to
+   */
+  public static ClusterEventPriority of(ClusterEventType eventType) {
+    if (eventType == null) {
+      return ROUTINE;
+    }
+    switch (eventType) {
+    case LiveInstanceChange:
+    case ClusterConfigChange:
+    case InstanceConfigChange:
+    case ControllerChange:
+      return URGENT;
+    case IdealStateChange:
+    case ResourceConfigChange:
+    case CustomizeStateConfigChange:
+    case ConfigChange:
+    case Resume:
+    case OnDemandRebalance:
+    case RetryRebalance:
+      return NORMAL;
+    default:
+      return ROUTINE;
+    }
+  }
+}
@@ -80,6 +80,7 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
         event.getAttribute(AttributeName.clusterStatusMonitor.name());
 
     List<ExternalView> newExtViews = new ArrayList<>();
+    Map<String, Set<String>> changedPartitionsMap = new HashMap<>();
     Set<String> monitoringResources = new HashSet<>();
 
     Map<String, ExternalView> curExtViews = cache.getExternalViews();
@@ -87,7 +88,7 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     for (Resource resource : resourceMap.values()) {
       try {
         computeExternalView(resource, currentStateOutput, cache, clusterStatusMonitor, curExtViews,
-            manager, monitoringResources, newExtViews);
+            manager, monitoringResources, newExtViews, changedPartitionsMap);
       } catch (HelixException ex) {
         LogUtil.logError(LOG, _eventId,
             "Failed to calculate external view for resource " + resource.getResourceName(), ex);
@@ -128,6 +129,13 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     if (newExtViews.size() > 0) {
       dataAccessor.setChildren(keys, newExtViews);
       cache.updateExternalViews(newExtViews);
+      // Let the resource monitors evaluate the changed partitions only
+      if (clusterStatusMonitor != null) {
+        for (ExternalView view : newExtViews) {
+          clusterStatusMonitor.setResourceExternalViewChangedPartitions(view.getResourceName(),
+              view, changedPartitionsMap.get(view.getResourceName()));
+        }
+      }
     }
 
     // remove dead external-views
@@ -144,7 +152,8 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
   private void computeExternalView(final Resource resource,
       final CurrentStateOutput currentStateOutput, final ResourceControllerDataProvider cache,
       final ClusterStatusMonitor clusterStatusMonitor, final Map<String, ExternalView> curExtViews,
-      final HelixManager manager, Set<String> monitoringResources, List<ExternalView> newExtViews) {
+      final HelixManager manager, Set<String> monitoringResources, List<ExternalView> newExtViews,
+      Map<String, Set<String>> changedPartitionsMap) {
     String resourceName = resource.getResourceName();
     ExternalView view = new ExternalView(resource.getResourceName());
     // if resource ideal state has bucket size, set it
@@ -191,10 +200,15 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
       view.getRecord().getSimpleFields().putAll(curExtView.getRecord().getSimpleFields());
     }
 
-    // compare the new external view with current one, set only on different
-    if (curExtView == null || !curExtView.getRecord().equals(view.getRecord())) {
+    // compare the new external view with current one, set only on different. The partitions are
+    // compared one by one, so the same pass tells which of them changed.
+    Set<String> changedPartitions = getChangedPartitions(curExtView, view);
+    if (changedPartitions == null || !changedPartitions.isEmpty()
+        || !curExtView.getRecord().getSimpleFields().equals(view.getRecord().getSimpleFields())
+        || !curExtView.getRecord().getListFields().equals(view.getRecord().getListFields())) {
       // Add external view to the list which will be written to ZK later.
       newExtViews.add(view);
+      changedPartitionsMap.put(resourceName, changedPartitions);
 
       // For SCHEDULER_TASK_RESOURCE resource group (helix task queue), we need to find out which
       // task partitions are finished (COMPLETED or ERROR), update the status update of the original
@@ -207,6 +221,39 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     }
   }
 
+  /**
+   * @return the partitions whose state maps differ between the current and the new external view,
+   *         or null if there is no current external view
+   */
+  private static Set<String> getChangedPartitions(ExternalView curExtView,
+      ExternalView newExtView) {
+    if (curExtView == null) {
+      return null;
+    }
+    Map<String, Map<String, String>> curStateMaps = curExtView.getRecord().getMapFields();
+    Map<String, Map<String, String>> newStateMaps = newExtView.getRecord().getMapFields();
+    Set<String> changedPartitions = new HashSet<>();
+    int curPartitionCount = 0;
+    for (Map.Entry<String, Map<String, String>> entry : newStateMaps.entrySet()) {
+      Map<String, String> curStateMap = curStateMaps.get(entry.getKey());
+      if (curStateMap != null) {
+        curPartitionCount++;
+      }
+      if (!entry.getValue().equals(curStateMap)) {
+        changedPartitions.add(entry.getKey());
+      }
+    }
+    if (curPartitionCount != curStateMaps.size()) {
+      // Some partitions of the current external view were removed
+      for (String partition : curStateMaps.keySet()) {
+        if (!newStateMaps.containsKey(partition)) {
+          changedPartitions.add(partition);
+        }
+      }
+    }
+    return changedPartitions;
+  }
+
   private void updateScheduledTaskStatus(ExternalView ev, HelixManager manager,
       IdealState taskQueueIdealState) {
     HelixDataAccessor accessor = manager.getHelixDataAccessor();
@@ -19,8 +19,14 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
@@ -48,8 +54,6 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
   private static Logger LOG = LoggerFactory.getLogger(TopStateHandoffReportStage.class);
   public static final long TIMESTAMP_NOT_RECORDED = -1L;
 
-  private Map<String, Long> _failingPartitionsInfoMap = new HashMap<>();
-
   @Override
   public AsyncWorkerType getAsyncWorkerType() {
     return AsyncWorkerType.TopStateHandoffReportWorker;
@@ -99,6 +103,12 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
     missingTopStateMap.keySet().retainAll(resourceMap.keySet());
     lastTopStateMap.keySet().retainAll(resourceMap.keySet());
 
+    // The records of each resource are handed to its own task, so that the resources can be
+    // processed in parallel without sharing any mutable state. The cluster level maps are only
+    // modified on this thread.
+    Map<String, Map<String, MissingTopStateRecord>> resourceMissingTopStates = new HashMap<>();
+    Map<String, Map<String, String>> resourceLastTopStates = new HashMap<>();
+    List<Callable<Object>> tasks = new ArrayList<>();
     for (Resource resource : resourceMap.values()) {
       StateModelDefinition stateModelDef = cache.getStateModelDef(resource.getStateModelDefRef());
       if (stateModelDef == null || resource.getStateModelDefRef()
@@ -108,36 +118,132 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
       }
 
       String resourceName = resource.getResourceName();
-      _failingPartitionsInfoMap.clear();
-
-      for (Partition partition : resource.getPartitions()) {
-        String currentTopStateInstance =
-            findCurrentTopStateLocation(currentStateOutput, resourceName, partition, stateModelDef);
-        String lastTopStateInstance = findCachedTopStateLocation(cache, resourceName, partition);
-
-        if (currentTopStateInstance != null) {
-          reportTopStateExistence(cache, currentStateOutput, stateModelDef, resourceName, partition,
-              lastTopStateInstance, currentTopStateInstance, clusterStatusMonitor,
-              durationThreshold, lastPipelineFinishTimestamp);
-          updateCachedTopStateLocation(cache, resourceName, partition, currentTopStateInstance);
-        } else {
-          reportTopStateMissing(cache, resourceName,
-              partition, stateModelDef.getTopState(), currentStateOutput);
-          reportTopStateHandoffFailIfNecessary(cache, resourceName, partition, durationThreshold,
-              clusterStatusMonitor);
+      Map<String, MissingTopStateRecord> missingTopStates =
+          missingTopStateMap.getOrDefault(resourceName, new HashMap<>());
+      Map<String, String> lastTopStates =
+          lastTopStateMap.getOrDefault(resourceName, new HashMap<>());
+      resourceMissingTopStates.put(resourceName, missingTopStates);
+      resourceLastTopStates.put(resourceName, lastTopStates);
+
+      final long threshold = durationThreshold;
+      tasks.add(() -> {
+        updateResourceTopStateStatus(cache, clusterStatusMonitor, resource, stateModelDef,
+            currentStateOutput, missingTopStates, lastTopStates, threshold,
+            lastPipelineFinishTimestamp);
+        return null;
+      });
+    }
+
+    ExecutorService executorService = cache.getAsyncTasksThreadPool();
+    if (executorService == null || tasks.size() <= 1) {
+      for (Callable<Object> task : tasks) {
+        runResourceTask(task);
+      }
+    } else {
+      List<Future> futures = new ArrayList<>(tasks.size());
+      for (Callable<Object> task : tasks) {
+        futures.add(asyncExecute(executorService, () -> runResourceTask(task)));
+      }
+      for (Future future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          LogUtil.logWarn(LOG, _eventId, "Interrupted while waiting for top state handoff reports");
+          Thread.currentThread().interrupt();
+          return;
+        } catch (ExecutionException e) {
+          LogUtil.logError(LOG, _eventId, "Failed to report top state handoff", e);
         }
       }
+    }
 
-      if (!_failingPartitionsInfoMap.isEmpty()) {
-        LogUtil.logInfo(LOG, _eventId, String.format("Missing top state for partitions: %s", _failingPartitionsInfoMap));
+    resourceMissingTopStates.forEach((resourceName, missingTopStates) -> {
+      if (missingTopStates.isEmpty()) {
+        missingTopStateMap.remove(resourceName);
+      } else {
+        missingTopStateMap.put(resourceName, missingTopStates);
       }
-    }
+    });
+    resourceLastTopStates.forEach((resourceName, lastTopStates) -> {
+      if (!lastTopStates.isEmpty()) {
+        lastTopStateMap.put(resourceName, lastTopStates);
+      }
+    });
 
     if (clusterStatusMonitor != null) {
       clusterStatusMonitor.resetMaxMissingTopStateGauge();
     }
   }
 
+  private Object runResourceTask(Callable<Object> task) {
+    try {
+      return task.call();
+    } catch (Exception e) {
+      LogUtil.logError(LOG, _eventId, "Failed to report top state handoff", e);
+      return null;
+    }
+  }
+
+  /**
+   * Check the top state handoff of the partitions of a single resource. Only the partitions whose
+   * top state may have changed are checked, the others cannot produce any report.
+   *
+   * @param missingTopStates missing top state records of the resource, keyed by partition name
+   * @param lastTopStates cached top state locations of the resource, keyed by partition name
+   */
+  private void updateResourceTopStateStatus(ResourceControllerDataProvider cache,
+      ClusterStatusMonitor clusterStatusMonitor, Resource resource,
+      StateModelDefinition stateModelDef, CurrentStateOutput currentStateOutput,
+      Map<String, MissingTopStateRecord> missingTopStates, Map<String, String> lastTopStates,
+      long durationThreshold, long lastPipelineFinishTimestamp) {
+    String resourceName = resource.getResourceName();
+    Map<String, Long> failingPartitionsInfoMap = new HashMap<>();
+
+    for (Partition partition : resource.getPartitions()) {
+      String partitionName = partition.getPartitionName();
+      String currentTopStateInstance =
+          findCurrentTopStateLocation(currentStateOutput, resourceName, partition, stateModelDef);
+      String lastTopStateInstance = lastTopStates.get(partitionName);
+
+      if (currentTopStateInstance != null) {
+        if (!missingTopStates.containsKey(partitionName) && currentTopStateInstance
+            .equals(lastTopStateInstance) && !isTopStateUpdatedSince(currentStateOutput,
+            resourceName, partition, currentTopStateInstance, lastPipelineFinishTimestamp)) {
+          // The top state has stayed on the same instance since the last pipeline run
+          continue;
+        }
+        reportTopStateExistence(cache, currentStateOutput, stateModelDef, resourceName, partition,
+            lastTopStateInstance, currentTopStateInstance, missingTopStates, clusterStatusMonitor,
+            durationThreshold, lastPipelineFinishTimestamp);
+        lastTopStates.put(partitionName, currentTopStateInstance);
+      } else {
+        reportTopStateMissing(cache, resourceName, partition, stateModelDef.getTopState(),
+            currentStateOutput, missingTopStates, lastTopStateInstance);
+        reportTopStateHandoffFailIfNecessary(resourceName, partition, durationThreshold,
+            missingTopStates, failingPartitionsInfoMap, clusterStatusMonitor);
+      }
+    }
+
+    if (!failingPartitionsInfoMap.isEmpty()) {
+      LogUtil.logInfo(LOG, _eventId,
+          String.format("Missing top state for partitions: %s", failingPartitionsInfoMap));
+    }
+  }
+
+  /**
+   * Check if the top state of the given partition was updated after the last pipeline run
+   * finished. Only then a handoff on the same instance can be observed.
+   */
+  private boolean isTopStateUpdatedSince(CurrentStateOutput currentStateOutput,
+      String resourceName, Partition partition, String topStateInstance,
+      long lastPipelineFinishTimestamp) {
+    if (lastPipelineFinishTimestamp == TIMESTAMP_NOT_RECORDED) {
+      return false;
+    }
+    return currentStateOutput.getEndTime(resourceName, partition, topStateInstance)
+        >= lastPipelineFinishTimestamp;
+  }
+
   /**
    * From current state output, find out the location of the top state of given resource
    * and partition
@@ -159,38 +265,6 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
     return null;
   }
 
-  /**
-   * Find cached top state location of the given resource and partition
-   *
-   * @param cache cluster data cache object
-   * @param resourceName resource name
-   * @param partition partition of the given resource
-   * @return cached name of the node that contains top state, null if not previously cached
-   */
-  private String findCachedTopStateLocation(ResourceControllerDataProvider cache, String resourceName, Partition partition) {
-    Map<String, Map<String, String>> lastTopStateMap = cache.getLastTopStateLocationMap();
-    return lastTopStateMap.containsKey(resourceName) && lastTopStateMap.get(resourceName)
-        .containsKey(partition.getPartitionName()) ? lastTopStateMap.get(resourceName)
-        .get(partition.getPartitionName()) : null;
-  }
-
-  /**
-   * Update top state location cache of the given resource and partition
-   *
-   * @param cache cluster data cache object
-   * @param resourceName resource name
-   * @param partition partition of the given resource
-   * @param currentTopStateInstance name of the instance that currently has the top state
-   */
-  private void updateCachedTopStateLocation(ResourceControllerDataProvider cache, String resourceName,
-      Partition partition, String currentTopStateInstance) {
-    Map<String, Map<String, String>> lastTopStateMap = cache.getLastTopStateLocationMap();
-    if (!lastTopStateMap.containsKey(resourceName)) {
-      lastTopStateMap.put(resourceName, new HashMap<String, String>());
-    }
-    lastTopStateMap.get(resourceName).put(partition.getPartitionName(), currentTopStateInstance);
-  }
-
   /**
    * When we observe a top state of a given resource and partition, we need to report for the
    * following 2 scenarios:
@@ -205,6 +279,7 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
    * @param partition partition of the given resource
    * @param lastTopStateInstance our cached top state location
    * @param currentTopStateInstance top state location we observed during this pipeline run
+   * @param missingTopStates missing top state records of the given resource
    * @param clusterStatusMonitor monitor object
    * @param durationThreshold top state handoff duration threshold
    * @param lastPipelineFinishTimestamp timestamp when last pipeline run finished
@@ -212,19 +287,16 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
   private void reportTopStateExistence(ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
       StateModelDefinition stateModelDef, String resourceName, Partition partition,
       String lastTopStateInstance, String currentTopStateInstance,
+      Map<String, MissingTopStateRecord> missingTopStates,
       ClusterStatusMonitor clusterStatusMonitor, long durationThreshold,
       long lastPipelineFinishTimestamp) {
 
-    Map<String, Map<String, MissingTopStateRecord>> missingTopStateMap =
-        cache.getMissingTopStateMap();
-
-    if (missingTopStateMap.containsKey(resourceName) && missingTopStateMap.get(resourceName)
-        .containsKey(partition.getPartitionName())) {
+    if (missingTopStates.containsKey(partition.getPartitionName())) {
       // We previously recorded a top state missing, and it's coming back.
       // Note : Decrement missingTopStatePartitionsBeyondGuage in this code path because this guage will be incremented
       //        only if we were able to record it in the first place.
       reportTopStateComesBack(cache, currentStateOutput.getCurrentStateMap(resourceName, partition),
-          resourceName, partition, clusterStatusMonitor, durationThreshold,
+          resourceName, partition, missingTopStates, clusterStatusMonitor, durationThreshold,
           stateModelDef.getTopState());
     } else if (lastTopStateInstance != null) {
       // With no missing top state record, but top state instance changed,
@@ -319,29 +391,29 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
    * than the threshold, if so, report a top state transition failure as well increment a guage which reports number
    * of partitions with missing top state.
    *
-   * @param cache cluster data cache
    * @param resourceName resource name
    * @param partition partition of the given resource
    * @param durationThreshold top state handoff duration threshold
+   * @param missingTopStates missing top state records of the given resource
+   * @param failingPartitionsInfoMap missing durations of the partitions found failed
    * @param clusterStatusMonitor monitor object
    */
-  private void reportTopStateHandoffFailIfNecessary(ResourceControllerDataProvider cache, String resourceName,
-      Partition partition, long durationThreshold, ClusterStatusMonitor clusterStatusMonitor) {
-    Map<String, Map<String, MissingTopStateRecord>> missingTopStateMap =
-        cache.getMissingTopStateMap();
+  private void reportTopStateHandoffFailIfNecessary(String resourceName, Partition partition,
+      long durationThreshold, Map<String, MissingTopStateRecord> missingTopStates,
+      Map<String, Long> failingPartitionsInfoMap, ClusterStatusMonitor clusterStatusMonitor) {
     String partitionName = partition.getPartitionName();
-    MissingTopStateRecord record = missingTopStateMap.get(resourceName).get(partitionName);
+    MissingTopStateRecord record = missingTopStates.get(partitionName);
     long startTime = record.getStartTimeStamp();
     long missingDuration = System.currentTimeMillis() - startTime;
     if (startTime > 0 && missingDuration > durationThreshold && !record.isFailed()) {
       record.setFailed();
-      missingTopStateMap.get(resourceName).put(partitionName, record);
+      missingTopStates.put(partitionName, record);
       // Since top state handoff has not completed yet we can't log helix top state latency but can log since how long
       // top state is missing.
       LogUtil.logDebug(LOG, _eventId, String.format(
           "Missing top state for partition %s beyond %s time. Graceful: %s",
           partitionName, missingDuration, false));
-      _failingPartitionsInfoMap.put(partitionName, missingDuration);
+      failingPartitionsInfoMap.put(partitionName, missingDuration);
 
       if (clusterStatusMonitor != null) {
         clusterStatusMonitor.updateMissingTopStateDurationStats(resourceName, 0L, 0L,
@@ -359,13 +431,13 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
    * @param partition partition of the given resource
    * @param topState top state name
    * @param currentStateOutput current state output
+   * @param missingTopStates missing top state records of the given resource
+   * @param missingStateInstance cached top state location of the given partition
    */
   private void reportTopStateMissing(ResourceControllerDataProvider cache, String resourceName, Partition partition,
-      String topState, CurrentStateOutput currentStateOutput) {
-    Map<String, Map<String, MissingTopStateRecord>> missingTopStateMap = cache.getMissingTopStateMap();
-    Map<String, Map<String, String>> lastTopStateMap = cache.getLastTopStateLocationMap();
-    if (missingTopStateMap.containsKey(resourceName) && missingTopStateMap.get(resourceName)
-        .containsKey(partition.getPartitionName())) {
+      String topState, CurrentStateOutput currentStateOutput,
+      Map<String, MissingTopStateRecord> missingTopStates, String missingStateInstance) {
+    if (missingTopStates.containsKey(partition.getPartitionName())) {
       // a previous missing has been already recorded
       return;
     }
@@ -375,11 +447,6 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
     boolean isGraceful = true;
 
     // 1. try to find the previous topstate missing event for the startTime.
-    String missingStateInstance = null;
-    if (lastTopStateMap.containsKey(resourceName)) {
-      missingStateInstance = lastTopStateMap.get(resourceName).get(partition.getPartitionName());
-    }
-
     if (missingStateInstance != null) {
       Map<String, LiveInstance> liveInstances = cache.getLiveInstances();
       if (liveInstances.containsKey(missingStateInstance)) {
@@ -444,11 +511,7 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
       startTime = System.currentTimeMillis();
     }
 
-    if (!missingTopStateMap.containsKey(resourceName)) {
-      missingTopStateMap.put(resourceName, new HashMap<String, MissingTopStateRecord>());
-    }
-
-    missingTopStateMap.get(resourceName).put(partition.getPartitionName(),
+    missingTopStates.put(partition.getPartitionName(),
         new MissingTopStateRecord(startTime, fromTopStateUserLatency, isGraceful));
   }
 
@@ -461,17 +524,15 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
    * @param stateMap state map of the given partition of the given resource
    * @param resourceName resource name
    * @param partition partition of the resource
+   * @param missingTopStates missing top state records of the given resource
    * @param clusterStatusMonitor monitor object
    * @param threshold top state handoff threshold
    * @param topState name of the top state
    */
   private void reportTopStateComesBack(ResourceControllerDataProvider cache, Map<String, String> stateMap, String resourceName,
-      Partition partition, ClusterStatusMonitor clusterStatusMonitor, long threshold,
-      String topState) {
-    Map<String, Map<String, MissingTopStateRecord>> missingTopStateMap =
-        cache.getMissingTopStateMap();
-    MissingTopStateRecord record =
-        missingTopStateMap.get(resourceName).get(partition.getPartitionName());
+      Partition partition, Map<String, MissingTopStateRecord> missingTopStates,
+      ClusterStatusMonitor clusterStatusMonitor, long threshold, String topState) {
+    MissingTopStateRecord record = missingTopStates.get(partition.getPartitionName());
     long handOffStartTime = record.getStartTimeStamp();
     long fromTopStateUserLatency = record.getUserLatency();
 
@@ -517,18 +578,7 @@ public class TopStateHandoffReportStage extends AbstractAsyncBaseStage {
       clusterStatusMonitor.decrementMissingTopStateBeyondThresholdGauge(resourceName);
     }
 
-    removeFromStatsMap(missingTopStateMap, resourceName, partition);
-  }
-
-  private void removeFromStatsMap(
-      Map<String, Map<String, MissingTopStateRecord>> missingTopStateMap, String resourceName,
-      Partition partition) {
-    if (missingTopStateMap.containsKey(resourceName)) {
-      missingTopStateMap.get(resourceName).remove(partition.getPartitionName());
-      if (missingTopStateMap.get(resourceName).isEmpty()) {
-        missingTopStateMap.remove(resourceName);
-      }
-    }
+    missingTopStates.remove(partition.getPartitionName());
   }
 
   private void logMissingTopStateInfo(long totalDuration, long helixLatency, boolean isGraceful,
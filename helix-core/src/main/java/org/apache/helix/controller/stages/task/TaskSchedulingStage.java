@@ -70,18 +70,34 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     }
 
 
-    // Build quota capacity based on Current State and Pending Messages
-    cache.getAssignableInstanceManager().buildAssignableInstancesFromCurrentState(
-        cache.getClusterConfig(), cache.getTaskDataCache(), cache.getLiveInstances(), cache.getInstanceConfigMap(),
-        currentStateOutput, resourceMap);
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+
+    // Update quota capacity based on Current State and Pending Messages of the changed resources
+    AssignableInstanceManager assignableInstanceManager = cache.getAssignableInstanceManager();
+    Set<String> changedResources = cache.getAndClearChangedStateResources();
+    boolean fullRebuild = assignableInstanceManager.isFullRebuildDue();
+    long startTime = System.currentTimeMillis();
+    boolean driftDetected = assignableInstanceManager.updateAssignableInstancesFromCurrentState(
+        cache.getClusterConfig(), cache.getTaskDataCache(), cache.getLiveInstances(),
+        cache.getInstanceConfigMap(), currentStateOutput, resourceMap, changedResources);
+    if (clusterStatusMonitor != null) {
+      long latency = System.currentTimeMillis() - startTime;
+      if (fullRebuild) {
+        clusterStatusMonitor.updateAssignableInstanceFullRebuildLatencyGauge(latency);
+      } else {
+        clusterStatusMonitor.updateAssignableInstanceUpdateLatencyGauge(latency);
+      }
+      if (driftDetected) {
+        clusterStatusMonitor.reportAssignableInstanceDrift();
+      }
+    }
 
-    cache.getAssignableInstanceManager().logQuotaProfileJSON(false);
+    assignableInstanceManager.logQuotaProfileJSON(false);
 
     // Reset current INIT/RUNNING tasks on participants for throttling
     cache.resetActiveTaskCount(currentStateOutput);
 
-    ClusterStatusMonitor clusterStatusMonitor =
-        event.getAttribute(AttributeName.clusterStatusMonitor.name());
     buildQuotaBasedWorkflowPQsAndInitDispatchers(cache,
         (HelixManager) event.getAttribute(AttributeName.helixmanager.name()), clusterStatusMonitor);
 
@@ -104,6 +120,8 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     final List<String> failureResources = new ArrayList<>();
     // Queues only for Workflows
     scheduleWorkflows(resourceMap, cache, restOfResources, failureResources, currentStateOutput, output);
+    // Jobs of the same quota type are assigned together once all workflows are scheduled
+    _workflowDispatcher.assignPendingTasks(output);
     for (String jobName : cache.getTaskDataCache().getDispatchedJobs()) {
       updateResourceMap(jobName, resourceMap, output.getPartitionStateMap(jobName).partitionSet());
       restOfResources.remove(jobName);
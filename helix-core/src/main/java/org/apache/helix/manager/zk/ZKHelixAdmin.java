@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -116,6 +118,10 @@ public class ZKHelixAdmin implements HelixAdmin {
   public static final String CONNECTION_TIMEOUT = "helixAdmin.timeOutInSec";
   private static final String MAINTENANCE_ZNODE_ID = "maintenance";
   private static final int DEFAULT_SUPERCLUSTER_REPLICA = 3;
+  private static final int DEFAULT_BULK_OPERATION_BATCH_SIZE = 100;
+  private static final int BULK_OPERATION_BATCH_SIZE = Math.max(1, HelixUtil
+      .getSystemPropertyAsInt(SystemPropertyKeys.HELIX_ADMIN_BULK_OPERATION_BATCH_SIZE,
+          DEFAULT_BULK_OPERATION_BATCH_SIZE));
   private static final ImmutableSet<InstanceConstants.InstanceOperation>
       INSTANCE_OPERATION_TO_EXCLUDE_FROM_ASSIGNMENT =
       ImmutableSet.of(InstanceConstants.InstanceOperation.EVACUATE,
@@ -2263,6 +2269,279 @@ public class ZKHelixAdmin implements HelixAdmin {
     accessor.setProperty(keyBuilder.instanceConfig(instanceName), config);
   }
 
+  @Override
+  public Map<String, Boolean> addResources(String clusterName, List<IdealState> idealStates) {
+    logger.info("Add {} resources in cluster {}.", idealStates.size(), clusterName);
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("cluster " + clusterName + " is not setup yet");
+    }
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseDataAccessor);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    Set<String> stateModelDefs =
+        new HashSet<>(accessor.getChildNames(keyBuilder.stateModelDefs()));
+    Set<String> existingResources = new HashSet<>(accessor.getChildNames(keyBuilder.idealStates()));
+
+    // Validate all the inputs before writing anything
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    List<String> resourceNames = new ArrayList<>();
+    List<PropertyKey> keys = new ArrayList<>();
+    List<IdealState> values = new ArrayList<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      results.putIfAbsent(resourceName, false);
+      if (!stateModelDefs.contains(idealState.getStateModelDefRef())) {
+        logger.warn("Skip adding resource {}, state model {} is not found in cluster {}.",
+            resourceName, idealState.getStateModelDefRef(), clusterName);
+      } else if (!existingResources.add(resourceName)) {
+        logger.warn("Skip adding resource {}, it already exists in cluster {}.", resourceName,
+            clusterName);
+      } else {
+        results.put(resourceName, true);
+        resourceNames.add(resourceName);
+        keys.add(keyBuilder.idealStates(resourceName));
+        values.add(idealState);
+      }
+    }
+
+    pipelineBulkWrites(resourceNames, results,
+        (from, to) -> accessor.createChildren(keys.subList(from, to), values.subList(from, to)));
+    return results;
+  }
+
+  @Override
+  public Map<String, Boolean> setResourceIdealStates(String clusterName,
+      List<IdealState> idealStates) {
+    logger.info("Set IdealState for {} resources in cluster {}.", idealStates.size(), clusterName);
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseDataAccessor);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    List<String> resourceNames = new ArrayList<>();
+    List<PropertyKey> keys = new ArrayList<>();
+    List<IdealState> values = new ArrayList<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      results.putIfAbsent(resourceName, false);
+      if (!idealState.isValid()) {
+        logger.warn("Skip setting IdealState of resource {} in cluster {}, it is not valid.",
+            resourceName, clusterName);
+      } else if (idealState.getBucketSize() > 0) {
+        // Bucketized ideal states are written node by node by the accessor
+        results.put(resourceName,
+            accessor.setProperty(keyBuilder.idealStates(resourceName), idealState));
+      } else {
+        results.put(resourceName, true);
+        resourceNames.add(resourceName);
+        keys.add(keyBuilder.idealStates(resourceName));
+        values.add(idealState);
+      }
+    }
+
+    pipelineBulkWrites(resourceNames, results,
+        (from, to) -> accessor.setChildren(keys.subList(from, to), values.subList(from, to)));
+    return results;
+  }
+
+  @Override
+  public Map<String, Boolean> dropResources(String clusterName, List<String> resourceNames) {
+    logger.info("Drop {} resources from cluster {}.", resourceNames.size(), clusterName);
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("Cluster " + clusterName + " is not setup yet");
+    }
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseDataAccessor);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    Set<String> idealStateNames = new HashSet<>(accessor.getChildNames(keyBuilder.idealStates()));
+    Set<String> resourceConfigNames =
+        new HashSet<>(accessor.getChildNames(keyBuilder.resourceConfigs()));
+
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    // Each resource can own an ideal state and a resource config, so the write list can hold the
+    // same resource twice. The resource is dropped only if all of its nodes are removed.
+    List<String> owners = new ArrayList<>();
+    List<PropertyKey> keys = new ArrayList<>();
+    for (String resourceName : resourceNames) {
+      boolean exists = false;
+      if (idealStateNames.contains(resourceName)) {
+        owners.add(resourceName);
+        keys.add(keyBuilder.idealStates(resourceName));
+        exists = true;
+      }
+      if (resourceConfigNames.contains(resourceName)) {
+        owners.add(resourceName);
+        keys.add(keyBuilder.resourceConfig(resourceName));
+        exists = true;
+      }
+      if (!exists) {
+        logger.warn("Skip dropping resource {}, it does not exist in cluster {}.", resourceName,
+            clusterName);
+      }
+      results.put(resourceName, exists);
+    }
+
+    pipelineBulkWrites(owners, results, (from, to) -> {
+      List<PropertyKey> batch = keys.subList(from, to);
+      boolean[] success = _baseDataAccessor.remove(
+          batch.stream().map(PropertyKey::getPath).collect(Collectors.toList()),
+          AccessOption.PERSISTENT);
+      for (int i = 0; i < success.length; i++) {
+        if (!success[i]) {
+          // e.g. a bucketized ideal state has children, remove it recursively
+          success[i] = accessor.removeProperty(batch.get(i));
+        }
+      }
+      return success;
+    });
+    return results;
+  }
+
+  @Override
+  public Map<String, Boolean> setInstanceConfigs(String clusterName,
+      List<InstanceConfig> instanceConfigs) {
+    logger.info("Set instance config for {} instances in cluster {}.", instanceConfigs.size(),
+        clusterName);
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseDataAccessor);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    List<PropertyKey> currentKeys = new ArrayList<>();
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      currentKeys.add(keyBuilder.instanceConfig(instanceConfig.getInstanceName()));
+    }
+    List<InstanceConfig> currentConfigs = accessor.getProperty(currentKeys, false);
+
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    List<String> instanceNames = new ArrayList<>();
+    List<PropertyKey> keys = new ArrayList<>();
+    List<InstanceConfig> values = new ArrayList<>();
+    for (int i = 0; i < instanceConfigs.size(); i++) {
+      InstanceConfig newInstanceConfig = instanceConfigs.get(i);
+      InstanceConfig currentInstanceConfig = currentConfigs.get(i);
+      String instanceName = newInstanceConfig.getInstanceName();
+      results.putIfAbsent(instanceName, false);
+      if (currentInstanceConfig == null) {
+        logger.warn("Skip setting instance config, instance {} does not exist in cluster {}.",
+            instanceName, clusterName);
+      } else if (!newInstanceConfig.getHostName().equals(currentInstanceConfig.getHostName())
+          || !newInstanceConfig.getPort().equals(currentInstanceConfig.getPort())) {
+        logger.warn("Skip setting instance config of instance {} in cluster {}, hostname and port "
+            + "cannot be changed.", instanceName, clusterName);
+      } else {
+        results.put(instanceName, true);
+        instanceNames.add(instanceName);
+        keys.add(currentKeys.get(i));
+        values.add(newInstanceConfig);
+      }
+    }
+
+    pipelineBulkWrites(instanceNames, results,
+        (from, to) -> accessor.setChildren(keys.subList(from, to), values.subList(from, to)));
+    return results;
+  }
+
+  @Override
+  public Map<String, Boolean> addInstanceTag(String clusterName, List<String> instanceNames,
+      String tag) {
+    logger.info("Add instance tag {} for {} instances in cluster {}.", tag, instanceNames.size(),
+        clusterName);
+    return updateInstanceConfigs(clusterName, instanceNames, config -> config.addTag(tag));
+  }
+
+  @Override
+  public Map<String, Boolean> removeInstanceTag(String clusterName, List<String> instanceNames,
+      String tag) {
+    logger.info("Remove instance tag {} for {} instances in cluster {}.", tag,
+        instanceNames.size(), clusterName);
+    return updateInstanceConfigs(clusterName, instanceNames, config -> config.removeTag(tag));
+  }
+
+  /**
+   * Apply the same change to the instance configs of the given instances. Instances that are not
+   * setup are reported as failed, the rest are updated with versioned async writes.
+   */
+  private Map<String, Boolean> updateInstanceConfigs(String clusterName,
+      List<String> instanceNames, Consumer<InstanceConfig> change) {
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("cluster " + clusterName + " is not setup yet");
+    }
+
+    // Check the instances are setup with a single batched exists call, same as
+    // ZKUtil.isInstanceSetup. The instance history path is checked along and is not required.
+    List<String> requiredPaths = new ArrayList<>();
+    for (String instanceName : instanceNames) {
+      requiredPaths.add(PropertyPathBuilder.instanceConfig(clusterName, instanceName));
+      requiredPaths.add(PropertyPathBuilder.instanceMessage(clusterName, instanceName));
+      requiredPaths.add(PropertyPathBuilder.instanceCurrentState(clusterName, instanceName));
+      requiredPaths.add(PropertyPathBuilder.instanceStatusUpdate(clusterName, instanceName));
+      requiredPaths.add(PropertyPathBuilder.instanceError(clusterName, instanceName));
+      requiredPaths.add(PropertyPathBuilder.instanceHistory(clusterName, instanceName));
+    }
+    int pathsPerInstance = requiredPaths.size() / Math.max(1, instanceNames.size());
+    boolean[] exists = _baseDataAccessor.exists(requiredPaths, 0);
+
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    List<String> validInstances = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    List<DataUpdater<ZNRecord>> updaters = new ArrayList<>();
+    for (int i = 0; i < instanceNames.size(); i++) {
+      String instanceName = instanceNames.get(i);
+      results.putIfAbsent(instanceName, false);
+      boolean isSetup = true;
+      for (int j = i * pathsPerInstance; j < (i + 1) * pathsPerInstance - 1; j++) {
+        isSetup &= exists[j];
+      }
+      if (!isSetup) {
+        logger.warn("Skip updating instance {}, it is not setup in cluster {}.", instanceName,
+            clusterName);
+        continue;
+      }
+      if (!exists[(i + 1) * pathsPerInstance - 1]) {
+        // Create the instance history node if it does not exist.
+        // This is for back-compatibility.
+        _zkClient.createPersistent(PropertyPathBuilder.instanceHistory(clusterName, instanceName),
+            true);
+      }
+      results.put(instanceName, true);
+      validInstances.add(instanceName);
+      paths.add(PropertyPathBuilder.instanceConfig(clusterName, instanceName));
+      updaters.add(currentData -> {
+        if (currentData == null) {
+          // The instance has been dropped meanwhile
+          return null;
+        }
+        InstanceConfig config = new InstanceConfig(currentData);
+        change.accept(config);
+        return config.getRecord();
+      });
+    }
+
+    pipelineBulkWrites(validInstances, results, (from, to) -> _baseDataAccessor
+        .updateChildren(paths.subList(from, to), updaters.subList(from, to),
+            AccessOption.PERSISTENT));
+    return results;
+  }
+
+  private interface BulkWriter {
+    /**
+     * Write the items in [fromIndex, toIndex) asynchronously.
+     * @return the result of each written item
+     */
+    boolean[] write(int fromIndex, int toIndex);
+  }
+
+  /**
+   * Issue the writes of a bulk operation in rounds of at most BULK_OPERATION_BATCH_SIZE async
+   * requests, so a large batch does not flood the ZK connection. An item's result stays true only
+   * if all the writes made under its name succeed.
+   */
+  private static void pipelineBulkWrites(List<String> names, Map<String, Boolean> results,
+      BulkWriter writer) {
+    for (int from = 0; from < names.size(); from += BULK_OPERATION_BATCH_SIZE) {
+      int to = Math.min(from + BULK_OPERATION_BATCH_SIZE, names.size());
+      boolean[] success = writer.write(from, to);
+      for (int i = from; i < to; i++) {
+        results.merge(names.get(i), success[i - from], Boolean::logicalAnd);
+      }
+    }
+  }
+
   @Override
   public void setInstanceZoneId(String clusterName, String instanceName, String zoneId) {
     logger.info("Set instance zoneId {} for instance {} in cluster {}.", zoneId, instanceName,
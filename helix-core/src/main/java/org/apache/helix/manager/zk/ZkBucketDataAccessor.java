@@ -21,11 +21,18 @@ package org.apache.helix.manager.zk;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -63,6 +70,12 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private static final String METADATA_KEY = "METADATA";
   private static final String LAST_SUCCESSFUL_WRITE_KEY = "LAST_SUCCESSFUL_WRITE";
   private static final String LAST_WRITE_KEY = "LAST_WRITE";
+  // Content-addressed chunks written by compressedChunkedWrite, shared by all versions
+  private static final String CHUNKS_KEY = "CHUNKS";
+  // Map fields of a chunk manifest record
+  private static final String CHUNK_MANIFEST_KEY = "HELIX_CHUNK_MANIFEST";
+  private static final String CHUNK_DATA_SIZE_KEY = "HELIX_CHUNK_DATA_SIZE";
+  private static final String CHUNK_METADATA_KEY = "HELIX_CHUNK_METADATA";
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
   // Thread pool for deleting stale versions
   // Note that newScheduledThreadPool(1) may not work. newSingleThreadScheduledExecutor guarantees
@@ -80,6 +93,10 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private final RealmAwareZkClient _zkClient;
   private final ZkBaseDataAccessor<byte[]> _zkBaseDataAccessor;
   private final Map<String, ScheduledFuture> _gcTaskFutureMap = new HashMap<>();
+  // Root path -> the compressed chunks referenced by the last version this accessor read or wrote
+  private final Map<String, ChunkCache> _chunkCacheMap = new ConcurrentHashMap<>();
+  // Serializes chunked writes and chunk GC, so the GC never removes the chunks of a pending write
+  private final Object _chunkLock = new Object();
   private boolean _usesExternalZkClient = false;
 
   /**
@@ -144,6 +161,78 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   @Override
   public <T extends HelixProperty> boolean compressedBucketWrite(String rootPath, T value)
       throws IOException {
+    writeVersion(rootPath, value.getRecord());
+    return true;
+  }
+
+  /**
+   * Write the simple fields of the HelixProperty as content-addressed chunks under
+   * rootPath/CHUNKS, and a new version that only contains the chunk references besides the list and
+   * map fields. The chunks referenced by the last version this accessor has read or written are not
+   * written again.
+   */
+  @Override
+  public <T extends HelixProperty> boolean compressedChunkedWrite(String rootPath, T value)
+      throws IOException {
+    ZNRecord record = value.getRecord();
+    synchronized (_chunkLock) {
+      // The cached chunks can only be reused if no other writer has written a newer version.
+      ChunkCache cachedChunks = _chunkCacheMap.get(rootPath);
+      if (cachedChunks != null
+          && !cachedChunks._version.equals(readLastSuccessfulVersion(rootPath))) {
+        cachedChunks = null;
+      }
+
+      Map<String, String> manifest = new HashMap<>();
+      Map<String, String> chunkDataSizes = new HashMap<>();
+      Map<String, byte[]> chunks = new HashMap<>();
+      List<String> paths = new ArrayList<>();
+      List<byte[]> buckets = new ArrayList<>();
+      for (Map.Entry<String, String> field : record.getSimpleFields().entrySet()) {
+        byte[] content = field.getValue().getBytes(StandardCharsets.UTF_8);
+        String chunkName = computeChunkName(content);
+        manifest.put(field.getKey(), chunkName);
+        if (chunks.containsKey(chunkName)) {
+          continue;
+        }
+        byte[] compressedChunk =
+            cachedChunks == null ? null : cachedChunks._compressedChunks.get(chunkName);
+        if (compressedChunk == null) {
+          // A new chunk, write it in buckets
+          compressedChunk = GZipCompressionUtil.compress(content);
+          splitIntoBuckets(getChunkPath(rootPath, chunkName), compressedChunk, paths, buckets);
+        }
+        chunks.put(chunkName, compressedChunk);
+        chunkDataSizes.put(chunkName, Integer.toString(compressedChunk.length));
+      }
+
+      boolean[] success = _zkBaseDataAccessor.setChildren(paths, buckets, AccessOption.PERSISTENT);
+      for (boolean s : success) {
+        if (!s) {
+          throw new HelixException(
+              String.format("Failed to write the data chunks for path: %s", rootPath));
+        }
+      }
+      LOG.debug("Wrote {} of {} chunks for path: {}", chunks.size() - (cachedChunks == null ? 0
+          : countReused(chunks.keySet(), cachedChunks)), chunks.size(), rootPath);
+
+      ZNRecord manifestRecord = new ZNRecord(record);
+      manifestRecord.getSimpleFields().clear();
+      manifestRecord.setMapField(CHUNK_MANIFEST_KEY, manifest);
+      manifestRecord.setMapField(CHUNK_DATA_SIZE_KEY, chunkDataSizes);
+      manifestRecord.setMapField(CHUNK_METADATA_KEY,
+          ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize)));
+      String version = writeVersion(rootPath, manifestRecord);
+      _chunkCacheMap.put(rootPath, new ChunkCache(version, chunks));
+    }
+    return true;
+  }
+
+  /**
+   * Write the record as a new version under rootPath.
+   * @return the version written
+   */
+  private String writeVersion(String rootPath, ZNRecord record) throws IOException {
     DataUpdater<byte[]> lastWriteVersionUpdater = dataInZk -> {
       if (dataInZk == null || dataInZk.length == 0) {
         // No last write version exists, so start with 0
@@ -174,29 +263,13 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     String versionedDataPath = rootPath + "/" + versionStr;
 
     // Take the ZNRecord and serialize it (get byte[])
-    byte[] serializedRecord = _zkSerializer.serialize(value.getRecord());
+    byte[] serializedRecord = _zkSerializer.serialize(record);
     // Compress the byte[]
     byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
-    // Compute N - number of buckets
-    int numBuckets = (compressedRecord.length + _bucketSize - 1) / _bucketSize;
 
     List<String> paths = new ArrayList<>();
     List<byte[]> buckets = new ArrayList<>();
-
-    int ptr = 0;
-    int counter = 0;
-    while (counter < numBuckets) {
-      paths.add(versionedDataPath + "/" + counter);
-      if (counter == numBuckets - 1) {
-        // Special treatment for the last bucket
-        buckets.add(
-            Arrays.copyOfRange(compressedRecord, ptr, ptr + compressedRecord.length % _bucketSize));
-      } else {
-        buckets.add(Arrays.copyOfRange(compressedRecord, ptr, ptr + _bucketSize));
-      }
-      ptr += _bucketSize;
-      counter++;
-    }
+    splitIntoBuckets(versionedDataPath, compressedRecord, paths, buckets);
 
     // 3. Include the metadata in the batch write
     Map<String, String> metadata = ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize),
@@ -240,7 +313,29 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
 
     // 5. Update the timer for GC
     updateGCTimer(rootPath, version);
-    return true;
+    return versionStr;
+  }
+
+  /**
+   * Split the data into buckets named by their index under the given path.
+   */
+  private void splitIntoBuckets(String path, byte[] data, List<String> paths,
+      List<byte[]> buckets) {
+    // Compute N - number of buckets
+    int numBuckets = getNumBuckets(data.length, _bucketSize);
+    int ptr = 0;
+    int counter = 0;
+    while (counter < numBuckets) {
+      paths.add(path + "/" + counter);
+      if (counter == numBuckets - 1) {
+        // Special treatment for the last bucket
+        buckets.add(Arrays.copyOfRange(data, ptr, data.length));
+      } else {
+        buckets.add(Arrays.copyOfRange(data, ptr, ptr + _bucketSize));
+      }
+      ptr += _bucketSize;
+      counter++;
+    }
   }
 
   @Override
@@ -257,6 +352,7 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     synchronized (this) {
       _gcTaskFutureMap.remove(path);
     }
+    _chunkCacheMap.remove(path);
   }
 
   @Override
@@ -268,14 +364,29 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
 
   private HelixProperty compressedBucketRead(String path) {
     // 1. Get the version to read
-    byte[] binaryVersionToRead = _zkBaseDataAccessor.get(path + "/" + LAST_SUCCESSFUL_WRITE_KEY,
-        null, AccessOption.PERSISTENT);
-    if (binaryVersionToRead == null) {
+    String versionToRead = readLastSuccessfulVersion(path);
+    if (versionToRead == null) {
       throw new ZkNoNodeException(
           String.format("Last successful write ZNode does not exist for path: %s", path));
     }
-    String versionToRead = new String(binaryVersionToRead);
 
+    ZNRecord record = readVersion(path, versionToRead);
+    if (record.getMapField(CHUNK_MANIFEST_KEY) != null) {
+      record = resolveChunks(path, versionToRead, record);
+    }
+    return new HelixProperty(record);
+  }
+
+  private String readLastSuccessfulVersion(String path) {
+    byte[] binaryVersion = _zkBaseDataAccessor.get(path + "/" + LAST_SUCCESSFUL_WRITE_KEY, null,
+        AccessOption.PERSISTENT);
+    return binaryVersion == null ? null : new String(binaryVersion);
+  }
+
+  /**
+   * Read the record of the given version as it was written, without resolving the chunks.
+   */
+  private ZNRecord readVersion(String path, String versionToRead) {
     // 2. Get the metadata map
     byte[] binaryMetadata = _zkBaseDataAccessor.get(path + "/" + versionToRead + "/" + METADATA_KEY,
         null, AccessOption.PERSISTENT);
@@ -304,43 +415,151 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     int bucketSize = Integer.parseInt((String) bucketSizeObj);
     int dataSize = Integer.parseInt((String) dataSizeObj);
 
-    // Compute N - number of buckets
-    int numBuckets = (dataSize + _bucketSize - 1) / _bucketSize;
-    byte[] compressedRecord = new byte[dataSize];
     String dataPath = path + "/" + versionToRead;
-
     List<String> paths = new ArrayList<>();
-    for (int i = 0; i < numBuckets; i++) {
-      paths.add(dataPath + "/" + i);
-    }
+    addBucketPaths(dataPath, dataSize, bucketSize, paths);
 
     // Async get
     List<byte[]> buckets = _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true);
+    byte[] compressedRecord = combineBuckets(buckets, 0, dataSize, bucketSize);
 
-    // Combine buckets into one byte array
-    int copyPtr = 0;
-    for (int i = 0; i < numBuckets; i++) {
-      if (i == numBuckets - 1) {
-        // Special treatment for the last bucket
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, dataSize % bucketSize);
+    // Decompress the byte array
+    byte[] serializedRecord = uncompress(path, compressedRecord);
+
+    // Deserialize the record to retrieve the original
+    return (ZNRecord) _zkSerializer.deserialize(serializedRecord);
+  }
+
+  /**
+   * Restore the simple fields of a chunk manifest record. Chunks cached from the last version read
+   * or written are reused, the others are read from ZK in one batch.
+   */
+  private ZNRecord resolveChunks(String path, String version, ZNRecord manifestRecord) {
+    Map<String, String> manifest = manifestRecord.getMapField(CHUNK_MANIFEST_KEY);
+    Map<String, String> chunkDataSizes = manifestRecord.getMapField(CHUNK_DATA_SIZE_KEY);
+    Map<String, String> chunkMetadata = manifestRecord.getMapField(CHUNK_METADATA_KEY);
+    if (chunkDataSizes == null || chunkMetadata == null
+        || chunkMetadata.get(BUCKET_SIZE_KEY) == null) {
+      throw new HelixException(
+          String.format("Chunk manifest does not have the chunk metadata! Path: %s", path));
+    }
+    int bucketSize = Integer.parseInt(chunkMetadata.get(BUCKET_SIZE_KEY));
+    ChunkCache cachedChunks = _chunkCacheMap.get(path);
+
+    Map<String, byte[]> chunks = new HashMap<>();
+    Map<String, Integer> missingChunkSizes = new LinkedHashMap<>();
+    for (String chunkName : new HashSet<>(manifest.values())) {
+      byte[] compressedChunk =
+          cachedChunks == null ? null : cachedChunks._compressedChunks.get(chunkName);
+      if (compressedChunk != null) {
+        chunks.put(chunkName, compressedChunk);
       } else {
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, bucketSize);
-        copyPtr += bucketSize;
+        String dataSize = chunkDataSizes.get(chunkName);
+        if (dataSize == null) {
+          throw new HelixException(String
+              .format("Chunk manifest does not have the size of chunk %s! Path: %s", chunkName,
+                  path));
+        }
+        missingChunkSizes.put(chunkName, Integer.parseInt(dataSize));
       }
     }
 
-    // Decompress the byte array
-    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressedRecord);
-    byte[] serializedRecord;
+    if (!missingChunkSizes.isEmpty()) {
+      List<String> paths = new ArrayList<>();
+      for (Map.Entry<String, Integer> chunk : missingChunkSizes.entrySet()) {
+        addBucketPaths(getChunkPath(path, chunk.getKey()), chunk.getValue(), bucketSize, paths);
+      }
+      List<byte[]> buckets = _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true);
+      int bucketIndex = 0;
+      for (Map.Entry<String, Integer> chunk : missingChunkSizes.entrySet()) {
+        chunks.put(chunk.getKey(),
+            combineBuckets(buckets, bucketIndex, chunk.getValue(), bucketSize));
+        bucketIndex += getNumBuckets(chunk.getValue(), bucketSize);
+      }
+    }
+
+    Map<String, String> decompressedChunks = new HashMap<>();
+    for (Map.Entry<String, byte[]> chunk : chunks.entrySet()) {
+      decompressedChunks.put(chunk.getKey(),
+          new String(uncompress(path, chunk.getValue()), StandardCharsets.UTF_8));
+    }
+    ZNRecord record = new ZNRecord(manifestRecord);
+    record.getMapFields().remove(CHUNK_MANIFEST_KEY);
+    record.getMapFields().remove(CHUNK_DATA_SIZE_KEY);
+    record.getMapFields().remove(CHUNK_METADATA_KEY);
+    manifest.forEach(
+        (field, chunkName) -> record.setSimpleField(field, decompressedChunks.get(chunkName)));
+    _chunkCacheMap.put(path, new ChunkCache(version, chunks));
+    return record;
+  }
+
+  private static int getNumBuckets(int dataSize, int bucketSize) {
+    return (dataSize + bucketSize - 1) / bucketSize;
+  }
+
+  private static void addBucketPaths(String dataPath, int dataSize, int bucketSize,
+      List<String> paths) {
+    int numBuckets = getNumBuckets(dataSize, bucketSize);
+    for (int i = 0; i < numBuckets; i++) {
+      paths.add(dataPath + "/" + i);
+    }
+  }
+
+  /**
+   * Combine the buckets starting from the given index into one byte array of the data size.
+   */
+  private static byte[] combineBuckets(List<byte[]> buckets, int startIndex, int dataSize,
+      int bucketSize) {
+    byte[] data = new byte[dataSize];
+    int numBuckets = getNumBuckets(dataSize, bucketSize);
+    int copyPtr = 0;
+    for (int i = 0; i < numBuckets; i++) {
+      // The last bucket may be partial
+      int length = Math.min(bucketSize, dataSize - copyPtr);
+      System.arraycopy(buckets.get(startIndex + i), 0, data, copyPtr, length);
+      copyPtr += length;
+    }
+    return data;
+  }
+
+  private static byte[] uncompress(String path, byte[] compressedData) {
     try {
-      serializedRecord = GZipCompressionUtil.uncompress(byteArrayInputStream);
+      return GZipCompressionUtil.uncompress(new ByteArrayInputStream(compressedData));
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to decompress path: %s!", path), e);
     }
+  }
 
-    // Deserialize the record to retrieve the original
-    ZNRecord originalRecord = (ZNRecord) _zkSerializer.deserialize(serializedRecord);
-    return new HelixProperty(originalRecord);
+  private static String getChunkPath(String rootPath, String chunkName) {
+    return rootPath + "/" + CHUNKS_KEY + "/" + chunkName;
+  }
+
+  /**
+   * Chunks are named by the SHA-256 digest of their uncompressed content.
+   */
+  private static String computeChunkName(byte[] content) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new HelixException("SHA-256 is not supported!", e);
+    }
+    byte[] hash = digest.digest(content);
+    StringBuilder builder = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+
+  private static int countReused(Set<String> chunkNames, ChunkCache cachedChunks) {
+    int count = 0;
+    for (String chunkName : chunkNames) {
+      if (cachedChunks._compressedChunks.containsKey(chunkName)) {
+        count++;
+      }
+    }
+    return count;
   }
 
   @Override
@@ -386,6 +605,48 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
       // TODO: Should be batch delete but it doesn't work. It's okay since this runs async
       _zkBaseDataAccessor.remove(pathToDelete, AccessOption.PERSISTENT);
     }
+    if (children.contains(CHUNKS_KEY)) {
+      deleteUnreferencedChunks(rootPath, currentVersion);
+    }
+  }
+
+  /**
+   * Deletes the chunks that are not referenced by the current version or any newer version.
+   * @param rootPath
+   * @param currentVersion
+   */
+  private void deleteUnreferencedChunks(String rootPath, long currentVersion) {
+    synchronized (_chunkLock) {
+      List<String> chunkNames =
+          _zkBaseDataAccessor.getChildNames(rootPath + "/" + CHUNKS_KEY, AccessOption.PERSISTENT);
+      List<String> versions = _zkBaseDataAccessor.getChildNames(rootPath, AccessOption.PERSISTENT);
+      if (chunkNames == null || chunkNames.isEmpty() || versions == null) {
+        return;
+      }
+      Set<String> referencedChunks = new HashSet<>();
+      for (String version : versions) {
+        long ver;
+        try {
+          ver = Long.parseLong(version);
+        } catch (NumberFormatException ex) {
+          continue;
+        }
+        if (ver >= currentVersion) {
+          // Fail the GC if any remaining version cannot be read, its chunks must not be deleted.
+          Map<String, String> manifest =
+              readVersion(rootPath, version).getMapField(CHUNK_MANIFEST_KEY);
+          if (manifest != null) {
+            referencedChunks.addAll(manifest.values());
+          }
+        }
+      }
+      for (String chunkName : chunkNames) {
+        if (!referencedChunks.contains(chunkName)) {
+          _zkBaseDataAccessor
+              .remove(getChunkPath(rootPath, chunkName), AccessOption.PERSISTENT);
+        }
+      }
+    }
   }
 
   /**
@@ -398,7 +659,8 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     List<String> childrenToRemove = new ArrayList<>();
     for (String child : childrenNodes) {
       // Leave out metadata
-      if (child.equals(LAST_SUCCESSFUL_WRITE_KEY) || child.equals(LAST_WRITE_KEY)) {
+      if (child.equals(LAST_SUCCESSFUL_WRITE_KEY) || child.equals(LAST_WRITE_KEY)
+          || child.equals(CHUNKS_KEY)) {
         continue;
       }
       long childVer;
@@ -429,4 +691,17 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     staleVersions.forEach(ver -> pathsToDelete.add(path + "/" + ver));
     return pathsToDelete;
   }
+
+  /**
+   * The compressed chunks referenced by one version of a path.
+   */
+  private static class ChunkCache {
+    private final String _version;
+    private final Map<String, byte[]> _compressedChunks;
+
+    ChunkCache(String version, Map<String, byte[]> compressedChunks) {
+      _version = version;
+      _compressedChunks = compressedChunks;
+    }
+  }
 }
@@ -0,0 +1,198 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread pool whose size is adjusted between a min and a max size according to its load.
+ * The pool grows when the queued tasks are expected to wait too long, estimated from the queue
+ * depth and the average task latency, and shrinks after it has been under-used for a while.
+ * The size changes are counted, and reported by
+ * {@link org.apache.helix.monitoring.mbeans.ThreadPoolExecutorMonitor}.
+ */
+public class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveThreadPoolExecutor.class);
+
+  // Min time between two checks of the pool size
+  static final long RESIZE_INTERVAL_MS = 1000L;
+  // The pool shrinks after it has been under-used for this long
+  static final long SHRINK_DELAY_MS = 30 * 1000L;
+  // The pool grows if the queued tasks are expected to wait longer than this
+  static final long TARGET_QUEUE_WAIT_MS = 1000L;
+  // Weight of the latest task in the average task latency
+  private static final double LATENCY_SMOOTHING_FACTOR = 0.2;
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  private static final ScheduledExecutorService RESIZER =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "AdaptiveThreadPoolExecutor_Resizer");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final String _name;
+  private final int _minPoolSize;
+  private final int _maxPoolSize;
+  private final ThreadLocal<Long> _taskStartTimeNs = new ThreadLocal<>();
+  private final AtomicLong _growCount = new AtomicLong();
+  private final AtomicLong _shrinkCount = new AtomicLong();
+  private final ScheduledFuture<?> _resizeTask;
+
+  private volatile double _avgTaskLatencyMs;
+  // Guarded by this
+  private long _lastCheckTime;
+  private long _underUsedSince = -1;
+
+  /**
+   * @param name the name of the pool, used in the logs
+   * @param minPoolSize the number of threads the pool starts with and never goes below
+   * @param maxPoolSize the max number of threads
+   * @param threadFactory the factory that creates the threads
+   */
+  public AdaptiveThreadPoolExecutor(String name, int minPoolSize, int maxPoolSize,
+      ThreadFactory threadFactory) {
+    // The queue is unbounded, so the pool only grows when its core size is raised
+    super(minPoolSize, maxPoolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), threadFactory);
+    if (minPoolSize <= 0 || maxPoolSize < minPoolSize) {
+      throw new IllegalArgumentException(String
+          .format("Invalid pool size range [%d, %d] for %s", minPoolSize, maxPoolSize, name));
+    }
+    _name = name;
+    _minPoolSize = minPoolSize;
+    _maxPoolSize = maxPoolSize;
+    _resizeTask = RESIZER.scheduleWithFixedDelay(() -> adjustPoolSize(System.currentTimeMillis()),
+        RESIZE_INTERVAL_MS, RESIZE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    super.execute(command);
+    // React to a burst of tasks without waiting for the next scheduled check
+    adjustPoolSize(System.currentTimeMillis());
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    _taskStartTimeNs.set(System.nanoTime());
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    super.afterExecute(r, t);
+    Long startTime = _taskStartTimeNs.get();
+    if (startTime != null) {
+      double latencyMs = (System.nanoTime() - startTime) / 1_000_000.0;
+      double avgLatencyMs = _avgTaskLatencyMs;
+      _avgTaskLatencyMs = avgLatencyMs == 0 ? latencyMs
+          : avgLatencyMs + LATENCY_SMOOTHING_FACTOR * (latencyMs - avgLatencyMs);
+      _taskStartTimeNs.remove();
+    }
+  }
+
+  @Override
+  protected void terminated() {
+    _resizeTask.cancel(false);
+    super.terminated();
+  }
+
+  /**
+   * Check the load of the pool and resize it if needed. The check is skipped if the last one was
+   * less than {@link #RESIZE_INTERVAL_MS} ago.
+   * @param now the current time in ms
+   */
+  @VisibleForTesting
+  synchronized void adjustPoolSize(long now) {
+    if (now - _lastCheckTime < RESIZE_INTERVAL_MS || isShutdown()) {
+      return;
+    }
+    _lastCheckTime = now;
+
+    int poolSize = getCorePoolSize();
+    int queued = getQueue().size();
+    int active = getActiveCount();
+    if (queued > 0) {
+      _underUsedSince = -1;
+      double expectedWaitMs = queued * _avgTaskLatencyMs / poolSize;
+      if (poolSize < _maxPoolSize && (queued >= poolSize
+          || expectedWaitMs > TARGET_QUEUE_WAIT_MS)) {
+        // Start enough threads for all the queued tasks
+        int newPoolSize = Math.min(_maxPoolSize, poolSize + queued);
+        setCorePoolSize(newPoolSize);
+        _growCount.incrementAndGet();
+        LOG.info(
+            "Grow thread pool {} from {} to {}, queued tasks: {}, average task latency: {} ms",
+            _name, poolSize, newPoolSize, queued, (long) _avgTaskLatencyMs);
+      }
+    } else if (poolSize > _minPoolSize && active <= poolSize / 2) {
+      if (_underUsedSince < 0) {
+        _underUsedSince = now;
+      } else if (now - _underUsedSince >= SHRINK_DELAY_MS) {
+        int newPoolSize = Math.max(_minPoolSize, Math.max(active, poolSize / 2));
+        // Extra threads exit once they are idle
+        setCorePoolSize(newPoolSize);
+        _shrinkCount.incrementAndGet();
+        _underUsedSince = now;
+        LOG.info("Shrink thread pool {} from {} to {}, active tasks: {}", _name, poolSize,
+            newPoolSize, active);
+      }
+    } else {
+      _underUsedSince = -1;
+    }
+  }
+
+  public int getMinPoolSize() {
+    return _minPoolSize;
+  }
+
+  /**
+   * @return the number of times the pool has grown
+   */
+  public long getGrowCount() {
+    return _growCount.get();
+  }
+
+  /**
+   * @return the number of times the pool has shrunk
+   */
+  public long getShrinkCount() {
+    return _shrinkCount.get();
+  }
+
+  /**
+   * @return the moving average of the task latency in ms
+   */
+  public double getAverageTaskLatencyMs() {
+    return _avgTaskLatencyMs;
+  }
+}
@@ -0,0 +1,334 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.Message;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.DataUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the current state updates and the message removals of completed state transitions on
+ * a participant, and writes them to ZK in batches. A batch is flushed when it gets the max batch
+ * size, or when the flush latency has passed since its first request. All the current state deltas
+ * of the same current state node in a batch are applied by a single update, and all the messages
+ * in a batch are removed by a single async multi-remove. A current state update that is not
+ * persisted within the update timeout is written directly, if its batch has not taken it yet.
+ */
+class CurrentStateUpdateBatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(CurrentStateUpdateBatcher.class);
+
+  private static class PendingUpdate {
+    private static final int PENDING = 0;
+    private static final int CLAIMED = 1;
+    private static final int WITHDRAWN = 2;
+
+    final HelixDataAccessor _accessor;
+    final PropertyKey _key;
+    final CurrentState _delta;
+    final CompletableFuture<Boolean> _result = new CompletableFuture<>();
+    // Whether the update is written by a batch or withdrawn by the caller, decided only once
+    final AtomicInteger _state = new AtomicInteger(PENDING);
+
+    PendingUpdate(HelixDataAccessor accessor, PropertyKey key, CurrentState delta) {
+      _accessor = accessor;
+      _key = key;
+      _delta = delta;
+    }
+
+    /**
+     * @return true if the update is to be written by the batch, false if it was withdrawn
+     */
+    boolean claim() {
+      return _state.compareAndSet(PENDING, CLAIMED);
+    }
+
+    /**
+     * @return true if the update is withdrawn, false if a batch is already writing it
+     */
+    boolean withdraw() {
+      return _state.compareAndSet(PENDING, WITHDRAWN);
+    }
+  }
+
+  private static class PendingRemoval {
+    final HelixDataAccessor _accessor;
+    final Message _message;
+    final String _path;
+    final Runnable _onRemoved;
+
+    PendingRemoval(HelixDataAccessor accessor, Message message, String path, Runnable onRemoved) {
+      _accessor = accessor;
+      _message = message;
+      _path = path;
+      _onRemoved = onRemoved;
+    }
+  }
+
+  private final long _flushLatencyMs;
+  private final int _maxBatchSize;
+  private final long _updateTimeoutMs;
+  private final ScheduledExecutorService _flushExecutor;
+
+  private final Object _lock = new Object();
+  private List<PendingUpdate> _pendingUpdates = new ArrayList<>();
+  private List<PendingRemoval> _pendingRemovals = new ArrayList<>();
+  private ScheduledFuture<?> _scheduledFlush;
+
+  CurrentStateUpdateBatcher(long flushLatencyMs, int maxBatchSize, long updateTimeoutMs) {
+    _flushLatencyMs = flushLatencyMs;
+    _maxBatchSize = maxBatchSize;
+    _updateTimeoutMs = updateTimeoutMs;
+    _flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "CurrentStateUpdateBatcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Add a current state delta to the next batch, and wait for the batch to be flushed. If the
+   * delta is not persisted within the update timeout, it is withdrawn from the batch and written
+   * directly. If the batch is already writing it, the result of the batch is waited for once more.
+   * @return whether the delta is persisted
+   */
+  boolean updateCurrentState(HelixDataAccessor accessor, PropertyKey key, CurrentState delta)
+      throws InterruptedException {
+    PendingUpdate update = new PendingUpdate(accessor, key, delta);
+    synchronized (_lock) {
+      _pendingUpdates.add(update);
+      scheduleFlush(_pendingUpdates.size() >= _maxBatchSize);
+    }
+    try {
+      return waitForResult(update);
+    } catch (TimeoutException e) {
+      if (update.withdraw()) {
+        LOG.warn("Current state update to {} is not flushed in {} ms, write it directly",
+            key.getPath(), _updateTimeoutMs);
+        return accessor.updateProperty(key, delta);
+      }
+    }
+    try {
+      return waitForResult(update);
+    } catch (TimeoutException e) {
+      LOG.error("Current state update to {} is not persisted in {} ms", key.getPath(),
+          2 * _updateTimeoutMs);
+      return false;
+    }
+  }
+
+  private boolean waitForResult(PendingUpdate update)
+      throws InterruptedException, TimeoutException {
+    try {
+      return update._result.get(_updateTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      // The result is only ever completed with a value
+      LOG.error("Failed to persist the current state update to {}", update._key.getPath(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Add the removal of a processed message to the next batch.
+   * @param onRemoved run after the batch removal is done, no matter whether it succeeded
+   */
+  void removeMessage(HelixDataAccessor accessor, Message message, String instanceName,
+      Runnable onRemoved) {
+    String path = message.getKey(accessor.keyBuilder(), instanceName).getPath();
+    synchronized (_lock) {
+      _pendingRemovals.add(new PendingRemoval(accessor, message, path, onRemoved));
+      scheduleFlush(_pendingRemovals.size() >= _maxBatchSize);
+    }
+  }
+
+  /**
+   * Must hold _lock.
+   */
+  private void scheduleFlush(boolean immediately) {
+    if (immediately) {
+      if (_scheduledFlush != null) {
+        _scheduledFlush.cancel(false);
+      }
+      _scheduledFlush = _flushExecutor.schedule(this::flush, 0, TimeUnit.MILLISECONDS);
+    } else if (_scheduledFlush == null) {
+      _scheduledFlush =
+          _flushExecutor.schedule(this::flush, _flushLatencyMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Write all the pending current state updates, then remove all the pending messages.
+   */
+  void flush() {
+    List<PendingUpdate> updates;
+    List<PendingRemoval> removals;
+    synchronized (_lock) {
+      updates = _pendingUpdates;
+      removals = _pendingRemovals;
+      _pendingUpdates = new ArrayList<>();
+      _pendingRemovals = new ArrayList<>();
+      if (_scheduledFlush != null) {
+        _scheduledFlush.cancel(false);
+        _scheduledFlush = null;
+      }
+    }
+    if (!updates.isEmpty()) {
+      Map<HelixDataAccessor, List<PendingUpdate>> updatesByAccessor = new IdentityHashMap<>();
+      for (PendingUpdate update : updates) {
+        updatesByAccessor.computeIfAbsent(update._accessor, k -> new ArrayList<>()).add(update);
+      }
+      updatesByAccessor.forEach(this::writeCurrentStates);
+    }
+    if (!removals.isEmpty()) {
+      Map<HelixDataAccessor, List<PendingRemoval>> removalsByAccessor = new IdentityHashMap<>();
+      for (PendingRemoval removal : removals) {
+        removalsByAccessor.computeIfAbsent(removal._accessor, k -> new ArrayList<>())
+            .add(removal);
+      }
+      removalsByAccessor.forEach(this::removeMessages);
+    }
+  }
+
+  private void writeCurrentStates(HelixDataAccessor accessor, List<PendingUpdate> updates) {
+    // current state path -> deltas, in the order they are requested. The updates withdrawn by
+    // callers that timed out are written by them.
+    Map<String, List<PendingUpdate>> updatesByPath = new LinkedHashMap<>();
+    int claimedCount = 0;
+    for (PendingUpdate update : updates) {
+      if (update.claim()) {
+        updatesByPath.computeIfAbsent(update._key.getPath(), k -> new ArrayList<>()).add(update);
+        claimedCount++;
+      }
+    }
+    if (updatesByPath.isEmpty()) {
+      return;
+    }
+
+    List<String> paths = new ArrayList<>(updatesByPath.keySet());
+    List<DataUpdater<ZNRecord>> updaters = new ArrayList<>();
+    boolean[] emptyAfterUpdate = new boolean[paths.size()];
+    for (int i = 0; i < paths.size(); i++) {
+      List<PendingUpdate> pathUpdates = updatesByPath.get(paths.get(i));
+      int index = i;
+      updaters.add(currentData -> {
+        // The same as applying the deltas one by one through the group commit
+        ZNRecord merged =
+            currentData == null ? new ZNRecord(pathUpdates.get(0)._delta.getRecord())
+                : currentData;
+        for (PendingUpdate update : pathUpdates) {
+          merged.merge(update._delta.getRecord());
+        }
+        emptyAfterUpdate[index] = merged.getMapFields().isEmpty();
+        return merged;
+      });
+    }
+
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    boolean[] success;
+    try {
+      success = baseAccessor.updateChildren(paths, updaters, AccessOption.PERSISTENT);
+    } catch (Exception e) {
+      LOG.error("Failed to update current states {}", paths, e);
+      success = new boolean[paths.size()];
+    }
+
+    // Current state nodes without any partition are removed, the same as the group commit
+    List<String> emptyPaths = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      if (success[i] && emptyAfterUpdate[i]) {
+        emptyPaths.add(paths.get(i));
+      }
+    }
+    if (!emptyPaths.isEmpty()) {
+      try {
+        baseAccessor.remove(emptyPaths, AccessOption.PERSISTENT);
+      } catch (Exception e) {
+        LOG.error("Failed to remove empty current states {}", emptyPaths, e);
+      }
+    }
+
+    for (int i = 0; i < paths.size(); i++) {
+      if (!success[i]) {
+        LOG.error("Failed to persist {} current state updates to {}",
+            updatesByPath.get(paths.get(i)).size(), paths.get(i));
+      }
+      for (PendingUpdate update : updatesByPath.get(paths.get(i))) {
+        update._result.complete(success[i]);
+      }
+    }
+    LOG.info("Persisted {} current state updates to {} current states", claimedCount,
+        paths.size());
+  }
+
+  private void removeMessages(HelixDataAccessor accessor, List<PendingRemoval> removals) {
+    List<String> paths = new ArrayList<>(removals.size());
+    for (PendingRemoval removal : removals) {
+      paths.add(removal._path);
+    }
+    boolean[] success;
+    try {
+      success = accessor.getBaseDataAccessor().remove(paths, AccessOption.PERSISTENT);
+    } catch (Exception e) {
+      LOG.error("Caught exception while removing {} messages.", paths.size(), e);
+      success = new boolean[paths.size()];
+    }
+    for (int i = 0; i < removals.size(); i++) {
+      PendingRemoval removal = removals.get(i);
+      if (success[i]) {
+        LOG.info("Delete message " + removal._message.getId() + " from zk!");
+      } else {
+        LOG.warn("Failed to delete message " + removal._message.getId() + " from zk!");
+      }
+      try {
+        removal._onRemoved.run();
+      } catch (Exception e) {
+        LOG.error("Failed to finish message {}.", removal._message.getId(), e);
+      }
+    }
+  }
+
+  /**
+   * Flush the pending requests and stop the flush thread.
+   */
+  void shutdown() {
+    flush();
+    _flushExecutor.shutdown();
+  }
+}
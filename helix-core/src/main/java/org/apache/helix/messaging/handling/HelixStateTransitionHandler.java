@@ -20,7 +20,6 @@ package org.apache.helix.messaging.handling;
  */
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -41,8 +40,8 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.Attributes;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
-import org.apache.helix.participant.statemachine.StateModelParser;
 import org.apache.helix.participant.statemachine.StateTransitionError;
+import org.apache.helix.participant.statemachine.TransitionDispatchTable;
 import org.apache.helix.task.TaskStateModel;
 import org.apache.helix.util.StatusUpdateUtil;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -81,7 +80,6 @@ public class HelixStateTransitionHandler extends MessageHandler {
   private static final Logger logger = LoggerFactory.getLogger(HelixStateTransitionHandler.class);
   private final StateModel _stateModel;
   StatusUpdateUtil _statusUpdateUtil;
-  private final StateModelParser _transitionMethodFinder;
   private final CurrentState _currentStateDelta;
   private final HelixManager _manager;
   private final StateModelFactory<? extends StateModel> _stateModelFactory;
@@ -95,7 +93,6 @@ public class HelixStateTransitionHandler extends MessageHandler {
     super(message, context);
     _stateModel = stateModel;
     _statusUpdateUtil = new StatusUpdateUtil();
-    _transitionMethodFinder = new StateModelParser();
     _currentStateDelta = currentStateDelta;
     _manager = _notificationContext.getManager();
     _stateModelFactory = stateModelFactory;
@@ -213,6 +210,12 @@ public class HelixStateTransitionHandler extends MessageHandler {
     updateZKCurrentState();
   }
 
+  private CurrentStateUpdateBatcher getCurrentStateUpdateBatcher() {
+    Object executor = _notificationContext.get(MapKey.TASK_EXECUTOR.toString());
+    return executor instanceof HelixTaskExecutor
+        ? ((HelixTaskExecutor) executor).getCurrentStateUpdateBatcher() : null;
+  }
+
   // Update the ZK current state of the node
   private void updateZKCurrentState(){
     HelixDataAccessor accessor = _manager.getHelixDataAccessor();
@@ -237,7 +240,10 @@ public class HelixStateTransitionHandler extends MessageHandler {
           .currentState(instanceName, sessionId, resource, bucketizer.getBucketName(partitionKey));
       if (_message.getAttribute(Attributes.PARENT_MSG_ID) == null) {
         // normal message
-        if (!accessor.updateProperty(key, _currentStateDelta)) {
+        CurrentStateUpdateBatcher batcher = getCurrentStateUpdateBatcher();
+        boolean success = batcher == null ? accessor.updateProperty(key, _currentStateDelta)
+            : batcher.updateCurrentState(accessor, key, _currentStateDelta);
+        if (!success) {
           throw new HelixException(
               "Fails to persist current state back to ZK for resource " + resource + " partition: "
                   + _message.getPartitionName());
@@ -329,13 +335,11 @@ public class HelixStateTransitionHandler extends MessageHandler {
         "Message handling invoking", manager);
 
     // by default, we invoke state transition function in state model
-    Method methodToInvoke = null;
     String fromState = message.getFromState();
     String toState = message.getToState();
-    methodToInvoke = _transitionMethodFinder.getMethodForTransition(_stateModel.getClass(),
-        fromState, toState, new Class[] {
-            Message.class, NotificationContext.class
-        });
+    TransitionDispatchTable.TransitionMethod methodToInvoke =
+        TransitionDispatchTable.forClass(_stateModel.getClass())
+            .getTransitionMethod(fromState, toState);
     if (methodToInvoke != null) {
       logger.info(String.format(
           "Instance %s, partition %s received state transition from %s to %s on session %s, message id: %s",
@@ -348,9 +352,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
             message.getToState(), message.getTgtSessionId(), message.getMsgId()));
       }
 
-      Object result = methodToInvoke.invoke(_stateModel, new Object[] {
-          message, context
-      });
+      Object result = methodToInvoke.invoke(_stateModel, message, context);
       taskResult.setSuccess(true);
       String resultStr;
       if (result == null || result instanceof Void) {
@@ -382,6 +382,16 @@ public class HelixTask implements MessageTask {
   private void finalCleanup(HelixTaskResult taskResult) {
     try {
       if (_message.getAttribute(Attributes.PARENT_MSG_ID) == null) {
+        CurrentStateUpdateBatcher batcher = _executor.getCurrentStateUpdateBatcher();
+        if (batcher != null && _message.getMsgType().equals(MessageType.STATE_TRANSITION.name())) {
+          // The message is removed with the other completed transitions, and the task stays known
+          // to the executor until then, so that the message is not handled again
+          reportMessageStat(_manager, _message, taskResult);
+          sendReply(getSrcClusterDataAccessor(_message), _message, taskResult);
+          batcher.removeMessage(_manager.getHelixDataAccessor(), _message,
+              _manager.getInstanceName(), () -> _executor.finishTask(this));
+          return;
+        }
         removeMessageFromZk(_manager.getHelixDataAccessor(), _message);
         reportMessageStat(_manager, _message, taskResult);
         sendReply(getSrcClusterDataAccessor(_message), _message, taskResult);
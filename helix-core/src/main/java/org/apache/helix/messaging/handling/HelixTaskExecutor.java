@@ -60,14 +60,12 @@ import org.apache.helix.api.listeners.PreFetch;
 import org.apache.helix.controller.GenericHelixController;
 import org.apache.helix.manager.zk.ParticipantManager;
 import org.apache.helix.model.CurrentState;
-import org.apache.helix.model.HelixConfigScope;
-import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.LiveInstance.LiveInstanceStatus;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.MessageState;
 import org.apache.helix.model.Message.MessageType;
-import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.monitoring.mbeans.MessageQueueMonitor;
 import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor;
 import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor.ProcessedMessageState;
@@ -131,6 +129,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   // From storage point of view, only bootstrap case is expensive
   // and we need to throttle, which is mostly IO / network bounded.
   public static final int DEFAULT_PARALLEL_TASKS = TaskExecutor.DEFAULT_PARALLEL_TASKS;
+  private static final long DEFAULT_TRANSITION_BATCH_FLUSH_LATENCY_MS = 20L;
+  private static final int DEFAULT_TRANSITION_BATCH_MAX_SIZE = 500;
+  private static final long DEFAULT_TRANSITION_BATCH_UPDATE_TIMEOUT_MS = 10000L;
   // TODO: create per-task type threadpool with customizable pool size
   protected final Map<String, MessageTaskInfo> _taskMap;
   private final Object _lock;
@@ -171,6 +172,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
   private boolean _isShuttingDown;
 
+  // Batches the current state updates and message removals of state transitions, null if disabled
+  private final CurrentStateUpdateBatcher _currentStateUpdateBatcher;
+
   public HelixTaskExecutor() {
     this(new ParticipantStatusMonitor(false, null), null);
   }
@@ -206,6 +210,20 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _isShuttingDown = false;
     _liveInstanceStatus = LiveInstanceStatus.NORMAL;
 
+    if (Boolean.getBoolean(SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_ENABLED)) {
+      _currentStateUpdateBatcher = new CurrentStateUpdateBatcher(
+          HelixUtil.getSystemPropertyAsLong(
+              SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_FLUSH_LATENCY_MS,
+              DEFAULT_TRANSITION_BATCH_FLUSH_LATENCY_MS),
+          HelixUtil.getSystemPropertyAsInt(SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_MAX_SIZE,
+              DEFAULT_TRANSITION_BATCH_MAX_SIZE),
+          HelixUtil.getSystemPropertyAsLong(
+              SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_UPDATE_TIMEOUT_MS,
+              DEFAULT_TRANSITION_BATCH_UPDATE_TIMEOUT_MS));
+    } else {
+      _currentStateUpdateBatcher = null;
+    }
+
     startMonitorThread();
   }
 
@@ -266,6 +284,13 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _controller = controller;
   }
 
+  /**
+   * @return the batcher of state transition updates, or null if transition batching is disabled
+   */
+  CurrentStateUpdateBatcher getCurrentStateUpdateBatcher() {
+    return _currentStateUpdateBatcher;
+  }
+
   public ParticipantStatusMonitor getParticipantMonitor() {
     return _monitor;
   }
@@ -326,25 +351,36 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
     if (!_resourcesThreadpoolChecked.contains(resourceName)) {
       int threadpoolSize = -1;
+      int adaptiveMinSize = -1;
+      int adaptiveMaxSize = -1;
       ConfigAccessor configAccessor = manager.getConfigAccessor();
       // Changes to this configuration on thread pool size will only take effect after the participant get restarted.
       if (configAccessor != null) {
-        HelixConfigScope scope =
-            new HelixConfigScopeBuilder(ConfigScopeProperty.RESOURCE).forCluster(manager.getClusterName())
-                .forResource(resourceName)
-                .build();
-
-        String threadpoolSizeStr = configAccessor.get(scope, MAX_THREADS);
-        try {
-          if (threadpoolSizeStr != null) {
-            threadpoolSize = Integer.parseInt(threadpoolSizeStr);
+        ResourceConfig resourceConfig =
+            configAccessor.getResourceConfig(manager.getClusterName(), resourceName);
+        if (resourceConfig != null) {
+          String threadpoolSizeStr = resourceConfig.getSimpleConfig(MAX_THREADS);
+          try {
+            if (threadpoolSizeStr != null) {
+              threadpoolSize = Integer.parseInt(threadpoolSizeStr);
+            }
+          } catch (Exception e) {
+            LOG.error("Failed to parse ThreadPoolSize from resourceConfig for resource" + resourceName, e);
           }
-        } catch (Exception e) {
-          LOG.error("Failed to parse ThreadPoolSize from resourceConfig for resource" + resourceName, e);
+          adaptiveMinSize = resourceConfig.getAdaptiveThreadPoolMinSize();
+          adaptiveMaxSize = resourceConfig.getAdaptiveThreadPoolMaxSize();
         }
       }
       final String key = msgInfo.getMessageIdentifier(Message.MessageInfo.MessageIdentifierBase.PER_RESOURCE);
-      if (threadpoolSize > 0) {
+      if (adaptiveMinSize > 0 && adaptiveMaxSize >= adaptiveMinSize) {
+        AdaptiveThreadPoolExecutor executor =
+            new AdaptiveThreadPoolExecutor(key, adaptiveMinSize, adaptiveMaxSize,
+                r -> new Thread(r, "GenericHelixController-message_handle_" + key));
+        _executorMap.put(key, executor);
+        _monitor.createExecutorMonitor(key, executor);
+        LOG.info("Added adaptive threadpool for resource: " + resourceName + " with size range: ["
+            + adaptiveMinSize + ", " + adaptiveMaxSize + "]");
+      } else if (threadpoolSize > 0) {
         _executorMap.put(key, Executors.newFixedThreadPool(threadpoolSize,
             r -> new Thread(r, "GenericHelixController-message_handle_" + key)));
         LOG.info("Added dedicate threadpool for resource: " + resourceName + " with size: " + threadpoolSize);
@@ -719,6 +755,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     }
 
     shutdownExecutors();
+    if (_currentStateUpdateBatcher != null) {
+      _currentStateUpdateBatcher.flush();
+    }
 
     synchronized (_hdlrFtyRegistry) {
       _hdlrFtyRegistry.values()
@@ -1475,6 +1514,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
     shutdownExecutors();
     reset();
+    if (_currentStateUpdateBatcher != null) {
+      _currentStateUpdateBatcher.shutdown();
+    }
     _monitor.shutDown();
     LOG.info("Shutdown HelixTaskExecutor finished");
   }
@@ -52,6 +52,8 @@ public class ClusterConfig extends HelixProperty {
     HELIX_DISABLE_PIPELINE_TRIGGERS,
     PERSIST_BEST_POSSIBLE_ASSIGNMENT,
     PERSIST_INTERMEDIATE_ASSIGNMENT,
+    // Whether the controller prefetches changed current states while a pipeline is running
+    PIPELINED_REFRESH_ENABLED,
     TOPOLOGY, // cluster topology definition, for example, "/zone/rack/host/instance"
     FAULT_ZONE_TYPE, // the type in which isolation should be applied on when Helix places the
     // replicas from same partition.
@@ -67,6 +69,8 @@ public class ClusterConfig extends HelixProperty {
     RESOURCE_PRIORITY_FIELD,
     REBALANCE_TIMER_PERIOD,
     MAX_CONCURRENT_TASK_PER_INSTANCE,
+    // Whether generic task jobs are assigned over a single cluster-wide instance heap per quota type
+    CLUSTER_WIDE_TASK_ASSIGNMENT_ENABLED,
 
     // The following concerns maintenance mode
     MAX_PARTITIONS_PER_INSTANCE,
@@ -751,6 +755,43 @@ public class ClusterConfig extends HelixProperty {
         maxConcurrentTaskPerInstance);
   }
 
+  /**
+   * Whether the tasks of generic jobs are assigned over a single cluster-wide instance heap per
+   * quota type that is shared by all jobs in a pipeline run.
+   * @return true if enabled, false otherwise
+   */
+  public boolean isClusterWideTaskAssignmentEnabled() {
+    return _record
+        .getBooleanField(ClusterConfigProperty.CLUSTER_WIDE_TASK_ASSIGNMENT_ENABLED.name(), false);
+  }
+
+  /**
+   * Enable or disable assigning the tasks of generic jobs over a single cluster-wide instance heap
+   * per quota type.
+   * @param enabled
+   */
+  public void setClusterWideTaskAssignmentEnabled(boolean enabled) {
+    _record.setBooleanField(ClusterConfigProperty.CLUSTER_WIDE_TASK_ASSIGNMENT_ENABLED.name(),
+        enabled);
+  }
+
+  /**
+   * Whether the controller prefetches the changed current states for the next pipeline run while
+   * the current run is still computing or persisting.
+   * @return true if enabled, false otherwise
+   */
+  public boolean isPipelinedRefreshEnabled() {
+    return _record.getBooleanField(ClusterConfigProperty.PIPELINED_REFRESH_ENABLED.name(), false);
+  }
+
+  /**
+   * Enable or disable prefetching the changed current states while a pipeline is running.
+   * @param enabled
+   */
+  public void setPipelinedRefreshEnabled(boolean enabled) {
+    _record.setBooleanField(ClusterConfigProperty.PIPELINED_REFRESH_ENABLED.name(), enabled);
+  }
+
   /**
    * Get maximum allowed error partitions for a resource to be load balanced.
    * If limitation is set to negative number, Helix won't check error partition count before
@@ -21,7 +21,6 @@ package org.apache.helix.model;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
 
 import org.apache.helix.HelixProperty;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -203,7 +202,7 @@ public class CurrentState extends HelixProperty {
   private void setProperty(String partitionName, CurrentStateProperty property, String value) {
     Map<String, Map<String, String>> mapFields = _record.getMapFields();
     if (mapFields.get(partitionName) == null) {
-      mapFields.put(partitionName, new TreeMap<String, String>());
+      mapFields.put(partitionName, ZNRecord.createFieldMap());
     }
     mapFields.get(partitionName).put(property.name(), value);
   }
@@ -21,7 +21,6 @@ package org.apache.helix.model;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.helix.HelixProperty;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -69,7 +68,7 @@ public class ExternalView extends HelixProperty {
    */
   public void setState(String partition, String instance, String state) {
     if (_record.getMapField(partition) == null) {
-      _record.setMapField(partition, new TreeMap<String, String>());
+      _record.setMapField(partition, ZNRecord.createFieldMap());
     }
     _record.getMapField(partition).put(instance, state);
   }
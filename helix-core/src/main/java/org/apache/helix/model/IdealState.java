@@ -26,7 +26,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.helix.HelixConstants;
@@ -359,7 +358,7 @@ public class IdealState extends HelixProperty {
   public void setPartitionState(String partitionName, String instanceName, String state) {
     Map<String, String> mapField = _record.getMapField(partitionName);
     if (mapField == null) {
-      _record.setMapField(partitionName, new TreeMap<String, String>());
+      _record.setMapField(partitionName, ZNRecord.createFieldMap());
     }
     _record.getMapField(partitionName).put(instanceName, state);
   }
@@ -59,7 +59,9 @@ public class ResourceConfig extends HelixProperty {
     GROUP_ROUTING_ENABLED,
     EXTERNAL_VIEW_DISABLED,
     DELAY_REBALANCE_ENABLED,
-    PARTITION_CAPACITY_MAP
+    PARTITION_CAPACITY_MAP,
+    ADAPTIVE_THREAD_POOL_MIN_SIZE, // Participant-side thread pool for the messages of the resource
+    ADAPTIVE_THREAD_POOL_MAX_SIZE
   }
 
   public enum ResourceConfigConstants {
@@ -336,6 +338,43 @@ public class ResourceConfig extends HelixProperty {
     return _record.getBooleanField(ResourceConfigProperty.EXTERNAL_VIEW_DISABLED.name(), false);
   }
 
+  /**
+   * Get the min size of the adaptive thread pool that handles the state transition messages of
+   * this resource on the participants.
+   *
+   * @return the min size, or -1 if the adaptive thread pool is not configured
+   */
+  public int getAdaptiveThreadPoolMinSize() {
+    return _record.getIntField(ResourceConfigProperty.ADAPTIVE_THREAD_POOL_MIN_SIZE.name(), -1);
+  }
+
+  /**
+   * Get the max size of the adaptive thread pool that handles the state transition messages of
+   * this resource on the participants.
+   *
+   * @return the max size, or -1 if the adaptive thread pool is not configured
+   */
+  public int getAdaptiveThreadPoolMaxSize() {
+    return _record.getIntField(ResourceConfigProperty.ADAPTIVE_THREAD_POOL_MAX_SIZE.name(), -1);
+  }
+
+  /**
+   * Handle the state transition messages of this resource on the participants with a thread pool
+   * that grows and shrinks between the given sizes according to its load. The change takes effect
+   * after the participants are restarted.
+   *
+   * @param minSize the min number of threads, must be positive
+   * @param maxSize the max number of threads, must not be less than minSize
+   */
+  public void setAdaptiveThreadPoolSize(int minSize, int maxSize) {
+    if (minSize <= 0 || maxSize < minSize) {
+      throw new IllegalArgumentException(
+          String.format("Invalid adaptive thread pool size range [%d, %d]", minSize, maxSize));
+    }
+    _record.setIntField(ResourceConfigProperty.ADAPTIVE_THREAD_POOL_MIN_SIZE.name(), minSize);
+    _record.setIntField(ResourceConfigProperty.ADAPTIVE_THREAD_POOL_MAX_SIZE.name(), maxSize);
+  }
+
   /**
    * Get rebalance config for this resource.
    * @return
@@ -47,6 +47,7 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _totalDuration;
   private SimpleDynamicMetric<Long> _maxDuration;
   private SimpleDynamicMetric<Long> _count;
+  private SimpleDynamicMetric<Long> _queueDepth;
   private HistogramDynamicMetric _duration;
 
   private long _lastResetTime;
@@ -61,6 +62,7 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     _count = new SimpleDynamicMetric("EventCounter", 0l);
     _maxDuration = new SimpleDynamicMetric("MaxSingleDurationGauge", 0l);
     _totalDuration = new SimpleDynamicMetric("TotalDurationCounter", 0l);
+    _queueDepth = new SimpleDynamicMetric("QueueDepthGauge", 0l);
   }
 
   public ClusterEventMonitor(ClusterStatusMonitor clusterStatusMonitor, String phaseName,
@@ -73,6 +75,7 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     _count = new SimpleDynamicMetric("EventCounter", 0l);
     _maxDuration = new SimpleDynamicMetric("MaxSingleDurationGauge", 0l);
     _totalDuration = new SimpleDynamicMetric("TotalDurationCounter", 0l);
+    _queueDepth = new SimpleDynamicMetric("QueueDepthGauge", 0l);
   }
 
   public void reportDuration(long duration) {
@@ -86,6 +89,22 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     }
   }
 
+  /**
+   * Update the number of events waiting in the queue, only meaningful for the queue lane phases.
+   * @param depth
+   */
+  public void updateQueueDepth(long depth) {
+    _queueDepth.updateValue(depth);
+  }
+
+  /**
+   * @param lane the name of an event queue lane
+   * @return the phase name for the time events spend waiting in the given queue lane
+   */
+  public static String getQueueLanePhaseName(String lane) {
+    return PhaseName.InQueue.name() + "_" + lane;
+  }
+
   @Override
   public String getSensorName() {
     return String.format("%s.%s.%s.%s", CLUSTEREVENT_DN_KEY, _clusterStatusMonitor.getClusterName(),
@@ -103,6 +122,7 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     attributeList.add(_maxDuration);
     attributeList.add(_count);
     attributeList.add(_duration);
+    attributeList.add(_queueDepth);
     doRegister(attributeList, _clusterStatusMonitor.getObjectName(getBeanName()));
     return this;
   }
@@ -87,6 +87,9 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   private AtomicLong _rebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousResourceRebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousTaskRebalanceFailureCount = new AtomicLong(0L);
+  private AtomicLong _assignableInstanceUpdateLatency = new AtomicLong(0L);
+  private AtomicLong _assignableInstanceFullRebuildLatency = new AtomicLong(0L);
+  private AtomicLong _assignableInstanceDriftCount = new AtomicLong(0L);
 
   private final ConcurrentHashMap<String, ResourceMonitor> _resourceMonitorMap =
       new ConcurrentHashMap<>();
@@ -335,6 +338,28 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
   }
 
+  /**
+   * Update the time an event has waited in a controller event queue lane before being processed.
+   * @param lane
+   * @param waitTime
+   */
+  public void updateClusterEventQueueLaneWaitTime(String lane, long waitTime) {
+    updateClusterEventDuration(ClusterEventMonitor.getQueueLanePhaseName(lane), waitTime);
+  }
+
+  /**
+   * Update the number of events waiting in a controller event queue lane.
+   * @param lane
+   * @param depth
+   */
+  public void updateClusterEventQueueLaneDepth(String lane, long depth) {
+    ClusterEventMonitor monitor =
+        getOrCreateClusterEventMonitor(ClusterEventMonitor.getQueueLanePhaseName(lane));
+    if (monitor != null) {
+      monitor.updateQueueDepth(depth);
+    }
+  }
+
   /**
    * Lazy initialization of customized view monitor
    * @param clusterName the cluster name of the cluster to be monitored
@@ -531,17 +556,56 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   public void setResourceState(String resourceName, ExternalView externalView,
       IdealState idealState, StateModelDefinition stateModelDef) {
+    setResourceState(resourceName, externalView, idealState, stateModelDef, null);
+  }
+
+  /**
+   * Update the resource state gauges with the partitions whose IdealState entries changed since
+   * the last update, see {@link ResourceMonitor#updateResourceState}.
+   * @param changedPartitions the changed partitions, or null to recount all the partitions
+   */
+  public void setResourceState(String resourceName, ExternalView externalView,
+      IdealState idealState, StateModelDefinition stateModelDef, Set<String> changedPartitions) {
+    setResourceState(resourceName, externalView, idealState, stateModelDef, changedPartitions,
+        ResourceMonitor.UNKNOWN_STATE_VERSION);
+  }
+
+  /**
+   * Update the resource state gauges with the partitions whose IdealState entries changed since
+   * the previous version of the state, see {@link ResourceMonitor#updateResourceState}.
+   * @param changedPartitions the changed partitions, or null to recount all the partitions
+   * @param stateVersion the version of the reported state
+   */
+  public void setResourceState(String resourceName, ExternalView externalView,
+      IdealState idealState, StateModelDefinition stateModelDef, Set<String> changedPartitions,
+      long stateVersion) {
     try {
       ResourceMonitor resourceMonitor = getOrCreateResourceMonitor(resourceName);
 
       if (resourceMonitor != null) {
-        resourceMonitor.updateResourceState(externalView, idealState, stateModelDef);
+        resourceMonitor.updateResourceState(externalView, idealState, stateModelDef,
+            changedPartitions, stateVersion);
       }
     } catch (Exception e) {
       LOG.error("Fail to set resource status, resource: " + idealState.getResourceName(), e);
     }
   }
 
+  /**
+   * Record the partitions whose ExternalView entries have been changed by the controller, so that
+   * the resource state updates evaluate them again, see
+   * {@link ResourceMonitor#addExternalViewChangedPartitions}.
+   * @param externalView the new ExternalView
+   * @param changedPartitions the changed partitions, or null to recount all the partitions
+   */
+  public void setResourceExternalViewChangedPartitions(String resourceName,
+      ExternalView externalView, Set<String> changedPartitions) {
+    ResourceMonitor resourceMonitor = _resourceMonitorMap.get(resourceName);
+    if (resourceMonitor != null) {
+      resourceMonitor.addExternalViewChangedPartitions(externalView, changedPartitions);
+    }
+  }
+
   public void setResourcePendingMessages(String resourceName, int messageCount) {
     try {
       ResourceMonitor resourceMonitor = getOrCreateResourceMonitor(resourceName);
@@ -1037,6 +1101,18 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     _continuousTaskRebalanceFailureCount.set(newValue);
   }
 
+  public void updateAssignableInstanceUpdateLatencyGauge(long latency) {
+    _assignableInstanceUpdateLatency.set(latency);
+  }
+
+  public void updateAssignableInstanceFullRebuildLatencyGauge(long latency) {
+    _assignableInstanceFullRebuildLatency.set(latency);
+  }
+
+  public void reportAssignableInstanceDrift() {
+    _assignableInstanceDriftCount.incrementAndGet();
+  }
+
   @Override
   public long getRebalanceFailureCounter() {
     return _rebalanceFailureCount.get();
@@ -1052,6 +1128,21 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _continuousTaskRebalanceFailureCount.get();
   }
 
+  @Override
+  public long getAssignableInstanceUpdateLatencyGauge() {
+    return _assignableInstanceUpdateLatency.get();
+  }
+
+  @Override
+  public long getAssignableInstanceFullRebuildLatencyGauge() {
+    return _assignableInstanceFullRebuildLatency.get();
+  }
+
+  @Override
+  public long getAssignableInstanceDriftCounter() {
+    return _assignableInstanceDriftCount.get();
+  }
+
   @Override
   public long getTotalResourceGauge() {
     return _resourceMonitorMap.size();
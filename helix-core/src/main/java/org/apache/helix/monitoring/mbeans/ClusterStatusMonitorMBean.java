@@ -147,4 +147,21 @@ public interface ClusterStatusMonitorMBean extends SensorNameProvider {
    * state partition is larger than configured threshold (default is 1).
    */
   long getNumOfResourcesRebalanceThrottledGauge();
+
+  /**
+   * @return duration in ms of the latest incremental AssignableInstance quota update in the task
+   * pipeline
+   */
+  long getAssignableInstanceUpdateLatencyGauge();
+
+  /**
+   * @return duration in ms of the latest full AssignableInstance quota rebuild in the task pipeline
+   */
+  long getAssignableInstanceFullRebuildLatencyGauge();
+
+  /**
+   * @return number of times a full AssignableInstance rebuild detected drift in the incrementally
+   * maintained task quota usage
+   */
+  long getAssignableInstanceDriftCounter();
 }
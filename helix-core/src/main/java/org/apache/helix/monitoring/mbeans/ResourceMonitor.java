@@ -20,9 +20,11 @@ package org.apache.helix.monitoring.mbeans;
  */
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +35,7 @@ import com.codahale.metrics.Histogram;
 import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
 import com.google.common.collect.Lists;
 import org.apache.helix.HelixDefinedState;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.StateModelDefinition;
@@ -40,6 +43,7 @@ import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+import org.apache.helix.util.HelixUtil;
 
 public class ResourceMonitor extends DynamicMBeanProvider {
 
@@ -51,6 +55,9 @@ public class ResourceMonitor extends DynamicMBeanProvider {
   }
 
   private static final String GAUGE_METRIC_SUFFIX = "Gauge";
+  private static final long DEFAULT_FULL_RECOUNT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+  // The version of a resource state update that is not ordered with the other updates
+  public static final long UNKNOWN_STATE_VERSION = -1;
 
   // Gauges
   private SimpleDynamicMetric<Long> _numOfPartitions;
@@ -100,6 +107,28 @@ public class ResourceMonitor extends DynamicMBeanProvider {
   // A map of dynamic capacity Gauges. The map's keys could change.
   private final Map<String, SimpleDynamicMetric<Long>> _dynamicCapacityMetricsMap;
 
+  // The partition states of the last resource state update, which let the resource state gauges be
+  // updated with the changed partitions only.
+  private final Map<String, PartitionState> _partitionStates = new HashMap<>();
+  // The partitions whose ExternalView entries changed and are not yet reflected by the ExternalView
+  // of a resource state update
+  private final Set<String> _externalViewChangedPartitions = new HashSet<>();
+  // The latest ExternalView computed by the controller, which the changed partitions refer to
+  private ExternalView _changedExternalView;
+  private boolean _fullRecountRequired;
+  private final long _fullRecountIntervalMs = HelixUtil.getSystemPropertyAsLong(
+      SystemPropertyKeys.HELIX_MONITOR_RESOURCE_STATE_FULL_RECOUNT_INTERVAL_MS,
+      DEFAULT_FULL_RECOUNT_INTERVAL_MS);
+  private ResourceStateParams _lastStateParams;
+  // The version of the last applied resource state update
+  private long _lastStateVersion = UNKNOWN_STATE_VERSION;
+  private long _lastFullRecountTime;
+  private long _errorReplicaCount;
+  private long _diffPartitionCount;
+  private long _topStatePartitionCount;
+  private long _lessReplicaPartitionCount;
+  private long _lessMinActiveReplicaPartitionCount;
+
   @Override
   public DynamicMBeanProvider register() throws JMException {
     doRegister(buildAttributeList(), _initObjectName);
@@ -242,94 +271,136 @@ public class ResourceMonitor extends DynamicMBeanProvider {
     return _clusterName + " " + _resourceName;
   }
 
+  /**
+   * Recount the resource state gauges with all the partitions of the resource.
+   */
   public void updateResourceState(ExternalView externalView, IdealState idealState,
       StateModelDefinition stateModelDef) {
-    if (externalView == null) {
-      _logger.warn("External view is null");
-      return;
+    updateResourceState(externalView, idealState, stateModelDef, null);
+  }
+
+  /**
+   * Record the partitions whose ExternalView entries have been changed since the last update, so
+   * that the resource state updates evaluate them again until they are given an ExternalView that
+   * reflects the changes. The resource state may be updated with an older ExternalView, since the
+   * update is not ordered with the ExternalView computation.
+   *
+   * @param externalView the new ExternalView
+   * @param changedPartitions the changed partitions, or null to recount all the partitions
+   */
+  public synchronized void addExternalViewChangedPartitions(ExternalView externalView,
+      Set<String> changedPartitions) {
+    _changedExternalView = externalView;
+    if (changedPartitions == null) {
+      _fullRecountRequired = true;
+    } else {
+      _externalViewChangedPartitions.addAll(changedPartitions);
     }
+  }
 
-    String topState = null;
-    if (stateModelDef != null) {
-      List<String> priorityList = stateModelDef.getStatesPriorityList();
-      if (!priorityList.isEmpty()) {
-        topState = priorityList.get(0);
+  /**
+   * Update the resource state gauges with the partitions whose IdealState entries changed since
+   * the last update, see {@link #updateResourceState(ExternalView, IdealState,
+   * StateModelDefinition, Set, long)}. The update is not ordered with the other updates.
+   *
+   * @param changedPartitions the changed partitions, or null to recount all the partitions
+   */
+  public void updateResourceState(ExternalView externalView, IdealState idealState,
+      StateModelDefinition stateModelDef, Set<String> changedPartitions) {
+    updateResourceState(externalView, idealState, stateModelDef, changedPartitions,
+        UNKNOWN_STATE_VERSION);
+  }
+
+  /**
+   * Update the resource state gauges with the partitions whose IdealState entries changed since
+   * the last update, together with the partitions recorded by
+   * {@link #addExternalViewChangedPartitions(ExternalView, Set)}. The gauges are recounted with
+   * all the partitions instead if the changed partitions are unknown, the resource level settings
+   * changed, or the full recount interval elapsed.
+   *
+   * The updates may be applied out of order, so each one carries the version of the state it
+   * reports, and its changed partitions are relative to the previous version. An update older
+   * than the last applied one is dropped, and an update that does not follow the last applied one
+   * recounts all the partitions, since the changes in between have not been applied.
+   *
+   * @param changedPartitions the changed partitions, or null to recount all the partitions
+   * @param stateVersion the version of the reported state, or {@link #UNKNOWN_STATE_VERSION}
+   */
+  public synchronized void updateResourceState(ExternalView externalView, IdealState idealState,
+      StateModelDefinition stateModelDef, Set<String> changedPartitions, long stateVersion) {
+    boolean versionGap = false;
+    if (stateVersion != UNKNOWN_STATE_VERSION) {
+      if (_lastStateVersion != UNKNOWN_STATE_VERSION && stateVersion <= _lastStateVersion) {
+        _logger.debug("Drop the resource state update {} of {}, the last applied update is {}",
+            stateVersion, _resourceName, _lastStateVersion);
+        return;
       }
+      versionGap = stateVersion != _lastStateVersion + 1;
+      _lastStateVersion = stateVersion;
     }
 
-    resetResourceStateGauges();
+    if (externalView == null) {
+      _logger.warn("External view is null");
+      _fullRecountRequired = true;
+      return;
+    }
 
     if (idealState == null) {
       _logger.warn("ideal state is null for {}", _resourceName);
+      resetResourceStateGauges();
+      _partitionStates.clear();
+      _lastStateParams = null;
       return;
     }
 
     assert (_resourceName.equals(idealState.getId()));
     assert (_resourceName.equals(externalView.getId()));
 
-    long numOfErrorPartitions = 0;
-    long numOfDiff = 0;
-    long numOfPartitionWithTopState = 0;
-
+    ResourceStateParams stateParams = new ResourceStateParams(idealState, stateModelDef);
     Set<String> partitions = idealState.getPartitionSet();
+    long currentTime = System.currentTimeMillis();
 
-    // returns -1 when replica is set to ANY_LIVEINSTANCE.
-    int replica = idealState.getReplicaCount(-1);
-
-    int minActiveReplica = idealState.getMinActiveReplicas();
-    minActiveReplica = (minActiveReplica >= 0) ? minActiveReplica : replica;
-
-    Set<String> activeStates = new HashSet<>(stateModelDef.getStatesPriorityList());
-    activeStates.remove(stateModelDef.getInitialState());
-    activeStates.remove(HelixDefinedState.DROPPED.name());
-    activeStates.remove(HelixDefinedState.ERROR.name());
-
-    for (String partition : partitions) {
-      Map<String, String> idealRecord = idealState.getInstanceStateMap(partition);
-      Map<String, String> externalViewRecord = externalView.getStateMap(partition);
-
-      if (idealRecord == null) {
-        idealRecord = Collections.emptyMap();
-      }
-      if (externalViewRecord == null) {
-        externalViewRecord = Collections.emptyMap();
-      }
-      if (!idealRecord.entrySet().equals(externalViewRecord.entrySet())) {
-        numOfDiff++;
+    if (changedPartitions == null || versionGap || _fullRecountRequired
+        || !stateParams.equals(_lastStateParams)
+        || currentTime - _lastFullRecountTime >= _fullRecountIntervalMs) {
+      recountResourceState(externalView, idealState, stateParams);
+      _lastFullRecountTime = currentTime;
+    } else {
+      Set<String> partitionsToUpdate = changedPartitions;
+      if (!_externalViewChangedPartitions.isEmpty()) {
+        partitionsToUpdate = new HashSet<>(changedPartitions);
+        partitionsToUpdate.addAll(_externalViewChangedPartitions);
       }
-
-      int activeReplicaCount = 0;
-      boolean hasTopState = false;
-      for (String host : externalViewRecord.keySet()) {
-        String currentState = externalViewRecord.get(host);
-        if (HelixDefinedState.ERROR.toString().equalsIgnoreCase(currentState)) {
-          numOfErrorPartitions++;
+      for (String partition : partitionsToUpdate) {
+        PartitionState oldState = _partitionStates.remove(partition);
+        if (oldState != null) {
+          applyPartitionState(oldState, -1);
         }
-        if (topState != null && topState.equalsIgnoreCase(currentState)) {
-          hasTopState = true;
-        }
-        if (currentState != null && activeStates.contains(currentState)) {
-          activeReplicaCount++;
+        if (partitions.contains(partition)) {
+          PartitionState newState = new PartitionState(idealState.getInstanceStateMap(partition),
+              externalView.getStateMap(partition), stateParams);
+          _partitionStates.put(partition, newState);
+          applyPartitionState(newState, 1);
         }
       }
-      if (hasTopState) {
-        numOfPartitionWithTopState ++;
-      }
-      if (replica > 0 && activeReplicaCount < replica) {
-        _numLessReplicaPartitions.updateValue(_numLessReplicaPartitions.getValue() + 1);
-      }
-      if (minActiveReplica >= 0 && activeReplicaCount < minActiveReplica) {
-        _numLessMinActiveReplicaPartitions
-            .updateValue(_numLessMinActiveReplicaPartitions.getValue() + 1);
+      if (_partitionStates.size() != partitions.size()) {
+        // Some partitions were added or removed without being reported as changed
+        _logger.warn("Resource state of {} drifted, recount all the partitions", _resourceName);
+        recountResourceState(externalView, idealState, stateParams);
+        _lastFullRecountTime = currentTime;
       }
     }
+    _lastStateParams = stateParams;
+    clearReflectedExternalViewChanges(externalView);
 
     // Update resource-level metrics
     _numOfPartitions.updateValue((long) partitions.size());
-    _numOfErrorPartitions.updateValue(numOfErrorPartitions);
-    _externalViewIdealStateDiff.updateValue(numOfDiff);
+    _numOfErrorPartitions.updateValue(_errorReplicaCount);
+    _externalViewIdealStateDiff.updateValue(_diffPartitionCount);
     _numOfPartitionsInExternalView.updateValue((long) externalView.getPartitionSet().size());
-    _numNonTopStatePartitions.updateValue(_numOfPartitions.getValue() - numOfPartitionWithTopState);
+    _numNonTopStatePartitions.updateValue(partitions.size() - _topStatePartitionCount);
+    _numLessReplicaPartitions.updateValue(_lessReplicaPartitionCount);
+    _numLessMinActiveReplicaPartitions.updateValue(_lessMinActiveReplicaPartitionCount);
 
     String tag = idealState.getInstanceGroupTag();
     if (tag == null || tag.equals("") || tag.equals("null")) {
@@ -339,6 +410,58 @@ public class ResourceMonitor extends DynamicMBeanProvider {
     }
   }
 
+  /**
+   * Forget the recorded ExternalView changes that are reflected by the given ExternalView. The
+   * others are kept to be evaluated again by the next resource state update.
+   */
+  private void clearReflectedExternalViewChanges(ExternalView externalView) {
+    if (_changedExternalView == null || _changedExternalView == externalView) {
+      _externalViewChangedPartitions.clear();
+      _fullRecountRequired = false;
+      _changedExternalView = null;
+      return;
+    }
+    if (_fullRecountRequired) {
+      // All the partitions were recounted
+      if (externalView.getRecord().getMapFields()
+          .equals(_changedExternalView.getRecord().getMapFields())) {
+        _externalViewChangedPartitions.clear();
+        _fullRecountRequired = false;
+        _changedExternalView = null;
+      }
+      return;
+    }
+    _externalViewChangedPartitions.removeIf(partition -> Objects
+        .equals(externalView.getStateMap(partition), _changedExternalView.getStateMap(partition)));
+    if (_externalViewChangedPartitions.isEmpty()) {
+      _changedExternalView = null;
+    }
+  }
+
+  private void recountResourceState(ExternalView externalView, IdealState idealState,
+      ResourceStateParams stateParams) {
+    _partitionStates.clear();
+    _errorReplicaCount = 0;
+    _diffPartitionCount = 0;
+    _topStatePartitionCount = 0;
+    _lessReplicaPartitionCount = 0;
+    _lessMinActiveReplicaPartitionCount = 0;
+    for (String partition : idealState.getPartitionSet()) {
+      PartitionState state = new PartitionState(idealState.getInstanceStateMap(partition),
+          externalView.getStateMap(partition), stateParams);
+      _partitionStates.put(partition, state);
+      applyPartitionState(state, 1);
+    }
+  }
+
+  private void applyPartitionState(PartitionState state, int sign) {
+    _errorReplicaCount += sign * state._errorReplicaCount;
+    _diffPartitionCount += state._diffWithIdealState ? sign : 0;
+    _topStatePartitionCount += state._hasTopState ? sign : 0;
+    _lessReplicaPartitionCount += state._lessReplica ? sign : 0;
+    _lessMinActiveReplicaPartitionCount += state._lessMinActiveReplica ? sign : 0;
+  }
+
   private void resetResourceStateGauges() {
     _numOfErrorPartitions.updateValue(0L);
     _numNonTopStatePartitions.updateValue(0L);
@@ -348,6 +471,91 @@ public class ResourceMonitor extends DynamicMBeanProvider {
     _numLessReplicaPartitions.updateValue(0L);
   }
 
+  /**
+   * The resource level settings the partition states are evaluated with.
+   */
+  private static final class ResourceStateParams {
+    private final String _topState;
+    private final int _replica;
+    private final int _minActiveReplica;
+    private final Set<String> _activeStates;
+
+    ResourceStateParams(IdealState idealState, StateModelDefinition stateModelDef) {
+      List<String> priorityList = stateModelDef.getStatesPriorityList();
+      _topState = priorityList.isEmpty() ? null : priorityList.get(0);
+
+      // returns -1 when replica is set to ANY_LIVEINSTANCE.
+      _replica = idealState.getReplicaCount(-1);
+      int minActiveReplica = idealState.getMinActiveReplicas();
+      _minActiveReplica = (minActiveReplica >= 0) ? minActiveReplica : _replica;
+
+      _activeStates = new HashSet<>(priorityList);
+      _activeStates.remove(stateModelDef.getInitialState());
+      _activeStates.remove(HelixDefinedState.DROPPED.name());
+      _activeStates.remove(HelixDefinedState.ERROR.name());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ResourceStateParams)) {
+        return false;
+      }
+      ResourceStateParams that = (ResourceStateParams) o;
+      return _replica == that._replica && _minActiveReplica == that._minActiveReplica
+          && Objects.equals(_topState, that._topState) && _activeStates.equals(that._activeStates);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_topState, _replica, _minActiveReplica, _activeStates);
+    }
+  }
+
+  /**
+   * The contribution of a single partition to the resource state gauges.
+   */
+  private static final class PartitionState {
+    private final int _errorReplicaCount;
+    private final boolean _diffWithIdealState;
+    private final boolean _hasTopState;
+    private final boolean _lessReplica;
+    private final boolean _lessMinActiveReplica;
+
+    PartitionState(Map<String, String> idealRecord, Map<String, String> externalViewRecord,
+        ResourceStateParams stateParams) {
+      if (idealRecord == null) {
+        idealRecord = Collections.emptyMap();
+      }
+      if (externalViewRecord == null) {
+        externalViewRecord = Collections.emptyMap();
+      }
+      _diffWithIdealState = !idealRecord.equals(externalViewRecord);
+
+      int errorReplicaCount = 0;
+      int activeReplicaCount = 0;
+      boolean hasTopState = false;
+      for (String currentState : externalViewRecord.values()) {
+        if (HelixDefinedState.ERROR.toString().equalsIgnoreCase(currentState)) {
+          errorReplicaCount++;
+        }
+        if (stateParams._topState != null && stateParams._topState.equalsIgnoreCase(currentState)) {
+          hasTopState = true;
+        }
+        if (currentState != null && stateParams._activeStates.contains(currentState)) {
+          activeReplicaCount++;
+        }
+      }
+      _errorReplicaCount = errorReplicaCount;
+      _hasTopState = hasTopState;
+      _lessReplica = stateParams._replica > 0 && activeReplicaCount < stateParams._replica;
+      _lessMinActiveReplica = stateParams._minActiveReplica >= 0
+          && activeReplicaCount < stateParams._minActiveReplica;
+    }
+  }
+
   public void updatePendingStateTransitionMessages(int messageCount) {
     _numPendingStateTransitions.updateValue((long) messageCount);
   }
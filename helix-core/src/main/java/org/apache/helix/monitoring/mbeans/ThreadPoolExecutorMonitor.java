@@ -23,6 +23,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 import javax.management.JMException;
 import javax.management.ObjectName;
 
+import org.apache.helix.messaging.handling.AdaptiveThreadPoolExecutor;
+
 public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean {
   public static final String TYPE = "Type";
 
@@ -67,4 +69,22 @@ public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean
   public int getNumOfActiveThreadsGauge() {
     return _executor.getActiveCount();
   }
+
+  @Override
+  public long getThreadPoolGrowCounter() {
+    return _executor instanceof AdaptiveThreadPoolExecutor
+        ? ((AdaptiveThreadPoolExecutor) _executor).getGrowCount() : 0;
+  }
+
+  @Override
+  public long getThreadPoolShrinkCounter() {
+    return _executor instanceof AdaptiveThreadPoolExecutor
+        ? ((AdaptiveThreadPoolExecutor) _executor).getShrinkCount() : 0;
+  }
+
+  @Override
+  public long getAverageTaskLatencyGauge() {
+    return _executor instanceof AdaptiveThreadPoolExecutor
+        ? (long) ((AdaptiveThreadPoolExecutor) _executor).getAverageTaskLatencyMs() : 0;
+  }
 }
@@ -26,4 +26,19 @@ public interface ThreadPoolExecutorMonitorMBean extends SensorNameProvider {
   int getThreadPoolMaxSizeGauge();
   int getNumOfActiveThreadsGauge();
   int getQueueSizeGauge();
+
+  /**
+   * @return the number of times an adaptive thread pool has grown, 0 for a fixed thread pool
+   */
+  long getThreadPoolGrowCounter();
+
+  /**
+   * @return the number of times an adaptive thread pool has shrunk, 0 for a fixed thread pool
+   */
+  long getThreadPoolShrinkCounter();
+
+  /**
+   * @return the average task latency in ms of an adaptive thread pool, 0 for a fixed thread pool
+   */
+  long getAverageTaskLatencyGauge();
 }
@@ -0,0 +1,159 @@
+package org.apache.helix.participant.statemachine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per StateModel class table of resolved transition methods. The table is created once per class
+ * and shared by all state model instances of that class. Each from-state/to-state pair is resolved
+ * on first use through {@link StateModelParser}, so the annotation and naming convention rules are
+ * the same as {@link StateModelParser#getMethodForTransition}, and is then served from the table.
+ * Resolved methods are invoked through a {@link MethodHandle} instead of reflection.
+ */
+public class TransitionDispatchTable {
+  private static final Logger LOG = LoggerFactory.getLogger(TransitionDispatchTable.class);
+
+  private static final Class<?>[] TRANSITION_PARAM_TYPES = new Class[] {
+      Message.class, NotificationContext.class
+  };
+  private static final MethodType INVOKER_TYPE =
+      MethodType.methodType(Object.class, StateModel.class, Message.class,
+          NotificationContext.class);
+  // Marks a transition that has been resolved and has no method, so it is not looked up again
+  private static final TransitionMethod NO_METHOD = new TransitionMethod(null, null);
+
+  private static final ClassValue<TransitionDispatchTable> TABLES =
+      new ClassValue<TransitionDispatchTable>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected TransitionDispatchTable computeValue(Class<?> type) {
+          return new TransitionDispatchTable((Class<? extends StateModel>) type);
+        }
+      };
+
+  private final Class<? extends StateModel> _stateModelClass;
+  // fromState -> toState -> resolved transition method
+  private final Map<String, Map<String, TransitionMethod>> _transitionMethods =
+      new ConcurrentHashMap<>();
+
+  private TransitionDispatchTable(Class<? extends StateModel> stateModelClass) {
+    _stateModelClass = stateModelClass;
+  }
+
+  /**
+   * Get the shared dispatch table of the given state model class.
+   * @param stateModelClass
+   * @return the dispatch table, never null
+   */
+  public static TransitionDispatchTable forClass(Class<? extends StateModel> stateModelClass) {
+    return TABLES.get(stateModelClass);
+  }
+
+  /**
+   * Get the method for the transition from fromState to toState.
+   * @param fromState
+   * @param toState
+   * @return the transition method, or null if the state model has no method for the transition
+   */
+  public TransitionMethod getTransitionMethod(String fromState, String toState) {
+    Map<String, TransitionMethod> toStateMethods =
+        _transitionMethods.computeIfAbsent(fromState, k -> new ConcurrentHashMap<>());
+    TransitionMethod transitionMethod = toStateMethods.get(toState);
+    if (transitionMethod == null) {
+      transitionMethod =
+          toStateMethods.computeIfAbsent(toState, k -> resolve(fromState, toState));
+    }
+    return transitionMethod == NO_METHOD ? null : transitionMethod;
+  }
+
+  public Class<? extends StateModel> getStateModelClass() {
+    return _stateModelClass;
+  }
+
+  private TransitionMethod resolve(String fromState, String toState) {
+    Method method = new StateModelParser()
+        .getMethodForTransition(_stateModelClass, fromState, toState, TRANSITION_PARAM_TYPES);
+    if (method == null) {
+      return NO_METHOD;
+    }
+    MethodHandle handle = null;
+    try {
+      handle = MethodHandles.publicLookup().unreflect(method).asType(INVOKER_TYPE);
+    } catch (IllegalAccessException e) {
+      // e.g. a public method declared in a non-public class, keep the reflective invocation
+      LOG.debug("Cannot create method handle for {}, falling back to reflection", method, e);
+    }
+    return new TransitionMethod(method, handle);
+  }
+
+  /**
+   * A resolved transition method of a state model class.
+   */
+  public static final class TransitionMethod {
+    private final Method _method;
+    private final MethodHandle _handle;
+
+    private TransitionMethod(Method method, MethodHandle handle) {
+      _method = method;
+      _handle = handle;
+    }
+
+    public Method getMethod() {
+      return _method;
+    }
+
+    /**
+     * Invoke the transition on the given state model. Exceptions thrown by the transition are
+     * wrapped in an InvocationTargetException, the same as {@link Method#invoke}.
+     * @param stateModel
+     * @param message
+     * @param context
+     * @return the value returned by the transition method, null for void methods
+     */
+    public Object invoke(StateModel stateModel, Message message, NotificationContext context)
+        throws IllegalAccessException, InvocationTargetException {
+      if (_handle == null) {
+        return _method.invoke(stateModel, message, context);
+      }
+      if (!_method.getDeclaringClass().isInstance(stateModel)) {
+        throw new IllegalArgumentException(
+            "State model " + stateModel.getClass() + " is not an instance of " + _method
+                .getDeclaringClass());
+      }
+      try {
+        return (Object) _handle.invokeExact(stateModel, message, context);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+}
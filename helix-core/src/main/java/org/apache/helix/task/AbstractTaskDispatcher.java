@@ -541,15 +541,39 @@ public abstract class AbstractTaskDispatcher {
       Map<String, Set<Integer>> assignedPartitions, Map<Integer, PartitionAssignment> paMap,
       Set<Integer> skippedPartitions, TaskAssignmentCalculator taskAssignmentCal,
       Set<Integer> allPartitions, final long currentTime, Collection<String> liveInstances) {
+    // The excludeSet contains the set of task partitions that must be excluded from consideration
+    // when making any new assignments.
+    // This includes all completed, failed, delayed, and already assigned partitions.
+    Set<Integer> excludeSet = Sets.newTreeSet();
+    Set<Integer> filteredTaskPartitionNumbers = getPartitionsToAssign(excludeSet, jobResource,
+        currStateOutput, jobCtx, jobCfg, cache, assignedPartitions, paMap, skippedPartitions,
+        allPartitions, currentTime, liveInstances);
 
+    // The actual assignment is computed here
+    // Get instance->[partition, ...] mappings for the target resource.
+    Map<String, SortedSet<Integer>> tgtPartitionAssignments =
+        taskAssignmentCal.getTaskAssignment(currStateOutput, liveInstances, jobCfg, jobCtx,
+            workflowConfig, workflowCtx, filteredTaskPartitionNumbers, cache.getIdealStates());
+
+    scheduleAssignedTasks(tgtPartitionAssignments, currentInstanceToTaskAssignments,
+        excludedInstances, excludeSet, jobResource, jobCtx, jobCfg, workflowConfig, cache,
+        assignedPartitions, paMap);
+  }
+
+  /**
+   * Returns the task partitions of the job that need a new assignment.
+   * @param excludeSet filled with the task partitions that must not be scheduled, to be passed to
+   *          scheduleAssignedTasks()
+   */
+  protected Set<Integer> getPartitionsToAssign(Set<Integer> excludeSet, String jobResource,
+      CurrentStateOutput currStateOutput, JobContext jobCtx, JobConfig jobCfg,
+      WorkflowControllerDataProvider cache, Map<String, Set<Integer>> assignedPartitions,
+      Map<Integer, PartitionAssignment> paMap, Set<Integer> skippedPartitions,
+      Set<Integer> allPartitions, long currentTime, Collection<String> liveInstances) {
     // See if there was LiveInstance change and cache LiveInstances from this iteration of pipeline
     boolean existsLiveInstanceOrCurrentStateOrMessageChangeChange =
         cache.getExistsLiveInstanceOrCurrentStateOrMessageChange();
 
-    // The excludeSet contains the set of task partitions that must be excluded from consideration
-    // when making any new assignments.
-    // This includes all completed, failed, delayed, and already assigned partitions.
-    Set<Integer> excludeSet = Sets.newTreeSet();
     // Add all assigned partitions to excludeSet
     for (Set<Integer> assignedSet : assignedPartitions.values()) {
       excludeSet.addAll(assignedSet);
@@ -593,12 +617,21 @@ public abstract class AbstractTaskDispatcher {
       }
     }
     filteredTaskPartitionNumbers.addAll(partitionsToRetryOnLiveInstanceChangeForTargetedJob);
+    return filteredTaskPartitionNumbers;
+  }
 
-    // The actual assignment is computed here
-    // Get instance->[partition, ...] mappings for the target resource.
-    Map<String, SortedSet<Integer>> tgtPartitionAssignments =
-        taskAssignmentCal.getTaskAssignment(currStateOutput, liveInstances, jobCfg, jobCtx,
-            workflowConfig, workflowCtx, filteredTaskPartitionNumbers, cache.getIdealStates());
+  /**
+   * Schedules the tasks assigned by the TaskAssignmentCalculator, throttled by the job and
+   * participant limits, and releases the assigned tasks that cannot be scheduled.
+   */
+  protected void scheduleAssignedTasks(Map<String, SortedSet<Integer>> tgtPartitionAssignments,
+      Map<String, SortedSet<Integer>> currentInstanceToTaskAssignments,
+      Set<String> excludedInstances, Set<Integer> excludeSet, String jobResource,
+      JobContext jobCtx, JobConfig jobCfg, WorkflowConfig workflowConfig,
+      WorkflowControllerDataProvider cache, Map<String, Set<Integer>> assignedPartitions,
+      Map<Integer, PartitionAssignment> paMap) {
+    boolean existsLiveInstanceOrCurrentStateOrMessageChangeChange =
+        cache.getExistsLiveInstanceOrCurrentStateOrMessageChange();
 
     if (!TaskUtil.isGenericTaskJob(jobCfg) && jobCfg.isRebalanceRunningTask()) {
       // TODO: Revisit the logic for isRebalanceRunningTask() and valid use cases for it
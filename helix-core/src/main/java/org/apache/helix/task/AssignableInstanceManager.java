@@ -19,9 +19,12 @@ package org.apache.helix.task;
  * under the License.
  */
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -29,6 +32,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.common.caches.TaskDataCache;
 import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.ClusterConfig;
@@ -38,7 +42,9 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.task.assigner.AssignableInstance;
+import org.apache.helix.task.assigner.AssignableInstanceHeap;
 import org.apache.helix.task.assigner.TaskAssignResult;
+import org.apache.helix.util.HelixUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +53,9 @@ public class AssignableInstanceManager {
   private static final Logger LOG = LoggerFactory.getLogger(AssignableInstanceManager.class);
   public static final int QUOTA_TYPE_NOT_EXIST = -1;
   private static ObjectMapper mapper = new ObjectMapper();
+  // Number of incremental updates between two full rebuilds from CurrentState
+  public static final int DEFAULT_FULL_REBUILD_INTERVAL = (int) HelixUtil.getSystemPropertyAsLong(
+      SystemPropertyKeys.TASK_ASSIGNABLE_INSTANCE_FULL_REBUILD_INTERVAL, 20L);
   // Instance name -> AssignableInstance
   private Map<String, AssignableInstance> _assignableInstanceMap;
   // TaskID -> TaskAssignResult TODO: Hunter: Move this if not needed
@@ -59,6 +68,25 @@ public class AssignableInstanceManager {
   // This map is quota type -> remaining global quota
   private Map<String, Integer> _globalThreadBasedQuotaMap;
 
+  // Whether AssignableInstances have been built from CurrentState at least once, so they can be
+  // updated incrementally afterwards
+  private boolean _builtFromCurrentState = false;
+  private int _updatesSinceFullRebuild = 0;
+  private int _fullRebuildInterval = DEFAULT_FULL_REBUILD_INTERVAL;
+  private long _driftDetectedCount = 0L;
+
+  // Resource name -> instance name -> ids of the tasks of the resource that occupied quota on the
+  // instance according to CurrentState/pending messages at the last update of the resource
+  private Map<String, Map<String, Set<String>>> _occupiedTaskIndex = new HashMap<>();
+  // Task resources in the pipeline at the last update
+  private Set<String> _taskResources = Collections.emptySet();
+  // TaskID -> instance name of the tasks assigned through assign() since the last update
+  private Map<String, String> _unconfirmedAssignments = new ConcurrentHashMap<>();
+
+  // Quota type -> heap of all AssignableInstances shared by the jobs of this quota type. Heaps are
+  // built lazily and dropped whenever AssignableInstances are rebuilt or updated
+  private Map<String, AssignableInstanceHeap> _assignableInstanceHeapMap;
+
   /**
    * Basic constructor for AssignableInstanceManager to allow an empty instantiation.
    * buildAssignableInstances() must be explicitly called after instantiation.
@@ -67,6 +95,7 @@ public class AssignableInstanceManager {
     _assignableInstanceMap = new ConcurrentHashMap<>();
     _taskAssignResultMap = new ConcurrentHashMap<>();
     _globalThreadBasedQuotaMap = new ConcurrentHashMap<>();
+    _assignableInstanceHeapMap = new ConcurrentHashMap<>();
   }
 
   /**
@@ -82,6 +111,8 @@ public class AssignableInstanceManager {
     // Reset all cached information
     _assignableInstanceMap.clear();
     _taskAssignResultMap.clear();
+    // The next update from CurrentState needs to start from scratch
+    _builtFromCurrentState = false;
 
     // Create all AssignableInstance objects based on what's in liveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -197,8 +228,20 @@ public class AssignableInstanceManager {
       TaskDataCache taskDataCache, Map<String, LiveInstance> liveInstances,
       Map<String, InstanceConfig> instanceConfigs, CurrentStateOutput currentStateOutput,
       Map<String, Resource> resourceMap) {
+    rebuildFromCurrentState(clusterConfig, taskDataCache, liveInstances, instanceConfigs,
+        currentStateOutput, resourceMap);
+    LOG.info(
+        "AssignableInstanceManager built AssignableInstances from scratch based on CurrentState.");
+    computeGlobalThreadBasedCapacity();
+  }
+
+  private void rebuildFromCurrentState(ClusterConfig clusterConfig, TaskDataCache taskDataCache,
+      Map<String, LiveInstance> liveInstances, Map<String, InstanceConfig> instanceConfigs,
+      CurrentStateOutput currentStateOutput, Map<String, Resource> resourceMap) {
     _assignableInstanceMap.clear();
     _taskAssignResultMap.clear();
+    _occupiedTaskIndex.clear();
+    _unconfirmedAssignments.clear();
 
     // Create all AssignableInstance objects based on what's in liveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -217,65 +260,305 @@ public class AssignableInstanceManager {
       LOG.debug("AssignableInstance created for instance: {}", instanceName);
     }
 
-    Map<String, JobConfig> jobConfigMap = taskDataCache.getJobConfigMap();
-
     // Update task profiles by traversing all CurrentStates
+    _taskResources = getTaskResources(resourceMap);
+    for (String resourceName : _taskResources) {
+      updateOccupiedTasks(resourceName,
+          computeOccupiedTasks(taskDataCache, currentStateOutput, resourceName));
+    }
+    _updatesSinceFullRebuild = 0;
+    _builtFromCurrentState = true;
+  }
+
+  /**
+   * Updates AssignableInstances and TaskAssignResults from CurrentState incrementally, treating
+   * every task resource as changed. See updateAssignableInstancesFromCurrentState(ClusterConfig,
+   * TaskDataCache, Map, Map, CurrentStateOutput, Map, Set).
+   */
+  public boolean updateAssignableInstancesFromCurrentState(ClusterConfig clusterConfig,
+      TaskDataCache taskDataCache, Map<String, LiveInstance> liveInstances,
+      Map<String, InstanceConfig> instanceConfigs, CurrentStateOutput currentStateOutput,
+      Map<String, Resource> resourceMap) {
+    return updateAssignableInstancesFromCurrentState(clusterConfig, taskDataCache, liveInstances,
+        instanceConfigs, currentStateOutput, resourceMap, null);
+  }
+
+  /**
+   * Updates AssignableInstances and TaskAssignResults from CurrentState incrementally. Instead of
+   * re-creating every AssignableInstance and restoring every running task, only the CurrentStates
+   * and pending messages of the changed task resources are read: newly started tasks of these
+   * resources are assigned and their tasks that no longer occupy quota are released. Tasks
+   * assigned through this manager since the last update that have neither a CurrentState nor a
+   * pending message by now are released as well.
+   * A full rebuild via buildAssignableInstancesFromCurrentState() is done on the first call and
+   * after every fullRebuildInterval incremental updates. The full rebuild is compared against the
+   * incrementally maintained profile so that any drift can be detected and reported.
+   * @param clusterConfig
+   * @param taskDataCache
+   * @param liveInstances
+   * @param instanceConfigs
+   * @param currentStateOutput
+   * @param resourceMap
+   * @param changedResources resources whose CurrentStates or messages have changed since the last
+   *          update, or null if unknown, in which case every task resource is read
+   * @return true if a full reconciliation was done and it detected drift in the incrementally
+   *         maintained quota profile, false otherwise
+   */
+  public boolean updateAssignableInstancesFromCurrentState(ClusterConfig clusterConfig,
+      TaskDataCache taskDataCache, Map<String, LiveInstance> liveInstances,
+      Map<String, InstanceConfig> instanceConfigs, CurrentStateOutput currentStateOutput,
+      Map<String, Resource> resourceMap, Set<String> changedResources) {
+    if (!_builtFromCurrentState) {
+      buildAssignableInstancesFromCurrentState(clusterConfig, taskDataCache, liveInstances,
+          instanceConfigs, currentStateOutput, resourceMap);
+      return false;
+    }
+
+    if (++_updatesSinceFullRebuild >= _fullRebuildInterval) {
+      Map<String, List<Object>> trackedAssignments = snapshotAssignableInstances();
+      rebuildFromCurrentState(clusterConfig, taskDataCache, liveInstances, instanceConfigs,
+          currentStateOutput, resourceMap);
+      LOG.debug("AssignableInstanceManager reconciled AssignableInstances with CurrentState.");
+      computeGlobalThreadBasedCapacity();
+      Map<String, List<Object>> rebuiltAssignments = snapshotAssignableInstances();
+      if (!trackedAssignments.equals(rebuiltAssignments)) {
+        _driftDetectedCount++;
+        LOG.warn(
+            "AssignableInstanceManager detected drift between incrementally maintained assignments and CurrentState. Tracked: {}, Rebuilt: {}",
+            trackedAssignments, rebuiltAssignments);
+        return true;
+      }
+      return false;
+    }
+
+    // Sync instance membership and capacity; this does not touch task assignments of live instances
+    syncAssignableInstances(clusterConfig, liveInstances, instanceConfigs);
+
+    Set<String> taskResources = getTaskResources(resourceMap);
+    Set<String> resourcesToUpdate = new HashSet<>();
+    if (changedResources == null) {
+      resourcesToUpdate.addAll(taskResources);
+    } else {
+      for (String resourceName : changedResources) {
+        if (taskResources.contains(resourceName)
+            || _occupiedTaskIndex.containsKey(resourceName)) {
+          resourcesToUpdate.add(resourceName);
+        }
+      }
+      // Task resources that were added to or removed from the pipeline since the last update
+      for (String resourceName : taskResources) {
+        if (!_taskResources.contains(resourceName)) {
+          resourcesToUpdate.add(resourceName);
+        }
+      }
+      for (String resourceName : _occupiedTaskIndex.keySet()) {
+        if (!taskResources.contains(resourceName)) {
+          resourcesToUpdate.add(resourceName);
+        }
+      }
+    }
+
+    for (String resourceName : resourcesToUpdate) {
+      updateOccupiedTasks(resourceName, taskResources.contains(resourceName)
+          ? computeOccupiedTasks(taskDataCache, currentStateOutput, resourceName)
+          : Collections.<String, Map<String, OccupiedTask>> emptyMap());
+    }
+
+    // Tasks assigned since the last update that neither run nor have a pending message were not
+    // scheduled after all, so they no longer occupy quota
+    for (Map.Entry<String, String> unconfirmedEntry : _unconfirmedAssignments.entrySet()) {
+      AssignableInstance assignableInstance =
+          _assignableInstanceMap.get(unconfirmedEntry.getValue());
+      if (assignableInstance != null
+          && assignableInstance.getCurrentAssignments().contains(unconfirmedEntry.getKey())) {
+        releaseTrackedTask(assignableInstance, unconfirmedEntry.getKey());
+      }
+    }
+    _unconfirmedAssignments.clear();
+    _taskResources = taskResources;
+
+    LOG.debug(
+        "AssignableInstanceManager incrementally updated AssignableInstances of {} task resources.",
+        resourcesToUpdate.size());
+    computeGlobalThreadBasedCapacity();
+    return false;
+  }
+
+  /**
+   * Returns whether the next updateAssignableInstancesFromCurrentState() call will rebuild the
+   * AssignableInstances from scratch instead of updating them incrementally.
+   * @return
+   */
+  public boolean isFullRebuildDue() {
+    return !_builtFromCurrentState || _updatesSinceFullRebuild + 1 >= _fullRebuildInterval;
+  }
+
+  private Set<String> getTaskResources(Map<String, Resource> resourceMap) {
+    Set<String> taskResources = new HashSet<>();
     for (Map.Entry<String, Resource> resourceEntry : resourceMap.entrySet()) {
-      String resourceName = resourceEntry.getKey();
-      if (resourceEntry.getValue().getStateModelDefRef().equals(TaskConstants.STATE_MODEL_NAME)) {
-        JobConfig jobConfig = jobConfigMap.get(resourceName);
-        JobContext jobContext = taskDataCache.getJobContext(resourceName);
-        String quotaType = getQuotaType(jobConfig);
-        Map<Partition, Map<String, String>> currentStateMap =
-            currentStateOutput.getCurrentStateMap(resourceName);
-        for (Map.Entry<Partition, Map<String, String>> currentStateMapEntry : currentStateMap
-            .entrySet()) {
-          Partition partition = currentStateMapEntry.getKey();
-          String taskId = getTaskID(jobConfig, jobContext, partition);
-          for (Map.Entry<String, String> instanceCurrentStateEntry : currentStateMapEntry.getValue()
-              .entrySet()) {
-            String assignedInstance = instanceCurrentStateEntry.getKey();
-            String taskState = instanceCurrentStateEntry.getValue();
-            // If a task in in INIT or RUNNING state on the instance, this task should occupy one
-            // quota from this instance.
-            if (taskState == null) {
-              LOG.warn("CurrentState is null for job {}, task {} on instance {}", resourceName,
-                  taskId, assignedInstance);
-            }
-            if (TaskPartitionState.INIT.name().equals(taskState)
-                || TaskPartitionState.RUNNING.name().equals(taskState)) {
-              assignTaskToInstance(assignedInstance, jobConfig, taskId, quotaType);
-            }
-          }
+      if (TaskConstants.STATE_MODEL_NAME.equals(resourceEntry.getValue().getStateModelDefRef())) {
+        taskResources.add(resourceEntry.getKey());
+      }
+    }
+    return taskResources;
+  }
+
+  /**
+   * Collects the tasks of a resource that occupy quota on each instance according to CurrentState
+   * and pending messages.
+   * @param taskDataCache
+   * @param currentStateOutput
+   * @param resourceName
+   * @return map{instanceName : map{taskId : OccupiedTask}}
+   */
+  private Map<String, Map<String, OccupiedTask>> computeOccupiedTasks(TaskDataCache taskDataCache,
+      CurrentStateOutput currentStateOutput, String resourceName) {
+    Map<String, Map<String, OccupiedTask>> occupiedTasks = new HashMap<>();
+    JobConfig jobConfig = taskDataCache.getJobConfigMap().get(resourceName);
+    JobContext jobContext = taskDataCache.getJobContext(resourceName);
+    String quotaType = getQuotaType(jobConfig);
+    Map<Partition, Map<String, String>> currentStateMap =
+        currentStateOutput.getCurrentStateMap(resourceName);
+    for (Map.Entry<Partition, Map<String, String>> currentStateMapEntry : currentStateMap
+        .entrySet()) {
+      Partition partition = currentStateMapEntry.getKey();
+      String taskId = getTaskID(jobConfig, jobContext, partition);
+      for (Map.Entry<String, String> instanceCurrentStateEntry : currentStateMapEntry.getValue()
+          .entrySet()) {
+        String assignedInstance = instanceCurrentStateEntry.getKey();
+        String taskState = instanceCurrentStateEntry.getValue();
+        // If a task in in INIT or RUNNING state on the instance, this task should occupy one
+        // quota from this instance.
+        if (taskState == null) {
+          LOG.warn("CurrentState is null for job {}, task {} on instance {}", resourceName,
+              taskId, assignedInstance);
         }
-        Map<Partition, Map<String, Message>> pendingMessageMap =
-            currentStateOutput.getPendingMessageMap(resourceName);
-        for (Map.Entry<Partition, Map<String, Message>> pendingMessageMapEntry : pendingMessageMap
-            .entrySet()) {
-          Partition partition = pendingMessageMapEntry.getKey();
-          String taskId = getTaskID(jobConfig, jobContext, partition);
-          for (Map.Entry<String, Message> instancePendingMessageEntry : pendingMessageMapEntry
-              .getValue().entrySet()) {
-            String assignedInstance = instancePendingMessageEntry.getKey();
-            String messageToState = instancePendingMessageEntry.getValue().getToState();
-            // If there is a pending message on the instance which has ToState of RUNNING, the task
-            // will run on the instance soon. So the task needs to occupy one quota on this instance.
-            if (TaskPartitionState.RUNNING.name().equals(messageToState)
-                && !TaskPartitionState.INIT.name().equals(
-                    currentStateOutput.getCurrentState(resourceName, partition, assignedInstance))
-                && !TaskPartitionState.RUNNING.name().equals(currentStateOutput
-                    .getCurrentState(resourceName, partition, assignedInstance))) {
-              assignTaskToInstance(assignedInstance, jobConfig, taskId, quotaType);
-            }
+        if (TaskPartitionState.INIT.name().equals(taskState)
+            || TaskPartitionState.RUNNING.name().equals(taskState)) {
+          addOccupiedTask(occupiedTasks, assignedInstance, jobConfig, taskId, quotaType);
+        }
+      }
+    }
+    Map<Partition, Map<String, Message>> pendingMessageMap =
+        currentStateOutput.getPendingMessageMap(resourceName);
+    for (Map.Entry<Partition, Map<String, Message>> pendingMessageMapEntry : pendingMessageMap
+        .entrySet()) {
+      Partition partition = pendingMessageMapEntry.getKey();
+      String taskId = getTaskID(jobConfig, jobContext, partition);
+      for (Map.Entry<String, Message> instancePendingMessageEntry : pendingMessageMapEntry
+          .getValue().entrySet()) {
+        String assignedInstance = instancePendingMessageEntry.getKey();
+        String messageToState = instancePendingMessageEntry.getValue().getToState();
+        // If there is a pending message on the instance which has ToState of RUNNING, the task
+        // will run on the instance soon. So the task needs to occupy one quota on this instance.
+        if (TaskPartitionState.RUNNING.name().equals(messageToState)
+            && !TaskPartitionState.INIT.name().equals(
+                currentStateOutput.getCurrentState(resourceName, partition, assignedInstance))
+            && !TaskPartitionState.RUNNING.name().equals(currentStateOutput
+                .getCurrentState(resourceName, partition, assignedInstance))) {
+          addOccupiedTask(occupiedTasks, assignedInstance, jobConfig, taskId, quotaType);
+        }
+      }
+    }
+    return occupiedTasks;
+  }
+
+  private void addOccupiedTask(Map<String, Map<String, OccupiedTask>> occupiedTasks,
+      String instance, JobConfig jobConfig, String taskId, String quotaType) {
+    Map<String, OccupiedTask> instanceOccupiedTasks = occupiedTasks.get(instance);
+    if (instanceOccupiedTasks == null) {
+      instanceOccupiedTasks = new HashMap<>();
+      occupiedTasks.put(instance, instanceOccupiedTasks);
+    }
+    instanceOccupiedTasks.put(taskId, new OccupiedTask(jobConfig, taskId, quotaType));
+  }
+
+  /**
+   * Applies the tasks of a resource that currently occupy quota: tasks that occupied quota at the
+   * last update of the resource but no longer do are released, and newly occupying tasks are
+   * assigned.
+   * @param resourceName
+   * @param occupiedTasks map{instanceName : map{taskId : OccupiedTask}} of the resource
+   */
+  private void updateOccupiedTasks(String resourceName,
+      Map<String, Map<String, OccupiedTask>> occupiedTasks) {
+    Map<String, Set<String>> previousTasks = _occupiedTaskIndex.remove(resourceName);
+    if (previousTasks != null) {
+      for (Map.Entry<String, Set<String>> instanceEntry : previousTasks.entrySet()) {
+        AssignableInstance assignableInstance = _assignableInstanceMap.get(instanceEntry.getKey());
+        if (assignableInstance == null) {
+          continue;
+        }
+        Map<String, OccupiedTask> instanceOccupiedTasks = occupiedTasks.get(instanceEntry.getKey());
+        for (String taskId : instanceEntry.getValue()) {
+          if ((instanceOccupiedTasks == null || !instanceOccupiedTasks.containsKey(taskId))
+              && assignableInstance.getCurrentAssignments().contains(taskId)) {
+            releaseTrackedTask(assignableInstance, taskId);
           }
         }
       }
     }
-    LOG.info(
-        "AssignableInstanceManager built AssignableInstances from scratch based on CurrentState.");
-    computeGlobalThreadBasedCapacity();
+
+    Map<String, Set<String>> instanceTasks = new HashMap<>();
+    for (Map.Entry<String, Map<String, OccupiedTask>> instanceEntry : occupiedTasks.entrySet()) {
+      String instanceName = instanceEntry.getKey();
+      AssignableInstance assignableInstance = _assignableInstanceMap.get(instanceName);
+      for (OccupiedTask occupiedTask : instanceEntry.getValue().values()) {
+        if (instanceName.equals(_unconfirmedAssignments.get(occupiedTask._taskId))) {
+          _unconfirmedAssignments.remove(occupiedTask._taskId);
+        }
+        if (assignableInstance == null
+            || !assignableInstance.getCurrentAssignments().contains(occupiedTask._taskId)) {
+          assignTaskToInstance(instanceName, occupiedTask._jobConfig, occupiedTask._taskId,
+              occupiedTask._quotaType);
+        }
+      }
+      instanceTasks.put(instanceName, new HashSet<>(instanceEntry.getValue().keySet()));
+    }
+    if (!instanceTasks.isEmpty()) {
+      _occupiedTaskIndex.put(resourceName, instanceTasks);
+    }
+  }
+
+  /**
+   * Release a task tracked on the given AssignableInstance using the quota type it was assigned
+   * with.
+   * @param assignableInstance
+   * @param taskId
+   */
+  private void releaseTrackedTask(AssignableInstance assignableInstance, String taskId) {
+    String quotaType = AssignableInstance.DEFAULT_QUOTA_TYPE;
+    TaskAssignResult taskAssignResult = _taskAssignResultMap.get(taskId);
+    if (taskAssignResult != null && assignableInstance.getInstanceName()
+        .equals(taskAssignResult.getInstanceName())) {
+      quotaType = taskAssignResult.getQuotaType();
+      _taskAssignResultMap.remove(taskId);
+    }
+    assignableInstance.release(taskId, quotaType);
+    LOG.debug("TaskAssignResult released for taskId: {} on instance: {}", taskId,
+        assignableInstance.getInstanceName());
+  }
+
+  /**
+   * Take a snapshot of the assignments and used capacity of every AssignableInstance for drift
+   * detection.
+   * @return map{instanceName : [currentAssignments, usedCapacity]}
+   */
+  private Map<String, List<Object>> snapshotAssignableInstances() {
+    Map<String, List<Object>> snapshot = new HashMap<>();
+    for (Map.Entry<String, AssignableInstance> entry : _assignableInstanceMap.entrySet()) {
+      Map<String, Map<String, Integer>> usedCapacity = new HashMap<>();
+      for (Map.Entry<String, Map<String, Integer>> usedEntry : entry.getValue().getUsedCapacity()
+          .entrySet()) {
+        usedCapacity.put(usedEntry.getKey(), new HashMap<>(usedEntry.getValue()));
+      }
+      snapshot.put(entry.getKey(), Arrays
+          .asList(new HashSet<>(entry.getValue().getCurrentAssignments()), usedCapacity));
+    }
+    return snapshot;
   }
 
+
   /**
    * Assign the task to the instance's Assignable Instance
    * @param instance
@@ -364,6 +647,14 @@ public class AssignableInstanceManager {
    */
   public void updateAssignableInstances(ClusterConfig clusterConfig,
       Map<String, LiveInstance> liveInstances, Map<String, InstanceConfig> instanceConfigs) {
+    syncAssignableInstances(clusterConfig, liveInstances, instanceConfigs);
+    LOG.info(
+        "AssignableInstanceManager updated AssignableInstances due to LiveInstance/InstanceConfig change.");
+    computeGlobalThreadBasedCapacity();
+  }
+
+  private void syncAssignableInstances(ClusterConfig clusterConfig,
+      Map<String, LiveInstance> liveInstances, Map<String, InstanceConfig> instanceConfigs) {
     // Keep a collection to determine what's no longer a LiveInstance, in which case the
     // corresponding AssignableInstance must be removed
     Collection<AssignableInstance> staleAssignableInstances =
@@ -417,9 +708,6 @@ public class AssignableInstanceManager {
           "Non-live AssignableInstance removed for instance: {} during updateAssignableInstances",
           instanceToBeRemoved.getInstanceName());
     }
-    LOG.info(
-        "AssignableInstanceManager updated AssignableInstances due to LiveInstance/InstanceConfig change.");
-    computeGlobalThreadBasedCapacity();
   }
 
   /**
@@ -493,13 +781,26 @@ public class AssignableInstanceManager {
    * @param quotaType
    */
   public void release(String instanceName, TaskConfig taskConfig, String quotaType) {
+    release(instanceName, taskConfig.getId(), quotaType);
+  }
+
+  /**
+   * Wrapper for AssignableInstance release by task id
+   * @param instanceName
+   * @param taskId
+   * @param quotaType
+   */
+  public void release(String instanceName, String taskId, String quotaType) {
     if (quotaType == null) {
-      LOG.debug("Task {}'s quotaType is null. Trying to release as DEFAULT type.",
-          taskConfig.getId());
+      LOG.debug("Task {}'s quotaType is null. Trying to release as DEFAULT type.", taskId);
       quotaType = AssignableInstance.DEFAULT_QUOTA_TYPE;
     }
     if (_assignableInstanceMap.containsKey(instanceName)) {
-      _assignableInstanceMap.get(instanceName).release(taskConfig, quotaType);
+      _assignableInstanceMap.get(instanceName).release(taskId, quotaType);
+      updateAssignableInstanceHeaps(instanceName);
+    }
+    if (instanceName.equals(_unconfirmedAssignments.get(taskId))) {
+      _unconfirmedAssignments.remove(taskId);
     }
 
     if (_globalThreadBasedQuotaMap.containsKey(quotaType)) {
@@ -533,6 +834,8 @@ public class AssignableInstanceManager {
     if (result != null && _assignableInstanceMap.containsKey(instanceName)) {
       _assignableInstanceMap.get(instanceName).assign(result);
       _taskAssignResultMap.put(result.getTaskConfig().getId(), result);
+      _unconfirmedAssignments.put(result.getTaskConfig().getId(), instanceName);
+      updateAssignableInstanceHeaps(instanceName);
     }
 
     if (_globalThreadBasedQuotaMap.containsKey(result.getQuotaType())) {
@@ -541,6 +844,50 @@ public class AssignableInstanceManager {
     }
   }
 
+  /**
+   * Set the number of incremental updates between two full rebuilds from CurrentState. A value of
+   * 1 or less makes every update a full rebuild.
+   * @param fullRebuildInterval
+   */
+  public void setFullRebuildInterval(int fullRebuildInterval) {
+    _fullRebuildInterval = fullRebuildInterval;
+  }
+
+  /**
+   * Returns the number of full rebuilds that found drift in the incrementally maintained
+   * assignments.
+   * @return
+   */
+  public long getDriftDetectedCount() {
+    return _driftDetectedCount;
+  }
+
+  /**
+   * Returns the heap of all AssignableInstances ordered by their remaining capacity for the given
+   * quota type. The heap is shared by all callers until AssignableInstances are rebuilt or
+   * updated, and it is kept in order as tasks are assigned or released through this manager.
+   * @param quotaType
+   * @return AssignableInstanceHeap
+   */
+  public AssignableInstanceHeap getAssignableInstanceHeap(String quotaType) {
+    AssignableInstanceHeap heap = _assignableInstanceHeapMap.get(quotaType);
+    if (heap == null) {
+      heap = new AssignableInstanceHeap(quotaType, _assignableInstanceMap.values());
+      _assignableInstanceHeapMap.put(quotaType, heap);
+    }
+    return heap;
+  }
+
+  private void updateAssignableInstanceHeaps(String instanceName) {
+    if (_assignableInstanceHeapMap.isEmpty()) {
+      return;
+    }
+    AssignableInstance assignableInstance = _assignableInstanceMap.get(instanceName);
+    for (AssignableInstanceHeap heap : _assignableInstanceHeapMap.values()) {
+      heap.update(assignableInstance);
+    }
+  }
+
   /**
    * Get all the AssignableInstance names
    * @return
@@ -617,6 +964,7 @@ public class AssignableInstanceManager {
   }
 
   private void computeGlobalThreadBasedCapacity() {
+    _assignableInstanceHeapMap.clear();
     _globalThreadBasedQuotaMap.clear();
     for (AssignableInstance assignableInstance : _assignableInstanceMap.values()) {
       Map<String, Map<String, Integer>> capacityMap = assignableInstance.getTotalCapacity();
@@ -630,4 +978,19 @@ public class AssignableInstanceManager {
       }
     }
   }
+
+  /**
+   * A task that occupies quota on an instance, as derived from CurrentState or pending messages.
+   */
+  private static class OccupiedTask {
+    private final JobConfig _jobConfig;
+    private final String _taskId;
+    private final String _quotaType;
+
+    OccupiedTask(JobConfig jobConfig, String taskId, String quotaType) {
+      _jobConfig = jobConfig;
+      _taskId = taskId;
+      _quotaType = quotaType;
+    }
+  }
 }
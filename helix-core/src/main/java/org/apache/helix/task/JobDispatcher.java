@@ -19,10 +19,13 @@ package org.apache.helix.task;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
@@ -31,10 +34,14 @@ import java.util.TreeSet;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
+import org.apache.helix.controller.stages.BestPossibleStateOutput;
 import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.task.assigner.ClusterWideTaskAssigner;
+import org.apache.helix.task.assigner.TaskAssignResult;
 import org.apache.helix.task.assigner.ThreadCountBasedTaskAssigner;
 import org.apache.helix.util.RebalanceUtil;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -48,9 +55,19 @@ public class JobDispatcher extends AbstractTaskDispatcher {
   private static final Set<TaskState> INTERMEDIATE_STATES = new HashSet<>(Arrays
       .asList(TaskState.IN_PROGRESS, TaskState.NOT_STARTED, TaskState.STOPPING, TaskState.STOPPED));
   private WorkflowControllerDataProvider _dataProvider;
+  // Shared by all generic jobs of a pipeline run when cluster-wide task assignment is enabled
+  private ClusterWideTaskAssigner _clusterWideTaskAssigner;
+  // Quota type -> generic jobs waiting for assignPendingTasks(), in the order they were processed
+  private final Map<String, List<PendingTaskAssignment>> _pendingTaskAssignments =
+      new LinkedHashMap<>();
 
   public void updateCache(WorkflowControllerDataProvider cache) {
     _dataProvider = cache;
+    _pendingTaskAssignments.clear();
+    ClusterConfig clusterConfig = cache.getClusterConfig();
+    _clusterWideTaskAssigner =
+        clusterConfig != null && clusterConfig.isClusterWideTaskAssignmentEnabled()
+            ? new ClusterWideTaskAssigner() : null;
   }
 
   public ResourceAssignment processJobStatusUpdateAndAssignment(String jobName,
@@ -198,7 +215,7 @@ public class JobDispatcher extends AbstractTaskDispatcher {
 
   private ResourceAssignment computeResourceMapping(String jobResource,
       WorkflowConfig workflowConfig, JobConfig jobCfg, TaskState jobState, TargetState jobTgtState,
-      Collection<String> liveInstances, CurrentStateOutput currStateOutput,
+      Set<String> liveInstances, CurrentStateOutput currStateOutput,
       WorkflowContext workflowCtx, JobContext jobCtx, Set<Integer> partitionsToDropFromIs,
       WorkflowControllerDataProvider cache) {
     // Used to keep track of tasks that have already been assigned to instances.
@@ -322,15 +339,105 @@ public class JobDispatcher extends AbstractTaskDispatcher {
     // Make additional task assignments if needed.
     if (jobState != TaskState.TIMING_OUT && jobState != TaskState.TIMED_OUT
         && jobTgtState == TargetState.START) {
-      handleAdditionalTaskAssignment(currentInstanceToTaskAssignments, excludedInstances,
-          jobResource, currStateOutput, jobCtx, jobCfg, workflowConfig, workflowCtx, cache,
-          assignedPartitions, paMap, skippedPartitions, taskAssignmentCal, allPartitions,
-          currentTime, liveInstances);
+      if (_clusterWideTaskAssigner != null && TaskUtil.isGenericTaskJob(jobCfg)) {
+        addPendingTaskAssignment(currentInstanceToTaskAssignments, excludedInstances, jobResource,
+            currStateOutput, jobCtx, jobCfg, workflowConfig, cache, assignedPartitions, paMap,
+            skippedPartitions, (ThreadCountBasedTaskAssignmentCalculator) taskAssignmentCal,
+            allPartitions, currentTime, liveInstances);
+      } else {
+        handleAdditionalTaskAssignment(currentInstanceToTaskAssignments, excludedInstances,
+            jobResource, currStateOutput, jobCtx, jobCfg, workflowConfig, workflowCtx, cache,
+            assignedPartitions, paMap, skippedPartitions, taskAssignmentCal, allPartitions,
+            currentTime, liveInstances);
+      }
     }
 
     return toResourceAssignment(jobResource, paMap);
   }
 
+  /**
+   * Defers the new task assignment of a generic job to assignPendingTasks(), so that the tasks of
+   * all the jobs of a quota type are assigned in one pass over the cluster-wide
+   * AssignableInstanceHeap.
+   */
+  private void addPendingTaskAssignment(
+      Map<String, SortedSet<Integer>> currentInstanceToTaskAssignments,
+      Set<String> excludedInstances, String jobResource, CurrentStateOutput currStateOutput,
+      JobContext jobCtx, JobConfig jobCfg, WorkflowConfig workflowConfig,
+      WorkflowControllerDataProvider cache, Map<String, Set<Integer>> assignedPartitions,
+      Map<Integer, PartitionAssignment> paMap, Set<Integer> skippedPartitions,
+      ThreadCountBasedTaskAssignmentCalculator taskAssignmentCal, Set<Integer> allPartitions,
+      long currentTime, Set<String> liveInstances) {
+    Set<Integer> excludeSet = new TreeSet<>();
+    Set<Integer> partitionsToAssign = getPartitionsToAssign(excludeSet, jobResource,
+        currStateOutput, jobCtx, jobCfg, cache, assignedPartitions, paMap, skippedPartitions,
+        allPartitions, currentTime, liveInstances);
+    if (partitionsToAssign.isEmpty()) {
+      return;
+    }
+    PendingTaskAssignment pendingTaskAssignment = new PendingTaskAssignment();
+    pendingTaskAssignment._jobResource = jobResource;
+    pendingTaskAssignment._jobTasks = taskAssignmentCal.getJobTasks(liveInstances,
+        excludedInstances, assignedPartitions, jobCfg, jobCtx, partitionsToAssign);
+    pendingTaskAssignment._taskAssignmentCal = taskAssignmentCal;
+    pendingTaskAssignment._currentInstanceToTaskAssignments = currentInstanceToTaskAssignments;
+    pendingTaskAssignment._excludedInstances = excludedInstances;
+    pendingTaskAssignment._excludeSet = excludeSet;
+    pendingTaskAssignment._jobCtx = jobCtx;
+    pendingTaskAssignment._jobCfg = jobCfg;
+    pendingTaskAssignment._workflowConfig = workflowConfig;
+    pendingTaskAssignment._assignedPartitions = assignedPartitions;
+    pendingTaskAssignment._paMap = paMap;
+    _pendingTaskAssignments
+        .computeIfAbsent(TaskAssignmentCalculator.getQuotaType(workflowConfig, jobCfg),
+            quotaType -> new ArrayList<>())
+        .add(pendingTaskAssignment);
+  }
+
+  /**
+   * Assigns the tasks of the generic jobs deferred while processing the workflows of this pipeline
+   * run. The jobs are grouped by quota type, and the tasks of each group are assigned in one pass
+   * over the cluster-wide AssignableInstanceHeap of the quota type. The new assignments are then
+   * scheduled and added to the output.
+   * @param output BestPossibleStateOutput that already contains the other assignments of the jobs
+   */
+  public void assignPendingTasks(BestPossibleStateOutput output) {
+    if (_pendingTaskAssignments.isEmpty()) {
+      return;
+    }
+    try {
+      for (Map.Entry<String, List<PendingTaskAssignment>> entry : _pendingTaskAssignments
+          .entrySet()) {
+        List<ClusterWideTaskAssigner.JobTasks> jobs = new ArrayList<>(entry.getValue().size());
+        for (PendingTaskAssignment pendingTaskAssignment : entry.getValue()) {
+          jobs.add(pendingTaskAssignment._jobTasks);
+        }
+        Map<String, Map<String, TaskAssignResult>> jobAssignResults = _clusterWideTaskAssigner
+            .assignTasks(_dataProvider.getAssignableInstanceManager(), entry.getKey(), jobs);
+        for (PendingTaskAssignment pending : entry.getValue()) {
+          String jobResource = pending._jobResource;
+          try {
+            Map<String, SortedSet<Integer>> tgtPartitionAssignments =
+                pending._taskAssignmentCal.toTaskAssignment(pending._jobCfg, pending._jobCtx,
+                    jobAssignResults.get(pending._jobTasks.getJobName()));
+            scheduleAssignedTasks(tgtPartitionAssignments,
+                pending._currentInstanceToTaskAssignments, pending._excludedInstances,
+                pending._excludeSet, jobResource, pending._jobCtx, pending._jobCfg,
+                pending._workflowConfig, _dataProvider, pending._assignedPartitions,
+                pending._paMap);
+            _dataProvider.updateJobContext(jobResource, pending._jobCtx);
+            updateBestPossibleStateOutput(jobResource,
+                toResourceAssignment(jobResource, pending._paMap), output);
+          } catch (Exception e) {
+            LOG.error("Failed to schedule the assigned tasks of job {}", jobResource, e);
+          }
+        }
+      }
+    } finally {
+      _pendingTaskAssignments.clear();
+    }
+  }
+
   private ResourceAssignment toResourceAssignment(String jobResource,
       Map<Integer, PartitionAssignment> paMap) {
     // Construct a ResourceAssignment object from the map of partition assignments.
@@ -480,6 +587,10 @@ public class JobDispatcher extends AbstractTaskDispatcher {
       WorkflowControllerDataProvider cache) {
     AssignableInstanceManager assignableInstanceManager = cache.getAssignableInstanceManager();
     if (TaskUtil.isGenericTaskJob(jobConfig)) {
+      if (_clusterWideTaskAssigner != null) {
+        return new ThreadCountBasedTaskAssignmentCalculator(_clusterWideTaskAssigner,
+            assignableInstanceManager);
+      }
       return new ThreadCountBasedTaskAssignmentCalculator(new ThreadCountBasedTaskAssigner(),
           assignableInstanceManager);
     }
@@ -528,6 +639,24 @@ public class JobDispatcher extends AbstractTaskDispatcher {
     }
   }
 
+  /**
+   * The state of a generic job kept from processJobStatusUpdateAndAssignment() until its new tasks
+   * are assigned and scheduled by assignPendingTasks().
+   */
+  private static class PendingTaskAssignment {
+    private String _jobResource;
+    private ClusterWideTaskAssigner.JobTasks _jobTasks;
+    private ThreadCountBasedTaskAssignmentCalculator _taskAssignmentCal;
+    private Map<String, SortedSet<Integer>> _currentInstanceToTaskAssignments;
+    private Set<String> _excludedInstances;
+    private Set<Integer> _excludeSet;
+    private JobContext _jobCtx;
+    private JobConfig _jobCfg;
+    private WorkflowConfig _workflowConfig;
+    private Map<String, Set<Integer>> _assignedPartitions;
+    private Map<Integer, PartitionAssignment> _paMap;
+  }
+
   protected void markPartitionsWithoutLiveInstance(JobContext jobCtx,
       Collection<String> liveInstances) {
     for (int partitionNumber : jobCtx.getPartitionSet()) {
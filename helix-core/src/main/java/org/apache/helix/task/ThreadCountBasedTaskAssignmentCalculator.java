@@ -32,6 +32,7 @@ import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.task.assigner.ClusterWideTaskAssigner;
 import org.apache.helix.task.assigner.TaskAssignResult;
 import org.apache.helix.task.assigner.TaskAssigner;
 import org.slf4j.Logger;
@@ -106,6 +107,34 @@ public class ThreadCountBasedTaskAssignmentCalculator extends TaskAssignmentCalc
     // scheduled/throttled
     // _assignableInstanceManager.getTaskAssignResultMap().putAll(taskAssignResultMap);
 
+    return toTaskAssignment(jobCfg, jobContext, taskAssignResultMap);
+  }
+
+  /**
+   * Returns the tasks of the job in partitionSet to be assigned by ClusterWideTaskAssigner together
+   * with the tasks of the other jobs of the same quota type.
+   * @param instances instances the tasks may be assigned to
+   * @param excludedInstances instances that must not be assigned tasks of the job
+   * @param assignedPartitions instance -> partitions of the job already assigned to the instance
+   * @return JobTasks of the job
+   */
+  public ClusterWideTaskAssigner.JobTasks getJobTasks(Set<String> instances,
+      Set<String> excludedInstances, Map<String, Set<Integer>> assignedPartitions,
+      JobConfig jobCfg, JobContext jobContext, Set<Integer> partitionSet) {
+    return new ClusterWideTaskAssigner.JobTasks(jobCfg.getJobId(),
+        getFilteredTaskConfigs(partitionSet, jobCfg, jobContext), instances, excludedInstances,
+        jobCfg.getNumConcurrentTasksPerInstance(), assignedPartitions);
+  }
+
+  /**
+   * Converts the TaskAssignResults of a job to instance -> set of task partition numbers mappings.
+   * @param jobCfg
+   * @param jobContext
+   * @param taskAssignResultMap taskID -> TaskAssignResult
+   * @return instance -> set of task partition numbers
+   */
+  public Map<String, SortedSet<Integer>> toTaskAssignment(JobConfig jobCfg, JobContext jobContext,
+      Map<String, TaskAssignResult> taskAssignResultMap) {
     // Get TaskId->PartitionNumber mappings for conversion
     Map<String, Integer> taskIdPartitionMap = jobContext.getTaskIdPartitionMap();
 
@@ -319,6 +319,14 @@ public class WorkflowDispatcher extends AbstractTaskDispatcher {
     }
   }
 
+  /**
+   * Assigns the tasks of the jobs whose assignment was deferred while processing the workflows, when
+   * cluster-wide task assignment is enabled. Must be called once all workflows are processed.
+   */
+  public void assignPendingTasks(BestPossibleStateOutput bestPossibleOutput) {
+    _jobDispatcher.assignPendingTasks(bestPossibleOutput);
+  }
+
   /**
    * Jobs that are missing corresponding JobConfigs or WorkflowConfigs or WorkflowContexts need to
    * be dropped
@@ -385,8 +385,17 @@ public class AssignableInstance {
    * @param quotaType quota type this task belongs to
    */
   public synchronized void release(TaskConfig taskConfig, String quotaType) {
-    if (!_currentAssignments.contains(taskConfig.getId())) {
-      logger.debug("Task {} is not assigned on instance {}", taskConfig.getId(),
+    release(taskConfig.getId(), quotaType);
+  }
+
+  /**
+   * Releases the resource of a task by its id. See release(TaskConfig, String).
+   * @param taskId id of this task
+   * @param quotaType quota type this task belongs to
+   */
+  public synchronized void release(String taskId, String quotaType) {
+    if (!_currentAssignments.contains(taskId)) {
+      logger.debug("Task {} is not assigned on instance {}", taskId,
           _instanceConfig.getInstanceName());
       return;
     }
@@ -409,8 +418,8 @@ public class AssignableInstance {
 
     // If the resource type is not found, we just remove from currentAssignments since no adjustment
     // can be made
-    _currentAssignments.remove(taskConfig.getId());
-    logger.debug("Released task {} from instance {}", taskConfig.getId(),
+    _currentAssignments.remove(taskId);
+    logger.debug("Released task {} from instance {}", taskId,
         _instanceConfig.getInstanceName());
   }
 
@@ -0,0 +1,258 @@
+package org.apache.helix.task.assigner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import org.apache.helix.model.LiveInstance;
+
+/**
+ * An indexed max-heap of AssignableInstances ordered by their remaining capacity for one quota
+ * type. Unlike a PriorityQueue, the position of an AssignableInstance can be updated in place in
+ * O(log n) after its usage changes, so a single heap can be shared by all the jobs of a quota type
+ * during a pipeline run instead of being rebuilt for every job.
+ */
+public class AssignableInstanceHeap {
+  private static final String RESOURCE_TYPE =
+      LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name();
+
+  private final String _quotaType;
+  private final List<AssignableInstance> _heap;
+  private final List<Integer> _remainingCapacity;
+  // Instance name -> index in the heap
+  private final Map<String, Integer> _indexMap;
+
+  public AssignableInstanceHeap(String quotaType, Iterable<AssignableInstance> instances) {
+    _quotaType = quotaType;
+    _heap = new ArrayList<>();
+    _remainingCapacity = new ArrayList<>();
+    _indexMap = new HashMap<>();
+    for (AssignableInstance instance : instances) {
+      _indexMap.put(instance.getInstanceName(), _heap.size());
+      _heap.add(instance);
+      _remainingCapacity.add(getRemainingCapacity(instance));
+    }
+    for (int i = _heap.size() / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  /**
+   * Returns the quota type this heap is ordered by.
+   */
+  public String getQuotaType() {
+    return _quotaType;
+  }
+
+  /**
+   * Returns the AssignableInstance with the most remaining capacity without removing it, or null if
+   * the heap is empty.
+   */
+  public AssignableInstance peek() {
+    return _heap.isEmpty() ? null : _heap.get(0);
+  }
+
+  /**
+   * Returns the AssignableInstance with the most remaining capacity that matches the given filter
+   * without removing it, or null if none matches. The heap is searched best-first from the top, so
+   * only the instances with at least as much remaining capacity as the result are visited, and the
+   * heap is not modified.
+   * @param filter filter of the instances that may be returned
+   */
+  public AssignableInstance peek(Predicate<AssignableInstance> filter) {
+    if (_heap.isEmpty() || filter.test(_heap.get(0))) {
+      return peek();
+    }
+    // Indexes of the children of the visited instances, with the most remaining capacity first
+    PriorityQueue<Integer> candidates = new PriorityQueue<>(
+        (i, j) -> Integer.compare(_remainingCapacity.get(j), _remainingCapacity.get(i)));
+    addChildren(candidates, 0);
+    while (!candidates.isEmpty()) {
+      int index = candidates.poll();
+      if (filter.test(_heap.get(index))) {
+        return _heap.get(index);
+      }
+      addChildren(candidates, index);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the AssignableInstance of the given instance in the heap, or null if it is not in the
+   * heap.
+   */
+  public AssignableInstance get(String instanceName) {
+    Integer index = _indexMap.get(instanceName);
+    return index == null ? null : _heap.get(index);
+  }
+
+  /**
+   * Removes and returns the AssignableInstance with the most remaining capacity, or null if the
+   * heap is empty.
+   */
+  public AssignableInstance poll() {
+    if (_heap.isEmpty()) {
+      return null;
+    }
+    AssignableInstance top = _heap.get(0);
+    removeAt(0);
+    return top;
+  }
+
+  /**
+   * Adds an AssignableInstance to the heap. If it is already in the heap, its position is updated.
+   * @param instance AssignableInstance
+   */
+  public void offer(AssignableInstance instance) {
+    if (_indexMap.containsKey(instance.getInstanceName())) {
+      update(instance);
+      return;
+    }
+    _indexMap.put(instance.getInstanceName(), _heap.size());
+    _heap.add(instance);
+    _remainingCapacity.add(getRemainingCapacity(instance));
+    siftUp(_heap.size() - 1);
+  }
+
+  /**
+   * Re-computes the remaining capacity of the given AssignableInstance and restores the heap
+   * order. This is a no-op if the instance is not in the heap.
+   * @param instance AssignableInstance whose usage has changed
+   */
+  public void update(AssignableInstance instance) {
+    Integer index = _indexMap.get(instance.getInstanceName());
+    if (index == null) {
+      return;
+    }
+    int oldCapacity = _remainingCapacity.get(index);
+    int newCapacity = getRemainingCapacity(_heap.get(index));
+    _remainingCapacity.set(index, newCapacity);
+    if (newCapacity > oldCapacity) {
+      siftUp(index);
+    } else if (newCapacity < oldCapacity) {
+      siftDown(index);
+    }
+  }
+
+  public boolean contains(String instanceName) {
+    return _indexMap.containsKey(instanceName);
+  }
+
+  public int size() {
+    return _heap.size();
+  }
+
+  public boolean isEmpty() {
+    return _heap.isEmpty();
+  }
+
+  /**
+   * Remaining capacity of the instance for the quota type of this heap. If the quota type is not
+   * supported by the instance, tasks will be assigned as DEFAULT, so DEFAULT capacity is used.
+   */
+  private int getRemainingCapacity(AssignableInstance instance) {
+    Map<String, Integer> capacity = instance.getTotalCapacity().get(RESOURCE_TYPE);
+    Map<String, Integer> used = instance.getUsedCapacity().get(RESOURCE_TYPE);
+    if (capacity == null || used == null) {
+      return 0;
+    }
+    String quotaType =
+        capacity.containsKey(_quotaType) ? _quotaType : AssignableInstance.DEFAULT_QUOTA_TYPE;
+    Integer total = capacity.get(quotaType);
+    Integer usage = used.get(quotaType);
+    if (total == null || usage == null) {
+      return 0;
+    }
+    return total - usage;
+  }
+
+  private void addChildren(PriorityQueue<Integer> candidates, int index) {
+    int left = 2 * index + 1;
+    if (left < _heap.size()) {
+      candidates.add(left);
+    }
+    if (left + 1 < _heap.size()) {
+      candidates.add(left + 1);
+    }
+  }
+
+  private void removeAt(int index) {
+    int lastIndex = _heap.size() - 1;
+    _indexMap.remove(_heap.get(index).getInstanceName());
+    if (index != lastIndex) {
+      _heap.set(index, _heap.get(lastIndex));
+      _remainingCapacity.set(index, _remainingCapacity.get(lastIndex));
+      _indexMap.put(_heap.get(index).getInstanceName(), index);
+    }
+    _heap.remove(lastIndex);
+    _remainingCapacity.remove(lastIndex);
+    if (index < _heap.size()) {
+      siftDown(index);
+      siftUp(index);
+    }
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (_remainingCapacity.get(parent) >= _remainingCapacity.get(index)) {
+        break;
+      }
+      swap(index, parent);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    int size = _heap.size();
+    while (true) {
+      int left = 2 * index + 1;
+      if (left >= size) {
+        break;
+      }
+      int largest = left;
+      int right = left + 1;
+      if (right < size && _remainingCapacity.get(right) > _remainingCapacity.get(left)) {
+        largest = right;
+      }
+      if (_remainingCapacity.get(index) >= _remainingCapacity.get(largest)) {
+        break;
+      }
+      swap(index, largest);
+      index = largest;
+    }
+  }
+
+  private void swap(int i, int j) {
+    AssignableInstance instance = _heap.get(i);
+    _heap.set(i, _heap.get(j));
+    _heap.set(j, instance);
+    int capacity = _remainingCapacity.get(i);
+    _remainingCapacity.set(i, _remainingCapacity.get(j));
+    _remainingCapacity.set(j, capacity);
+    _indexMap.put(_heap.get(i).getInstanceName(), i);
+    _indexMap.put(_heap.get(j).getInstanceName(), j);
+  }
+}
@@ -0,0 +1,238 @@
+package org.apache.helix.task.assigner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.task.AssignableInstanceManager;
+import org.apache.helix.task.TaskConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A TaskAssigner that assigns the tasks of all the ready jobs of a quota type over a single,
+ * cluster-wide AssignableInstanceHeap owned by the AssignableInstanceManager. The heap is built
+ * once per quota type and pipeline run, and the priority of an instance is updated in place
+ * whenever a task is assigned to or released from it, so assigning the tasks of a job costs
+ * O(tasks * log(instances)) instead of rebuilding a queue of all instances for every job.
+ * Instances that cannot take a task of the job being assigned (not eligible, or at the per-instance
+ * task limit of the job) are skipped by searching the heap best-first without reordering it. A job
+ * limited to at most half of the instances gets its own heap of just those instances instead, so
+ * its tasks do not walk past the instances it cannot use.
+ */
+public class ClusterWideTaskAssigner implements TaskAssigner {
+  private static final Logger logger = LoggerFactory.getLogger(ClusterWideTaskAssigner.class);
+
+  @Override
+  public Map<String, TaskAssignResult> assignTasks(Iterable<AssignableInstance> assignableInstances,
+      Iterable<TaskConfig> tasks) {
+    return assignTasks(assignableInstances, tasks, AssignableInstance.DEFAULT_QUOTA_TYPE);
+  }
+
+  @Override
+  public Map<String, TaskAssignResult> assignTasks(Iterable<AssignableInstance> assignableInstances,
+      Iterable<TaskConfig> tasks, String quotaType) {
+    if (tasks == null || !tasks.iterator().hasNext()) {
+      return Collections.emptyMap();
+    }
+    quotaType = getQuotaType(quotaType);
+    // There is no AssignableInstanceManager to share a heap with, so the heap only lives for this
+    // call
+    AssignableInstanceHeap heap = new AssignableInstanceHeap(quotaType, assignableInstances);
+    return assignTasks(null, heap, new JobTasks(null, tasks, null), quotaType);
+  }
+
+  @Override
+  public Map<String, TaskAssignResult> assignTasks(
+      AssignableInstanceManager assignableInstanceManager, Collection<String> instances,
+      Iterable<TaskConfig> tasks, String quotaType) {
+    if (tasks == null || !tasks.iterator().hasNext()) {
+      return Collections.emptyMap();
+    }
+    quotaType = getQuotaType(quotaType);
+    JobTasks job = new JobTasks(null, tasks,
+        instances instanceof Set ? (Set<String>) instances : new HashSet<>(instances));
+    return assignTasks(assignableInstanceManager,
+        assignableInstanceManager.getAssignableInstanceHeap(quotaType), job, quotaType);
+  }
+
+  /**
+   * Assigns the tasks of several jobs of the same quota type in one pass over the cluster-wide
+   * AssignableInstanceHeap of the quota type. Jobs are assigned in the given order, so earlier jobs
+   * get the least used instances first.
+   * @param assignableInstanceManager AssignableInstanceManager
+   * @param quotaType quota type of all the jobs
+   * @param jobs tasks of each job with the instances they may be assigned to
+   * @return job name -> taskID -> TaskAssignmentResult mappings
+   */
+  public Map<String, Map<String, TaskAssignResult>> assignTasks(
+      AssignableInstanceManager assignableInstanceManager, String quotaType, List<JobTasks> jobs) {
+    quotaType = getQuotaType(quotaType);
+    AssignableInstanceHeap heap = assignableInstanceManager.getAssignableInstanceHeap(quotaType);
+    Map<String, Map<String, TaskAssignResult>> jobAssignResults = new LinkedHashMap<>();
+    for (JobTasks job : jobs) {
+      Map<String, TaskAssignResult> assignResults =
+          job._tasks == null || !job._tasks.iterator().hasNext()
+              ? Collections.<String, TaskAssignResult> emptyMap()
+              : assignTasks(assignableInstanceManager, heap, job, quotaType);
+      jobAssignResults.put(job._jobName, assignResults);
+    }
+    return jobAssignResults;
+  }
+
+  private Map<String, TaskAssignResult> assignTasks(
+      AssignableInstanceManager assignableInstanceManager, AssignableInstanceHeap heap,
+      JobTasks job, String quotaType) {
+    AssignableInstanceHeap jobHeap = getJobHeap(heap, job);
+    Map<String, Integer> assignedCounts = new HashMap<>();
+    Map<String, TaskAssignResult> assignResults = new HashMap<>();
+    for (TaskConfig task : job._tasks) {
+      // Dedup
+      if (assignResults.containsKey(task.getId())) {
+        logger.warn("Duplicated task assignment {}", task);
+        continue;
+      }
+
+      // Find the least used instance that can take a task of this job
+      AssignableInstance instance = jobHeap.peek(candidate -> {
+        String instanceName = candidate.getInstanceName();
+        return job.isEligible(instanceName)
+            && assignedCounts.getOrDefault(instanceName, 0) < job.getTaskLimit(instanceName);
+      });
+
+      if (instance == null) {
+        assignResults.put(task.getId(), new TaskAssignResult(task, quotaType, null, false, 0,
+            TaskAssignResult.FailureReason.INSUFFICIENT_QUOTA,
+            "No assignable instance to assign"));
+        continue;
+      }
+
+      TaskAssignResult result = instance.tryAssign(task, quotaType);
+      assignResults.put(task.getId(), result);
+      if (result.isSuccessful()) {
+        if (assignableInstanceManager != null) {
+          // The manager updates the position of the instance in the shared heap
+          assignableInstanceManager.assign(instance.getInstanceName(), result);
+        } else {
+          instance.assign(result);
+          heap.update(instance);
+        }
+        if (jobHeap != heap) {
+          jobHeap.update(instance);
+        }
+        assignedCounts.merge(instance.getInstanceName(), 1, Integer::sum);
+      }
+    }
+    return assignResults;
+  }
+
+  /**
+   * Returns a heap of just the instances of the job if they are at most half of the instances in
+   * the shared heap, or the shared heap otherwise.
+   */
+  private static AssignableInstanceHeap getJobHeap(AssignableInstanceHeap heap, JobTasks job) {
+    if (job._instances == null || job._instances.size() > heap.size() / 2) {
+      return heap;
+    }
+    List<AssignableInstance> jobInstances = new ArrayList<>(job._instances.size());
+    for (String instanceName : job._instances) {
+      AssignableInstance instance = heap.get(instanceName);
+      if (instance != null && job.isEligible(instanceName)) {
+        jobInstances.add(instance);
+      }
+    }
+    return new AssignableInstanceHeap(heap.getQuotaType(), jobInstances);
+  }
+
+  private static String getQuotaType(String quotaType) {
+    if (quotaType == null || quotaType.equals("") || quotaType.equals("null")) {
+      // Sometimes null is stored as a String literal
+      logger.warn("Quota type is null. Assigning it as DEFAULT type!");
+      return AssignableInstance.DEFAULT_QUOTA_TYPE;
+    }
+    return quotaType;
+  }
+
+  /**
+   * The tasks of a job to be assigned together with the tasks of other jobs of the same quota type,
+   * along with the instances they may be assigned to and the per-instance task limit of the job.
+   */
+  public static class JobTasks {
+    private final String _jobName;
+    private final Iterable<TaskConfig> _tasks;
+    private final Set<String> _instances;
+    private final Set<String> _excludedInstances;
+    private final int _taskLimitPerInstance;
+    private final Map<String, ? extends Collection<Integer>> _assignedTasks;
+
+    /**
+     * @param jobName name of the job
+     * @param tasks TaskConfigs of the job to assign
+     * @param instances instances the tasks may be assigned to, or null for all instances
+     */
+    public JobTasks(String jobName, Iterable<TaskConfig> tasks, Set<String> instances) {
+      this(jobName, tasks, instances, Collections.<String> emptySet(), Integer.MAX_VALUE,
+          Collections.<String, Collection<Integer>> emptyMap());
+    }
+
+    /**
+     * @param jobName name of the job
+     * @param tasks TaskConfigs of the job to assign
+     * @param instances instances the tasks may be assigned to, or null for all instances
+     * @param excludedInstances instances that must not be assigned tasks of the job
+     * @param taskLimitPerInstance maximum number of tasks of the job per instance
+     * @param assignedTasks instance -> tasks of the job already assigned to the instance, which
+     *          count towards taskLimitPerInstance
+     */
+    public JobTasks(String jobName, Iterable<TaskConfig> tasks, Set<String> instances,
+        Set<String> excludedInstances, int taskLimitPerInstance,
+        Map<String, ? extends Collection<Integer>> assignedTasks) {
+      _jobName = jobName;
+      _tasks = tasks;
+      _instances = instances;
+      _excludedInstances = excludedInstances;
+      _taskLimitPerInstance = taskLimitPerInstance;
+      _assignedTasks = assignedTasks;
+    }
+
+    public String getJobName() {
+      return _jobName;
+    }
+
+    private boolean isEligible(String instanceName) {
+      return (_instances == null || _instances.contains(instanceName))
+          && !_excludedInstances.contains(instanceName);
+    }
+
+    private int getTaskLimit(String instanceName) {
+      Collection<Integer> assignedTasks = _assignedTasks.get(instanceName);
+      return assignedTasks == null ? _taskLimitPerInstance
+          : _taskLimitPerInstance - assignedTasks.size();
+    }
+  }
+}
@@ -20,8 +20,12 @@ package org.apache.helix;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.helix.cloud.constants.CloudProvider;
 import org.apache.helix.manager.zk.ZKHelixAdmin;
@@ -31,6 +35,7 @@ import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.RESTConfig;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.builder.ConfigScopeBuilder;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
 import org.apache.helix.tools.ClusterSetup;
@@ -209,6 +214,82 @@ public class TestConfigAccessor extends ZkUnitTestBase {
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testBatchedConfigs() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    ZKHelixAdmin admin = new ZKHelixAdmin(_gZkClient);
+    admin.addCluster(clusterName, true);
+    ConfigAccessor configAccessor = new ConfigAccessor(_gZkClient);
+    List<String> instanceNames = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      String instanceName = "localhost_" + (12918 + i);
+      InstanceConfig instanceConfig = new InstanceConfig(instanceName);
+      instanceConfig.getRecord().setSimpleField("keepKey", "keepValue");
+      admin.addInstance(clusterName, instanceConfig);
+      instanceNames.add(instanceName);
+    }
+    instanceNames.add("localhost_0");
+
+    // Batched read skips the instances without config
+    Map<String, InstanceConfig> instanceConfigs =
+        configAccessor.getInstanceConfigs(clusterName, instanceNames);
+    Assert.assertEquals(new ArrayList<>(instanceConfigs.keySet()), instanceNames.subList(0, 3));
+
+    // Batched update merges the given fields into the current configs
+    Map<String, InstanceConfig> updates = new HashMap<>();
+    for (String instanceName : instanceNames.subList(0, 3)) {
+      InstanceConfig update = new InstanceConfig(instanceName);
+      update.getRecord().setSimpleField("batchKey", instanceName);
+      updates.put(instanceName, update);
+    }
+    configAccessor.updateInstanceConfigs(clusterName, updates);
+    for (String instanceName : instanceNames.subList(0, 3)) {
+      InstanceConfig instanceConfig = configAccessor.getInstanceConfig(clusterName, instanceName);
+      Assert.assertEquals(instanceConfig.getRecord().getSimpleField("batchKey"), instanceName);
+      Assert.assertEquals(instanceConfig.getRecord().getSimpleField("keepKey"), "keepValue");
+    }
+
+    // Updating an instance that does not exist fails the whole batch before writing
+    updates.put("localhost_0", new InstanceConfig("localhost_0"));
+    updates.get("localhost_12918").getRecord().setSimpleField("batchKey", "changed");
+    try {
+      configAccessor.updateInstanceConfigs(clusterName, updates);
+      Assert.fail("Should fail since localhost_0 does not exist");
+    } catch (HelixException e) {
+      // OK
+    }
+    Assert.assertEquals(configAccessor.getInstanceConfig(clusterName, "localhost_12918")
+        .getRecord().getSimpleField("batchKey"), "localhost_12918");
+
+    // Batched resource configs and scoped config entries
+    ResourceConfig resourceConfig = new ResourceConfig("TestDB");
+    resourceConfig.getRecord().setSimpleField("resourceKey", "resourceValue");
+    configAccessor.setResourceConfig(clusterName, "TestDB", resourceConfig);
+    Map<String, ResourceConfig> resourceConfigs =
+        configAccessor.getResourceConfigs(clusterName, Arrays.asList("TestDB", "NoSuchDB"));
+    Assert.assertEquals(resourceConfigs.keySet(), Collections.singleton("TestDB"));
+
+    List<Map<String, String>> configs = configAccessor.get(Arrays.asList(
+        new HelixConfigScopeBuilder(ConfigScopeProperty.RESOURCE).forCluster(clusterName)
+            .forResource("TestDB").build(),
+        new HelixConfigScopeBuilder(ConfigScopeProperty.PARTICIPANT).forCluster(clusterName)
+            .forParticipant("localhost_12919").build(),
+        new HelixConfigScopeBuilder(ConfigScopeProperty.RESOURCE).forCluster(clusterName)
+            .forResource("NoSuchDB").build()), Arrays.asList("resourceKey", "batchKey"));
+    Assert.assertEquals(configs.get(0), Collections.singletonMap("resourceKey", "resourceValue"));
+    Assert.assertEquals(configs.get(1), Collections.singletonMap("batchKey", "localhost_12919"));
+    Assert.assertNull(configs.get(2));
+
+    admin.dropCluster(clusterName);
+    configAccessor.close();
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
   @Test
   public void testSetRestConfig() {
     String className = TestHelper.getTestClassName();
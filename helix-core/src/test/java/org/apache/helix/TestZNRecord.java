@@ -20,9 +20,12 @@ package org.apache.helix;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.testng.Assert;
 import org.testng.AssertJUnit;
@@ -124,4 +127,64 @@ public class TestZNRecord {
     expectRecord.setMapField("mapKey2", expectMap2);
     Assert.assertEquals(record, expectRecord, "Should be equal.");
   }
+
+  @Test
+  public void testContentHash() {
+    ZNRecord record1 = new ZNRecord("id");
+    record1.setSimpleField("k1", "v1");
+    record1.setMapField("m1", new HashMap<>(Collections.singletonMap("k1", "v1")));
+    record1.setListField("l1", new ArrayList<>(Arrays.asList("v1", "v2")));
+    // The same content in different map types and insertion order
+    ZNRecord record2 = new ZNRecord("id");
+    record2.setListField("l1", Arrays.asList("v1", "v2"));
+    record2.setMapFields(new HashMap<>(Collections.singletonMap("m1",
+        new TreeMap<>(Collections.singletonMap("k1", "v1")))));
+    record2.setSimpleField("k1", "v1");
+    Assert.assertEquals(record1.getContentHash(), record2.getContentHash());
+
+    // Setters change the hash
+    long hash = record1.getContentHash();
+    record1.setSimpleField("k1", "v2");
+    Assert.assertTrue(record1.getContentHash() != hash);
+    record1.setSimpleField("k1", "v1");
+    Assert.assertEquals(record1.getContentHash(), hash);
+
+    // The list order matters
+    record2.setListField("l1", Arrays.asList("v2", "v1"));
+    Assert.assertTrue(record2.getContentHash() != hash);
+
+    // Modifications through the returned maps and lists drop the cached hash
+    record1.getMapField("m1").put("k2", "v2");
+    long mapFieldHash = record1.getContentHash();
+    Assert.assertTrue(mapFieldHash != hash);
+    record1.getMapFields().get("m1").remove("k2");
+    Assert.assertEquals(record1.getContentHash(), hash);
+    for (Map.Entry<String, Map<String, String>> entry : record1.getMapFields().entrySet()) {
+      entry.getValue().put("k2", "v2");
+    }
+    Assert.assertEquals(record1.getContentHash(), mapFieldHash);
+    record1.getMapField("m1").keySet().remove("k2");
+    Assert.assertEquals(record1.getContentHash(), hash);
+    record1.getListField("l1").add("v3");
+    Assert.assertTrue(record1.getContentHash() != hash);
+    record1.getListFields().get("l1").remove("v3");
+    Assert.assertEquals(record1.getContentHash(), hash);
+    record1.getSimpleFields().entrySet().iterator().next().setValue("v2");
+    Assert.assertTrue(record1.getContentHash() != hash);
+    record1.getSimpleFields().put("k1", "v1");
+    Assert.assertEquals(record1.getContentHash(), hash);
+
+    // A record given the fields of another record holds the maps behind the views
+    ZNRecord copy = new ZNRecord(record1);
+    copy.setMapFields(record1.getMapFields());
+    Assert.assertEquals(copy.getContentHash(), hash);
+    Assert.assertEquals(copy, record1);
+
+    // A swapped key and value has a different hash
+    ZNRecord record3 = new ZNRecord("id");
+    record3.setSimpleField("v1", "k1");
+    ZNRecord record4 = new ZNRecord("id");
+    record4.setSimpleField("k1", "v1");
+    Assert.assertTrue(record3.getContentHash() != record4.getContentHash());
+  }
 }
@@ -0,0 +1,137 @@
+package org.apache.helix.common.caches;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for prefetching participant states ahead of the {@link CurrentStateCache} refresh.
+ */
+public class TestParticipantStatePrefetch {
+  private static final String INSTANCE = "instance1";
+  private static final String RESOURCE = "resource";
+  private static final String PARTITION = "resource_0";
+
+  @Test
+  public void testRefreshTakesOverPrefetchedStates() {
+    StatAwareAccessor accessor = new StatAwareAccessor();
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    LiveInstance liveInstance = createLiveInstance(accessor);
+    Map<String, LiveInstance> liveInstanceMap = Collections.singletonMap(INSTANCE, liveInstance);
+    PropertyKey key = keyBuilder.currentState(INSTANCE, liveInstance.getEphemeralOwner(), RESOURCE);
+
+    accessor.setProperty(key, createCurrentState("OFFLINE"));
+    CurrentStateCache cache = new CurrentStateCache("cluster");
+    cache.refresh(accessor, liveInstanceMap);
+
+    // Nothing changed, nothing to prefetch
+    Assert.assertEquals(cache.prefetchParticipantStates(accessor, liveInstanceMap), 0);
+
+    accessor.setProperty(key, createCurrentState("ONLINE"));
+    Assert.assertEquals(cache.prefetchParticipantStates(accessor, liveInstanceMap), 1);
+    Assert.assertEquals(cache.getPrefetchedPropertyCount(), 1);
+
+    accessor._readCount.set(0);
+    cache.refresh(accessor, liveInstanceMap);
+    // The prefetched state is still up to date, so it is not read again
+    Assert.assertEquals(accessor._readCount.get(), 0);
+    Assert.assertEquals(cache.getPrefetchedPropertyCount(), 0);
+    Assert.assertEquals(getState(cache, liveInstance), "ONLINE");
+  }
+
+  @Test
+  public void testStalePrefetchedStateIsIgnored() {
+    StatAwareAccessor accessor = new StatAwareAccessor();
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    LiveInstance liveInstance = createLiveInstance(accessor);
+    Map<String, LiveInstance> liveInstanceMap = Collections.singletonMap(INSTANCE, liveInstance);
+    PropertyKey key = keyBuilder.currentState(INSTANCE, liveInstance.getEphemeralOwner(), RESOURCE);
+
+    accessor.setProperty(key, createCurrentState("OFFLINE"));
+    CurrentStateCache cache = new CurrentStateCache("cluster");
+    cache.refresh(accessor, liveInstanceMap);
+
+    accessor.setProperty(key, createCurrentState("ONLINE"));
+    Assert.assertEquals(cache.prefetchParticipantStates(accessor, liveInstanceMap), 1);
+    // Changed again after the prefetch
+    accessor.setProperty(key, createCurrentState("OFFLINE"));
+
+    accessor._readCount.set(0);
+    cache.refresh(accessor, liveInstanceMap);
+    Assert.assertEquals(accessor._readCount.get(), 1);
+    Assert.assertEquals(getState(cache, liveInstance), "OFFLINE");
+  }
+
+  private LiveInstance createLiveInstance(MockAccessor accessor) {
+    ZNRecord record = new ZNRecord(INSTANCE);
+    record.setEphemeralOwner(12345L);
+    LiveInstance liveInstance = new LiveInstance(record);
+    accessor.setProperty(accessor.keyBuilder().liveInstance(INSTANCE), liveInstance);
+    return liveInstance;
+  }
+
+  private CurrentState createCurrentState(String state) {
+    CurrentState currentState = new CurrentState(RESOURCE);
+    currentState.setState(PARTITION, state);
+    return currentState;
+  }
+
+  private String getState(CurrentStateCache cache, LiveInstance liveInstance) {
+    return cache.getParticipantState(INSTANCE, liveInstance.getEphemeralOwner()).get(RESOURCE)
+        .getState(PARTITION);
+  }
+
+  /**
+   * Returns properties with the stat of their znode, like the ZK based accessor does, and counts
+   * the properties read.
+   */
+  private static class StatAwareAccessor extends MockAccessor {
+    private final AtomicInteger _readCount = new AtomicInteger();
+
+    @Override
+    public <T extends HelixProperty> T getProperty(PropertyKey key) {
+      T property = super.getProperty(key);
+      HelixProperty.Stat stat = getPropertyStat(key);
+      if (property != null && stat != null) {
+        property.setStat(stat);
+      }
+      return property;
+    }
+
+    @Override
+    public <T extends HelixProperty> List<T> getProperty(List<PropertyKey> keys,
+        boolean throwException) {
+      _readCount.addAndGet(keys.size());
+      return super.getProperty(keys, throwException);
+    }
+  }
+}
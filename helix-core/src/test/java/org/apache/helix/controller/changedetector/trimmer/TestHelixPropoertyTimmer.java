@@ -36,6 +36,7 @@ import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -181,6 +182,40 @@ public class TestHelixPropoertyTimmer {
     }
   }
 
+  @Test
+  public void testTrimmedFingerprint() {
+    IdealStateTrimmer trimmer = IdealStateTrimmer.getInstance();
+    IdealState idealState = _idealStateMap.get(RESOURCE_NAME);
+    long fingerprint = trimmer.getTrimmedFingerprint(idealState);
+    Assert.assertEquals(fingerprint,
+        trimmer.trimProperty(idealState).getRecord().getContentHash());
+
+    // Trimmable changes do not change the fingerprint
+    IdealState copy = new IdealState(new ZNRecord(idealState.getRecord()));
+    copy.getRecord().setSimpleField("trimmableKey", "trimmableValue");
+    Assert.assertEquals(trimmer.getTrimmedFingerprint(copy), fingerprint);
+
+    // Non-trimmable changes on the same instance are reflected
+    idealState.setRebalanceMode(IdealState.RebalanceMode.SEMI_AUTO);
+    Assert.assertTrue(trimmer.getTrimmedFingerprint(idealState) != fingerprint);
+  }
+
+  @Test
+  public void testDetectInPlacePartitionStateChange() {
+    IdealState idealState = _idealStateMap.get(RESOURCE_NAME);
+    // CUSTOMIZED: Map fields are non-trimmable
+    idealState.setRebalanceMode(IdealState.RebalanceMode.CUSTOMIZED);
+    ResourceChangeDetector detector = new ResourceChangeDetector(true);
+    detector.updateSnapshots(_dataProvider);
+
+    // The setter modifies the map field of the same record instance in place
+    idealState.setPartitionState(PARTITION_NAME, INSTANCE_NAME, "STANDBY");
+    detector.updateSnapshots(_dataProvider);
+    Assert.assertEquals(
+        new ArrayList<>(detector.getChangesByType(HelixConstants.ChangeType.IDEAL_STATE)),
+        Collections.singletonList(RESOURCE_NAME));
+  }
+
   @Test
   public void testIgnoreTrimmableFieldChanges() {
     // Fill mock data to initialize the detector
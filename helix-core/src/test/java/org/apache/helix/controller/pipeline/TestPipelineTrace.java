@@ -0,0 +1,209 @@
+package org.apache.helix.controller.pipeline;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.helix.TestHelper;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPipelineTrace {
+
+  @Test
+  public void testStageAndNestedSpans() throws Exception {
+    List<PipelineTrace> traces = new ArrayList<>();
+    Pipeline pipeline = new Pipeline("test");
+    pipeline.addStage(new TracedStage("firstStage"));
+    pipeline.addStage(new TracedStage("secondStage"));
+    pipeline.setTraceSink(traces::add);
+
+    ClusterEvent event = new ClusterEvent("TestCluster", ClusterEventType.Unknown, "eventId");
+    pipeline.handle(event);
+
+    Assert.assertEquals(traces.size(), 1);
+    PipelineTrace trace = traces.get(0);
+    Assert.assertEquals(trace.getClusterName(), "TestCluster");
+    Assert.assertEquals(trace.getPipelineType(), "test");
+    Assert.assertEquals(trace.getEventId(), "eventId");
+    Assert.assertEquals(trace.getEventType(), ClusterEventType.Unknown.name());
+    // The trace must not leak to the next event handled by this thread
+    Assert.assertNull(PipelineTrace.current());
+
+    List<String> spanNames = new ArrayList<>();
+    for (PipelineSpan span : trace.getSpans()) {
+      spanNames.add(span.getName());
+      Assert.assertTrue(span.getEndNanos() >= span.getStartNanos());
+    }
+    Assert.assertEquals(spanNames,
+        List.of("firstStage.work", "firstStage", "secondStage.work", "secondStage"));
+    Assert.assertEquals(trace.getSpans().get(0).getArgs().get("items"), 3);
+  }
+
+  @Test
+  public void testTraceSharedAcrossPipelines() throws Exception {
+    List<PipelineTrace> traces = new ArrayList<>();
+    Pipeline dataRefresh = new Pipeline("test");
+    dataRefresh.addStage(new TracedStage("refreshStage"));
+    dataRefresh.setTraceSink(traces::add);
+    Pipeline rebalance = new Pipeline("test");
+    rebalance.addStage(new TracedStage("rebalanceStage"));
+    rebalance.setTraceSink(traces::add);
+
+    // The owner of the event trace exports it, not the pipelines
+    ClusterEvent event = new ClusterEvent("TestCluster", ClusterEventType.Unknown, "eventId");
+    PipelineTrace trace = new PipelineTrace("TestCluster", "test", "eventId",
+        ClusterEventType.Unknown.name());
+    event.setTrace(trace);
+    PipelineTrace.setCurrent(trace);
+    try {
+      dataRefresh.handle(event);
+      rebalance.handle(event);
+    } finally {
+      PipelineTrace.setCurrent(null);
+    }
+
+    Assert.assertTrue(traces.isEmpty());
+    Assert.assertSame(event.getTrace(), trace);
+    List<String> spanNames = new ArrayList<>();
+    for (PipelineSpan span : trace.getSpans()) {
+      spanNames.add(span.getName());
+    }
+    Assert.assertEquals(spanNames,
+        List.of("refreshStage.work", "refreshStage", "rebalanceStage.work", "rebalanceStage"));
+  }
+
+  @Test
+  public void testTracingDisabled() throws Exception {
+    Pipeline pipeline = new Pipeline("test");
+    pipeline.addStage(new TracedStage("stage"));
+    pipeline.setTraceSink(null);
+
+    ClusterEvent event = new ClusterEvent("TestCluster", ClusterEventType.Unknown, "eventId");
+    pipeline.handle(event);
+    Assert.assertNull(event.getTrace());
+    Assert.assertSame(event.startSpan("any"), PipelineSpan.NOOP);
+    Assert.assertSame(PipelineTrace.span("any"), PipelineSpan.NOOP);
+  }
+
+  @Test
+  public void testTraceExportedOnStageFailure() throws Exception {
+    List<PipelineTrace> traces = new ArrayList<>();
+    Pipeline pipeline = new Pipeline("test");
+    pipeline.addStage(new AbstractBaseStage() {
+      @Override
+      public void process(ClusterEvent event) {
+        throw new IllegalStateException("stage failure");
+      }
+    });
+    pipeline.setTraceSink(traces::add);
+
+    try {
+      pipeline.handle(new ClusterEvent("TestCluster", ClusterEventType.Unknown, "eventId"));
+      Assert.fail("Stage exception should be propagated");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    Assert.assertEquals(traces.size(), 1);
+    Assert.assertEquals(traces.get(0).getSpans().size(), 1);
+    Assert.assertNull(PipelineTrace.current());
+  }
+
+  @Test
+  public void testChromeTraceFileSink() throws Exception {
+    File traceDir = Files.createTempDirectory("pipelineTrace").toFile();
+    Pipeline pipeline = new Pipeline("test");
+    pipeline.addStage(new TracedStage("stage"));
+    ChromeTraceFileSink traceSink = new ChromeTraceFileSink(traceDir.getAbsolutePath());
+    pipeline.setTraceSink(traceSink);
+
+    pipeline.handle(new ClusterEvent("TestCluster", ClusterEventType.Unknown, "eventId"));
+    Assert.assertTrue(traceSink.shutdown(TestHelper.WAIT_DURATION));
+
+    File traceFile = new File(traceDir, "TestCluster_test_eventId.json");
+    Assert.assertTrue(traceFile.exists());
+    JsonNode root = new ObjectMapper().readTree(traceFile);
+    JsonNode events = root.get("traceEvents");
+    Assert.assertEquals(events.size(), 2);
+    for (JsonNode event : events) {
+      Assert.assertEquals(event.get("ph").asText(), "X");
+      Assert.assertTrue(event.get("ts").asLong() > 0);
+      Assert.assertTrue(event.get("dur").asLong() >= 0);
+    }
+    Assert.assertEquals(events.get(0).get("args").get("items").asText(), "3");
+    Assert.assertEquals(events.get(1).get("name").asText(), "stage");
+    Assert.assertEquals(root.get("otherData").get("cluster").asText(), "TestCluster");
+
+    traceFile.delete();
+    traceDir.delete();
+  }
+
+  @Test
+  public void testChromeTraceFileSinkRetention() throws Exception {
+    File traceDir = Files.createTempDirectory("pipelineTrace").toFile();
+    Pipeline pipeline = new Pipeline("test");
+    pipeline.addStage(new TracedStage("stage"));
+    ChromeTraceFileSink traceSink = new ChromeTraceFileSink(traceDir.getAbsolutePath(), 2);
+    pipeline.setTraceSink(traceSink);
+
+    for (int i = 0; i < 3; i++) {
+      pipeline.handle(new ClusterEvent("TestCluster", ClusterEventType.Unknown, "event" + i));
+    }
+    Assert.assertTrue(traceSink.shutdown(TestHelper.WAIT_DURATION));
+
+    // The oldest trace is deleted once the limit is reached
+    Assert.assertFalse(new File(traceDir, "TestCluster_test_event0.json").exists());
+    Assert.assertTrue(new File(traceDir, "TestCluster_test_event1.json").exists());
+    Assert.assertTrue(new File(traceDir, "TestCluster_test_event2.json").exists());
+    Assert.assertEquals(traceDir.listFiles().length, 2);
+
+    for (File traceFile : traceDir.listFiles()) {
+      traceFile.delete();
+    }
+    traceDir.delete();
+  }
+
+  private static class TracedStage extends AbstractBaseStage {
+    private final String _name;
+
+    TracedStage(String name) {
+      _name = name;
+    }
+
+    @Override
+    public String getStageName() {
+      return _name;
+    }
+
+    @Override
+    public void process(ClusterEvent event) {
+      try (PipelineSpan span = PipelineTrace.span(_name + ".work")) {
+        span.addArg("items", 3);
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * Compares the time the resource, current state and best possible state stages take with ZNRecord
+ * fields kept in sorted maps and in hash maps, on the cluster set up by
+ * {@link TestHashFieldMapsStages}. It is not part of the test suite since the timings depend on
+ * the machine.
+ */
+public class HashFieldMapsStageBenchmark {
+  private static final int DEFAULT_ITERATIONS = 20;
+
+  public static void main(String[] args) {
+    if (args.length > 1) {
+      System.err.println("USAGE: java HashFieldMapsStageBenchmark [iterations]");
+      System.exit(1);
+    }
+    int iterations = args.length == 1 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+    try {
+      for (boolean hashFieldMaps : new boolean[] {
+          false, true
+      }) {
+        System.out.println(String.format(
+            "Hash field maps %s: resource, current state and best possible stages took %d us per "
+                + "run", hashFieldMaps, measureStages(hashFieldMaps, iterations) / 1000));
+      }
+    } finally {
+      ZNRecord.setHashFieldMapsEnabled(
+          Boolean.getBoolean(ZkSystemPropertyKeys.ZK_ZNRECORD_HASH_FIELD_MAPS_ENABLED));
+    }
+  }
+
+  /**
+   * @return the average time of a run of the stages in ns
+   */
+  private static long measureStages(boolean hashFieldMaps, int iterations) {
+    TestHashFieldMapsStages stages = new TestHashFieldMapsStages();
+    ClusterEvent event = stages.setupCluster(hashFieldMaps);
+    // Warm up
+    for (int i = 0; i < iterations; i++) {
+      stages.runStages(event);
+    }
+    long startTime = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      stages.runStages(event);
+    }
+    return (System.nanoTime() - startTime) / iterations;
+  }
+}
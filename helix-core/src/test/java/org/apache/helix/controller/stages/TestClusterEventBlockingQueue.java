@@ -19,6 +19,8 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -28,7 +30,9 @@ import java.util.concurrent.TimeoutException;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.helix.NotificationContext;
 import org.apache.helix.common.ClusterEventBlockingQueue;
+import org.apache.helix.common.PriorityLaneEventBlockingQueue;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -78,6 +82,144 @@ public class TestClusterEventBlockingQueue {
     Assert.assertEquals(queue.size(), 0);
   }
 
+  @Test
+  public void testPriorityLanes() throws Exception {
+    ClusterEventBlockingQueue queue = new ClusterEventBlockingQueue(0L);
+    queue.put(new ClusterEvent(ClusterEventType.CurrentStateChange));
+    queue.put(new ClusterEvent(ClusterEventType.MessageChange));
+    queue.put(new ClusterEvent(ClusterEventType.IdealStateChange));
+    queue.put(new ClusterEvent(ClusterEventType.LiveInstanceChange));
+    Assert.assertEquals(queue.size(), 4);
+    Assert.assertEquals(queue.peek().getEventType(), ClusterEventType.LiveInstanceChange);
+
+    ListeningExecutorService service =
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+    // urgent first, then normal, then the routine events in FIFO order
+    Assert.assertEquals(safeTake(queue, service).getEventType(),
+        ClusterEventType.LiveInstanceChange);
+    Assert.assertEquals(safeTake(queue, service).getEventType(),
+        ClusterEventType.IdealStateChange);
+    Assert.assertEquals(safeTake(queue, service).getEventType(),
+        ClusterEventType.CurrentStateChange);
+    Assert.assertEquals(safeTake(queue, service).getEventType(), ClusterEventType.MessageChange);
+    Assert.assertTrue(queue.isEmpty());
+    service.shutdown();
+  }
+
+  @Test
+  public void testStarvationProtection() throws Exception {
+    PriorityLaneEventBlockingQueue<String, String> queue =
+        new PriorityLaneEventBlockingQueue<>(2, type -> type.startsWith("urgent") ? 0 : 1,
+            (waiting, incoming) -> incoming, 50L);
+    queue.put("routine", "routine");
+    Thread.sleep(100L);
+    queue.put("urgent", "urgent");
+    // The routine event has waited longer than the max lane wait time
+    Assert.assertEquals(queue.take(), "routine");
+    Assert.assertEquals(queue.take(), "urgent");
+  }
+
+  @Test
+  public void testLaneListener() throws Exception {
+    ClusterEventBlockingQueue queue = new ClusterEventBlockingQueue(0L);
+    List<String> records = new ArrayList<>();
+    queue.setLaneListener(new PriorityLaneEventBlockingQueue.LaneListener<ClusterEventType>() {
+      @Override
+      public void onLaneDepthChange(int lane, int depth) {
+        records.add("depth:" + lane + ":" + depth);
+      }
+
+      @Override
+      public void onTake(int lane, ClusterEventType type, long waitTimeMs) {
+        Assert.assertTrue(waitTimeMs >= 0);
+        records.add("take:" + lane + ":" + type);
+      }
+    });
+    queue.put(new ClusterEvent(ClusterEventType.CurrentStateChange));
+    // coalesced, depth doesn't change
+    queue.put(new ClusterEvent(ClusterEventType.CurrentStateChange));
+    queue.take();
+    Assert.assertEquals(records,
+        List.of("depth:2:1", "depth:2:0", "take:2:CurrentStateChange"));
+  }
+
+  @Test
+  public void testCoalesceNotificationContext() throws Exception {
+    ClusterEventBlockingQueue queue = new ClusterEventBlockingQueue();
+
+    NotificationContext firstContext = new NotificationContext(null);
+    firstContext.setType(NotificationContext.Type.CALLBACK);
+    firstContext.setPathChanged("/cluster/INSTANCES/host_1/CURRENTSTATES");
+    firstContext.setCreationTime(100L);
+    ClusterEvent event1 = new ClusterEvent(ClusterEventType.CurrentStateChange);
+    event1.addAttribute(AttributeName.changeContext.name(), firstContext);
+    event1.addAttribute(AttributeName.instanceName.name(), "host_1");
+    queue.put(event1);
+
+    NotificationContext callbackContext = new NotificationContext(null);
+    callbackContext.setType(NotificationContext.Type.CALLBACK);
+    callbackContext.setPathChanged("/cluster/INSTANCES/host_2/CURRENTSTATES");
+    ClusterEvent event2 = new ClusterEvent(ClusterEventType.CurrentStateChange);
+    event2.addAttribute(AttributeName.changeContext.name(), callbackContext);
+    event2.addAttribute("attr", 1);
+    queue.put(event2);
+    Assert.assertEquals(queue.size(), 1);
+
+    ClusterEvent taken = queue.take();
+    Assert.assertSame(taken, event2);
+    Assert.assertEquals(taken.getCreationTime(), event1.getCreationTime());
+    Assert.assertEquals((int) taken.getAttribute("attr"), 1);
+    Assert.assertEquals(taken.getAttribute(AttributeName.instanceName.name()), "host_1");
+
+    NotificationContext merged = taken.getAttribute(AttributeName.changeContext.name());
+    Assert.assertEquals(merged.getType(), NotificationContext.Type.CALLBACK);
+    Assert.assertEquals(merged.getCreationTime(), 100L);
+    Assert.assertEquals(merged.getPathChanged(), "/cluster/INSTANCES/host_2/CURRENTSTATES");
+    Assert.assertEquals(merged.getChangedPaths().size(), 2);
+    Assert.assertTrue(
+        merged.getChangedPaths().contains("/cluster/INSTANCES/host_1/CURRENTSTATES"));
+    // The contexts might be shared with the events in other queues, they must not be modified
+    Assert.assertEquals(callbackContext.getType(), NotificationContext.Type.CALLBACK);
+    Assert.assertEquals(callbackContext.getChangedPaths().size(), 1);
+  }
+
+  @Test
+  public void testInitAndFinalizeAreNotCoalesced() throws Exception {
+    ClusterEventBlockingQueue queue = new ClusterEventBlockingQueue();
+    ClusterEvent callbackEvent = createEvent(NotificationContext.Type.CALLBACK);
+    ClusterEvent finalizeEvent = createEvent(NotificationContext.Type.FINALIZE);
+    ClusterEvent initEvent = createEvent(NotificationContext.Type.INIT);
+    ClusterEvent laterCallbackEvent = createEvent(NotificationContext.Type.CALLBACK);
+    ClusterEvent lastCallbackEvent = createEvent(NotificationContext.Type.CALLBACK);
+    queue.put(callbackEvent);
+    queue.put(finalizeEvent);
+    queue.put(initEvent);
+    queue.put(laterCallbackEvent);
+    // Callbacks after the barriers can still be coalesced with each other
+    queue.put(lastCallbackEvent);
+    Assert.assertEquals(queue.size(), 4);
+
+    Assert.assertSame(queue.take(), callbackEvent);
+    ClusterEvent taken = queue.take();
+    Assert.assertSame(taken, finalizeEvent);
+    Assert.assertEquals(((NotificationContext) taken.getAttribute(
+        AttributeName.changeContext.name())).getType(), NotificationContext.Type.FINALIZE);
+    taken = queue.take();
+    Assert.assertSame(taken, initEvent);
+    Assert.assertEquals(((NotificationContext) taken.getAttribute(
+        AttributeName.changeContext.name())).getType(), NotificationContext.Type.INIT);
+    Assert.assertSame(queue.take(), lastCallbackEvent);
+    Assert.assertTrue(queue.isEmpty());
+  }
+
+  private ClusterEvent createEvent(NotificationContext.Type type) {
+    NotificationContext context = new NotificationContext(null);
+    context.setType(type);
+    ClusterEvent event = new ClusterEvent(ClusterEventType.CurrentStateChange);
+    event.addAttribute(AttributeName.changeContext.name(), context);
+    return event;
+  }
+
   private ClusterEvent safeTake(final ClusterEventBlockingQueue queue,
       final ListeningExecutorService service) throws InterruptedException, ExecutionException,
       TimeoutException {
@@ -0,0 +1,146 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.model.BuiltInStateModelDefinitions;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.IdealState.RebalanceMode;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStreamingSerializer;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Compare the controller pipeline stages with ZNRecord fields kept in sorted maps and in hash maps.
+ */
+public class TestHashFieldMapsStages extends BaseStageTest {
+  private static final int NUM_INSTANCES = 20;
+  private static final int NUM_RESOURCES = 10;
+  private static final int NUM_PARTITIONS = 500;
+  private static final int NUM_REPLICAS = 3;
+
+  @AfterClass
+  public void afterClass() {
+    ZNRecord.setHashFieldMapsEnabled(
+        Boolean.getBoolean(ZkSystemPropertyKeys.ZK_ZNRECORD_HASH_FIELD_MAPS_ENABLED));
+    super.afterClass();
+  }
+
+  @Test
+  public void testSerializedBytesAreUnchanged() {
+    for (ZkSerializer serializer : Arrays
+        .asList(new ZNRecordSerializer(), new ZNRecordStreamingSerializer())) {
+      ZNRecord.setHashFieldMapsEnabled(false);
+      byte[] sortedBytes = serializer.serialize(createCurrentState("localhost_0").getRecord());
+      ZNRecord.setHashFieldMapsEnabled(true);
+      ZNRecord hashRecord = createCurrentState("localhost_0").getRecord();
+      Assert.assertTrue(hashRecord.getMapFields() instanceof HashMap);
+      Assert.assertEquals(serializer.serialize(hashRecord), sortedBytes);
+    }
+  }
+
+  @Test
+  public void testStageOutputsAreUnchanged() {
+    BestPossibleStateOutput sortedOutput = runStages(false);
+    BestPossibleStateOutput hashOutput = runStages(true);
+    for (String resource : sortedOutput.resourceSet()) {
+      Assert.assertEquals(hashOutput.getPartitionStateMap(resource).getStateMap(),
+          sortedOutput.getPartitionStateMap(resource).getStateMap());
+    }
+  }
+
+  private BestPossibleStateOutput runStages(boolean hashFieldMaps) {
+    ClusterEvent event = setupCluster(hashFieldMaps);
+    runStages(event);
+    return event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+  }
+
+  /**
+   * Set up a cluster whose records keep their fields in the given kind of maps, and read its data
+   * @return the event to run the stages with
+   */
+  ClusterEvent setupCluster(boolean hashFieldMaps) {
+    ZNRecord.setHashFieldMapsEnabled(hashFieldMaps);
+    setup();
+    String[] resources = new String[NUM_RESOURCES];
+    for (int i = 0; i < NUM_RESOURCES; i++) {
+      resources[i] = "TestDB_" + i;
+    }
+    setupIdealState(NUM_INSTANCES, resources, NUM_PARTITIONS, NUM_REPLICAS,
+        RebalanceMode.SEMI_AUTO, BuiltInStateModelDefinitions.MasterSlave.name());
+    setupLiveInstances(NUM_INSTANCES);
+    setupStateModel();
+    setupInstances(NUM_INSTANCES);
+    Builder keyBuilder = accessor.keyBuilder();
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      String instance = HOSTNAME_PREFIX + i;
+      for (String resource : resources) {
+        CurrentState currentState = createCurrentState(instance, resource);
+        accessor.setProperty(keyBuilder.currentState(instance, SESSION_PREFIX + i, resource),
+            currentState);
+      }
+    }
+
+    event.addAttribute(AttributeName.ControllerDataProvider.name(),
+        new ResourceControllerDataProvider());
+    runStage(event, new ReadClusterDataStage());
+    return event;
+  }
+
+  /**
+   * Run the resource, current state and best possible state stages
+   */
+  void runStages(ClusterEvent event) {
+    runStage(event, new ResourceComputationStage());
+    runStage(event, new CurrentStateComputationStage());
+    runStage(event, new BestPossibleStateCalcStage());
+  }
+
+  private CurrentState createCurrentState(String instance) {
+    return createCurrentState(instance, "TestDB_0");
+  }
+
+  private CurrentState createCurrentState(String instance, String resource) {
+    CurrentState currentState = new CurrentState(resource);
+    currentState.setSessionId(SESSION_PREFIX + instance.substring(HOSTNAME_PREFIX.length()));
+    currentState.setStateModelDefRef(BuiltInStateModelDefinitions.MasterSlave.name());
+    int instanceId = Integer.parseInt(instance.substring(HOSTNAME_PREFIX.length()));
+    for (int p = 0; p < NUM_PARTITIONS; p++) {
+      // The replicas are assigned the same way as setupIdealState
+      int replica = Math.floorMod(instanceId - p - 1, NUM_INSTANCES);
+      if (replica < NUM_REPLICAS) {
+        String partition = resource + "_" + p;
+        currentState.setState(partition, replica == 0 ? "MASTER" : "SLAVE");
+        currentState.setRequestedState(partition, replica == 0 ? "MASTER" : "SLAVE");
+      }
+    }
+    return currentState;
+  }
+}
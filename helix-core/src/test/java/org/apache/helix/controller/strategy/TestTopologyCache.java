@@ -0,0 +1,140 @@
+package org.apache.helix.controller.strategy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.controller.rebalancer.strategy.crushMapping.CRUSHPlacementAlgorithm;
+import org.apache.helix.controller.rebalancer.topology.Node;
+import org.apache.helix.controller.rebalancer.topology.Topology;
+import org.apache.helix.controller.rebalancer.topology.TopologyCache;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTopologyCache {
+
+  private ClusterConfig createClusterConfig() {
+    ClusterConfig clusterConfig = new ClusterConfig("Test_Cluster");
+    clusterConfig.setTopology("/Rack/Instance");
+    clusterConfig.setFaultZoneType("Rack");
+    clusterConfig.setTopologyAwareEnabled(true);
+    return clusterConfig;
+  }
+
+  private Map<String, InstanceConfig> createInstanceConfigs(List<String> allNodes) {
+    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
+    for (int i = 0; i < 20; i++) {
+      String instance = "localhost_" + i;
+      InstanceConfig config = new InstanceConfig(instance);
+      config.setDomain(String.format("Rack=rack_%d,Instance=%s", i % 4, instance));
+      allNodes.add(instance);
+      instanceConfigMap.put(instance, config);
+    }
+    return instanceConfigMap;
+  }
+
+  @Test
+  public void testTopologyReusedUntilContentChanges() {
+    ClusterConfig clusterConfig = createClusterConfig();
+    List<String> allNodes = new ArrayList<>();
+    Map<String, InstanceConfig> instanceConfigMap = createInstanceConfigs(allNodes);
+    List<String> liveNodes = new ArrayList<>(allNodes);
+    TopologyCache cache = new TopologyCache();
+
+    Topology topology =
+        cache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true);
+    Assert.assertSame(
+        cache.getTopology(new ArrayList<>(allNodes), new ArrayList<>(liveNodes), instanceConfigMap,
+            clusterConfig, true), topology);
+    Assert.assertEquals(cache.getHitCount(), 1);
+    Assert.assertEquals(cache.getMissCount(), 1);
+
+    // A different faultZoneLevelOnly flag builds a different tree.
+    Assert.assertNotSame(
+        cache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, false), topology);
+
+    // An in-memory weight change must not return the stale tree.
+    instanceConfigMap.get("localhost_3").setWeight(10);
+    Topology reweighted =
+        cache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true);
+    Assert.assertNotSame(reweighted, topology);
+    Assert.assertEquals(reweighted.getRootNode().getWeight(), 19 * 1000 + 10);
+
+    // Live membership is part of the content.
+    liveNodes.remove("localhost_5");
+    Assert.assertNotSame(
+        cache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true),
+        reweighted);
+    Assert.assertEquals(cache.getMissCount(), 4);
+    Assert.assertEquals(cache.size(), 4);
+  }
+
+  @Test
+  public void testTopologyCacheEviction() {
+    ClusterConfig clusterConfig = createClusterConfig();
+    List<String> allNodes = new ArrayList<>();
+    Map<String, InstanceConfig> instanceConfigMap = createInstanceConfigs(allNodes);
+    TopologyCache cache = new TopologyCache(2);
+
+    for (int i = 0; i < 3; i++) {
+      cache.getTopology(allNodes.subList(0, 10 + i), allNodes, instanceConfigMap, clusterConfig,
+          true);
+    }
+    Assert.assertEquals(cache.size(), 2);
+  }
+
+  @Test
+  public void testStrawTableReuse() {
+    ClusterConfig clusterConfig = createClusterConfig();
+    List<String> allNodes = new ArrayList<>();
+    Map<String, InstanceConfig> instanceConfigMap = createInstanceConfigs(allNodes);
+    Topology topology =
+        new Topology(allNodes, allNodes, instanceConfigMap, clusterConfig, true);
+    Node root = topology.getRootNode();
+
+    Map<Node, Long> strawTable = topology.getStrawTable(root, node -> new HashMap<>());
+    Assert.assertSame(topology.getStrawTable(root, node -> new HashMap<>()), strawTable);
+
+    // Nodes of a cloned tree are not cached by the original topology.
+    Node clonedRoot = Topology.clone(root, Collections.emptyMap(), Collections.emptySet());
+    Assert.assertNotSame(topology.getStrawTable(clonedRoot, node -> new HashMap<>()),
+        topology.getStrawTable(clonedRoot, node -> new HashMap<>()));
+
+    // Cached straw tables do not change the placement.
+    topology = new Topology(allNodes, allNodes, instanceConfigMap, clusterConfig, true);
+    root = topology.getRootNode();
+    CRUSHPlacementAlgorithm cachedAlgorithm = new CRUSHPlacementAlgorithm(false, topology);
+    CRUSHPlacementAlgorithm algorithm = new CRUSHPlacementAlgorithm();
+    for (int i = 0; i < 200; i++) {
+      long input = ("partition_" + i).hashCode();
+      Assert.assertEquals(
+          cachedAlgorithm.select(root, input, 3, topology.getFaultZoneType()),
+          algorithm.select(root, input, 3, topology.getFaultZoneType()));
+      Assert.assertEquals(cachedAlgorithm.select(root, input, 3, topology.getEndNodeType()),
+          algorithm.select(root, input, 3, topology.getEndNodeType()));
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package org.apache.helix.integration.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Date;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.TestHelper;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.helix.integration.manager.ClusterControllerManager;
+import org.apache.helix.integration.manager.MockParticipantManager;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
+import org.apache.helix.tools.ClusterVerifiers.ZkHelixClusterVerifier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestParticipantTransitionBatching extends ZkTestBase {
+
+  @Test
+  public void testTransitionBatching() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    int n = 3;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    TestHelper.setupCluster(clusterName, ZK_ADDR, 12918, // participant port
+        "localhost", // participant name prefix
+        "TestDB", // resource name prefix
+        2, // resources
+        64, // partitions per resource
+        n, // number of nodes
+        3, // replicas
+        "MasterSlave", true); // do rebalance
+
+    ClusterControllerManager controller =
+        new ClusterControllerManager(ZK_ADDR, clusterName, "controller_0");
+    controller.syncStart();
+
+    // start participants with transition batching
+    MockParticipantManager[] participants = new MockParticipantManager[n];
+    System.setProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_ENABLED, "true");
+    System.setProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_FLUSH_LATENCY_MS, "50");
+    try {
+      for (int i = 0; i < n; i++) {
+        String instanceName = "localhost_" + (12918 + i);
+        participants[i] = new MockParticipantManager(ZK_ADDR, clusterName, instanceName);
+        participants[i].syncStart();
+      }
+    } finally {
+      System.clearProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_ENABLED);
+      System.clearProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_BATCH_FLUSH_LATENCY_MS);
+    }
+
+    ZkHelixClusterVerifier verifier =
+        new BestPossibleExternalViewVerifier.Builder(clusterName).setZkClient(_gZkClient)
+            .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME).build();
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<>(_gZkClient));
+    Builder keyBuilder = accessor.keyBuilder();
+    try {
+      Assert.assertTrue(verifier.verifyByPolling());
+
+      // Dropping a resource removes its current states, through the batched DROPPED updates
+      _gSetupTool.dropResourceFromCluster(clusterName, "TestDB1");
+      Assert.assertTrue(verifier.verifyByPolling());
+      for (MockParticipantManager participant : participants) {
+        String instanceName = participant.getInstanceName();
+        Assert.assertTrue(TestHelper.verify(() -> accessor.getProperty(
+            keyBuilder.currentState(instanceName, participant.getSessionId(), "TestDB1")) == null
+            && accessor.getChildNames(keyBuilder.messages(instanceName)).isEmpty(),
+            TestHelper.WAIT_DURATION));
+        Assert.assertNotNull(accessor.getProperty(
+            keyBuilder.currentState(instanceName, participant.getSessionId(), "TestDB0")));
+      }
+    } finally {
+      verifier.close();
+      controller.syncStop();
+      for (MockParticipantManager participant : participants) {
+        participant.syncStop();
+      }
+      deleteCluster(clusterName);
+    }
+
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+}
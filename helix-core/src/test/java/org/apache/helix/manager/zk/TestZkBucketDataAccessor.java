@@ -21,6 +21,7 @@ package org.apache.helix.manager.zk;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +61,7 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
 
   private BucketDataAccessor _bucketDataAccessor;
   private BaseDataAccessor<byte[]> _zkBaseDataAccessor;
+  private HelixZkClient _zkClient;
 
   @BeforeClass
   public void beforeClass() {
@@ -80,6 +82,7 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
         return data;
       }
     });
+    _zkClient = zkClient;
     _zkBaseDataAccessor = new ZkBaseDataAccessor<>(zkClient);
     _bucketDataAccessor = new ZkBucketDataAccessor(zkClient, 50 * 1024, VERSION_TTL_MS);
 
@@ -193,6 +196,68 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
     Assert.assertEquals(readRecord, property);
   }
 
+  /**
+   * Write the simple fields as chunks and verify that only the changed fields are rewritten.
+   */
+  @Test(dependsOnMethods = "testLargeWriteAndRead")
+  public void testCompressedChunkedWriteAndRead() throws Exception {
+    String path = PATH + "_chunked";
+    String chunksPath = path + "/CHUNKS";
+    // Use a small bucket size so that the large field is split into multiple buckets
+    ZkBucketDataAccessor chunkedAccessor =
+        new ZkBucketDataAccessor(_zkClient, 1024, VERSION_TTL_MS);
+    try {
+      HelixProperty property = new HelixProperty(NAME_KEY);
+      property.getRecord().setListField(NAME_KEY, LIST_FIELD);
+      property.getRecord().setMapField(NAME_KEY, MAP_FIELD);
+      byte[] largeValue = new byte[8 * 1024];
+      new Random().nextBytes(largeValue);
+      property.getRecord().setSimpleField("large", Base64.getEncoder().encodeToString(largeValue));
+      property.getRecord().setSimpleField("resource0", "assignment0");
+      property.getRecord().setSimpleField("resource1", "assignment1");
+      // Identical content is stored once
+      property.getRecord().setSimpleField("resource2", "assignment1");
+
+      Assert.assertTrue(chunkedAccessor.compressedChunkedWrite(path, property));
+      List<String> chunks = _zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT);
+      Assert.assertEquals(chunks.size(), 3);
+      Map<String, Long> chunkModifiedTime = new HashMap<>();
+      for (String chunk : chunks) {
+        chunkModifiedTime.put(chunk, getModifiedTime(chunksPath + "/" + chunk + "/0"));
+      }
+
+      // Read with another accessor that has no chunk cached
+      ZkBucketDataAccessor reader = new ZkBucketDataAccessor(_zkClient, 50 * 1024, VERSION_TTL_MS);
+      Assert.assertEquals(reader.compressedBucketRead(path, HelixProperty.class).getRecord(),
+          property.getRecord());
+
+      // Change one field, only one new chunk is written
+      property.getRecord().setSimpleField("resource0", "newAssignment0");
+      Assert.assertTrue(chunkedAccessor.compressedChunkedWrite(path, property));
+      Assert.assertEquals(
+          _zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT).size(), 4);
+      for (String chunk : chunks) {
+        Assert.assertEquals(getModifiedTime(chunksPath + "/" + chunk + "/0"),
+            (long) chunkModifiedTime.get(chunk));
+      }
+      Assert.assertEquals(reader.compressedBucketRead(path, HelixProperty.class).getRecord(),
+          property.getRecord());
+
+      // The chunk that is no longer referenced is removed together with the stale version
+      Assert.assertTrue(TestHelper.verify(
+          () -> _zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT).size() == 3,
+          VERSION_TTL_MS * 5));
+      Assert.assertEquals(chunkedAccessor.compressedBucketRead(path, HelixProperty.class).getRecord(),
+          property.getRecord());
+    } finally {
+      chunkedAccessor.compressedBucketDelete(path);
+    }
+  }
+
+  private long getModifiedTime(String path) {
+    return _zkBaseDataAccessor.getStat(path, AccessOption.PERSISTENT).getMtime();
+  }
+
   private HelixProperty createLargeHelixProperty(String name, int numEntries) {
     HelixProperty property = new HelixProperty(name);
     for (int i = 0; i < numEntries; i++) {
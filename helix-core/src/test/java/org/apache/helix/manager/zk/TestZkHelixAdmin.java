@@ -454,6 +454,108 @@ public class TestZkHelixAdmin extends ZkUnitTestBase {
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testBulkOperations() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    HelixAdmin tool = new ZKHelixAdmin(_gZkClient);
+    tool.addCluster(clusterName, true);
+    tool.addStateModelDef(clusterName, "OnlineOffline",
+        new StateModelDefinition(StateModelConfigGenerator.generateConfigForOnlineOffline()));
+    tool.addResource(clusterName, "existing_db", 2, "OnlineOffline");
+    PropertyKey.Builder keyBuilder = new PropertyKey.Builder(clusterName);
+
+    // Add resources, the ones with an unknown state model or an existing name fail individually
+    List<IdealState> idealStates = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      IdealState is = new IdealState("db_" + i);
+      is.setStateModelDefRef("OnlineOffline");
+      is.setNumPartitions(2);
+      is.setRebalanceMode(IdealState.RebalanceMode.FULL_AUTO);
+      is.setReplicas("1");
+      idealStates.add(is);
+    }
+    IdealState unknownStateModel = new IdealState("db_unknown");
+    unknownStateModel.setStateModelDefRef("UnknownStateModel");
+    idealStates.add(unknownStateModel);
+    IdealState existing = new IdealState("existing_db");
+    existing.setStateModelDefRef("OnlineOffline");
+    idealStates.add(existing);
+
+    Map<String, Boolean> results = tool.addResources(clusterName, idealStates);
+    Assert.assertEquals(results.size(), 7);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertTrue(results.get("db_" + i));
+      Assert.assertEquals(tool.getResourceIdealState(clusterName, "db_" + i).getNumPartitions(), 2);
+    }
+    Assert.assertFalse(results.get("db_unknown"));
+    Assert.assertFalse(results.get("existing_db"));
+    Assert.assertFalse(_gZkClient.exists(keyBuilder.idealStates("db_unknown").getPath()));
+
+    // Set ideal states
+    for (IdealState is : idealStates) {
+      is.setNumPartitions(4);
+    }
+    results = tool.setResourceIdealStates(clusterName, idealStates.subList(0, 5));
+    for (int i = 0; i < 5; i++) {
+      Assert.assertTrue(results.get("db_" + i));
+      Assert.assertEquals(tool.getResourceIdealState(clusterName, "db_" + i).getNumPartitions(), 4);
+    }
+
+    // Tag instances, the instance that is not setup fails
+    List<String> instances = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      String instanceName = "host" + i + "_9999";
+      InstanceConfig config = new InstanceConfig(instanceName);
+      config.setHostName("host" + i);
+      config.setPort("9999");
+      tool.addInstance(clusterName, config);
+      instances.add(instanceName);
+    }
+    instances.add("unknown_9999");
+    // A missing instance history node is created for back-compatibility
+    String historyPath = PropertyPathBuilder.instanceHistory(clusterName, "host0_9999");
+    _gZkClient.delete(historyPath);
+    results = tool.addInstanceTag(clusterName, instances, "bulkTag");
+    Assert.assertFalse(results.get("unknown_9999"));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(results.get("host" + i + "_9999"));
+    }
+    Assert.assertTrue(_gZkClient.exists(historyPath));
+    Assert.assertEquals(tool.getInstancesInClusterWithTag(clusterName, "bulkTag").size(), 3);
+    results = tool.removeInstanceTag(clusterName, instances.subList(0, 2), "bulkTag");
+    Assert.assertTrue(results.get("host0_9999") && results.get("host1_9999"));
+    Assert.assertEquals(tool.getInstancesInClusterWithTag(clusterName, "bulkTag"),
+        Collections.singletonList("host2_9999"));
+
+    // Set instance configs, hostname and port cannot be changed
+    InstanceConfig updated = tool.getInstanceConfig(clusterName, "host0_9999");
+    updated.setZoneId("zone0");
+    InstanceConfig portChanged = tool.getInstanceConfig(clusterName, "host1_9999");
+    portChanged.setPort("8888");
+    results = tool.setInstanceConfigs(clusterName, Arrays.asList(updated, portChanged));
+    Assert.assertTrue(results.get("host0_9999"));
+    Assert.assertFalse(results.get("host1_9999"));
+    Assert.assertEquals(tool.getInstanceConfig(clusterName, "host0_9999").getZoneId(), "zone0");
+    Assert.assertEquals(tool.getInstanceConfig(clusterName, "host1_9999").getPort(), "9999");
+
+    // Drop resources together with their resource configs
+    tool.setConfig(new HelixConfigScopeBuilder(ConfigScopeProperty.RESOURCE).forCluster(clusterName)
+        .forResource("db_0").build(), Collections.singletonMap("key1", "value1"));
+    results = tool.dropResources(clusterName, Arrays.asList("db_0", "db_1", "db_unknown"));
+    Assert.assertTrue(results.get("db_0"));
+    Assert.assertTrue(results.get("db_1"));
+    Assert.assertFalse(results.get("db_unknown"));
+    Assert.assertFalse(_gZkClient.exists(keyBuilder.idealStates("db_0").getPath()));
+    Assert.assertFalse(_gZkClient.exists(keyBuilder.resourceConfig("db_0").getPath()));
+    Assert.assertFalse(_gZkClient.exists(keyBuilder.idealStates("db_1").getPath()));
+    Assert.assertTrue(_gZkClient.exists(keyBuilder.idealStates("db_2").getPath()));
+
+    tool.dropCluster(clusterName);
+  }
+
   // test add/remove message constraint
   @Test
   public void testAddRemoveMsgConstraint() {
@@ -0,0 +1,90 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import org.apache.helix.TestHelper;
+import org.apache.helix.monitoring.mbeans.ThreadPoolExecutorMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestAdaptiveThreadPoolExecutor {
+
+  @Test
+  public void testGrowAndShrink() throws Exception {
+    AdaptiveThreadPoolExecutor executor = new AdaptiveThreadPoolExecutor(
+        TestHelper.getTestMethodName(), 1, 8, Executors.defaultThreadFactory());
+    ThreadPoolExecutorMonitor monitor =
+        new ThreadPoolExecutorMonitor(TestHelper.getTestMethodName(), executor);
+    try {
+      // Checks are done with the time of the test, ahead of the scheduled checks
+      long time = System.currentTimeMillis() + 10 * AdaptiveThreadPoolExecutor.RESIZE_INTERVAL_MS;
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch started = new CountDownLatch(8);
+      for (int i = 0; i < 8; i++) {
+        executor.execute(() -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      }
+
+      // 7 tasks are queued behind the single thread, so the pool grows to run all of them
+      executor.adjustPoolSize(time);
+      Assert.assertEquals(executor.getCorePoolSize(), 8);
+      Assert.assertEquals(monitor.getThreadPoolGrowCounter(), 1);
+      Assert.assertTrue(TestHelper.verify(() -> started.getCount() == 0, TestHelper.WAIT_DURATION));
+
+      // No change within the resize interval
+      release.countDown();
+      Assert.assertTrue(
+          TestHelper.verify(() -> executor.getActiveCount() == 0, TestHelper.WAIT_DURATION));
+      executor.adjustPoolSize(time + 1);
+      Assert.assertEquals(executor.getCorePoolSize(), 8);
+
+      // The idle pool halves after each shrink delay, down to the min size
+      time += AdaptiveThreadPoolExecutor.RESIZE_INTERVAL_MS;
+      executor.adjustPoolSize(time);
+      Assert.assertEquals(executor.getCorePoolSize(), 8);
+      int[] expectedSizes = {4, 2, 1, 1};
+      for (int expectedSize : expectedSizes) {
+        time += AdaptiveThreadPoolExecutor.SHRINK_DELAY_MS;
+        executor.adjustPoolSize(time);
+        Assert.assertEquals(executor.getCorePoolSize(), expectedSize);
+      }
+      Assert.assertEquals(monitor.getThreadPoolShrinkCounter(), 3);
+      Assert.assertEquals(executor.getMaximumPoolSize(), 8);
+    } finally {
+      monitor.unregister();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidPoolSizeRange() {
+    new AdaptiveThreadPoolExecutor(TestHelper.getTestMethodName(), 4, 2,
+        Executors.defaultThreadFactory());
+  }
+}
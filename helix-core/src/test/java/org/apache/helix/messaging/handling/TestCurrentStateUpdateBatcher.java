@@ -0,0 +1,99 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestCurrentStateUpdateBatcher {
+  private static final long UPDATE_TIMEOUT_MS = 200L;
+
+  @Test
+  public void testUpdateWrittenDirectlyOnTimeout() throws Exception {
+    // The batch is not flushed on its own before the update times out
+    CurrentStateUpdateBatcher batcher =
+        new CurrentStateUpdateBatcher(TimeUnit.HOURS.toMillis(1), 100, UPDATE_TIMEOUT_MS);
+    HelixDataAccessor accessor = mock(HelixDataAccessor.class);
+    BaseDataAccessor<ZNRecord> baseAccessor = mock(BaseDataAccessor.class);
+    when(accessor.getBaseDataAccessor()).thenReturn(baseAccessor);
+    PropertyKey key = createKey();
+    CurrentState delta = createDelta();
+    when(accessor.updateProperty(key, delta)).thenReturn(true);
+    try {
+      Assert.assertTrue(batcher.updateCurrentState(accessor, key, delta));
+      verify(accessor).updateProperty(key, delta);
+
+      // The withdrawn update is not written again by the batch
+      batcher.flush();
+      verify(baseAccessor, never()).updateChildren(anyList(), anyList(), anyInt());
+    } finally {
+      batcher.shutdown();
+    }
+  }
+
+  @Test
+  public void testUpdateWaitsForBatchInProgress() throws Exception {
+    // The batch is flushed at once, but takes longer than the update timeout to write
+    CurrentStateUpdateBatcher batcher = new CurrentStateUpdateBatcher(0, 1, UPDATE_TIMEOUT_MS);
+    HelixDataAccessor accessor = mock(HelixDataAccessor.class);
+    BaseDataAccessor<ZNRecord> baseAccessor = mock(BaseDataAccessor.class);
+    when(accessor.getBaseDataAccessor()).thenReturn(baseAccessor);
+    when(baseAccessor.updateChildren(anyList(), anyList(), anyInt())).thenAnswer(invocation -> {
+      Thread.sleep(UPDATE_TIMEOUT_MS * 3 / 2);
+      return new boolean[] {
+          true
+      };
+    });
+    PropertyKey key = createKey();
+    CurrentState delta = createDelta();
+    try {
+      Assert.assertTrue(batcher.updateCurrentState(accessor, key, delta));
+      // The update taken by the batch is not written a second time
+      verify(accessor, never()).updateProperty(key, delta);
+    } finally {
+      batcher.shutdown();
+    }
+  }
+
+  private static PropertyKey createKey() {
+    return new PropertyKey.Builder("TestCluster").currentState("localhost_12918", "session_0",
+        "TestDB");
+  }
+
+  private static CurrentState createDelta() {
+    CurrentState delta = new CurrentState("TestDB");
+    delta.setState("TestDB_0", "MASTER");
+    return delta;
+  }
+}
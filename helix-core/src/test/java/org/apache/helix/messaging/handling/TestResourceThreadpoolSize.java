@@ -36,6 +36,7 @@ import org.apache.helix.mock.participant.DummyProcess;
 import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.Message.MessageType;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.builder.FullAutoModeISBuilder;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
 import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
@@ -83,6 +84,33 @@ public class TestResourceThreadpoolSize extends ZkStandAloneCMTestBase {
     Assert.assertTrue(taskcount >= numPartition * (numReplica + 1));
   }
 
+  @Test (dependsOnMethods = "TestThreadPoolSizeConfig")
+  public void TestAdaptiveThreadPoolSizeConfig() {
+    String resourceName = "AdaptiveDB";
+    ConfigAccessor configAccessor = _participants[0].getConfigAccessor();
+    ResourceConfig resourceConfig = new ResourceConfig(resourceName);
+    resourceConfig.setAdaptiveThreadPoolSize(2, 16);
+    configAccessor.setResourceConfig(CLUSTER_NAME, resourceName, resourceConfig);
+
+    _gSetupTool.addResourceToCluster(CLUSTER_NAME, resourceName, 64, STATE_MODEL);
+    _gSetupTool.rebalanceStorageCluster(CLUSTER_NAME, resourceName, 3);
+
+    Assert.assertTrue(_clusterVerifier.verifyByPolling());
+
+    for (int i = 0; i < NODE_NR; i++) {
+      DefaultMessagingService svc =
+          (DefaultMessagingService) (_participants[i].getMessagingService());
+      HelixTaskExecutor helixExecutor = svc.getExecutor();
+      ExecutorService executor =
+          helixExecutor._executorMap.get(MessageType.STATE_TRANSITION + "." + resourceName);
+      Assert.assertTrue(executor instanceof AdaptiveThreadPoolExecutor);
+      AdaptiveThreadPoolExecutor adaptiveExecutor = (AdaptiveThreadPoolExecutor) executor;
+      Assert.assertEquals(adaptiveExecutor.getMinPoolSize(), 2);
+      Assert.assertEquals(adaptiveExecutor.getMaximumPoolSize(), 16);
+      Assert.assertTrue(adaptiveExecutor.getCompletedTaskCount() > 0);
+    }
+  }
+
   @Test (dependsOnMethods = "TestThreadPoolSizeConfig")
   public void TestCustomizedResourceThreadPool() {
     int customizedPoolSize = 7;
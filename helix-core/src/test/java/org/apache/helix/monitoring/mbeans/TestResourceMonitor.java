@@ -22,10 +22,13 @@ package org.apache.helix.monitoring.mbeans;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.TreeMap;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
@@ -247,6 +250,134 @@ public class TestResourceMonitor {
     }
   }
 
+  @Test
+  public void testIncrementalResourceStateUpdate() throws JMException {
+    List<String> instances = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      instances.add("localhost_" + (12918 + i));
+    }
+    ZNRecord idealStateRecord = DefaultIdealStateCalculator
+        .calculateIdealState(instances, _partitions, _replicas - 1, _dbName, "MASTER", "SLAVE");
+    IdealState idealState = new IdealState(deepCopyZNRecord(idealStateRecord));
+    idealState.setMinActiveReplicas(_replicas - 1);
+    ExternalView externalView = new ExternalView(deepCopyZNRecord(idealStateRecord));
+    StateModelDefinition stateModelDef =
+        BuiltInStateModelDefinitions.MasterSlave.getStateModelDefinition();
+
+    ResourceMonitor monitor =
+        new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+    monitor.updateResourceState(externalView, idealState, stateModelDef, null);
+
+    Random r = new Random();
+    String[] states = {"MASTER", "SLAVE", "OFFLINE", "ERROR"};
+    for (int round = 0; round < 20; round++) {
+      Set<String> externalViewChangedPartitions = new HashSet<>();
+      for (int i = 0; i < 3; i++) {
+        String partition = _dbName + "_" + r.nextInt(_partitions);
+        Map<String, String> stateMap = new TreeMap<>(externalView.getStateMap(partition));
+        String instance = instances.get(r.nextInt(instances.size()));
+        if (r.nextBoolean()) {
+          stateMap.remove(instance);
+        } else {
+          stateMap.put(instance, states[r.nextInt(states.length)]);
+        }
+        if (!stateMap.equals(externalView.getStateMap(partition))) {
+          externalViewChangedPartitions.add(partition);
+        }
+        externalView.setStateMap(partition, stateMap);
+      }
+      // Move a partition out of the resource and back in
+      String movedPartition = _dbName + "_" + round;
+      if (round % 2 == 0) {
+        idealState.getRecord().getMapFields().remove(movedPartition);
+      } else {
+        idealState.setInstanceStateMap(movedPartition,
+            idealStateRecord.getMapField(movedPartition));
+      }
+
+      monitor.addExternalViewChangedPartitions(externalView, externalViewChangedPartitions);
+      monitor.updateResourceState(externalView, idealState, stateModelDef,
+          Collections.singleton(movedPartition));
+
+      ResourceMonitor recountMonitor =
+          new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+      recountMonitor.updateResourceState(externalView, idealState, stateModelDef);
+      assertResourceStateGauges(monitor, recountMonitor);
+    }
+
+    // Changes reported before the update is given the new external view are kept until it is
+    ExternalView newExternalView = new ExternalView(deepCopyZNRecord(externalView.getRecord()));
+    String errorPartition = _dbName + "_1";
+    Map<String, String> errorStateMap = new TreeMap<>();
+    for (String instance : instances) {
+      errorStateMap.put(instance, "ERROR");
+    }
+    newExternalView.setStateMap(errorPartition, errorStateMap);
+    monitor.addExternalViewChangedPartitions(newExternalView,
+        Collections.singleton(errorPartition));
+    monitor.updateResourceState(externalView, idealState, stateModelDef, Collections.emptySet());
+    monitor.updateResourceState(newExternalView, idealState, stateModelDef,
+        Collections.emptySet());
+    ResourceMonitor newViewMonitor =
+        new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+    newViewMonitor.updateResourceState(newExternalView, idealState, stateModelDef);
+    assertResourceStateGauges(monitor, newViewMonitor);
+    externalView = newExternalView;
+
+    // Unknown external view changes trigger a full recount
+    externalView.setStateMap(_dbName + "_0", Collections.emptyMap());
+    monitor.addExternalViewChangedPartitions(externalView, null);
+    monitor.updateResourceState(externalView, idealState, stateModelDef, Collections.emptySet());
+    ResourceMonitor unknownChangeMonitor =
+        new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+    unknownChangeMonitor.updateResourceState(externalView, idealState, stateModelDef);
+    assertResourceStateGauges(monitor, unknownChangeMonitor);
+
+    // A partition added without being reported as changed triggers a full recount
+    idealState.setInstanceStateMap(_dbName + "_" + _partitions,
+        idealStateRecord.getMapField(_dbName + "_0"));
+    monitor.updateResourceState(externalView, idealState, stateModelDef, Collections.emptySet());
+    ResourceMonitor recountMonitor =
+        new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+    recountMonitor.updateResourceState(externalView, idealState, stateModelDef);
+    assertResourceStateGauges(monitor, recountMonitor);
+
+    // An update that arrives after a newer one is dropped, and the newer one recounts all the
+    // partitions since the changes of the older one have not been applied
+    ResourceMonitor versionedMonitor =
+        new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+    versionedMonitor.updateResourceState(externalView, idealState, stateModelDef, null, 1);
+    String changedPartition = _dbName + "_2";
+    IdealState changedIdealState = new IdealState(deepCopyZNRecord(idealState.getRecord()));
+    changedIdealState.setInstanceStateMap(changedPartition,
+        Collections.singletonMap("localhost_0", "MASTER"));
+    versionedMonitor.updateResourceState(externalView, idealState, stateModelDef,
+        Collections.singleton(changedPartition), 3);
+    versionedMonitor.updateResourceState(externalView, changedIdealState, stateModelDef,
+        Collections.singleton(changedPartition), 2);
+    assertResourceStateGauges(versionedMonitor, recountMonitor);
+    ResourceMonitor changedMonitor =
+        new ResourceMonitor(_clusterName, _dbName, new ObjectName("testDomain:key=value"));
+    changedMonitor.updateResourceState(externalView, changedIdealState, stateModelDef);
+    Assert.assertFalse(changedMonitor.getDifferenceWithIdealStateGauge()
+        == recountMonitor.getDifferenceWithIdealStateGauge());
+  }
+
+  private void assertResourceStateGauges(ResourceMonitor monitor, ResourceMonitor expected) {
+    Assert.assertEquals(monitor.getPartitionGauge(), expected.getPartitionGauge());
+    Assert.assertEquals(monitor.getErrorPartitionGauge(), expected.getErrorPartitionGauge());
+    Assert.assertEquals(monitor.getDifferenceWithIdealStateGauge(),
+        expected.getDifferenceWithIdealStateGauge());
+    Assert.assertEquals(monitor.getExternalViewPartitionGauge(),
+        expected.getExternalViewPartitionGauge());
+    Assert.assertEquals(monitor.getMissingTopStatePartitionGauge(),
+        expected.getMissingTopStatePartitionGauge());
+    Assert.assertEquals(monitor.getMissingReplicaPartitionGauge(),
+        expected.getMissingReplicaPartitionGauge());
+    Assert.assertEquals(monitor.getMissingMinActiveReplicaPartitionGauge(),
+        expected.getMissingMinActiveReplicaPartitionGauge());
+  }
+
   @Test
   public void testUpdatePartitionWeightStats() throws JMException, IOException {
     final MBeanServerConnection mBeanServer = ManagementFactory.getPlatformMBeanServer();
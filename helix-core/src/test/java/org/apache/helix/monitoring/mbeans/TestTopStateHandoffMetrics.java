@@ -25,6 +25,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -159,6 +161,47 @@ public class TestTopStateHandoffMetrics extends BaseStageTest {
     runTestWithNoInjection(cfg, false);
   }
 
+  @Test
+  public void testTopStateSuccessHandoffWithParallelResources() throws IOException {
+    // Load the test cases again since some of the tests modify the shared ones
+    TestConfig testConfig = OBJECT_MAPPER.readValue(
+        getClass().getClassLoader().getResourceAsStream(TEST_INPUT_FILE), TestConfig.class);
+    for (TestCaseConfig cfg : testConfig.succeeded) {
+      preSetup();
+      // A second resource without any top state lets the resources be processed in parallel
+      String otherResourceName = TEST_RESOURCE + "_other";
+      Resource otherResource = new Resource(otherResourceName);
+      otherResource.setStateModelDefRef("MasterSlave");
+      otherResource.addPartition(PARTITION);
+      Map<String, Resource> resourceMap =
+          new HashMap<>(event.getAttribute(AttributeName.RESOURCES.name()));
+      resourceMap.put(otherResourceName, otherResource);
+      event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+
+      ExecutorService threadPool = Executors.newFixedThreadPool(2);
+      try {
+        Range<Long> duration = Range.closed(cfg.duration, cfg.duration);
+        Range<Long> expectedDuration = cfg.isGraceful ? duration : DURATION_ZERO;
+        Range<Long> expectedNonGracefulDuration = cfg.isGraceful ? DURATION_ZERO : duration;
+        Range<Long> expectedHelixLatency =
+            cfg.isGraceful ? Range.closed(cfg.helixLatency, cfg.helixLatency) : DURATION_ZERO;
+        runStageAndVerify(cfg.initialCurrentStates, cfg.currentStateWithMissingTopState,
+            cfg.finalCurrentState, cache -> cache.setAsyncTasksThreadPool(threadPool), 1, 0, 0,
+            expectedDuration, expectedNonGracefulDuration, expectedDuration, expectedHelixLatency);
+
+        ResourceControllerDataProvider cache =
+            event.getAttribute(AttributeName.ControllerDataProvider.name());
+        Assert.assertFalse(cache.getMissingTopStateMap().containsKey(TEST_RESOURCE));
+        Assert.assertTrue(
+            cache.getMissingTopStateMap().get(otherResourceName).containsKey(PARTITION));
+        Assert.assertTrue(cache.getLastTopStateLocationMap().containsKey(TEST_RESOURCE));
+        Assert.assertFalse(cache.getLastTopStateLocationMap().containsKey(otherResourceName));
+      } finally {
+        threadPool.shutdown();
+      }
+    }
+  }
+
   @Test(dataProvider = "fastCurrentStateInput")
   public void testFastTopStateHandoffWithNoMissingTopState(TestCaseConfig cfg) {
     runTestWithNoInjection(cfg, false);
@@ -0,0 +1,151 @@
+package org.apache.helix.participant.statemachine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTransitionDispatchTable {
+  private static final Logger LOG = LoggerFactory.getLogger(TestTransitionDispatchTable.class);
+  private static final Class<?>[] PARAM_TYPES = new Class[] {
+      Message.class, NotificationContext.class
+  };
+
+  @StateModelInfo(initialState = "OFFLINE", states = {
+      "MASTER", "SLAVE", "ERROR"
+  })
+  public static class AnnotatedStateModel extends StateModel {
+    int _count;
+
+    @Transition(to = "SLAVE", from = "OFFLINE")
+    public void slaveFromOffline(Message message, NotificationContext context) {
+      _count++;
+    }
+
+    @Transition(to = "MASTER", from = "SLAVE")
+    public String masterFromSlave(Message message, NotificationContext context) {
+      return message.getPartitionName();
+    }
+
+    @Transition(to = "OFFLINE", from = "SLAVE")
+    public void offlineFromSlave(Message message, NotificationContext context) {
+      throw new IllegalStateException("transition failed");
+    }
+  }
+
+  public static class ConventionStateModel extends StateModel {
+    public void onBecomeOnlineFromOffline(Message message, NotificationContext context) {
+    }
+  }
+
+  @Test
+  public void testResolution() {
+    TransitionDispatchTable table = TransitionDispatchTable.forClass(AnnotatedStateModel.class);
+    Assert.assertSame(TransitionDispatchTable.forClass(AnnotatedStateModel.class), table);
+
+    StateModelParser parser = new StateModelParser();
+    String[][] transitions = new String[][] {
+        {"OFFLINE", "SLAVE"}, {"offline", "slave"}, {"SLAVE", "MASTER"}, {"ERROR", "DROPPED"},
+        {"OFFLINE", "DROPPED"}, {"MASTER", "SLAVE"}
+    };
+    for (String[] transition : transitions) {
+      Method expected = parser.getMethodForTransition(AnnotatedStateModel.class, transition[0],
+          transition[1], PARAM_TYPES);
+      TransitionDispatchTable.TransitionMethod actual =
+          table.getTransitionMethod(transition[0], transition[1]);
+      if (expected == null) {
+        Assert.assertNull(actual);
+      } else {
+        Assert.assertEquals(actual.getMethod(), expected);
+        // Served from the table afterwards
+        Assert.assertSame(table.getTransitionMethod(transition[0], transition[1]), actual);
+      }
+    }
+
+    Assert.assertEquals(TransitionDispatchTable.forClass(ConventionStateModel.class)
+        .getTransitionMethod("OFFLINE", "ONLINE").getMethod().getName(),
+        "onBecomeOnlineFromOffline");
+    Assert.assertNull(TransitionDispatchTable.forClass(ConventionStateModel.class)
+        .getTransitionMethod("ONLINE", "MASTER"));
+  }
+
+  @Test
+  public void testInvoke() throws Exception {
+    TransitionDispatchTable table = TransitionDispatchTable.forClass(AnnotatedStateModel.class);
+    AnnotatedStateModel stateModel = new AnnotatedStateModel();
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msgId");
+    message.setPartitionName("TestDB_0");
+
+    Assert.assertNull(table.getTransitionMethod("OFFLINE", "SLAVE")
+        .invoke(stateModel, message, null));
+    Assert.assertEquals(stateModel._count, 1);
+    Assert.assertEquals(table.getTransitionMethod("SLAVE", "MASTER")
+        .invoke(stateModel, message, null), "TestDB_0");
+
+    try {
+      table.getTransitionMethod("SLAVE", "OFFLINE").invoke(stateModel, message, null);
+      Assert.fail("Transition exception should be thrown");
+    } catch (InvocationTargetException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  /**
+   * Microbenchmark of the per message dispatch overhead, comparing resolving the method through
+   * StateModelParser and invoking it reflectively with the cached dispatch table.
+   */
+  @Test
+  public void testDispatchOverhead() throws Exception {
+    int iterations = 200000;
+    AnnotatedStateModel stateModel = new AnnotatedStateModel();
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msgId");
+    StateModelParser parser = new StateModelParser();
+
+    for (int round = 0; round < 2; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        parser.getMethodForTransition(AnnotatedStateModel.class, "OFFLINE", "SLAVE", PARAM_TYPES)
+            .invoke(stateModel, message, null);
+      }
+      long reflectionNs = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        TransitionDispatchTable.forClass(AnnotatedStateModel.class)
+            .getTransitionMethod("OFFLINE", "SLAVE").invoke(stateModel, message, null);
+      }
+      long dispatchNs = System.nanoTime() - start;
+
+      // the first round is warm up
+      if (round > 0) {
+        LOG.info("Transition dispatch overhead: parser + reflection {} ns/op, dispatch table {} ns/op",
+            reflectionNs / iterations, dispatchNs / iterations);
+      }
+    }
+    Assert.assertEquals(stateModel._count, 4 * iterations);
+  }
+}
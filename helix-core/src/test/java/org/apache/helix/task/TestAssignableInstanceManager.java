@@ -20,6 +20,8 @@ package org.apache.helix.task;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,9 +31,12 @@ import java.util.Set;
 
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.common.caches.TaskDataCache;
+import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
 import org.apache.helix.task.assigner.AssignableInstance;
 import org.apache.helix.task.assigner.TaskAssignResult;
 import org.testng.Assert;
@@ -151,6 +156,112 @@ public class TestAssignableInstanceManager {
     }
   }
 
+  @Test
+  public void testIncrementalUpdateFromCurrentState() {
+    String jobName = JOB_PREFIX + 0;
+    Resource resource = new Resource(jobName);
+    resource.setStateModelDefRef(TaskConstants.STATE_MODEL_NAME);
+    Map<String, Resource> resourceMap = Collections.singletonMap(jobName, resource);
+    String instanceName = INSTANCE_PREFIX + 0;
+
+    AssignableInstanceManager manager = new AssignableInstanceManager();
+    manager.setFullRebuildInterval(3);
+
+    // First update builds from scratch
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    currentStateOutput.setCurrentState(jobName, new Partition(jobName + "_0"), instanceName,
+        TaskPartitionState.RUNNING.name());
+    Assert.assertFalse(manager.updateAssignableInstancesFromCurrentState(_clusterConfig,
+        _taskDataCache, _liveInstances, _instanceConfigs, currentStateOutput, resourceMap));
+    Assert.assertEquals(
+        manager.getAssignableInstance(instanceName).getCurrentAssignments().size(), 1);
+
+    // A newly started task is assigned and a completed task is released incrementally
+    currentStateOutput = new CurrentStateOutput();
+    currentStateOutput.setCurrentState(jobName, new Partition(jobName + "_0"), instanceName,
+        TaskPartitionState.COMPLETED.name());
+    currentStateOutput.setCurrentState(jobName, new Partition(jobName + "_1"), instanceName,
+        TaskPartitionState.RUNNING.name());
+    Assert.assertFalse(manager.updateAssignableInstancesFromCurrentState(_clusterConfig,
+        _taskDataCache, _liveInstances, _instanceConfigs, currentStateOutput, resourceMap));
+    AssignableInstance assignableInstance = manager.getAssignableInstance(instanceName);
+    Assert.assertEquals(assignableInstance.getCurrentAssignments().size(), 1);
+    Assert.assertEquals((int) assignableInstance.getUsedCapacity()
+        .get(LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name())
+        .get(AssignableInstance.DEFAULT_QUOTA_TYPE), 1);
+
+    // Simulate drift, then verify that the periodic full rebuild detects and repairs it
+    assignableInstance.getCurrentAssignments().add("UnknownTask");
+    manager.updateAssignableInstancesFromCurrentState(_clusterConfig, _taskDataCache,
+        _liveInstances, _instanceConfigs, currentStateOutput, resourceMap);
+    Assert.assertEquals(manager.getDriftDetectedCount(), 0L);
+    assignableInstance.getCurrentAssignments().add("UnknownTask");
+    Assert.assertTrue(manager.updateAssignableInstancesFromCurrentState(_clusterConfig,
+        _taskDataCache, _liveInstances, _instanceConfigs, currentStateOutput, resourceMap));
+    Assert.assertEquals(manager.getDriftDetectedCount(), 1L);
+    Assert.assertEquals(
+        manager.getAssignableInstance(instanceName).getCurrentAssignments().size(), 1);
+  }
+
+  @Test
+  public void testIncrementalUpdateOfChangedResources() {
+    String changedJob = JOB_PREFIX + 0;
+    String unchangedJob = JOB_PREFIX + 1;
+    Map<String, Resource> resourceMap = new HashMap<>();
+    for (String jobName : Arrays.asList(changedJob, unchangedJob)) {
+      Resource resource = new Resource(jobName);
+      resource.setStateModelDefRef(TaskConstants.STATE_MODEL_NAME);
+      resourceMap.put(jobName, resource);
+    }
+    String changedInstance = INSTANCE_PREFIX + 0;
+    String unchangedInstance = INSTANCE_PREFIX + 1;
+    String otherInstance = INSTANCE_PREFIX + 2;
+
+    AssignableInstanceManager manager = new AssignableInstanceManager();
+    manager.setFullRebuildInterval(100);
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    currentStateOutput.setCurrentState(changedJob, new Partition(changedJob + "_0"),
+        changedInstance, TaskPartitionState.RUNNING.name());
+    currentStateOutput.setCurrentState(unchangedJob, new Partition(unchangedJob + "_0"),
+        unchangedInstance, TaskPartitionState.RUNNING.name());
+    Assert.assertTrue(manager.isFullRebuildDue());
+    manager.updateAssignableInstancesFromCurrentState(_clusterConfig, _taskDataCache,
+        _liveInstances, _instanceConfigs, currentStateOutput, resourceMap, null);
+    Assert.assertFalse(manager.isFullRebuildDue());
+
+    // A task assigned through the manager that never shows up in CurrentState or pending messages
+    TaskAssignResult result = manager.tryAssign(otherInstance,
+        new TaskConfig.Builder().setTaskId("UnscheduledTask").build(),
+        AssignableInstance.DEFAULT_QUOTA_TYPE);
+    manager.assign(otherInstance, result);
+    Assert.assertEquals(
+        manager.getAssignableInstance(otherInstance).getCurrentAssignments().size(), 1);
+
+    // Only the CurrentStates of the changed resource are read
+    currentStateOutput = new CurrentStateOutput();
+    currentStateOutput.setCurrentState(changedJob, new Partition(changedJob + "_0"),
+        changedInstance, TaskPartitionState.COMPLETED.name());
+    currentStateOutput.setCurrentState(unchangedJob, new Partition(unchangedJob + "_0"),
+        unchangedInstance, TaskPartitionState.COMPLETED.name());
+    manager.updateAssignableInstancesFromCurrentState(_clusterConfig, _taskDataCache,
+        _liveInstances, _instanceConfigs, currentStateOutput, resourceMap,
+        Collections.singleton(changedJob));
+    Assert.assertTrue(
+        manager.getAssignableInstance(changedInstance).getCurrentAssignments().isEmpty());
+    Assert.assertEquals(
+        manager.getAssignableInstance(unchangedInstance).getCurrentAssignments().size(), 1);
+    Assert.assertTrue(
+        manager.getAssignableInstance(otherInstance).getCurrentAssignments().isEmpty());
+
+    // A resource that left the pipeline releases its tasks even if it was not reported as changed
+    resourceMap.remove(unchangedJob);
+    manager.updateAssignableInstancesFromCurrentState(_clusterConfig, _taskDataCache,
+        _liveInstances, _instanceConfigs, currentStateOutput, resourceMap,
+        Collections.<String> emptySet());
+    Assert.assertTrue(
+        manager.getAssignableInstance(unchangedInstance).getCurrentAssignments().isEmpty());
+  }
+
   public class MockTaskDataCache extends TaskDataCache {
     private Map<String, JobConfig> _jobConfigMap;
     private Map<String, WorkflowConfig> _workflowConfigMap;
@@ -19,11 +19,18 @@ package org.apache.helix.task.assigner;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
+import org.apache.helix.common.caches.TaskDataCache;
 import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
+import org.apache.helix.task.AssignableInstanceManager;
+import org.apache.helix.task.TaskConfig;
 
 /* package */ class AssignerTestBase {
 
@@ -67,4 +74,39 @@ import org.apache.helix.model.LiveInstance;
     }
     return clusterConfig;
   }
+
+  /* package */ List<TaskConfig> createTaskConfigs(int count) {
+    return createTaskConfigs(count, true);
+  }
+
+  /* package */ List<TaskConfig> createTaskConfigs(int count, boolean randomID) {
+    List<TaskConfig> tasks = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      TaskConfig task =
+          new TaskConfig(null, null, randomID ? UUID.randomUUID().toString() : "task-" + i, null);
+      tasks.add(task);
+    }
+    return tasks;
+  }
+
+  /* package */ AssignableInstanceManager createAssignableInstanceManager(int count,
+      int threadCount) {
+    AssignableInstanceManager assignableInstanceManager = new AssignableInstanceManager();
+    ClusterConfig clusterConfig = createClusterConfig(testQuotaTypes, testQuotaRatio, false);
+    String instanceNameFormat = "instance-%s";
+    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
+    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      String instanceName = String.format(instanceNameFormat, i);
+      liveInstanceMap.put(instanceName, createLiveInstance(
+          new String[] { LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name() },
+          new String[] { Integer.toString(threadCount) }, instanceName));
+      instanceConfigMap.put(instanceName, new InstanceConfig(instanceName));
+    }
+
+    assignableInstanceManager
+        .buildAssignableInstances(clusterConfig, new TaskDataCache(testClusterName),
+            liveInstanceMap, instanceConfigMap);
+    return assignableInstanceManager;
+  }
 }
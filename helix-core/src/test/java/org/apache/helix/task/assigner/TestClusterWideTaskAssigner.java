@@ -0,0 +1,228 @@
+package org.apache.helix.task.assigner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.task.AssignableInstanceManager;
+import org.apache.helix.task.TaskConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestClusterWideTaskAssigner extends AssignerTestBase {
+
+  @Test
+  public void testEvenAssignmentAcrossJobs() {
+    TaskAssigner assigner = new ClusterWideTaskAssigner();
+    int jobCount = 30;
+    int taskCountPerJob = 5;
+    int instanceCount = 20;
+    AssignableInstanceManager assignableInstanceManager =
+        createAssignableInstanceManager(instanceCount, 50);
+    String quotaType = testQuotaTypes[0];
+    AssignableInstanceHeap heap = assignableInstanceManager.getAssignableInstanceHeap(quotaType);
+
+    for (int i = 0; i < jobCount; i++) {
+      Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+          assignableInstanceManager.getAssignableInstanceNames(),
+          createTaskConfigs(taskCountPerJob), quotaType);
+      for (TaskAssignResult result : results.values()) {
+        Assert.assertTrue(result.isSuccessful());
+      }
+    }
+
+    // The same heap is shared by all jobs and still contains all instances
+    Assert.assertSame(assignableInstanceManager.getAssignableInstanceHeap(quotaType), heap);
+    Assert.assertEquals(heap.size(), instanceCount);
+
+    int totalTasks = jobCount * taskCountPerJob;
+    for (AssignableInstance instance : assignableInstanceManager.getAssignableInstanceMap()
+        .values()) {
+      int assignedCount = instance.getUsedCapacity()
+          .get(LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name()).get(quotaType);
+      Assert.assertTrue(assignedCount <= totalTasks / instanceCount + 1
+          && assignedCount >= totalTasks / instanceCount);
+    }
+  }
+
+  @Test
+  public void testInstanceTaskLimits() {
+    ClusterWideTaskAssigner assigner = new ClusterWideTaskAssigner();
+    int instanceCount = 10;
+    AssignableInstanceManager assignableInstanceManager =
+        createAssignableInstanceManager(instanceCount, 50);
+    // instance-0 already runs a task of the job, so it cannot take another one
+    Map<String, Set<Integer>> assignedTasks = new HashMap<>();
+    assignedTasks.put("instance-0", Collections.singleton(0));
+    ClusterWideTaskAssigner.JobTasks job = new ClusterWideTaskAssigner.JobTasks("job",
+        createTaskConfigs(20), assignableInstanceManager.getAssignableInstanceNames(),
+        Collections.<String> emptySet(), 1, assignedTasks);
+
+    Map<String, TaskAssignResult> results = assigner
+        .assignTasks(assignableInstanceManager, testQuotaTypes[0], Collections.singletonList(job))
+        .get("job");
+    int successCnt = 0;
+    Set<String> assignedInstances = new HashSet<>();
+    for (TaskAssignResult result : results.values()) {
+      if (result.isSuccessful()) {
+        successCnt++;
+        assignedInstances.add(result.getInstanceName());
+      } else {
+        Assert.assertEquals(result.getFailureReason(),
+            TaskAssignResult.FailureReason.INSUFFICIENT_QUOTA);
+      }
+    }
+    Assert.assertEquals(successCnt, instanceCount - 1);
+    Assert.assertEquals(assignedInstances.size(), instanceCount - 1);
+    Assert.assertFalse(assignedInstances.contains("instance-0"));
+    Assert.assertEquals(
+        assignableInstanceManager.getAssignableInstanceHeap(testQuotaTypes[0]).size(),
+        instanceCount);
+  }
+
+  @Test
+  public void testAssignmentToGivenInstances() {
+    TaskAssigner assigner = new ClusterWideTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(10, 20);
+    Set<String> eligibleInstances = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      eligibleInstances.add(String.format("instance-%s", i));
+    }
+
+    Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+        eligibleInstances, createTaskConfigs(20, false), testQuotaTypes[0]);
+    for (TaskAssignResult result : results.values()) {
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertTrue(eligibleInstances.contains(result.getInstanceName()));
+    }
+    Assert.assertEquals(
+        assignableInstanceManager.getAssignableInstanceHeap(testQuotaTypes[0]).size(), 10);
+  }
+
+  @Test
+  public void testJobsOfQuotaTypeAssignedTogether() {
+    ClusterWideTaskAssigner assigner = new ClusterWideTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(10, 20);
+    String quotaType = testQuotaTypes[0];
+    AssignableInstanceHeap heap = assignableInstanceManager.getAssignableInstanceHeap(quotaType);
+    Set<String> taggedInstances = new HashSet<>();
+    for (int i = 0; i < 2; i++) {
+      taggedInstances.add(String.format("instance-%s", i));
+    }
+    List<ClusterWideTaskAssigner.JobTasks> jobs = new ArrayList<>();
+    jobs.add(new ClusterWideTaskAssigner.JobTasks("taggedJob", createTaskConfigs(4),
+        taggedInstances));
+    jobs.add(new ClusterWideTaskAssigner.JobTasks("job", createTaskConfigs(8),
+        assignableInstanceManager.getAssignableInstanceNames(),
+        Collections.singleton("instance-9"), Integer.MAX_VALUE,
+        Collections.<String, Set<Integer>> emptyMap()));
+
+    Map<String, Map<String, TaskAssignResult>> results =
+        assigner.assignTasks(assignableInstanceManager, quotaType, jobs);
+    for (TaskAssignResult result : results.get("taggedJob").values()) {
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertTrue(taggedInstances.contains(result.getInstanceName()));
+    }
+    // The second job goes to the instances left untouched by the first one
+    for (TaskAssignResult result : results.get("job").values()) {
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertFalse(taggedInstances.contains(result.getInstanceName()));
+      Assert.assertFalse(result.getInstanceName().equals("instance-9"));
+    }
+    // Skipping instances for either job leaves all of them on the shared heap
+    Assert.assertSame(assignableInstanceManager.getAssignableInstanceHeap(quotaType), heap);
+    Assert.assertEquals(heap.size(), 10);
+    Assert.assertEquals(heap.peek().getInstanceName(), "instance-9");
+  }
+
+  @Test
+  public void testSkippedInstancesStayInPlace() {
+    ClusterWideTaskAssigner assigner = new ClusterWideTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(10, 20);
+    String quotaType = testQuotaTypes[0];
+    AssignableInstanceHeap heap = assignableInstanceManager.getAssignableInstanceHeap(quotaType);
+    Set<String> loadedInstances = new HashSet<>();
+    for (int i = 0; i < 8; i++) {
+      loadedInstances.add(String.format("instance-%s", i));
+    }
+    // The job may use most of the instances, so its tasks are assigned on the shared heap
+    Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+        loadedInstances, createTaskConfigs(8, false), quotaType);
+    for (TaskAssignResult result : results.values()) {
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertTrue(loadedInstances.contains(result.getInstanceName()));
+    }
+
+    // The two idle instances are on top, and searching past them does not reorder the heap
+    String top = heap.peek().getInstanceName();
+    Assert.assertFalse(loadedInstances.contains(top));
+    AssignableInstance loadedInstance =
+        heap.peek(instance -> loadedInstances.contains(instance.getInstanceName()));
+    Assert.assertTrue(loadedInstances.contains(loadedInstance.getInstanceName()));
+    Assert.assertNull(heap.peek(instance -> false));
+    Assert.assertEquals(heap.peek().getInstanceName(), top);
+    Assert.assertEquals(heap.size(), 10);
+  }
+
+  @Test
+  public void testAssignmentWithoutManager() {
+    TaskAssigner assigner = new ClusterWideTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(4, 20);
+    Map<String, TaskAssignResult> results = assigner.assignTasks(
+        assignableInstanceManager.getAssignableInstanceMap().values(),
+        createTaskConfigs(8, false), testQuotaTypes[0]);
+    Map<String, Integer> assignedCounts = new HashMap<>();
+    for (TaskAssignResult result : results.values()) {
+      Assert.assertTrue(result.isSuccessful());
+      assignedCounts.merge(result.getInstanceName(), 1, Integer::sum);
+    }
+    Assert.assertEquals(assignedCounts.size(), 4);
+    for (int assignedCount : assignedCounts.values()) {
+      Assert.assertEquals(assignedCount, 2);
+    }
+  }
+
+  @Test
+  public void testHeapUpdatedOnRelease() {
+    TaskAssigner assigner = new ClusterWideTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(2, 20);
+    String quotaType = testQuotaTypes[0];
+    List<TaskConfig> tasks = createTaskConfigs(4, false);
+    Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+        assignableInstanceManager.getAssignableInstanceNames(), tasks, quotaType);
+
+    // Release both tasks from one instance, which should then be at the top of the heap
+    String releasedInstance = results.get("task-0").getInstanceName();
+    for (TaskAssignResult result : results.values()) {
+      if (result.getInstanceName().equals(releasedInstance)) {
+        assignableInstanceManager.release(releasedInstance, result.getTaskConfig(), quotaType);
+      }
+    }
+    Assert.assertEquals(assignableInstanceManager.getAssignableInstanceHeap(quotaType).peek()
+        .getInstanceName(), releasedInstance);
+  }
+}
@@ -21,16 +21,11 @@ package org.apache.helix.task.assigner;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 
-import org.apache.helix.common.caches.TaskDataCache;
-import org.apache.helix.model.ClusterConfig;
-import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.TaskConfig;
@@ -222,38 +217,4 @@ public class TestThreadCountBasedTaskAssigner extends AssignerTestBase {
       Assert.assertEquals(rst.isSuccessful(), expected);
     }
   }
-
-  private List<TaskConfig> createTaskConfigs(int count) {
-    return createTaskConfigs(count, true);
-  }
-
-  private List<TaskConfig> createTaskConfigs(int count, boolean randomID) {
-    List<TaskConfig> tasks = new ArrayList<>();
-    for (int i = 0; i < count; i++) {
-      TaskConfig task =
-          new TaskConfig(null, null, randomID ? UUID.randomUUID().toString() : "task-" + i, null);
-      tasks.add(task);
-    }
-    return tasks;
-  }
-
-  private AssignableInstanceManager createAssignableInstanceManager(int count, int threadCount) {
-    AssignableInstanceManager assignableInstanceManager = new AssignableInstanceManager();
-    ClusterConfig clusterConfig = createClusterConfig(testQuotaTypes, testQuotaRatio, false);
-    String instanceNameFormat = "instance-%s";
-    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
-    for (int i = 0; i < count; i++) {
-      String instanceName = String.format(instanceNameFormat, i);
-      liveInstanceMap.put(instanceName, createLiveInstance(
-          new String[] { LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name() },
-          new String[] { Integer.toString(threadCount) }, instanceName));
-      instanceConfigMap.put(instanceName, new InstanceConfig(instanceName));
-    }
-
-    assignableInstanceManager
-        .buildAssignableInstances(clusterConfig, new TaskDataCache(testClusterName),
-            liveInstanceMap, instanceConfigMap);
-    return assignableInstanceManager;
-  }
 }
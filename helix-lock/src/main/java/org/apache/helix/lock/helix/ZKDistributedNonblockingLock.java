@@ -20,6 +20,9 @@ package org.apache.helix.lock.helix;
  */
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.helix.AccessOption;
@@ -43,9 +46,19 @@ import org.slf4j.LoggerFactory;
  * Helix nonblocking lock implementation based on Zookeeper.
  * NOTE: do NOT use ephemeral nodes in this implementation because ephemeral mode is not supported
  * in ZooScalability mode.
+ *
+ * In lease mode, the owner keeps the lease after unlock() until it expires or releaseLease() is
+ * called, and a tryLock() while the lease is valid is served locally without accessing ZK. The
+ * lease is renewed in the background while the lock is held. Any change of the lock node that
+ * makes another user the owner or the requestor revokes the lease.
  */
 public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataListener {
   private static final Logger LOG = LoggerFactory.getLogger(ZKDistributedNonblockingLock.class);
+  // The lease is served locally until this fraction of the lease timeout is left, to account for
+  // the clock skew with the other lock users
+  private static final double LEASE_SAFETY_MARGIN_RATIO = 0.1;
+  // The lease is renewed when this fraction of the remaining lease time has elapsed
+  private static final double LEASE_RENEW_RATIO = 0.5;
 
   private final String _lockPath;
   private final String _userId;
@@ -57,9 +70,15 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   private final boolean _isForceful;
   private final LockListener _lockListener;
   private final BaseDataAccessor<ZNRecord> _baseDataAccessor;
+  private final boolean _leaseMode;
   private LockConstants.LockStatus _lockStatus;
   private long _pendingTimeout;
   private CountDownLatch _countDownLatch = new CountDownLatch(1);
+  // Lease mode state, guarded by this
+  private long _leaseExpiry = -1;
+  private boolean _leaseHeld;
+  private ScheduledExecutorService _leaseRenewer;
+  private ScheduledFuture<?> _leaseRenewal;
 
   /**
    * Initialize the lock with user provided information, e.g.,cluster, scope, etc.
@@ -72,7 +91,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   public ZKDistributedNonblockingLock(LockScope scope, String zkAddress, Long leaseTimeout,
       String lockMsg, String userId) {
     this(scope.getPath(), leaseTimeout, lockMsg, userId, 0, Integer.MAX_VALUE, 0, false, null,
-        new ZkBaseDataAccessor<ZNRecord>(zkAddress));
+        false, new ZkBaseDataAccessor<ZNRecord>(zkAddress));
   }
 
   /**
@@ -82,7 +101,8 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     this(zkLockConfig.getLockScope(), zkLockConfig.getZkAddress(), zkLockConfig.getLeaseTimeout(),
         zkLockConfig.getLockMsg(), zkLockConfig.getUserId(), zkLockConfig.getPriority(),
         zkLockConfig.getWaitingTimeout(), zkLockConfig.getCleanupTimeout(),
-        zkLockConfig.getIsForceful(), zkLockConfig.getLockListener());
+        zkLockConfig.getIsForceful(), zkLockConfig.getLockListener(),
+        zkLockConfig.getLeaseMode());
   }
 
   /**
@@ -100,12 +120,13 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
    * @param isForceful whether the lock is a forceful one. This determines the behavior when the
    *                   lock encountered an exception during preempting lower priority lock
    * @param lockListener the listener associated to the lock
+   * @param leaseMode whether the lease is kept after unlock and re-acquired locally
    */
   private ZKDistributedNonblockingLock(LockScope scope, String zkAddress, Long leaseTimeout,
       String lockMsg, String userId, int priority, long waitingTimeout, long cleanupTimeout,
-      boolean isForceful, LockListener lockListener) {
+      boolean isForceful, LockListener lockListener, boolean leaseMode) {
     this(scope.getPath(), leaseTimeout, lockMsg, userId, priority, waitingTimeout, cleanupTimeout,
-        isForceful, lockListener, new ZkBaseDataAccessor<ZNRecord>(zkAddress));
+        isForceful, lockListener, leaseMode, new ZkBaseDataAccessor<ZNRecord>(zkAddress));
   }
 
   /**
@@ -122,11 +143,12 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
    * @param isForceful whether the lock is a forceful one. This determines the behavior when the
    *                   lock encountered an exception during preempting lower priority lock
    * @param lockListener the listener associated to the lock
+   * @param leaseMode whether the lease is kept after unlock and re-acquired locally
    * @param baseDataAccessor baseDataAccessor instance to do I/O against ZK with
    */
   private ZKDistributedNonblockingLock(String lockPath, Long leaseTimeout, String lockMsg,
       String userId, int priority, long waitingTimeout, long cleanupTimeout, boolean isForceful,
-      LockListener lockListener, BaseDataAccessor<ZNRecord> baseDataAccessor) {
+      LockListener lockListener, boolean leaseMode, BaseDataAccessor<ZNRecord> baseDataAccessor) {
     _lockPath = lockPath;
     if (leaseTimeout < 0 || waitingTimeout < 0 || cleanupTimeout < 0) {
       throw new IllegalArgumentException("Timeout cannot be negative.");
@@ -143,11 +165,24 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     _cleanupTimeout = cleanupTimeout;
     _lockListener = lockListener;
     _isForceful = isForceful;
+    _leaseMode = leaseMode;
     validateInput();
   }
 
   @Override
   public boolean tryLock() {
+    if (_leaseMode && tryLockWithLease()) {
+      return true;
+    }
+    long acquireTime = System.currentTimeMillis();
+    boolean locked = tryLockInZk();
+    if (locked && _leaseMode) {
+      onLeaseAcquired(acquireTime);
+    }
+    return locked;
+  }
+
+  private boolean tryLockInZk() {
     // Set lock information fields
     _baseDataAccessor.subscribeDataChanges(_lockPath, this);
     LockUpdater updater = new LockUpdater(
@@ -199,11 +234,124 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   //TODO: update release lock logic so it would not leave empty znodes after the lock is released
   @Override
   public boolean unlock() {
+    if (_leaseMode) {
+      synchronized (this) {
+        if (_leaseHeld && isLeaseValid()) {
+          // Keep the lease so that the next tryLock is served locally
+          _leaseHeld = false;
+          cancelLeaseRenewal();
+          return true;
+        }
+      }
+      revokeLease();
+    }
+    return unlockInZk();
+  }
+
+  /**
+   * Release the lock and the lease in lease mode, so that other users can acquire the lock
+   * before the lease expires
+   * @return true if the lock was released
+   */
+  public boolean releaseLease() {
+    revokeLease();
+    return unlockInZk();
+  }
+
+  private boolean unlockInZk() {
     // Initialize the lock updater with a default lock info represents the state of a unlocked lock
     LockUpdater updater = new LockUpdater(LockInfo.defaultLockInfo);
     return _baseDataAccessor.update(_lockPath, updater, AccessOption.PERSISTENT);
   }
 
+  private synchronized boolean tryLockWithLease() {
+    if (!isLeaseValid()) {
+      return false;
+    }
+    _leaseHeld = true;
+    scheduleLeaseRenewal();
+    return true;
+  }
+
+  private synchronized boolean isLeaseValid() {
+    if (_leaseExpiry == Long.MAX_VALUE) {
+      return true;
+    }
+    long margin = (long) (_leaseTimeout * LEASE_SAFETY_MARGIN_RATIO);
+    return System.currentTimeMillis() < _leaseExpiry - margin;
+  }
+
+  private synchronized void onLeaseAcquired(long acquireTime) {
+    _leaseExpiry = getNonOverflowTimestamp(acquireTime, _leaseTimeout);
+    _leaseHeld = true;
+    scheduleLeaseRenewal();
+  }
+
+  private synchronized void revokeLease() {
+    _leaseExpiry = -1;
+    _leaseHeld = false;
+    cancelLeaseRenewal();
+  }
+
+  private synchronized void scheduleLeaseRenewal() {
+    if (_leaseExpiry == Long.MAX_VALUE || (_leaseRenewal != null && !_leaseRenewal.isDone())) {
+      return;
+    }
+    if (_leaseRenewer == null) {
+      _leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ZKDistributedNonblockingLock-lease-" + _lockPath);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    long delay = (long) ((_leaseExpiry - System.currentTimeMillis()) * LEASE_RENEW_RATIO);
+    _leaseRenewal = _leaseRenewer.schedule(this::renewLease, Math.max(0, delay),
+        TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void cancelLeaseRenewal() {
+    if (_leaseRenewal != null) {
+      _leaseRenewal.cancel(false);
+      _leaseRenewal = null;
+    }
+  }
+
+  private void renewLease() {
+    synchronized (this) {
+      _leaseRenewal = null;
+      if (!_leaseHeld || !isLeaseValid()) {
+        return;
+      }
+    }
+    long renewTime = System.currentTimeMillis();
+    boolean renewed = false;
+    try {
+      renewed = _baseDataAccessor.update(_lockPath,
+          new LeaseRenewUpdater(getNonOverflowTimestamp(renewTime, _leaseTimeout)),
+          AccessOption.PERSISTENT);
+    } catch (Exception e) {
+      LOG.warn("User {} failed to renew the lease of lock {}", _userId, _lockPath, e);
+    }
+    synchronized (this) {
+      if (!renewed) {
+        LOG.warn("User {} lost the lease of lock {}", _userId, _lockPath);
+        revokeLease();
+      } else if (_leaseExpiry > 0) {
+        _leaseExpiry = getNonOverflowTimestamp(renewTime, _leaseTimeout);
+        if (_leaseHeld) {
+          scheduleLeaseRenewal();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the lock is currently held in lease mode without accessing ZK
+   */
+  public synchronized boolean isLeaseHeld() {
+    return _leaseHeld && isLeaseValid();
+  }
+
   @Override
   public LockInfo getCurrentLockInfo() {
     ZNRecord curLockInfo = _baseDataAccessor.get(_lockPath, null, AccessOption.PERSISTENT);
@@ -219,6 +367,18 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
 
   @Override
   public void close() {
+    if (_leaseMode && !isLeaseHeld()) {
+      // The lease kept after unlock is released with the lock
+      if (isCurrentOwner()) {
+        releaseLease();
+      }
+      synchronized (this) {
+        if (_leaseRenewer != null) {
+          _leaseRenewer.shutdownNow();
+          _leaseRenewer = null;
+        }
+      }
+    }
     if (isCurrentOwner()) {
       throw new HelixException("Please unlock the lock before closing it.");
     }
@@ -232,6 +392,24 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     ZNRecord readData =
         _baseDataAccessor.get(dataPath, stat, AccessOption.THROW_EXCEPTION_IFNOTEXIST);
     LockInfo lockInfo = new LockInfo(readData);
+    if (_leaseMode && (!isCurrentOwner(lockInfo) || !lockInfo.getRequestorId()
+        .equals(LockConstants.DEFAULT_USER_ID))) {
+      // Another user owns or requests the lock, stop serving it locally
+      boolean unlockedWithLease;
+      synchronized (this) {
+        unlockedWithLease = !_leaseHeld && _leaseExpiry > 0;
+        revokeLease();
+      }
+      if (unlockedWithLease && isCurrentOwner(lockInfo)) {
+        // The lock has been unlocked but was kept in ZK for the lease, so there is nothing to clean
+        // up. Clear the owner and keep the requestor, so that the requestor takes the lock.
+        if (!_baseDataAccessor.update(_lockPath, new CleanupUpdater(),
+            AccessOption.PERSISTENT)) {
+          LOG.warn("User {} failed to release the leased lock {}", _userId, _lockPath);
+        }
+        return;
+      }
+    }
     // We are the current owner
     if (isCurrentOwner(lockInfo)) {
       if (lockInfo.getRequestorId().equals(LockConstants.DEFAULT_USER_ID)
@@ -418,6 +596,29 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     }
   }
 
+  /**
+   * Class that specifies how the lock node is updated to extend the lease of the current owner
+   */
+  private class LeaseRenewUpdater implements DataUpdater<ZNRecord> {
+    private final long _timeout;
+
+    public LeaseRenewUpdater(long timeout) {
+      _timeout = timeout;
+    }
+
+    @Override
+    public ZNRecord update(ZNRecord current) {
+      LockInfo curLockInfo = new LockInfo(current);
+      if (isCurrentOwner(curLockInfo)) {
+        current.setLongField(LockInfo.LockInfoAttribute.TIMEOUT.name(), _timeout);
+        return current;
+      }
+      throw new HelixException(String
+          .format("User %s is not current lock owner, and cannot renew the lease of %s", _userId,
+              _lockPath));
+    }
+  }
+
   private ZNRecord composeNewRequestorRecord(LockInfo existingLockinfo,
       ZNRecord requestorLockZNRecord) {
     LockInfo lockInfo = new LockInfo(existingLockinfo.getOwner(), existingLockinfo.getMessage(),
@@ -441,10 +642,14 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   }
 
   private long getNonOverflowTimestamp(Long timePeriod) {
-    if (timePeriod > Long.MAX_VALUE - System.currentTimeMillis()) {
+    return getNonOverflowTimestamp(System.currentTimeMillis(), timePeriod);
+  }
+
+  private static long getNonOverflowTimestamp(long startTime, long timePeriod) {
+    if (timePeriod > Long.MAX_VALUE - startTime) {
       return Long.MAX_VALUE;
     } else {
-      return System.currentTimeMillis() + timePeriod;
+      return startTime + timePeriod;
     }
   }
 
@@ -466,6 +671,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     private long _cleanupTimeout;
     private boolean _isForceful;
     private LockListener _lockListener;
+    private boolean _leaseMode;
 
     public Builder() {
     }
@@ -515,6 +721,11 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
       return this;
     }
 
+    public Builder setLeaseMode(boolean leaseMode) {
+      _leaseMode = leaseMode;
+      return this;
+    }
+
     public ZKDistributedNonblockingLock build() {
       // Resolve which way we want to create BaseDataAccessor instance
       BaseDataAccessor<ZNRecord> baseDataAccessor;
@@ -531,7 +742,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
 
       // Return a ZKDistributedNonblockingLock instance
       return new ZKDistributedNonblockingLock(_lockScope.getPath(), _timeout, _lockMsg, _userId,
-          _priority, _waitingTimeout, _cleanupTimeout, _isForceful, _lockListener,
+          _priority, _waitingTimeout, _cleanupTimeout, _isForceful, _lockListener, _leaseMode,
           baseDataAccessor);
     }
   }
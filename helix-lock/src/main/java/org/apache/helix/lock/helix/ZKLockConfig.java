@@ -41,10 +41,11 @@ public class ZKLockConfig {
   private long _cleanupTimeout;
   private boolean _isForceful;
   private LockListener _lockListener;
+  private boolean _leaseMode;
 
   private ZKLockConfig(LockScope lockScope, String zkAddress, Long leaseTimeout, String lockMsg,
       String userId, int priority, long waitingTimeout, long cleanupTimeout, boolean isForceful,
-      LockListener lockListener) {
+      LockListener lockListener, boolean leaseMode) {
     _lockScope = lockScope;
     _zkAddress = zkAddress;
     _leaseTimeout = leaseTimeout;
@@ -55,6 +56,7 @@ public class ZKLockConfig {
     _cleanupTimeout = cleanupTimeout;
     _lockListener = lockListener;
     _isForceful = isForceful;
+    _leaseMode = leaseMode;
   }
 
   public LockScope getLockScope() {
@@ -97,6 +99,10 @@ public class ZKLockConfig {
     return _lockListener;
   }
 
+  public boolean getLeaseMode() {
+    return _leaseMode;
+  }
+
   /**
    * Builder class to use with ZKLockConfig.
    */
@@ -111,13 +117,14 @@ public class ZKLockConfig {
     private long _cleanupTimeout;
     private boolean _isForceful;
     private LockListener _lockListener;
+    private boolean _leaseMode;
 
     public Builder() {
     }
 
     public ZKLockConfig build() {
       return new ZKLockConfig(_lockScope, _zkAddress, _leaseTimeout, _lockMsg, _userId, _priority,
-          _waitingTimeout, _cleanupTimeout, _isForceful, _lockListener);
+          _waitingTimeout, _cleanupTimeout, _isForceful, _lockListener, _leaseMode);
     }
 
     public ZKLockConfig.Builder setLockScope(LockScope lockScope) {
@@ -169,5 +176,14 @@ public class ZKLockConfig {
       _lockListener = lockListener;
       return this;
     }
+
+    /**
+     * In lease mode the lock owner keeps the lease after unlock, and re-acquires the lock
+     * locally until the lease expires or is released
+     */
+    public ZKLockConfig.Builder setLeaseMode(boolean leaseMode) {
+      _leaseMode = leaseMode;
+      return this;
+    }
   }
 }
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.helix.lock.helix;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.TestHelper;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.zookeeper.data.Stat;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class TestZKHelixNonblockingLockLease extends ZkTestBase {
+  private static final int ITERATIONS = 200;
+
+  private final String _clusterName = TestHelper.getTestClassName();
+  private final List<ZKDistributedNonblockingLock> _locks = new ArrayList<>();
+  private HelixLockScope _lockScope;
+  private String _lockPath;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    System.out.println("START " + _clusterName + " at " + new Date(System.currentTimeMillis()));
+    List<String> pathKeys = new ArrayList<>();
+    pathKeys.add(_clusterName);
+    pathKeys.add(_clusterName);
+    _lockScope = new HelixLockScope(HelixLockScope.LockScopeProperty.CLUSTER, pathKeys);
+    _lockPath = _lockScope.getPath();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    for (ZKDistributedNonblockingLock lock : _locks) {
+      lock.releaseLease();
+      lock.close();
+    }
+    _locks.clear();
+    _gZkClient.delete(_lockPath);
+    Assert.assertFalse(_gZkClient.exists(_lockPath));
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    beforeMethod();
+    System.out.println("END " + _clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void testReacquireWithinLease() {
+    ZKDistributedNonblockingLock lock = createLock(UUID.randomUUID().toString(), 60000L, true);
+    Assert.assertTrue(lock.tryLock());
+    Assert.assertTrue(lock.isLeaseHeld());
+    int version = getLockVersion();
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(lock.unlock());
+      Assert.assertFalse(lock.isLeaseHeld());
+      // The lease is kept in ZK after unlock
+      Assert.assertTrue(lock.isCurrentOwner());
+      Assert.assertTrue(lock.tryLock());
+      Assert.assertTrue(lock.isLeaseHeld());
+    }
+    // Re-acquisitions within the lease do not write the lock node
+    Assert.assertEquals(getLockVersion(), version);
+
+    // Other users cannot acquire the lock until the lease is released
+    ZKDistributedNonblockingLock other = createLock(UUID.randomUUID().toString(), 60000L, true);
+    Assert.assertTrue(lock.unlock());
+    Assert.assertFalse(other.tryLock());
+    Assert.assertTrue(lock.releaseLease());
+    Assert.assertFalse(lock.isCurrentOwner());
+    Assert.assertTrue(other.tryLock());
+    Assert.assertTrue(other.isCurrentOwner());
+
+    // The lease of the previous owner is revoked, it has to go through ZK again
+    Assert.assertFalse(lock.tryLock());
+  }
+
+  @Test
+  public void testLeaseRenewal() throws Exception {
+    long leaseTimeout = 1000L;
+    ZKDistributedNonblockingLock lock = createLock(UUID.randomUUID().toString(), leaseTimeout, true);
+    ZKDistributedNonblockingLock other = createLock(UUID.randomUUID().toString(), leaseTimeout, true);
+    Assert.assertTrue(lock.tryLock());
+    int version = getLockVersion();
+
+    // The lease is renewed in the background while the lock is held
+    long end = System.currentTimeMillis() + 3 * leaseTimeout;
+    while (System.currentTimeMillis() < end) {
+      Assert.assertTrue(lock.isCurrentOwner());
+      Assert.assertFalse(other.tryLock());
+      Thread.sleep(100);
+    }
+    Assert.assertTrue(lock.isLeaseHeld());
+    Assert.assertTrue(getLockVersion() > version);
+  }
+
+  @Test
+  public void testLeaseExpiry() throws Exception {
+    long leaseTimeout = 500L;
+    ZKDistributedNonblockingLock lock = createLock(UUID.randomUUID().toString(), leaseTimeout, true);
+    ZKDistributedNonblockingLock other = createLock(UUID.randomUUID().toString(), leaseTimeout, true);
+    Assert.assertTrue(lock.tryLock());
+    Assert.assertTrue(lock.unlock());
+
+    // The lease is not renewed after unlock, so the lock is released when the lease expires
+    Assert.assertTrue(TestHelper.verify(() -> !lock.isCurrentOwner(), TestHelper.WAIT_DURATION));
+    Assert.assertFalse(lock.isLeaseHeld());
+    Assert.assertTrue(other.tryLock());
+    Assert.assertFalse(lock.tryLock());
+  }
+
+  @Test
+  public void testRequestorAcquiresUnlockedLease() {
+    ZKDistributedNonblockingLock lock = createLock(UUID.randomUUID().toString(), 60000L, true);
+    Assert.assertTrue(lock.tryLock());
+    Assert.assertTrue(lock.unlock());
+    Assert.assertTrue(lock.isCurrentOwner());
+
+    // The waiting requestor gets the lock without waiting for the kept lease to expire
+    ZKDistributedNonblockingLock requestor =
+        createLock(UUID.randomUUID().toString(), 60000L, true, 1);
+    Assert.assertTrue(requestor.tryLock());
+    Assert.assertTrue(requestor.isCurrentOwner());
+    Assert.assertTrue(requestor.isLeaseHeld());
+    Assert.assertFalse(lock.isCurrentOwner());
+    Assert.assertFalse(lock.isLeaseHeld());
+    Assert.assertFalse(lock.tryLock());
+  }
+
+  /**
+   * Compares the lock node updates per acquire with and without the lease mode, for a single user
+   * re-acquiring the lock and for two users contending for it.
+   */
+  @Test
+  public void testLeaseLockNodeUpdates() throws Exception {
+    double uncontended = runUncontended(false);
+    beforeMethod();
+    double uncontendedWithLease = runUncontended(true);
+    beforeMethod();
+    double contended = runContended(false);
+    beforeMethod();
+    double contendedWithLease = runContended(true);
+
+    // tryLock and unlock both update the lock node without lease
+    Assert.assertTrue(uncontended >= 2);
+    Assert.assertTrue(uncontendedWithLease < 0.1);
+    Assert.assertTrue(contendedWithLease < contended);
+  }
+
+  /**
+   * @return the lock node updates per acquire
+   */
+  private double runUncontended(boolean leaseMode) {
+    ZKDistributedNonblockingLock lock =
+        createLock(UUID.randomUUID().toString(), 60000L, leaseMode);
+    // Create the lock node
+    Assert.assertTrue(lock.tryLock());
+    Assert.assertTrue(lock.unlock());
+    int version = getLockVersion();
+    for (int i = 0; i < ITERATIONS; i++) {
+      Assert.assertTrue(lock.tryLock());
+      Assert.assertTrue(lock.unlock());
+    }
+    return (double) (getLockVersion() - version) / ITERATIONS;
+  }
+
+  /**
+   * Two users keep trying to acquire the lock
+   * @return the lock node updates per successful acquire
+   */
+  private double runContended(boolean leaseMode) throws Exception {
+    final List<ZKDistributedNonblockingLock> locks = new ArrayList<>();
+    locks.add(createLock(UUID.randomUUID().toString(), 60000L, leaseMode));
+    locks.add(createLock(UUID.randomUUID().toString(), 60000L, leaseMode));
+    // Create the lock node
+    Assert.assertTrue(locks.get(0).tryLock());
+    Assert.assertTrue(locks.get(0).releaseLease());
+    int version = getLockVersion();
+
+    ExecutorService executor = Executors.newFixedThreadPool(locks.size());
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (final ZKDistributedNonblockingLock lock : locks) {
+      futures.add(executor.submit(() -> {
+        int acquired = 0;
+        for (int i = 0; i < ITERATIONS / locks.size(); i++) {
+          if (lock.tryLock()) {
+            acquired++;
+            lock.unlock();
+          }
+        }
+        return acquired;
+      }));
+    }
+    int acquired = 0;
+    for (Future<Integer> future : futures) {
+      acquired += future.get(TestHelper.WAIT_DURATION, TimeUnit.MILLISECONDS);
+    }
+    executor.shutdown();
+    Assert.assertTrue(acquired > 0);
+    return (double) (getLockVersion() - version) / acquired;
+  }
+
+  private ZKDistributedNonblockingLock createLock(String userId, long leaseTimeout,
+      boolean leaseMode) {
+    return createLock(userId, leaseTimeout, leaseMode, 0);
+  }
+
+  private ZKDistributedNonblockingLock createLock(String userId, long leaseTimeout,
+      boolean leaseMode, int priority) {
+    ZKDistributedNonblockingLock lock =
+        new ZKDistributedNonblockingLock.Builder().setLockScope(_lockScope).setZkAddress(ZK_ADDR)
+            .setTimeout(leaseTimeout).setLockMsg("Test").setUserId(userId).setPriority(priority)
+            .setWaitingTimeout(TestHelper.WAIT_DURATION).setCleanupTimeout(TestHelper.WAIT_DURATION)
+            .setLeaseMode(leaseMode).build();
+    _locks.add(lock);
+    return lock;
+  }
+
+  private int getLockVersion() {
+    Stat stat = new Stat();
+    _gZkClient.readData(_lockPath, stat);
+    return stat.getVersion();
+  }
+}
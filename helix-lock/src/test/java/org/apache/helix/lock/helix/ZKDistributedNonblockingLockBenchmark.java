@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.helix.lock.helix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.TestHelper;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.ZkServer;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Compares the acquire latency and the lock node updates per acquire of
+ * {@link ZKDistributedNonblockingLock} with and without the lease mode, for a single user
+ * re-acquiring the lock and for two users contending for it. It is not part of the test suite
+ * since the latencies depend on the machine. An embedded ZooKeeper is started unless the address
+ * of a running one is given.
+ */
+public class ZKDistributedNonblockingLockBenchmark {
+  private static final String EMBEDDED_ZK_ADDR = "localhost:2199";
+  private static final int DEFAULT_ITERATIONS = 200;
+  private static final long LEASE_TIMEOUT = 60000L;
+
+  private final String _zkAddress;
+  private final int _iterations;
+  private final HelixLockScope _lockScope;
+  private final BaseDataAccessor<ZNRecord> _baseDataAccessor;
+  private final List<ZKDistributedNonblockingLock> _locks = new ArrayList<>();
+
+  private ZKDistributedNonblockingLockBenchmark(String zkAddress, int iterations) {
+    _zkAddress = zkAddress;
+    _iterations = iterations;
+    String clusterName = ZKDistributedNonblockingLockBenchmark.class.getSimpleName();
+    _lockScope = new HelixLockScope(HelixLockScope.LockScopeProperty.CLUSTER,
+        Arrays.asList(clusterName, clusterName));
+    _baseDataAccessor = new ZkBaseDataAccessor<>(zkAddress);
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 2) {
+      System.err.println(
+          "USAGE: java ZKDistributedNonblockingLockBenchmark [zkAddress [iterations]]");
+      System.exit(1);
+    }
+    int iterations = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+    ZkServer zkServer = args.length == 0 ? TestHelper.startZkServer(EMBEDDED_ZK_ADDR) : null;
+    ZKDistributedNonblockingLockBenchmark benchmark = new ZKDistributedNonblockingLockBenchmark(
+        args.length == 0 ? EMBEDDED_ZK_ADDR : args[0], iterations);
+    try {
+      double[] uncontended = benchmark.runUncontended(false);
+      double[] uncontendedWithLease = benchmark.runUncontended(true);
+      double[] contended = benchmark.runContended(false);
+      double[] contendedWithLease = benchmark.runContended(true);
+
+      System.out.println(String.format(
+          "Uncontended acquire: %.3f ms, %.2f ZK updates per acquire. With lease: %.3f ms, %.2f "
+              + "ZK updates per acquire", uncontended[0], uncontended[1],
+          uncontendedWithLease[0], uncontendedWithLease[1]));
+      System.out.println(String.format(
+          "Contended acquire: %.3f ms, %.2f ZK updates per acquire. With lease: %.3f ms, %.2f ZK "
+              + "updates per acquire", contended[0], contended[1], contendedWithLease[0],
+          contendedWithLease[1]));
+    } finally {
+      benchmark.reset();
+      benchmark._baseDataAccessor.close();
+      TestHelper.stopZkServer(zkServer);
+    }
+  }
+
+  /**
+   * @return the average acquire latency in ms and the lock node updates per acquire
+   */
+  private double[] runUncontended(boolean leaseMode) {
+    reset();
+    ZKDistributedNonblockingLock lock = createLock(leaseMode);
+    // Create the lock node
+    lock.tryLock();
+    lock.unlock();
+    int version = getLockVersion();
+    long latencyNs = 0;
+    for (int i = 0; i < _iterations; i++) {
+      long start = System.nanoTime();
+      if (!lock.tryLock()) {
+        throw new IllegalStateException("Failed to acquire the uncontended lock");
+      }
+      latencyNs += System.nanoTime() - start;
+      lock.unlock();
+    }
+    return new double[] {
+        latencyNs / 1e6 / _iterations, (double) (getLockVersion() - version) / _iterations
+    };
+  }
+
+  /**
+   * Two users keep trying to acquire the lock
+   * @return the average latency in ms and the lock node updates per successful acquire
+   */
+  private double[] runContended(boolean leaseMode) throws Exception {
+    reset();
+    final List<ZKDistributedNonblockingLock> locks =
+        Arrays.asList(createLock(leaseMode), createLock(leaseMode));
+    // Create the lock node
+    locks.get(0).tryLock();
+    locks.get(0).releaseLease();
+    int version = getLockVersion();
+
+    ExecutorService executor = Executors.newFixedThreadPool(locks.size());
+    List<Future<long[]>> futures = new ArrayList<>();
+    for (final ZKDistributedNonblockingLock lock : locks) {
+      futures.add(executor.submit(() -> {
+        long acquired = 0;
+        long latencyNs = 0;
+        for (int i = 0; i < _iterations / locks.size(); i++) {
+          long start = System.nanoTime();
+          boolean locked = lock.tryLock();
+          latencyNs += System.nanoTime() - start;
+          if (locked) {
+            acquired++;
+            lock.unlock();
+          }
+        }
+        return new long[] {
+            acquired, latencyNs
+        };
+      }));
+    }
+    long acquired = 0;
+    long latencyNs = 0;
+    for (Future<long[]> future : futures) {
+      long[] result = future.get();
+      acquired += result[0];
+      latencyNs += result[1];
+    }
+    executor.shutdown();
+    return new double[] {
+        latencyNs / 1e6 / _iterations,
+        (double) (getLockVersion() - version) / Math.max(acquired, 1)
+    };
+  }
+
+  private ZKDistributedNonblockingLock createLock(boolean leaseMode) {
+    ZKDistributedNonblockingLock lock =
+        new ZKDistributedNonblockingLock.Builder().setLockScope(_lockScope)
+            .setZkAddress(_zkAddress).setTimeout(LEASE_TIMEOUT).setLockMsg("Benchmark")
+            .setUserId(UUID.randomUUID().toString()).setLeaseMode(leaseMode).build();
+    _locks.add(lock);
+    return lock;
+  }
+
+  /**
+   * Close the locks of the previous run and remove the lock node
+   */
+  private void reset() {
+    for (ZKDistributedNonblockingLock lock : _locks) {
+      lock.releaseLease();
+      lock.close();
+    }
+    _locks.clear();
+    _baseDataAccessor.remove(_lockScope.getPath(), AccessOption.PERSISTENT);
+  }
+
+  private int getLockVersion() {
+    Stat stat = new Stat();
+    _baseDataAccessor.get(_lockScope.getPath(), stat, AccessOption.PERSISTENT);
+    return stat.getVersion();
+  }
+}
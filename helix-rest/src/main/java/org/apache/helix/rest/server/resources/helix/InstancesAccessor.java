@@ -20,8 +20,10 @@ package org.apache.helix.rest.server.resources.helix;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -78,7 +80,9 @@ public class InstancesAccessor extends AbstractHelixResource {
     skip_stoppable_check_list,
     customized_values,
     instance_stoppable_parallel,
-    instance_not_stoppable_with_reasons
+    instance_not_stoppable_with_reasons,
+    instanceTags,
+    instanceConfigs
   }
 
   public enum InstanceHealthSelectionBase {
@@ -191,6 +195,10 @@ public class InstancesAccessor extends AbstractHelixResource {
       if (node == null) {
         return badRequest("Invalid input for content : " + content);
       }
+      if (cmd == Command.update) {
+        // The instance configs carry their own instance names
+        return batchSetInstanceConfigs(clusterId, node);
+      }
       List<String> enableInstances = OBJECT_MAPPER
           .readValue(node.get(InstancesAccessor.InstancesProperties.instances.name()).toString(),
               OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, String.class));
@@ -201,6 +209,9 @@ public class InstancesAccessor extends AbstractHelixResource {
         case disable:
           admin.enableInstance(clusterId, enableInstances, false);
           break;
+        case addInstanceTag:
+        case removeInstanceTag:
+          return batchUpdateInstanceTags(clusterId, cmd, enableInstances, node);
         case stoppable:
           return batchGetStoppableInstances(clusterId, node, skipZKRead, continueOnFailures,
               skipHealthCheckCategorySet, random);
@@ -219,6 +230,39 @@ public class InstancesAccessor extends AbstractHelixResource {
     return OK();
   }
 
+  private Response batchUpdateInstanceTags(String clusterId, Command cmd, List<String> instances,
+      JsonNode node) throws IOException {
+    if (instances.isEmpty() || node.get(InstancesProperties.instanceTags.name()) == null) {
+      return badRequest("Both instances and instanceTags are required!");
+    }
+    List<String> tags =
+        OBJECT_MAPPER.readValue(node.get(InstancesProperties.instanceTags.name()).toString(),
+            OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, String.class));
+    HelixAdmin admin = getHelixAdmin();
+    // An instance succeeds only if all the tags have been updated
+    Map<String, Boolean> results = new LinkedHashMap<>();
+    for (String tag : tags) {
+      Map<String, Boolean> tagResults = cmd == Command.addInstanceTag
+          ? admin.addInstanceTag(clusterId, instances, tag)
+          : admin.removeInstanceTag(clusterId, instances, tag);
+      tagResults.forEach(
+          (instance, success) -> results.merge(instance, success, Boolean::logicalAnd));
+    }
+    return JSONRepresentation(results);
+  }
+
+  private Response batchSetInstanceConfigs(String clusterId, JsonNode node) throws IOException {
+    JsonNode configsNode = node.get(InstancesProperties.instanceConfigs.name());
+    if (configsNode == null || !configsNode.isArray()) {
+      return badRequest("Input does not contain a list of instanceConfigs!");
+    }
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (JsonNode configNode : configsNode) {
+      instanceConfigs.add(new InstanceConfig(toZNRecord(configNode.toString())));
+    }
+    return JSONRepresentation(getHelixAdmin().setInstanceConfigs(clusterId, instanceConfigs));
+  }
+
   private Response batchGetStoppableInstances(String clusterId, JsonNode node, boolean skipZKRead,
       boolean continueOnFailures, Set<StoppableCheck.Category> skipHealthCheckCategories,
       boolean random) throws IOException {
@@ -20,6 +20,7 @@ package org.apache.helix.rest.server.resources.helix;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,6 +41,7 @@ import javax.ws.rs.core.Response;
 import com.codahale.metrics.annotation.ResponseMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -72,6 +74,7 @@ public class ResourceAccessor extends AbstractHelixResource {
     externalView,
     externalViews,
     resourceConfig,
+    resources
   }
 
   public enum HealthStatus {
@@ -108,6 +111,71 @@ public class ResourceAccessor extends AbstractHelixResource {
     return JSONRepresentation(root);
   }
 
+  /**
+   * Bulk operations on resources. Each resource is reported separately in the response, as a map
+   * from resource name to whether the operation succeeded on it.
+   * addResource and update take {"idealStates": [ZNRecord, ...]}, delete takes
+   * {"resources": [resourceName, ...]}.
+   */
+  @ResponseMetered(name = HttpConstants.WRITE_REQUEST)
+  @Timed(name = HttpConstants.WRITE_REQUEST)
+  @POST
+  public Response resourcesOperations(@PathParam("clusterId") String clusterId,
+      @QueryParam("command") String command, String content) {
+    Command cmd;
+    try {
+      cmd = Command.valueOf(command);
+    } catch (Exception e) {
+      return badRequest("Invalid command : " + command);
+    }
+
+    HelixAdmin admin = getHelixAdmin();
+    try {
+      JsonNode node = null;
+      if (content != null && content.length() != 0) {
+        node = OBJECT_MAPPER.readTree(content);
+      }
+      if (node == null) {
+        return badRequest("Invalid input for content : " + content);
+      }
+      switch (cmd) {
+      case addResource:
+        return JSONRepresentation(admin.addResources(clusterId, toIdealStates(node)));
+      case update:
+        return JSONRepresentation(admin.setResourceIdealStates(clusterId, toIdealStates(node)));
+      case delete:
+        JsonNode resourcesNode = node.get(ResourceProperties.resources.name());
+        if (resourcesNode == null) {
+          return badRequest("Input does not contain a list of resources!");
+        }
+        List<String> resourceNames = OBJECT_MAPPER.readValue(resourcesNode.toString(),
+            OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, String.class));
+        return JSONRepresentation(admin.dropResources(clusterId, resourceNames));
+      default:
+        _logger.error("Unsupported command :" + command);
+        return badRequest("Unsupported command :" + command);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      _logger.error("Invalid input for resources operation: " + content, e);
+      return badRequest(e.getMessage());
+    } catch (Exception e) {
+      _logger.error("Failed in resources operation " + command + " in cluster " + clusterId, e);
+      return serverError(e);
+    }
+  }
+
+  private static List<IdealState> toIdealStates(JsonNode node) throws IOException {
+    JsonNode idealStatesNode = node.get(ResourceProperties.idealStates.name());
+    if (idealStatesNode == null || !idealStatesNode.isArray()) {
+      throw new IllegalArgumentException("Input does not contain a list of idealStates!");
+    }
+    List<IdealState> idealStates = new ArrayList<>();
+    for (JsonNode idealStateNode : idealStatesNode) {
+      idealStates.add(new IdealState(toZNRecord(idealStateNode.toString())));
+    }
+    return idealStates;
+  }
+
   /**
    * Returns health profile of all resources in the cluster
    * @param clusterId
@@ -352,13 +352,12 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
 
     // Use getTargetAssignmentForWagedFullAuto for Waged resources.
     ConfigAccessor cfgAccessor = getConfigAccessor();
-    List<ResourceConfig> wagedResourceConfigs = new ArrayList<>();
+    List<String> wagedResourceNames = new ArrayList<>();
     for (IdealState idealState : wagedResourceIdealState) {
-      ResourceConfig resourceConfig = cfgAccessor.getResourceConfig(clusterId, idealState.getResourceName());
-      if (resourceConfig != null) {
-        wagedResourceConfigs.add(resourceConfig);
-      }
+      wagedResourceNames.add(idealState.getResourceName());
     }
+    List<ResourceConfig> wagedResourceConfigs =
+        new ArrayList<>(cfgAccessor.getResourceConfigs(clusterId, wagedResourceNames).values());
 
     Map<String, ResourceAssignment> wagedAssignmentResult;
     wagedAssignmentResult = HelixUtil.getTargetAssignmentForWagedFullAuto(getZkBucketDataAccessor(),
@@ -640,6 +640,49 @@ public class TestResourceAccessor extends AbstractTestClass {
     Assert.assertEquals(node.get(resourceToValidate).toString(), "true");
   }
 
+  @Test(dependsOnMethods = "testValidateResource")
+  public void testBulkResourceOperations() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    List<ZNRecord> idealStates = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      IdealState idealState = new FullAutoModeISBuilder("bulkResource_" + i).setNumPartitions(4)
+          .setStateModel("OnlineOffline").setRebalancerMode(IdealState.RebalanceMode.FULL_AUTO)
+          .build();
+      idealStates.add(idealState.getRecord());
+    }
+    IdealState invalid = new IdealState("bulkResource_invalid");
+    invalid.setStateModelDefRef("UnknownStateModel");
+    idealStates.add(invalid.getRecord());
+
+    Entity entity = Entity.entity(OBJECT_MAPPER.writeValueAsString(
+        ImmutableMap.of(ResourceAccessor.ResourceProperties.idealStates.name(), idealStates)),
+        MediaType.APPLICATION_JSON_TYPE);
+    Response response = post("clusters/" + CLUSTER_NAME + "/resources",
+        ImmutableMap.of("command", "addResource"), entity, Response.Status.OK.getStatusCode(),
+        true);
+    Map<String, Boolean> results = OBJECT_MAPPER.readValue(response.readEntity(String.class),
+        new TypeReference<Map<String, Boolean>>() {
+        });
+    Assert.assertEquals(results, ImmutableMap.of("bulkResource_0", true, "bulkResource_1", true,
+        "bulkResource_2", true, "bulkResource_invalid", false));
+    Assert.assertEquals(_gSetupTool.getClusterManagementTool()
+        .getResourceIdealState(CLUSTER_NAME, "bulkResource_1").getNumPartitions(), 4);
+
+    entity = Entity.entity(OBJECT_MAPPER.writeValueAsString(
+        ImmutableMap.of(ResourceAccessor.ResourceProperties.resources.name(),
+            Arrays.asList("bulkResource_0", "bulkResource_1", "bulkResource_2"))),
+        MediaType.APPLICATION_JSON_TYPE);
+    response = post("clusters/" + CLUSTER_NAME + "/resources",
+        ImmutableMap.of("command", "delete"), entity, Response.Status.OK.getStatusCode(), true);
+    results = OBJECT_MAPPER.readValue(response.readEntity(String.class),
+        new TypeReference<Map<String, Boolean>>() {
+        });
+    Assert.assertEquals(results.values(), Arrays.asList(true, true, true));
+    Assert.assertNull(_gSetupTool.getClusterManagementTool()
+        .getResourceIdealState(CLUSTER_NAME, "bulkResource_0"));
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   /**
    * Creates a setup where the health API can be tested.
    * @param clusterName
@@ -40,6 +40,14 @@ public interface MetaClientInterface<T> {
     // An ephemeral node cannot have sub entry.
     PERSISTENT,
 
+    // An ephemeral node whose name is suffixed with a monotonically increasing counter maintained
+    // by the parent node.
+    EPHEMERAL_SEQUENTIAL,
+
+    // A persistent node whose name is suffixed with a monotonically increasing counter maintained
+    // by the parent node.
+    PERSISTENT_SEQUENTIAL,
+
     // For metadata storage that has hierarchical key space (e.g. ZK), the node will be
     // automatically deleted at some point in the future if the last child of the node is deleted.
     // For metadata storage that has non-hierarchical key space (e.g. etcd), the node will be
@@ -122,6 +122,10 @@ public class ZkMetaClientUtil {
         return CreateMode.EPHEMERAL;
       case CONTAINER:
         return CreateMode.CONTAINER;
+      case EPHEMERAL_SEQUENTIAL:
+        return CreateMode.EPHEMERAL_SEQUENTIAL;
+      case PERSISTENT_SEQUENTIAL:
+        return CreateMode.PERSISTENT_SEQUENTIAL;
       default:
         throw new IllegalArgumentException(entryMode.name() + " is not a supported EntryMode.");
     }
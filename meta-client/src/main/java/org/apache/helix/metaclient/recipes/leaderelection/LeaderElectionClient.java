@@ -19,7 +19,9 @@ package org.apache.helix.metaclient.recipes.leaderelection;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,6 +29,10 @@ import java.util.List;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.helix.metaclient.api.ConnectStateChangeListener;
 import org.apache.helix.metaclient.api.DataChangeListener;
@@ -63,6 +69,12 @@ import static org.apache.helix.metaclient.api.OpResult.Type.*;
  * election groups using the same client.
  * When the client is used by a leader election service, one client is created for each participant.
  *
+ * Optionally, the participants can register as candidates in a queue of sequential entries when
+ * joining the pool. The next candidate in line watches only the candidate right before it, and
+ * takes the leadership with a single create as soon as that candidate is gone, instead of all the
+ * participants racing on the leader entry. The failover time after a leader crash is still
+ * bounded by the session timeout, so a short session timeout is needed for sub-second failover.
+ *
  */
 public class LeaderElectionClient implements AutoCloseable {
 
@@ -78,6 +90,21 @@ public class LeaderElectionClient implements AutoCloseable {
   private final static String LEADER_ENTRY_KEY = "/LEADER";
   private final static String PARTICIPANTS_ENTRY_KEY = "/PARTICIPANTS";
   private final static String PARTICIPANTS_ENTRY_PARENT = "/PARTICIPANTS/";
+  private final static String CANDIDATES_ENTRY_KEY = "/CANDIDATES";
+  private final static String CANDIDATE_PREFIX = "candidate-";
+
+  // Whether the participants queue up as candidates, and the candidate entry of each group
+  private final boolean _candidateQueueEnabled;
+  private final Map<String, String> _candidatePaths = new ConcurrentHashMap<>();
+  private final Map<String, PredecessorListener> _predecessorListeners = new ConcurrentHashMap<>();
+  // The leader groups whose leader entry is watched. Only the first candidate in line watches it.
+  private final Set<String> _watchedLeaderEntries = ConcurrentHashMap.newKeySet();
+
+  // Time in ms from noticing the leader is gone to holding the leader entry
+  private final Histogram _leadershipAcquiredLatency = new Histogram(new ExponentiallyDecayingReservoir());
+  // Time in ms to delete the leader entry when giving up the leadership
+  private final Histogram _leadershipRelinquishedLatency = new Histogram(new ExponentiallyDecayingReservoir());
+
   ReElectListener _reElectListener = new ReElectListener();
   ConnectStateListener _connectStateListener = new ConnectStateListener();
 
@@ -90,7 +117,22 @@ public class LeaderElectionClient implements AutoCloseable {
    * @param metaClientConfig The config used to create an metaclient.
    */
   public LeaderElectionClient(MetaClientConfig metaClientConfig, String participant) {
+    this(metaClientConfig, participant, false);
+  }
+
+  /**
+   * Construct a LeaderElectionClient using a user passed in leaderElectionConfig. It creates a MetaClient
+   * instance underneath.
+   *
+   * @param metaClientConfig The config used to create an metaclient.
+   * @param candidateQueueEnabled If true, participants register as sequential candidates when joining
+   *                              a pool, and only the next candidate in line takes over the leadership.
+   *                              All the participants of a pool should use the same mode.
+   */
+  public LeaderElectionClient(MetaClientConfig metaClientConfig, String participant,
+      boolean candidateQueueEnabled) {
     _participant = participant;
+    _candidateQueueEnabled = candidateQueueEnabled;
     if (metaClientConfig == null) {
       throw new IllegalArgumentException("MetaClientConfig cannot be null.");
     }
@@ -120,6 +162,7 @@ public class LeaderElectionClient implements AutoCloseable {
    * @param metaClient metaClient object to be used.
    */
   public LeaderElectionClient(MetaClientInterface<LeaderInfo> metaClient, String participant) {
+    _candidateQueueEnabled = false;
     throw new UnsupportedOperationException("Not supported yet.");
   }
 
@@ -141,6 +184,7 @@ public class LeaderElectionClient implements AutoCloseable {
   public void joinLeaderElectionParticipantPool(String leaderPath) {
     subscribeAndTryCreateLeaderEntry(leaderPath);
     createParticipantInfo(leaderPath, new LeaderInfo(_participant));
+    joinCandidateQueue(leaderPath);
   }
 
   /**
@@ -156,6 +200,7 @@ public class LeaderElectionClient implements AutoCloseable {
 
     LeaderInfo participantInfo = new LeaderInfo(userInfo);
     createParticipantInfo(leaderPath, participantInfo);
+    joinCandidateQueue(leaderPath);
   }
 
   private void createParticipantInfo(String leaderPath, LeaderInfo participantInfo) {
@@ -189,7 +234,6 @@ public class LeaderElectionClient implements AutoCloseable {
   }
 
   private void subscribeAndTryCreateLeaderEntry(String leaderPath) {
-    _metaClient.subscribeDataChange(leaderPath + LEADER_ENTRY_KEY, _reElectListener, false);
     LeaderInfo leaderInfo = new LeaderInfo(LEADER_ENTRY_KEY);
     leaderInfo.setLeaderName(_participant);
 
@@ -200,6 +244,13 @@ public class LeaderElectionClient implements AutoCloseable {
       throw new MetaClientException("Parent entry in leaderGroup path" + leaderPath + " does not exist.");
     }
 
+    if (_candidateQueueEnabled) {
+      // The leader entry is watched and created by the first candidate in line after joining the queue
+      _leaderGroups.add(leaderPath + LEADER_ENTRY_KEY);
+      return;
+    }
+    _metaClient.subscribeDataChange(leaderPath + LEADER_ENTRY_KEY, _reElectListener, false);
+
     // create actual leader node
     try {
       LOG.info("{} joining leader group {}.", _participant, leaderPath);
@@ -212,6 +263,118 @@ public class LeaderElectionClient implements AutoCloseable {
     _leaderGroups.add(leaderPath + LEADER_ENTRY_KEY);
   }
 
+  private void joinCandidateQueue(String leaderPath) {
+    if (!_candidateQueueEnabled) {
+      return;
+    }
+    createPathIfNotExists(leaderPath + CANDIDATES_ENTRY_KEY);
+    _candidatePaths.put(leaderPath, createCandidateEntry(leaderPath));
+    checkCandidatePosition(leaderPath, System.currentTimeMillis());
+  }
+
+  private String createCandidateEntry(String leaderPath) {
+    List<OpResult> opResults = _metaClient.transactionOP(Collections.singletonList(
+        Op.create(leaderPath + CANDIDATES_ENTRY_KEY + "/" + CANDIDATE_PREFIX, new byte[0],
+            MetaClientInterface.EntryMode.EPHEMERAL_SEQUENTIAL)));
+    String candidatePath = ((OpResult.CreateResult) opResults.get(0)).getPath();
+    LOG.info("{} joined the candidate queue of leader group {} as {}.", _participant, leaderPath,
+        candidatePath);
+    return candidatePath;
+  }
+
+  /**
+   * Take the leadership if this participant is the first candidate in line, otherwise watch the
+   * candidate right before it.
+   * @param leaderPath The path for leader election.
+   * @param startTime The time in ms when the previous leader or candidate was noticed to be gone.
+   */
+  private synchronized void checkCandidatePosition(String leaderPath, long startTime) {
+    String candidatesPath = leaderPath + CANDIDATES_ENTRY_KEY;
+    while (true) {
+      String candidatePath = _candidatePaths.get(leaderPath);
+      if (candidatePath == null) {
+        // Already left the pool
+        return;
+      }
+      List<String> candidates = new ArrayList<>();
+      for (String child : _metaClient.getDirectChildrenKeys(candidatesPath)) {
+        if (child.startsWith(CANDIDATE_PREFIX)) {
+          candidates.add(child);
+        }
+      }
+      Collections.sort(candidates);
+      int index = candidates.indexOf(candidatePath.substring(candidatesPath.length() + 1));
+      if (index < 0) {
+        // The candidate entry is gone with an expired session, queue up again
+        LOG.info("{} lost its candidate entry {}, rejoining the queue.", _participant, candidatePath);
+        _candidatePaths.put(leaderPath, createCandidateEntry(leaderPath));
+        continue;
+      }
+      if (index == 0) {
+        unwatchPredecessor(leaderPath);
+        // Watch the leader entry before creating it, to retry once a previous leader entry is gone
+        watchLeaderEntry(leaderPath);
+        tryCreateLeaderEntry(leaderPath, startTime);
+        return;
+      }
+      unwatchLeaderEntry(leaderPath);
+      String predecessor = candidatesPath + "/" + candidates.get(index - 1);
+      watchPredecessor(leaderPath, predecessor);
+      if (_metaClient.exists(predecessor) != null) {
+        return;
+      }
+      // The predecessor is gone before the watch is installed, check again
+    }
+  }
+
+  private void watchPredecessor(String leaderPath, String predecessor) {
+    PredecessorListener listener = _predecessorListeners.get(leaderPath);
+    if (listener != null && listener._predecessor.equals(predecessor)) {
+      return;
+    }
+    unwatchPredecessor(leaderPath);
+    listener = new PredecessorListener(leaderPath, predecessor);
+    _predecessorListeners.put(leaderPath, listener);
+    _metaClient.subscribeDataChange(predecessor, listener, false);
+  }
+
+  private void unwatchPredecessor(String leaderPath) {
+    PredecessorListener listener = _predecessorListeners.remove(leaderPath);
+    if (listener != null) {
+      _metaClient.unsubscribeDataChange(listener._predecessor, listener);
+    }
+  }
+
+  private void watchLeaderEntry(String leaderPath) {
+    if (_watchedLeaderEntries.add(leaderPath)) {
+      _metaClient.subscribeDataChange(leaderPath + LEADER_ENTRY_KEY, _reElectListener, false);
+    }
+  }
+
+  private void unwatchLeaderEntry(String leaderPath) {
+    if (_watchedLeaderEntries.remove(leaderPath)) {
+      _metaClient.unsubscribeDataChange(leaderPath + LEADER_ENTRY_KEY, _reElectListener);
+    }
+  }
+
+  @VisibleForTesting
+  boolean isWatchingLeaderEntry(String leaderPath) {
+    return _watchedLeaderEntries.contains(leaderPath);
+  }
+
+  private void tryCreateLeaderEntry(String leaderPath, long startTime) {
+    LeaderInfo leaderInfo = new LeaderInfo(LEADER_ENTRY_KEY);
+    leaderInfo.setLeaderName(_participant);
+    try {
+      _metaClient.create(leaderPath + LEADER_ENTRY_KEY, leaderInfo, MetaClientInterface.EntryMode.EPHEMERAL);
+      _leadershipAcquiredLatency.update(System.currentTimeMillis() - startTime);
+      LOG.info("{} became the leader of leader group {}.", _participant, leaderPath);
+    } catch (MetaClientNodeExistsException ex) {
+      // The previous leader entry is not gone yet. The ReElectListener retries once it is deleted.
+      LOG.info("Already a leader in leader group {}.", leaderPath);
+    }
+  }
+
   /**
    * Any participant may exit the exitLeaderElectionParticipantPool by calling the API.
    * If the participant is not the current leader, it leaves the pool and won't participant future
@@ -226,6 +389,7 @@ public class LeaderElectionClient implements AutoCloseable {
    * @throws RuntimeException If the participant did not join participant pool via this client.
    */
   public void exitLeaderElectionParticipantPool(String leaderPath) {
+    _watchedLeaderEntries.remove(leaderPath);
     _metaClient.unsubscribeDataChange(leaderPath + LEADER_ENTRY_KEY, _reElectListener);
     // TODO: remove from pool folder
     relinquishLeaderHelper(leaderPath, true);
@@ -263,13 +427,28 @@ public class LeaderElectionClient implements AutoCloseable {
       _leaderGroups.remove(leaderPath + LEADER_ENTRY_KEY);
       _metaClient.delete(leaderPath + PARTICIPANTS_ENTRY_PARENT + _participant);
     }
+    // In the candidate queue mode, the candidate entry is deleted together with the leader entry,
+    // which wakes up the next candidate in line.
+    String candidatePath = null;
+    if (_candidateQueueEnabled) {
+      synchronized (this) {
+        candidatePath = _candidatePaths.remove(leaderPath);
+        unwatchPredecessor(leaderPath);
+        unwatchLeaderEntry(leaderPath);
+      }
+    }
+    boolean candidateDeleted = false;
     // check if current participant is the leader
     // read data and stats, check, and multi check + delete
     try {
       ImmutablePair<LeaderInfo, MetaClientInterface.Stat> tup = _metaClient.getDataAndStat(key);
       if (tup.left.getLeaderName().equalsIgnoreCase(_participant)) {
+        long startTime = System.currentTimeMillis();
         int expectedVersion = tup.right.getVersion();
-        List<Op> ops = Arrays.asList(Op.check(key, expectedVersion), Op.delete(key, expectedVersion));
+        List<Op> ops = new ArrayList<>(Arrays.asList(Op.check(key, expectedVersion), Op.delete(key, expectedVersion)));
+        if (candidatePath != null) {
+          ops.add(Op.delete(candidatePath, -1));
+        }
         //Execute transactional support on operations
         List<OpResult> opResults = _metaClient.transactionOP(ops);
         if (opResults.get(0).getType() == ERRORRESULT) {
@@ -279,11 +458,25 @@ public class LeaderElectionClient implements AutoCloseable {
           } else {
             LOG.info("Someone else is already leader");
           }
+        } else {
+          candidateDeleted = true;
+          _leadershipRelinquishedLatency.update(System.currentTimeMillis() - startTime);
         }
       }
     } catch (MetaClientNoNodeException ex) {
       LOG.info("No Leader for participant pool {} when exit the pool", leaderPath);
     }
+    if (candidatePath != null) {
+      if (exitLeaderElectionParticipantPool) {
+        if (!candidateDeleted) {
+          _metaClient.delete(candidatePath);
+        }
+      } else {
+        // Still in the pool. After giving up the leadership, queue up again behind the other candidates.
+        _candidatePaths.put(leaderPath, candidateDeleted ? createCandidateEntry(leaderPath) : candidatePath);
+        checkCandidatePosition(leaderPath, System.currentTimeMillis());
+      }
+    }
   }
 
   /**
@@ -364,6 +557,22 @@ public class LeaderElectionClient implements AutoCloseable {
     _metaClient.unsubscribeConnectStateChanges(adapter);
   }
 
+  /**
+   * Histogram of the time in ms from noticing that the previous leader is gone to holding the
+   * leader entry, for the leaderships acquired by this client.
+   */
+  public Histogram getLeadershipAcquiredLatencyHistogram() {
+    return _leadershipAcquiredLatency;
+  }
+
+  /**
+   * Histogram of the time in ms to give up the leadership, for the leaderships relinquished by
+   * this client.
+   */
+  public Histogram getLeadershipRelinquishedLatencyHistogram() {
+    return _leadershipRelinquishedLatency;
+  }
+
   @Override
   public void close() throws Exception {
 
@@ -388,11 +597,18 @@ public class LeaderElectionClient implements AutoCloseable {
         LOG.info("new leader for leader election group {}.", key);
       } else if (changeType == ChangeType.ENTRY_DELETED) {
         if (_leaderGroups.contains(key)) {
+          long startTime = System.currentTimeMillis();
+          if (_candidateQueueEnabled) {
+            // Only the first candidate in line takes over
+            checkCandidatePosition(key.substring(0, key.length() - LEADER_ENTRY_KEY.length()), startTime);
+            return;
+          }
           LeaderInfo lf = new LeaderInfo("LEADER");
           lf.setLeaderName(_participant);
           try {
             LOG.info("Leader gone for group {}, {} try to reelect.", key, _participant);
             _metaClient.create(key, lf, MetaClientInterface.EntryMode.EPHEMERAL);
+            _leadershipAcquiredLatency.update(System.currentTimeMillis() - startTime);
           } catch (MetaClientNodeExistsException ex) {
             LOG.info("Already a leader for leader election group {}.", key);
           }
@@ -401,6 +617,25 @@ public class LeaderElectionClient implements AutoCloseable {
     }
   }
 
+  class PredecessorListener implements DataChangeListener {
+    private final String _leaderPath;
+    private final String _predecessor;
+
+    PredecessorListener(String leaderPath, String predecessor) {
+      _leaderPath = leaderPath;
+      _predecessor = predecessor;
+    }
+
+    @Override
+    public void handleDataChange(String key, Object data, ChangeType changeType) throws Exception {
+      if (changeType == ChangeType.ENTRY_DELETED) {
+        LOG.info("Candidate {} gone, {} checks its position in leader group {}.", key, _participant,
+            _leaderPath);
+        checkCandidatePosition(_leaderPath, System.currentTimeMillis());
+      }
+    }
+  }
+
   class ConnectStateListener implements ConnectStateChangeListener {
 
     @Override
@@ -412,6 +647,10 @@ public class LeaderElectionClient implements AutoCloseable {
           _metaClient.create(leaderPath + PARTICIPANTS_ENTRY_PARENT + _participant, _participantInfos.get(leaderPath),
               MetaClientInterface.EntryMode.EPHEMERAL);
         }
+        // The candidate entries are gone with the expired session, queue up again
+        for (String leaderPath : _candidatePaths.keySet()) {
+          checkCandidatePosition(leaderPath, System.currentTimeMillis());
+        }
       } else if (prevState == MetaClientInterface.ConnectState.DISCONNECTED
           && currentState == MetaClientInterface.ConnectState.CONNECTED) {
         touchLeaderNode();
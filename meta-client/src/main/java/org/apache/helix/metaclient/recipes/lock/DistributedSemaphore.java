@@ -19,27 +19,34 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
-import org.apache.commons.lang3.NotImplementedException;
+import com.codahale.metrics.Histogram;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.helix.metaclient.api.MetaClientInterface;
+import org.apache.helix.metaclient.api.Op;
 import org.apache.helix.metaclient.datamodel.DataRecord;
+import org.apache.helix.metaclient.exception.MetaClientBadVersionException;
 import org.apache.helix.metaclient.exception.MetaClientException;
 import org.apache.helix.metaclient.factories.MetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientFactory;
 import org.apache.helix.metaclient.impl.zk.util.ZkMetaClientUtil;
+import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 public class DistributedSemaphore {
   private final MetaClientInterface<DataRecord> _metaClient;
+  private final FairWaitQueue _waitQueue;
   private String _path;
   private static final String INITIAL_CAPACITY_NAME = "INITIAL_CAPACITY";
   private static final String REMAINING_CAPACITY_NAME = "REMAINING_CAPACITY";
   private static final long DEFAULT_REMAINING_CAPACITY = -1;
+  private static final String WAIT_QUEUE_NAME = "WAIT_QUEUE";
   private static final Logger LOG = LoggerFactory.getLogger(DistributedSemaphore.class);
 
   /**
@@ -62,6 +69,7 @@ public class DistributedSemaphore {
     } else {
       throw new MetaClientException("Unsupported store type: " + config.getStoreType());
     }
+    _waitQueue = new FairWaitQueue(_metaClient);
   }
 
   /**
@@ -82,6 +90,7 @@ public class DistributedSemaphore {
     } catch (IllegalStateException e) {
       // Already connected.
     }
+    _waitQueue = new FairWaitQueue(_metaClient);
   }
 
   /**
@@ -124,12 +133,13 @@ public class DistributedSemaphore {
 
   /**
    * Acquire a permit. If no permit is available, log error and return null.
+   * This does not wait in the queue, and may take permits ahead of the waiting clients.
    * @return a permit
    */
   public Permit acquire() {
     try {
       updateAcquirePermit(1);
-      return retrievePermit(_path);
+      return retrievePermits(1).iterator().next();
     } catch (MetaClientException e) {
       LOG.error("Failed to acquire permit.", e);
       return null;
@@ -139,17 +149,14 @@ public class DistributedSemaphore {
 
   /**
    * Try to acquire multiple permits. If not enough permits are available, log error and return null.
+   * This does not wait in the queue, and may take permits ahead of the waiting clients.
    * @param count number of permits to acquire
    * @return a collection of permits
    */
   public Collection<Permit> acquire(int count) {
     try {
       updateAcquirePermit(count);
-      Collection<Permit> permits = new ArrayList<>();
-      for (int i = 0; i < count; i++) {
-        permits.add(retrievePermit(_path));
-      }
-      return permits;
+      return retrievePermits(count);
     } catch (MetaClientException e) {
       LOG.error("Failed to acquire permits.", e);
       return null;
@@ -159,13 +166,76 @@ public class DistributedSemaphore {
   /**
    * Try to acquire a permit. If no enough permit is available, wait for a specific time or return when it was able to acquire.
    * If timeout <=0, then return immediately when not able to acquire.
+   * The clients wait in a first-come first-served queue, and only the client at the head of the
+   * queue watches the semaphore, so returned permits wake exactly the next waiter. The permits
+   * are taken and the client leaves the queue in one transaction.
    * @param count number of permits to acquire
    * @param timeout time to wait
    * @param unit time unit
-   * @return a collection of permits
+   * @return a collection of permits, or null if they could not be acquired in time
    */
   public Collection<Permit> acquire(int count, long timeout, TimeUnit unit) {
-    throw new NotImplementedException("Not implemented yet.");
+    if (count <= 0) {
+      throw new MetaClientException("Count must be positive");
+    }
+    long startTime = System.currentTimeMillis();
+    long deadline = startTime + Math.max(0, unit.toMillis(timeout));
+    String waiterPath = _waitQueue.enqueue(_path + "/" + WAIT_QUEUE_NAME);
+    boolean dequeued = false;
+    try {
+      if (!_waitQueue.awaitHead(waiterPath, deadline)) {
+        return null;
+      }
+      while (true) {
+        ImmutablePair<DataRecord, MetaClientInterface.Stat> semaphore =
+            _metaClient.getDataAndStat(_path);
+        DataRecord record = new DataRecord(semaphore.getLeft());
+        int version = semaphore.getRight().getVersion();
+        long permitsAvailable =
+            record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
+        if (permitsAvailable >= count) {
+          record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable - count);
+          try {
+            _metaClient.transactionOP(Arrays.asList(
+                Op.set(_path, _metaClient.serialize(record, _path), version),
+                _waitQueue.dequeueOp(waiterPath)));
+            dequeued = true;
+            _waitQueue.recordWaitTime(startTime);
+            return retrievePermits(count);
+          } catch (ZkBadVersionException | MetaClientBadVersionException e) {
+            // The permits were returned or taken concurrently, check again
+            continue;
+          }
+        }
+        // Wait until permits are returned
+        if (!_waitQueue.awaitChange(_path,
+            stat -> stat != null && stat.getVersion() != version, deadline)) {
+          return null;
+        }
+      }
+    } finally {
+      if (!dequeued) {
+        try {
+          _waitQueue.dequeue(waiterPath);
+        } catch (MetaClientException e) {
+          LOG.warn("Failed to leave the wait queue of semaphore {}", _path, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Histogram of the number of clients waiting for permits, sampled when a client starts waiting
+   */
+  public Histogram getQueueLengthHistogram() {
+    return _waitQueue.getQueueLengthHistogram();
+  }
+
+  /**
+   * Histogram of the time in ms the clients waited for permits
+   */
+  public Histogram getWaitTimeHistogram() {
+    return _waitQueue.getWaitTimeHistogram();
   }
 
   /**
@@ -194,29 +264,46 @@ public class DistributedSemaphore {
     if (permit.isReleased()) {
       LOG.info("The permit has already been released");
     } else {
-      updateReturnPermit();
+      updateReturnPermit(1);
       permit.releasePermit();
     }
   }
 
   /**
-   * Return a collection of permits. If a permit in that collection is already returned,
-   * log and return void.
+   * Return a collection of permits in one update. If a permit in that collection is already
+   * returned, log and skip it.
    */
   public void returnAllPermits(Collection<Permit> permits) {
+    Collection<Permit> permitsToReturn = new ArrayList<>();
     for (Permit permit : permits) {
-      returnPermit(permit);
+      if (permit.isReleased()) {
+        LOG.info("The permit has already been released");
+      } else {
+        permitsToReturn.add(permit);
+      }
+    }
+    if (permitsToReturn.isEmpty()) {
+      return;
+    }
+    updateReturnPermit(permitsToReturn.size());
+    for (Permit permit : permitsToReturn) {
+      permit.releasePermit();
     }
   }
 
   /**
-   * Retrieve a permit from the semaphore data record.
-   * @param path path of the permit
-   * @return a permit
+   * Retrieve permits from the semaphore data record, reading it once for all the permits.
+   * @param count number of permits
+   * @return the permits
    */
-  private Permit retrievePermit(String path) {
-    MetaClientInterface.Stat stat = _metaClient.exists(path);
-    return new Permit(getSemaphore(), stat);
+  private Collection<Permit> retrievePermits(int count) {
+    ImmutablePair<DataRecord, MetaClientInterface.Stat> semaphore =
+        _metaClient.getDataAndStat(_path);
+    Collection<Permit> permits = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      permits.add(new Permit(new DataRecord(semaphore.getLeft()), semaphore.getRight()));
+    }
+    return permits;
   }
 
   /**
@@ -236,12 +323,13 @@ public class DistributedSemaphore {
   }
 
   /**
-   * Update the remaining capacity of the semaphore after returning a permit.
+   * Update the remaining capacity of the semaphore after returning permits.
+   * @param count number of permits to return
    */
-  private void updateReturnPermit() {
+  private void updateReturnPermit(int count) {
     _metaClient.update(_path, record -> {
       long permitsAvailable = record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
-      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable + 1);
+      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable + count);
       return record;
     });
   }
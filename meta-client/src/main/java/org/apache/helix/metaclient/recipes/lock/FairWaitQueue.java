@@ -0,0 +1,177 @@
+package org.apache.helix.metaclient.recipes.lock;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import org.apache.helix.metaclient.api.DataChangeListener;
+import org.apache.helix.metaclient.api.MetaClientInterface;
+import org.apache.helix.metaclient.api.Op;
+import org.apache.helix.metaclient.api.OpResult;
+import org.apache.helix.metaclient.exception.MetaClientException;
+import org.apache.helix.metaclient.exception.MetaClientInterruptException;
+import org.apache.helix.metaclient.exception.MetaClientNoNodeException;
+import org.apache.helix.metaclient.exception.MetaClientNodeExistsException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNodeExistsException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A fair wait queue built on ephemeral sequential entries. Each waiter watches only the entry
+ * right before it, so the removal of an entry wakes exactly the next waiter. The waiter at the
+ * head of the queue is the only one watching the guarded resource.
+ */
+class FairWaitQueue {
+  private static final String WAITER_PREFIX = "waiter-";
+  private static final byte[] EMPTY_DATA = new byte[0];
+
+  private final MetaClientInterface<?> _metaClient;
+  private final Histogram _queueLengthHistogram;
+  private final Histogram _waitTimeHistogram;
+
+  FairWaitQueue(MetaClientInterface<?> metaClient) {
+    _metaClient = metaClient;
+    _queueLengthHistogram = new Histogram(new ExponentiallyDecayingReservoir());
+    _waitTimeHistogram = new Histogram(new ExponentiallyDecayingReservoir());
+  }
+
+  /**
+   * Histogram of the number of waiters in the queue, sampled when a waiter joins the queue
+   */
+  Histogram getQueueLengthHistogram() {
+    return _queueLengthHistogram;
+  }
+
+  /**
+   * Histogram of the time in ms spent by the waiters in the queue
+   */
+  Histogram getWaitTimeHistogram() {
+    return _waitTimeHistogram;
+  }
+
+  /**
+   * Add a waiter at the tail of the queue
+   * @param queuePath path of the queue, created if it does not exist
+   * @return the path of the waiter entry
+   */
+  String enqueue(String queuePath) {
+    while (true) {
+      if (_metaClient.exists(queuePath) == null) {
+        try {
+          // A container entry is removed by the server once the queue is empty
+          _metaClient.transactionOP(Collections.singletonList(
+              Op.create(queuePath, EMPTY_DATA, MetaClientInterface.EntryMode.CONTAINER)));
+        } catch (ZkNodeExistsException | MetaClientNodeExistsException e) {
+          // Created by another waiter
+        }
+      }
+      try {
+        List<OpResult> results = _metaClient.transactionOP(Collections.singletonList(
+            Op.create(queuePath + "/" + WAITER_PREFIX, EMPTY_DATA,
+                MetaClientInterface.EntryMode.EPHEMERAL_SEQUENTIAL)));
+        return ((OpResult.CreateResult) results.get(0)).getPath();
+      } catch (ZkNoNodeException | MetaClientNoNodeException e) {
+        // The empty queue was removed by the server in between, create it again
+      }
+    }
+  }
+
+  /**
+   * @return the op removing the waiter, to be committed in the same transaction as the
+   *         acquisition of the guarded resource
+   */
+  Op dequeueOp(String waiterPath) {
+    return Op.delete(waiterPath, -1);
+  }
+
+  void dequeue(String waiterPath) {
+    _metaClient.delete(waiterPath);
+  }
+
+  void recordWaitTime(long startTime) {
+    _waitTimeHistogram.update(System.currentTimeMillis() - startTime);
+  }
+
+  /**
+   * Wait until the waiter is at the head of the queue
+   * @param waiterPath path of the waiter entry
+   * @param deadline time in ms to give up waiting
+   * @return true if the waiter is at the head of the queue, false if the deadline has passed
+   */
+  boolean awaitHead(String waiterPath, long deadline) {
+    String queuePath = waiterPath.substring(0, waiterPath.lastIndexOf('/'));
+    String waiterName = waiterPath.substring(queuePath.length() + 1);
+    boolean firstCheck = true;
+    while (true) {
+      List<String> waiters = _metaClient.getDirectChildrenKeys(queuePath).stream()
+          .filter(name -> name.startsWith(WAITER_PREFIX)).sorted().collect(Collectors.toList());
+      if (firstCheck) {
+        _queueLengthHistogram.update(waiters.size());
+        firstCheck = false;
+      }
+      int index = waiters.indexOf(waiterName);
+      if (index < 0) {
+        throw new MetaClientException("Waiter " + waiterPath + " is no longer in the queue");
+      }
+      if (index == 0) {
+        return true;
+      }
+      String predecessor = queuePath + "/" + waiters.get(index - 1);
+      if (!awaitChange(predecessor, stat -> stat == null, deadline)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Wait until the entry at the path changes so that the condition holds
+   * @param path path of the entry to watch
+   * @param condition condition on the stat of the entry, which is null if the entry is deleted
+   * @param deadline time in ms to give up waiting
+   * @return true if the condition holds, false if the deadline has passed
+   */
+  boolean awaitChange(String path, Predicate<MetaClientInterface.Stat> condition, long deadline) {
+    Semaphore changes = new Semaphore(0);
+    DataChangeListener listener = (key, data, changeType) -> changes.release();
+    _metaClient.subscribeDataChange(path, listener, false);
+    try {
+      // Check after subscribing, so that a change right before the subscription is not missed
+      while (!condition.test(_metaClient.exists(path))) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !changes.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+          return false;
+        }
+        changes.drainPermits();
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MetaClientInterruptException(e);
+    } finally {
+      _metaClient.unsubscribeDataChange(path, listener);
+    }
+  }
+}
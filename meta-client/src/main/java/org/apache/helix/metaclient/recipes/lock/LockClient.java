@@ -20,25 +20,32 @@ package org.apache.helix.metaclient.recipes.lock;
  */
 
 
+import com.codahale.metrics.Histogram;
 import org.apache.helix.metaclient.api.MetaClientInterface;
 import org.apache.helix.metaclient.api.Op;
 import org.apache.helix.metaclient.datamodel.DataRecord;
 import org.apache.helix.metaclient.exception.MetaClientException;
+import org.apache.helix.metaclient.exception.MetaClientNodeExistsException;
 import org.apache.helix.metaclient.factories.MetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientFactory;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNodeExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 public class LockClient implements LockClientInterface, AutoCloseable {
   private final MetaClientInterface<LockInfo> _metaClient;
+  private final FairWaitQueue _waitQueue;
   //NEW_METACLIENT is used to indicate whether the metaClient is created by the LockClient or not.
   private static Boolean NEW_METACLIENT = false;
   private static final Logger LOG = LoggerFactory.getLogger(LockClient.class);
+  private static final String WAIT_QUEUE_SUFFIX = "_WAIT_QUEUE";
 
   public LockClient(MetaClientConfig config) {
     if (config == null) {
@@ -56,6 +63,7 @@ public class LockClient implements LockClientInterface, AutoCloseable {
     } else {
       throw new MetaClientException("Unsupported store type: " + config.getStoreType());
     }
+    _waitQueue = new FairWaitQueue(_metaClient);
   }
 
   public LockClient(MetaClientInterface<LockInfo> client) {
@@ -71,6 +79,7 @@ public class LockClient implements LockClientInterface, AutoCloseable {
     } catch (IllegalStateException e) {
       // Already connected.
     }
+    _waitQueue = new FairWaitQueue(_metaClient);
   }
 
   @Override
@@ -78,6 +87,58 @@ public class LockClient implements LockClientInterface, AutoCloseable {
     _metaClient.create(key, lockInfo, mode);
   }
 
+  @Override
+  public boolean acquireLock(String key, LockInfo lockInfo, MetaClientInterface.EntryMode mode,
+      long timeout, TimeUnit unit) {
+    long startTime = System.currentTimeMillis();
+    long deadline = startTime + Math.max(0, unit.toMillis(timeout));
+    // The queue is a sibling of the lock entry, so that the lock can stay a leaf entry
+    String waiterPath = _waitQueue.enqueue(key + WAIT_QUEUE_SUFFIX);
+    boolean dequeued = false;
+    try {
+      if (!_waitQueue.awaitHead(waiterPath, deadline)) {
+        return false;
+      }
+      while (true) {
+        try {
+          _metaClient.transactionOP(Arrays.asList(
+              Op.create(key, _metaClient.serialize(lockInfo, key), mode),
+              _waitQueue.dequeueOp(waiterPath)));
+          dequeued = true;
+          _waitQueue.recordWaitTime(startTime);
+          return true;
+        } catch (ZkNodeExistsException | MetaClientNodeExistsException e) {
+          // The lock is held by another client
+        }
+        if (!_waitQueue.awaitChange(key, Objects::isNull, deadline)) {
+          return false;
+        }
+      }
+    } finally {
+      if (!dequeued) {
+        try {
+          _waitQueue.dequeue(waiterPath);
+        } catch (MetaClientException e) {
+          LOG.warn("Failed to leave the wait queue of lock {}", key, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Histogram of the number of clients waiting for a lock, sampled when a client starts waiting
+   */
+  public Histogram getQueueLengthHistogram() {
+    return _waitQueue.getQueueLengthHistogram();
+  }
+
+  /**
+   * Histogram of the time in ms the clients waited for a lock
+   */
+  public Histogram getWaitTimeHistogram() {
+    return _waitQueue.getWaitTimeHistogram();
+  }
+
   @Override
   public void acquireLockWithTTL(String key, LockInfo lockInfo, long ttl) {
     _metaClient.createWithTTL(key, lockInfo, ttl);
@@ -19,6 +19,8 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.helix.metaclient.api.MetaClientInterface;
 
 public interface LockClientInterface {
@@ -31,6 +33,21 @@ public interface LockClientInterface {
    */
   void acquireLock(String key, LockInfo info, MetaClientInterface.EntryMode mode);
 
+  /**
+   * Acquires a lock at key, waiting up to the timeout if the lock is held by another client.
+   * The waiting clients are served in the order they started waiting, and releasing the lock
+   * wakes only the next waiter.
+   * @param key key to identify the entry
+   * @param info Metadata of the lock
+   * @param mode EntryMode identifying if the entry will be deleted upon client disconnect
+   *             (Persistent, Ephemeral, or Container)
+   * @param timeout time to wait. If timeout <= 0, return immediately when not able to acquire.
+   * @param unit time unit
+   * @return true if the lock is acquired, false if the timeout has passed
+   */
+  boolean acquireLock(String key, LockInfo info, MetaClientInterface.EntryMode mode, long timeout,
+      TimeUnit unit);
+
   /**
    * Acquires a lock at key with a TTL. The lock will be deleted after the TTL.
    * @param key key to identify the entry
@@ -0,0 +1,179 @@
+package org.apache.helix.metaclient.recipes.leaderelection;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.metaclient.MetaClientTestUtil;
+import org.apache.helix.metaclient.factories.MetaClientConfig;
+import org.apache.helix.metaclient.impl.zk.ZkMetaClient;
+import org.apache.helix.metaclient.impl.zk.ZkMetaClientTestBase;
+import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.ZkServer;
+
+/**
+ * Measures the time from the leader leaving the participant pool to another participant being
+ * notified of the new leader, with and without the candidate queue. It is not part of the test
+ * suite since the failover time depends on the machine. An embedded ZooKeeper is started unless the
+ * address of a running one is given.
+ */
+public class LeaderElectionFailoverBenchmark {
+  private static final String EMBEDDED_ZK_ADDR = "localhost:2184";
+  private static final String LEADER_PATH = "/LEADER_ELECTION_FAILOVER_BENCHMARK";
+  private static final int DEFAULT_NUM_PARTICIPANTS = 5;
+  private static final int DEFAULT_NUM_FAILOVERS = 20;
+
+  private final String _zkAddress;
+  private final int _numParticipants;
+  private final int _numFailovers;
+
+  private LeaderElectionFailoverBenchmark(String zkAddress, int numParticipants,
+      int numFailovers) {
+    _zkAddress = zkAddress;
+    _numParticipants = numParticipants;
+    _numFailovers = numFailovers;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 3) {
+      System.err.println(
+          "USAGE: java LeaderElectionFailoverBenchmark [zkAddress [participants [failovers]]]");
+      System.exit(1);
+    }
+    int numParticipants = args.length >= 2 ? Integer.parseInt(args[1]) : DEFAULT_NUM_PARTICIPANTS;
+    int numFailovers = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_NUM_FAILOVERS;
+    ZkServer zkServer =
+        args.length == 0 ? ZkMetaClientTestBase.startZkServer(EMBEDDED_ZK_ADDR) : null;
+    LeaderElectionFailoverBenchmark benchmark = new LeaderElectionFailoverBenchmark(
+        args.length == 0 ? EMBEDDED_ZK_ADDR : args[0], numParticipants, numFailovers);
+    try {
+      benchmark.createLeaderPath();
+      long[] defaultMode = benchmark.measureFailover(LEADER_PATH + "/default", false);
+      long[] candidateQueueMode =
+          benchmark.measureFailover(LEADER_PATH + "/candidateQueue", true);
+      System.out.println(String.format(
+          "Failover with %d participants: default mode avg %.2f ms max %.2f ms, candidate queue "
+              + "avg %.2f ms max %.2f ms", numParticipants, defaultMode[0] / 1e6,
+          defaultMode[1] / 1e6, candidateQueueMode[0] / 1e6, candidateQueueMode[1] / 1e6));
+    } finally {
+      benchmark.removeLeaderPath();
+      if (zkServer != null) {
+        zkServer.shutdown();
+      }
+    }
+  }
+
+  /**
+   * @return the average and the max failover time in ns
+   */
+  private long[] measureFailover(String leaderPath, boolean candidateQueueEnabled)
+      throws Exception {
+    Map<String, LeaderElectionClient> clients = new HashMap<>();
+    for (int i = 0; i < _numParticipants; i++) {
+      String participant = "participant_" + i;
+      LeaderElectionClient client = createLeaderElectionClient(participant, candidateQueueEnabled);
+      client.joinLeaderElectionParticipantPool(leaderPath);
+      clients.put(participant, client);
+    }
+    LeaderElectionClient observer = createLeaderElectionClient("observer", candidateQueueEnabled);
+    BlockingQueue<String> newLeaders = new LinkedBlockingQueue<>();
+    LeaderElectionListenerInterface listener = (path, type, curLeader) -> {
+      if (type == LeaderElectionListenerInterface.ChangeType.LEADER_ACQUIRED) {
+        newLeaders.add(curLeader);
+      }
+    };
+    observer.subscribeLeadershipChanges(leaderPath, listener);
+    waitForLeader(observer, leaderPath);
+
+    long total = 0;
+    long max = 0;
+    try {
+      for (int i = 0; i < _numFailovers; i++) {
+        String leader = observer.getLeader(leaderPath);
+        newLeaders.clear();
+        long startTime = System.nanoTime();
+        clients.get(leader).exitLeaderElectionParticipantPool(leaderPath);
+        String newLeader;
+        do {
+          newLeader = newLeaders.poll(MetaClientTestUtil.WAIT_DURATION, TimeUnit.MILLISECONDS);
+          if (newLeader == null) {
+            throw new IllegalStateException("No new leader after " + leader + " left the pool");
+          }
+        } while (newLeader.isEmpty() || newLeader.equals(leader));
+        long failoverTime = System.nanoTime() - startTime;
+        total += failoverTime;
+        max = Math.max(max, failoverTime);
+        waitForLeader(observer, leaderPath);
+        clients.get(leader).joinLeaderElectionParticipantPool(leaderPath);
+      }
+    } finally {
+      observer.unsubscribeLeadershipChanges(leaderPath, listener);
+      observer.close();
+      for (LeaderElectionClient client : clients.values()) {
+        client.close();
+      }
+    }
+    return new long[]{total / _numFailovers, max};
+  }
+
+  private static void waitForLeader(LeaderElectionClient observer, String leaderPath)
+      throws Exception {
+    if (!MetaClientTestUtil.verify(() -> observer.getLeader(leaderPath) != null,
+        MetaClientTestUtil.WAIT_DURATION)) {
+      throw new IllegalStateException("No leader elected for " + leaderPath);
+    }
+  }
+
+  private LeaderElectionClient createLeaderElectionClient(String participantName,
+      boolean candidateQueueEnabled) {
+    MetaClientConfig config = new MetaClientConfig.MetaClientConfigBuilder<>()
+        .setConnectionAddress(_zkAddress).setStoreType(MetaClientConfig.StoreType.ZOOKEEPER)
+        .build();
+    return new LeaderElectionClient(config, participantName, candidateQueueEnabled);
+  }
+
+  private ZkMetaClient<ZNRecord> createZkMetaClient() {
+    ZkMetaClientConfig config =
+        new ZkMetaClientConfig.ZkMetaClientConfigBuilder().setConnectionAddress(_zkAddress)
+            .build();
+    ZkMetaClient<ZNRecord> client = new ZkMetaClient<>(config);
+    client.connect();
+    return client;
+  }
+
+  private void createLeaderPath() {
+    try (ZkMetaClient<ZNRecord> client = createZkMetaClient()) {
+      if (client.exists(LEADER_PATH) == null) {
+        client.create(LEADER_PATH, null);
+      }
+    }
+  }
+
+  private void removeLeaderPath() {
+    try (ZkMetaClient<ZNRecord> client = createZkMetaClient()) {
+      client.recursiveDelete(LEADER_PATH);
+    }
+  }
+}
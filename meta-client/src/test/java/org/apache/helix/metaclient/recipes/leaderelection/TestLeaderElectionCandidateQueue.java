@@ -0,0 +1,162 @@
+package org.apache.helix.metaclient.recipes.leaderelection;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.helix.metaclient.MetaClientTestUtil;
+import org.apache.helix.metaclient.factories.MetaClientConfig;
+import org.apache.helix.metaclient.impl.zk.ZkMetaClient;
+import org.apache.helix.metaclient.impl.zk.ZkMetaClientTestBase;
+import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class TestLeaderElectionCandidateQueue extends ZkMetaClientTestBase {
+
+  private static final String LEADER_PATH = "/LEADER_ELECTION_GROUP_CANDIDATE_QUEUE";
+  private static final int NUM_PARTICIPANTS = 5;
+  private static final int NUM_FAILOVERS = 20;
+
+  private static LeaderElectionClient createLeaderElectionClient(String participantName,
+      boolean candidateQueueEnabled) {
+    MetaClientConfig config = new MetaClientConfig.MetaClientConfigBuilder<>().setConnectionAddress(ZK_ADDR)
+        .setStoreType(MetaClientConfig.StoreType.ZOOKEEPER).build();
+    return new LeaderElectionClient(config, participantName, candidateQueueEnabled);
+  }
+
+  @BeforeClass
+  public void createLeaderPath() {
+    ZkMetaClientConfig config = new ZkMetaClientConfig.ZkMetaClientConfigBuilder().setConnectionAddress(ZK_ADDR)
+        .build();
+    try (ZkMetaClient<ZNRecord> client = new ZkMetaClient<>(config)) {
+      client.connect();
+      client.create(LEADER_PATH, null);
+    }
+  }
+
+  @AfterTest
+  @Override
+  public void cleanUp() {
+    ZkMetaClientConfig config = new ZkMetaClientConfig.ZkMetaClientConfigBuilder().setConnectionAddress(ZK_ADDR)
+        .build();
+    try (ZkMetaClient<ZNRecord> client = new ZkMetaClient<>(config)) {
+      client.connect();
+      client.recursiveDelete(LEADER_PATH);
+    }
+  }
+
+  @Test
+  public void testLeadershipPassedInOrder() throws Exception {
+    String leaderPath = LEADER_PATH + "/testLeadershipPassedInOrder";
+    List<LeaderElectionClient> clients = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      LeaderElectionClient client = createLeaderElectionClient("participant_" + i, true);
+      client.joinLeaderElectionParticipantPool(leaderPath);
+      clients.add(client);
+    }
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> clients.get(0).isLeader(leaderPath),
+        MetaClientTestUtil.WAIT_DURATION));
+    Assert.assertEquals(clients.get(0).getParticipants(leaderPath).size(), 3);
+    // Only the first candidate in line watches the leader entry
+    Assert.assertTrue(clients.get(0).isWatchingLeaderEntry(leaderPath));
+    Assert.assertFalse(clients.get(1).isWatchingLeaderEntry(leaderPath));
+    Assert.assertFalse(clients.get(2).isWatchingLeaderEntry(leaderPath));
+
+    // The next candidate in line takes over, not the last one
+    clients.get(0).exitLeaderElectionParticipantPool(leaderPath);
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> clients.get(1).isLeader(leaderPath),
+        MetaClientTestUtil.WAIT_DURATION));
+    Assert.assertFalse(clients.get(0).isWatchingLeaderEntry(leaderPath));
+    Assert.assertTrue(clients.get(1).isWatchingLeaderEntry(leaderPath));
+    Assert.assertFalse(clients.get(2).isWatchingLeaderEntry(leaderPath));
+
+    // A participant relinquishing the leadership queues up again behind the others
+    clients.get(1).relinquishLeader(leaderPath);
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> clients.get(2).isLeader(leaderPath),
+        MetaClientTestUtil.WAIT_DURATION));
+    clients.get(2).relinquishLeader(leaderPath);
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> clients.get(1).isLeader(leaderPath),
+        MetaClientTestUtil.WAIT_DURATION));
+    Assert.assertTrue(clients.get(1).isWatchingLeaderEntry(leaderPath));
+    Assert.assertFalse(clients.get(2).isWatchingLeaderEntry(leaderPath));
+
+    Assert.assertEquals(clients.get(0).getLeadershipRelinquishedLatencyHistogram().getCount(), 1);
+    Assert.assertEquals(clients.get(1).getLeadershipAcquiredLatencyHistogram().getCount(), 2);
+    Assert.assertEquals(clients.get(1).getLeadershipRelinquishedLatencyHistogram().getCount(), 1);
+    Assert.assertEquals(clients.get(2).getLeadershipAcquiredLatencyHistogram().getCount(), 1);
+
+    for (LeaderElectionClient client : clients) {
+      client.close();
+    }
+  }
+
+  /**
+   * Fails the leader over repeatedly. Each leader joins the pool again after leaving it, so the
+   * leadership goes round the participants in the order they joined, and only the current leader
+   * watches the leader entry.
+   */
+  @Test(dependsOnMethods = "testLeadershipPassedInOrder")
+  public void testFailoverOrder() throws Exception {
+    String leaderPath = LEADER_PATH + "/testFailoverOrder";
+    List<LeaderElectionClient> clients = new ArrayList<>();
+    for (int i = 0; i < NUM_PARTICIPANTS; i++) {
+      LeaderElectionClient client = createLeaderElectionClient("participant_" + i, true);
+      client.joinLeaderElectionParticipantPool(leaderPath);
+      clients.add(client);
+    }
+
+    for (int i = 0; i < NUM_FAILOVERS; i++) {
+      LeaderElectionClient leader = clients.get(i % NUM_PARTICIPANTS);
+      Assert.assertTrue(MetaClientTestUtil.verify(() -> leader.isLeader(leaderPath),
+          MetaClientTestUtil.WAIT_DURATION));
+      Assert.assertTrue(MetaClientTestUtil.verify(
+          () -> getLeaderEntryWatcherCount(clients, leaderPath) == 1,
+          MetaClientTestUtil.WAIT_DURATION));
+      Assert.assertTrue(leader.isWatchingLeaderEntry(leaderPath));
+
+      leader.exitLeaderElectionParticipantPool(leaderPath);
+      LeaderElectionClient nextLeader = clients.get((i + 1) % NUM_PARTICIPANTS);
+      Assert.assertTrue(MetaClientTestUtil.verify(() -> nextLeader.isLeader(leaderPath),
+          MetaClientTestUtil.WAIT_DURATION));
+      leader.joinLeaderElectionParticipantPool(leaderPath);
+    }
+
+    for (LeaderElectionClient client : clients) {
+      client.close();
+    }
+  }
+
+  private static int getLeaderEntryWatcherCount(List<LeaderElectionClient> clients,
+      String leaderPath) {
+    int count = 0;
+    for (LeaderElectionClient client : clients) {
+      if (client.isWatchingLeaderEntry(leaderPath)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
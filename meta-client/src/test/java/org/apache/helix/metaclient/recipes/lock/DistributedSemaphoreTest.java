@@ -24,7 +24,15 @@ import org.apache.helix.metaclient.impl.zk.ZkMetaClientTestBase;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class DistributedSemaphoreTest extends ZkMetaClientTestBase {
 
@@ -98,8 +106,77 @@ public class DistributedSemaphoreTest extends ZkMetaClientTestBase {
   }
 
   @Test
-  public void testTryAcquirePermit() {
-    // Not implemented
+  public void testTryAcquirePermit() throws Exception {
+    final String key = "/TestSemaphore_testTryAcquirePermit";
+    int capacity = 5;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+
+    // Batch acquire in one transaction
+    Collection<Permit> permits = semaphoreClient.acquire(4, 1, TimeUnit.SECONDS);
+    Assert.assertNotNull(permits);
+    Assert.assertEquals(permits.size(), 4);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 1);
+
+    // Not enough permits, return immediately or after the timeout
+    Assert.assertNull(semaphoreClient.acquire(2, 0, TimeUnit.MILLISECONDS));
+    long startTime = System.currentTimeMillis();
+    Assert.assertNull(semaphoreClient.acquire(2, 200, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 200);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 1);
+
+    // A waiter is woken once enough permits are returned
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Collection<Permit>> waiter =
+          executor.submit(() -> semaphoreClient.acquire(3, 10, TimeUnit.SECONDS));
+      Thread.sleep(200);
+      Assert.assertFalse(waiter.isDone());
+      semaphoreClient.returnAllPermits(permits);
+      Collection<Permit> waiterPermits = waiter.get(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(waiterPermits);
+      Assert.assertEquals(waiterPermits.size(), 3);
+      Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 2);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(semaphoreClient.getQueueLengthHistogram().getCount(), 4);
+    Assert.assertEquals(semaphoreClient.getWaitTimeHistogram().getCount(), 2);
+  }
+
+  @Test
+  public void testTryAcquirePermitInOrder() throws Exception {
+    final String key = "/TestSemaphore_testTryAcquirePermitInOrder";
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, 1);
+    Permit permit = semaphoreClient.acquire();
+    Assert.assertNotNull(permit);
+
+    // The first waiter wants 1 permit and the second waiter wants 1 permit. Waiters are served
+    // in order, and each returned permit wakes the next waiter.
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<?>> waiters = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        final int waiterId = i;
+        waiters.add(executor.submit(() -> {
+          Collection<Permit> permits = semaphoreClient.acquire(1, 10, TimeUnit.SECONDS);
+          Assert.assertNotNull(permits);
+          order.add(waiterId);
+          semaphoreClient.returnAllPermits(permits);
+        }));
+        // Make sure the waiters join the queue in order
+        Thread.sleep(200);
+      }
+      semaphoreClient.returnPermit(permit);
+      for (Future<?> waiter : waiters) {
+        waiter.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(order, Arrays.asList(0, 1));
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 1);
   }
 
 }
@@ -25,6 +25,11 @@ import org.apache.helix.metaclient.impl.zk.ZkMetaClientTestBase;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 public class LockClientTest extends ZkMetaClientTestBase {
 
   private static final String TEST_INVALID_PATH = "/_invalid/a/b/c";
@@ -68,6 +73,34 @@ public class LockClientTest extends ZkMetaClientTestBase {
     }
   }
 
+  @Test
+  public void testAcquireLockWithTimeout() throws Exception {
+    final String key = "/TestLockClient_testAcquireLockWithTimeout";
+    LockClient lockClient = createLockClient();
+    LockClient otherLockClient = createLockClient();
+    LockInfo lockInfo = createLockInfo();
+    Assert.assertTrue(lockClient.acquireLock(key, lockInfo, MetaClientInterface.EntryMode.EPHEMERAL,
+        1, TimeUnit.SECONDS));
+    Assert.assertFalse(otherLockClient.acquireLock(key, lockInfo,
+        MetaClientInterface.EntryMode.EPHEMERAL, 200, TimeUnit.MILLISECONDS));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> waiter = executor.submit(() -> otherLockClient.acquireLock(key, lockInfo,
+          MetaClientInterface.EntryMode.EPHEMERAL, 10, TimeUnit.SECONDS));
+      Thread.sleep(200);
+      Assert.assertFalse(waiter.isDone());
+      lockClient.releaseLock(key);
+      Assert.assertTrue(waiter.get(10, TimeUnit.SECONDS));
+      Assert.assertNotNull(lockClient.retrieveLock(key));
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(otherLockClient.getQueueLengthHistogram().getCount(), 2);
+    Assert.assertEquals(otherLockClient.getWaitTimeHistogram().getCount(), 1);
+    otherLockClient.releaseLock(key);
+  }
+
   @Test
   public void testReleaseLock() {
     final String key = "/TestLockClient_testReleaseLock";
@@ -19,21 +19,26 @@ package org.apache.helix.filestore;
  * under the License.
  */
 
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.helix.filestore.FileSystemWatchService.ChangeType;
 
+/**
+ * Appends the changes to a change log made of memory-mapped {@link ChangeLogSegment}s. A new
+ * segment is started when the current one is full, and only the latest segments are retained.
+ */
 public class ChangeLogGenerator implements FileChangeWatcher {
+  static final int MAX_ENTRIES_PER_SEGMENT = 10000;
+  static final int MAX_SEGMENTS_RETAINED = 20;
+
   Lock lock;
   private long currentSeq;
   private long currentGen;
-  private int entriesLogged;
-  private DataOutputStream out;
+  private ChangeLogSegment segment;
   private final String directory;
 
   public ChangeLogGenerator(String directory, long startGen, long startSeq) throws Exception {
@@ -45,29 +50,26 @@ public class ChangeLogGenerator implements FileChangeWatcher {
   }
 
   private void setLogFile() throws Exception {
-    File file = new File(directory);
-    String[] list = file.list();
-    if (list == null) {
-      list = new String[] {};
-    }
-    int max = 1;
-    for (String name : list) {
-      String[] split = name.split("\\.");
-      if (split.length == 2) {
-        try {
-          int index = Integer.parseInt(split[1]);
-          if (index > max) {
-            max = index;
-          }
-        } catch (NumberFormatException e) {
-          System.err.println("Invalid transaction log file found:" + name);
-        }
+    List<Integer> numbers = ChangeLogSegment.listSegmentNumbers(directory);
+    int max = numbers.isEmpty() ? 1 : numbers.get(numbers.size() - 1);
+    openSegment(max);
+  }
+
+  private void openSegment(int number) throws IOException {
+    segment = ChangeLogSegment.openForAppend(directory, number, ChangeLogSegment.DEFAULT_CAPACITY);
+    System.out.println("Current file name:" + directory + "/" + segment.getFileName());
+  }
+
+  private void rollSegment() throws IOException {
+    segment.force();
+    openSegment(segment.getNumber() + 1);
+    List<Integer> numbers = ChangeLogSegment.listSegmentNumbers(directory);
+    for (int i = 0; i < numbers.size() - MAX_SEGMENTS_RETAINED; i++) {
+      File oldSegment = new File(directory, ChangeLogSegment.FILE_PREFIX + numbers.get(i));
+      if (!oldSegment.delete()) {
+        System.err.println("Unable to delete transaction log file:" + oldSegment);
       }
     }
-
-    String transLogFile = directory + "/" + "log." + (max);
-    System.out.println("Current file name:" + transLogFile);
-    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(transLogFile, true)));
   }
 
   @Override
@@ -113,16 +115,11 @@ public class ChangeLogGenerator implements FileChangeWatcher {
   }
 
   private void write(ChangeRecord record) throws Exception {
-    out.writeLong(record.txid);
-    out.writeShort(record.type);
-    out.writeLong(record.timestamp);
-    out.writeUTF(record.file);
-    out.flush();
-    entriesLogged++;
-    if (entriesLogged == 10000) {
-      entriesLogged = 0;
-      out.close();
-      setLogFile();
+    if (segment.getRecordCount() >= MAX_ENTRIES_PER_SEGMENT || !segment.append(record)) {
+      rollSegment();
+      if (!segment.append(record)) {
+        throw new IOException("Change record does not fit in an empty segment: " + record);
+      }
     }
   }
 
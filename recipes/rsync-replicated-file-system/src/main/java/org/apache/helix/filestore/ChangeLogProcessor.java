@@ -25,23 +25,24 @@ import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Processes the change log and invokes rsync for every change on the remote
+ * Processes the change log and replicates the changed files from the remote
  * machine
  */
 public class ChangeLogProcessor implements Runnable {
   private final ChangeLogReader reader;
-  RsyncInvoker rsyncInvoker;
+  FileReplicationClient replicationClient;
   private AtomicBoolean shutdownRequested;
   private CheckpointFile checkpointFile;
   private Thread thread;
 
-  public ChangeLogProcessor(ChangeLogReader reader, String remoteHost, String remoteBaseDir,
-      String localBaseDir, String checkpointDirPath) throws Exception {
+  public ChangeLogProcessor(ChangeLogReader reader, String remoteHost, int remotePort,
+      String localChangeLogDir, String localBaseDir, String checkpointDirPath) throws Exception {
     this.reader = reader;
     checkpointFile = new CheckpointFile(checkpointDirPath);
 
     shutdownRequested = new AtomicBoolean(false);
-    rsyncInvoker = new RsyncInvoker(remoteHost, remoteBaseDir, localBaseDir);
+    replicationClient =
+        new FileReplicationClient(remoteHost, remotePort, localChangeLogDir, localBaseDir);
   }
 
   public void start() {
@@ -56,11 +57,16 @@ public class ChangeLogProcessor implements Runnable {
         try {
           List<ChangeRecord> changes = reader.getChangeSince(lastRecordProcessed);
           Set<String> paths = getRemotePathsToSync(changes);
-          for (String path : paths) {
-            rsyncInvoker.rsync(path);
+          if (!replicationClient.replicate(paths)) {
+            // retry the same changes
+            Thread.sleep(1000);
+            continue;
           }
           lastRecordProcessed = changes.get(changes.size() - 1);
           checkpointFile.checkpoint(lastRecordProcessed);
+          replicationClient.ack(lastRecordProcessed);
+          System.out.println("Replicated " + paths.size() + " files. "
+              + replicationClient.getStats());
         } catch (Exception e) {
           e.printStackTrace();
         }
@@ -81,6 +87,7 @@ public class ChangeLogProcessor implements Runnable {
   public void stop() {
     shutdownRequested.set(true);
     thread.interrupt();
+    replicationClient.stop();
   }
 
 }
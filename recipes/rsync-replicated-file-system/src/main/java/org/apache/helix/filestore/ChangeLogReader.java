@@ -19,21 +19,26 @@ package org.apache.helix.filestore;
  * under the License.
  */
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Reads the change log segments written by {@link ChangeLogGenerator}. The records are read from
+ * the memory-mapped segments, resuming at the offset of the last record processed.
+ */
 public class ChangeLogReader implements FileChangeWatcher {
   int MAX_ENTRIES_TO_READ = 100;
+  // Recheck the change log at least this often, in case a change notification is missed
+  private static final long MAX_WAIT_MS = 1000;
   private final String changeLogDir;
   Lock lock;
   private Condition condition;
+  private ChangeLogSegment segment;
 
   public ChangeLogReader(String changeLogDir) {
     this.changeLogDir = changeLogDir;
@@ -44,57 +49,44 @@ public class ChangeLogReader implements FileChangeWatcher {
 
   /**
    * Blocking call
-   * @param record
-   * @return
+   * @param record the last record processed, or null to read from the start of the change log
+   * @return the records following the given one
    */
   public List<ChangeRecord> getChangeSince(ChangeRecord record) {
     List<ChangeRecord> changes = new ArrayList<ChangeRecord>();
-    String fileName;
-    long endOffset;
-    if (record == null) {
-      fileName = "log.1";
-      endOffset = 0;
-    } else {
-      fileName = record.changeLogFileName;
-      endOffset = record.endOffset;
-    }
     try {
       lock.lock();
-
-      File file;
-      file = new File(changeLogDir + "/" + fileName);
-      while (!file.exists() || file.length() <= endOffset) {
-        // wait
-        try {
+      long offset = seek(record);
+      while (changes.isEmpty()) {
+        ChangeRecord newRecord = segment == null ? null : segment.read(offset);
+        if (newRecord == null && segment != null && segment.remapIfReplaced()) {
+          // Pick up the records replicated since the segment was mapped
+          newRecord = segment.read(offset);
+        }
+        if (newRecord == null) {
+          if (segment != null && openSegment(segment.getNumber() + 1)) {
+            // The writer has moved on to the next segment
+            offset = 0;
+            continue;
+          }
+          if (segment == null) {
+            offset = seek(record);
+            if (segment != null) {
+              continue;
+            }
+          }
           System.out.println("Waiting for new changes");
-          condition.await();
-          System.out.println("Detected changes");
-        } catch (InterruptedException e) {
-          e.printStackTrace();
+          condition.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+          continue;
+        }
+        while (newRecord != null && changes.size() < MAX_ENTRIES_TO_READ) {
+          changes.add(newRecord);
+          newRecord = segment.read(newRecord.endOffset);
         }
       }
-      RandomAccessFile raf = new RandomAccessFile(changeLogDir + "/" + fileName, "r");
-      raf.seek(endOffset);
-      // out.writeLong(record.txid);
-      // out.writeShort(record.type);
-      // out.writeLong(record.timestamp);
-      // out.writeUTF(record.file);
-
-      int count = 0;
-      do {
-        ChangeRecord newRecord = new ChangeRecord();
-        newRecord.changeLogFileName = fileName;
-        newRecord.startOffset = raf.getFilePointer();
-        newRecord.txid = raf.readLong();
-        newRecord.type = raf.readShort();
-        newRecord.timestamp = raf.readLong();
-        newRecord.file = raf.readUTF();
-        newRecord.endOffset = raf.getFilePointer();
-        changes.add(newRecord);
-        count++;
-      } while (count < MAX_ENTRIES_TO_READ && raf.getFilePointer() < raf.length());
-    } catch (FileNotFoundException e) {
+    } catch (InterruptedException e) {
       e.printStackTrace();
+      Thread.currentThread().interrupt();
     } catch (IOException e) {
       e.printStackTrace();
     } finally {
@@ -103,6 +95,50 @@ public class ChangeLogReader implements FileChangeWatcher {
     return changes;
   }
 
+  /**
+   * Position the reader right after the given record. The record offset is used directly if its
+   * segment is still there, otherwise the txid is looked up in the retained segments.
+   * @return the offset to read from in the current segment
+   */
+  private long seek(ChangeRecord record) throws IOException {
+    List<Integer> numbers = ChangeLogSegment.listSegmentNumbers(changeLogDir);
+    if (numbers.isEmpty()) {
+      segment = null;
+      return 0;
+    }
+    if (record == null) {
+      openSegment(numbers.get(0));
+      return 0;
+    }
+    int number = ChangeLogSegment.parseSegmentNumber(record.changeLogFileName);
+    if (numbers.contains(number)) {
+      openSegment(number);
+      return record.endOffset;
+    }
+    // The segment was removed by the retention, find the segment holding the next txid
+    int target = numbers.get(0);
+    for (int candidate : numbers) {
+      long firstTxid = ChangeLogSegment.readFirstTxid(changeLogDir, candidate);
+      if (firstTxid < 0 || firstTxid > record.txid) {
+        break;
+      }
+      target = candidate;
+    }
+    openSegment(target);
+    return segment.findOffsetAfter(record.txid);
+  }
+
+  private boolean openSegment(int number) throws IOException {
+    if (segment != null && segment.getNumber() == number) {
+      return true;
+    }
+    if (!ChangeLogSegment.listSegmentNumbers(changeLogDir).contains(number)) {
+      return false;
+    }
+    segment = ChangeLogSegment.openForRead(changeLogDir, number);
+    return true;
+  }
+
   @Override
   public void onEntryModified(String path) {
     try {
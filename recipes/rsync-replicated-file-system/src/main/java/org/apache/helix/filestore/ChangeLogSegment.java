@@ -0,0 +1,336 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A segment of the change log, stored in a memory-mapped file named log.&lt;number&gt;.
+ * Every record is written as
+ *
+ * <pre>
+ * int length | long txid | short type | long timestamp | short fileLength | byte[] file
+ * </pre>
+ *
+ * where length counts the bytes following it. The length is written last, so a record becomes
+ * visible to readers only once it is complete, and a zero length marks the end of the records.
+ * Records are read straight from the mapped buffer, and a sparse txid to offset index lets a
+ * reader seek to a transaction without scanning the segment from the start. The index is kept in
+ * memory only, so a reader that opens a segment builds it again, with one scan of the segment the
+ * first time it seeks past the records it has read.
+ */
+public class ChangeLogSegment {
+  public static final String FILE_PREFIX = "log.";
+  public static final int DEFAULT_CAPACITY = 8 * 1024 * 1024;
+  // Index one record in every INDEX_INTERVAL records
+  private static final int INDEX_INTERVAL = 64;
+  private static final int LENGTH_SIZE = 4;
+  private static final int FIXED_RECORD_SIZE = 8 + 2 + 8 + 2;
+
+  private final File file;
+  private final int number;
+  private final boolean writable;
+  private MappedByteBuffer buffer;
+  // Key (the inode on Unix) and length of the file when it was last mapped
+  private Object mappedFileKey;
+  private long mappedLength;
+  // Sparse index of the records seen so far, txid -> offset
+  private final TreeMap<Long, Integer> txidIndex = new TreeMap<Long, Integer>();
+  // Offset right after the last record seen so far, and the number of records up to there
+  private int endOffset;
+  private int recordCount;
+
+  private ChangeLogSegment(File file, int number, boolean writable) {
+    this.file = file;
+    this.number = number;
+    this.writable = writable;
+  }
+
+  /**
+   * Open the segment for appending, creating it with the given capacity if it does not exist.
+   */
+  public static ChangeLogSegment openForAppend(String directory, int number, int capacity)
+      throws IOException {
+    ChangeLogSegment segment =
+        new ChangeLogSegment(new File(directory, FILE_PREFIX + number), number, true);
+    RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+    try {
+      if (raf.length() < capacity) {
+        raf.setLength(capacity);
+      }
+      segment.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+    } finally {
+      raf.close();
+    }
+    // Continue after the records written before
+    segment.scanTo(Integer.MAX_VALUE);
+    return segment;
+  }
+
+  /**
+   * Open an existing segment for reading.
+   */
+  public static ChangeLogSegment openForRead(String directory, int number) throws IOException {
+    ChangeLogSegment segment =
+        new ChangeLogSegment(new File(directory, FILE_PREFIX + number), number, false);
+    segment.remap();
+    return segment;
+  }
+
+  /**
+   * @return the numbers of the segments in the directory, in ascending order
+   */
+  public static List<Integer> listSegmentNumbers(String directory) {
+    List<Integer> numbers = new ArrayList<Integer>();
+    String[] names = new File(directory).list();
+    if (names != null) {
+      for (String name : names) {
+        if (name.startsWith(FILE_PREFIX)) {
+          try {
+            numbers.add(Integer.parseInt(name.substring(FILE_PREFIX.length())));
+          } catch (NumberFormatException e) {
+            System.err.println("Invalid transaction log file found:" + name);
+          }
+        }
+      }
+    }
+    Collections.sort(numbers);
+    return numbers;
+  }
+
+  /**
+   * @return the segment number of a change log file name, or -1 if it is not a segment file
+   */
+  public static int parseSegmentNumber(String fileName) {
+    if (fileName == null || !fileName.startsWith(FILE_PREFIX)) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(fileName.substring(FILE_PREFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  public int getNumber() {
+    return number;
+  }
+
+  public String getFileName() {
+    return file.getName();
+  }
+
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Append a record to the segment.
+   * @return false if the record does not fit in the remaining space of the segment
+   */
+  public boolean append(ChangeRecord record) throws IOException {
+    if (!writable) {
+      throw new IOException("Segment " + file + " is opened for reading");
+    }
+    byte[] fileBytes = record.file.getBytes(StandardCharsets.UTF_8);
+    if (fileBytes.length > Short.MAX_VALUE) {
+      throw new IOException("File name too long: " + record.file);
+    }
+    int length = FIXED_RECORD_SIZE + fileBytes.length;
+    // Keep room for the zero length that ends the records
+    if (endOffset + LENGTH_SIZE + length + LENGTH_SIZE > buffer.capacity()) {
+      return false;
+    }
+    int offset = endOffset;
+    int position = offset + LENGTH_SIZE;
+    buffer.putLong(position, record.txid);
+    buffer.putShort(position + 8, record.type);
+    buffer.putLong(position + 10, record.timestamp);
+    buffer.putShort(position + 18, (short) fileBytes.length);
+    ByteBuffer view = buffer.duplicate();
+    view.position(position + FIXED_RECORD_SIZE);
+    view.put(fileBytes);
+    buffer.putInt(offset, length);
+
+    record.changeLogFileName = getFileName();
+    record.startOffset = offset;
+    record.endOffset = offset + LENGTH_SIZE + length;
+    onRecord(record.txid, offset, (int) record.endOffset);
+    return true;
+  }
+
+  /**
+   * Read the record at the given offset.
+   * @return the record, or null if there is no complete record at the offset yet
+   */
+  public ChangeRecord read(long offset) {
+    if (offset < 0 || offset + LENGTH_SIZE > buffer.capacity()) {
+      return null;
+    }
+    int start = (int) offset;
+    int length = buffer.getInt(start);
+    if (length < FIXED_RECORD_SIZE || start + LENGTH_SIZE + length > buffer.capacity()) {
+      return null;
+    }
+    int position = start + LENGTH_SIZE;
+    ChangeRecord record = new ChangeRecord();
+    record.txid = buffer.getLong(position);
+    record.type = buffer.getShort(position + 8);
+    record.timestamp = buffer.getLong(position + 10);
+    int fileLength = buffer.getShort(position + 18);
+    byte[] fileBytes = new byte[fileLength];
+    ByteBuffer view = buffer.duplicate();
+    view.position(position + FIXED_RECORD_SIZE);
+    view.get(fileBytes);
+    record.file = new String(fileBytes, StandardCharsets.UTF_8);
+    record.changeLogFileName = getFileName();
+    record.startOffset = start;
+    record.endOffset = position + length;
+    if (start == endOffset) {
+      onRecord(record.txid, start, (int) record.endOffset);
+    }
+    return record;
+  }
+
+  /**
+   * @return the offset of the first record whose txid is greater than the given one, or the offset
+   *         right after the last record if there is no such record yet
+   */
+  public long findOffsetAfter(long txid) {
+    Map.Entry<Long, Integer> floor = txidIndex.floorEntry(txid);
+    if (floor == null || txidIndex.higherKey(txid) == null) {
+      // The index does not bound the txid yet, extend it over the rest of the segment
+      scanTo(Integer.MAX_VALUE);
+      floor = txidIndex.floorEntry(txid);
+    }
+    long offset = floor == null ? 0 : floor.getValue();
+    ChangeRecord record;
+    while ((record = read(offset)) != null && record.txid <= txid) {
+      offset = record.endOffset;
+    }
+    return offset;
+  }
+
+  /**
+   * Read the txid of the first record of a segment with a small positional read, without mapping
+   * the segment.
+   * @return the txid, or -1 if the segment has no complete record yet
+   */
+  public static long readFirstTxid(String directory, int number) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(new File(directory, FILE_PREFIX + number), "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(LENGTH_SIZE + 8);
+      while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        // Keep reading until the length and the txid are both read or the file ends
+      }
+      if (header.hasRemaining() || header.getInt(0) < FIXED_RECORD_SIZE) {
+        return -1;
+      }
+      return header.getLong(LENGTH_SIZE);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Map the segment file again. Records appended in place are visible through the current mapping,
+   * so this is only needed when the file was resized or replaced, for instance by rsync.
+   */
+  public void remap() throws IOException {
+    BasicFileAttributes attributes =
+        Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    } finally {
+      raf.close();
+    }
+    // The attributes are read before mapping, so a replacement in between is seen by the next check
+    mappedFileKey = attributes.fileKey();
+    mappedLength = attributes.size();
+  }
+
+  /**
+   * Map the segment file again if its length or its file key changed since the last mapping. If
+   * the file system has no file keys, the file is always mapped again.
+   * @return true if the file was mapped again
+   */
+  public boolean remapIfReplaced() throws IOException {
+    BasicFileAttributes attributes =
+        Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    if (buffer != null && attributes.fileKey() != null && attributes.size() == mappedLength
+        && Objects.equals(attributes.fileKey(), mappedFileKey)) {
+      return false;
+    }
+    remap();
+    return true;
+  }
+
+  public boolean exists() {
+    return file.exists();
+  }
+
+  /**
+   * Flush the records written to the segment to the storage device.
+   */
+  public void force() {
+    if (writable) {
+      buffer.force();
+    }
+  }
+
+  public boolean delete() {
+    buffer = null;
+    return file.delete();
+  }
+
+  private void scanTo(int limit) {
+    while (endOffset < limit) {
+      int offset = endOffset;
+      // read() extends the index and the end offset
+      if (read(offset) == null || endOffset <= offset) {
+        break;
+      }
+    }
+  }
+
+  private void onRecord(long txid, int offset, int nextOffset) {
+    if (recordCount % INDEX_INTERVAL == 0) {
+      txidIndex.put(txid, offset);
+    }
+    recordCount++;
+    endOffset = nextOffset;
+  }
+}
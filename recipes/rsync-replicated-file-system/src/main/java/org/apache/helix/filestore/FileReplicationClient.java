@@ -0,0 +1,328 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pulls files from the {@link FileReplicationServer} of the master. Only the chunks whose
+ * checksums differ from the local copy are transferred, and the requests for a batch of files are
+ * pipelined on a single connection.
+ */
+public class FileReplicationClient {
+  // Number of sync requests sent ahead of the responses
+  private static final int MAX_PIPELINED_REQUESTS = 32;
+  private static final int CONNECT_TIMEOUT_MS = 5000;
+
+  private final String remoteHost;
+  private final int remotePort;
+  private final File localChangeLogDir;
+  private final File localFileStoreDir;
+  private final ReplicationStats stats;
+  // Change log segments synced after the master moved on to a newer segment
+  private final Set<String> completeSegments = new HashSet<String>();
+  private SocketChannel channel;
+  private Thread backgroundThread;
+
+  public FileReplicationClient(String remoteHost, int remotePort, String localChangeLogDir,
+      String localFileStoreDir) {
+    this.remoteHost = remoteHost;
+    this.remotePort = remotePort;
+    this.localChangeLogDir = new File(localChangeLogDir);
+    this.localFileStoreDir = new File(localFileStoreDir);
+    stats = new ReplicationStats();
+  }
+
+  public ReplicationStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Replicate the given paths of the file store. Files deleted on the master are deleted locally.
+   * @return true if all the files were replicated
+   */
+  public synchronized boolean replicate(Collection<String> paths) {
+    try {
+      sync(FileReplicationServer.ROOT_FILE_STORE, new ArrayList<String>(paths));
+      return true;
+    } catch (IOException e) {
+      System.out.println("Failed to replicate " + paths + " from " + remoteHost + ":" + remotePort
+          + " " + e);
+      disconnect();
+    }
+    return false;
+  }
+
+  /**
+   * Replicate the change log segments of the master, removing the local segments the master no
+   * longer retains. The master only appends to its newest segment, so a segment that was synced
+   * after the master moved past it is complete and is not synced again.
+   * @return true if the change log was replicated
+   */
+  public synchronized boolean replicateChangeLog() {
+    try {
+      List<String> names = list(FileReplicationServer.ROOT_CHANGE_LOG);
+      String newest = null;
+      List<String> toSync = new ArrayList<String>();
+      for (String name : names) {
+        if (newest == null || ChangeLogSegment.parseSegmentNumber(name) > ChangeLogSegment
+            .parseSegmentNumber(newest)) {
+          newest = name;
+        }
+        if (!completeSegments.contains(name) || !new File(localChangeLogDir, name).isFile()) {
+          toSync.add(name);
+        }
+      }
+      sync(FileReplicationServer.ROOT_CHANGE_LOG, toSync);
+      Set<String> retained = new HashSet<String>(names);
+      completeSegments.retainAll(retained);
+      for (String name : toSync) {
+        if (!name.equals(newest) && ChangeLogSegment.parseSegmentNumber(name) >= 0) {
+          completeSegments.add(name);
+        }
+      }
+      File[] localFiles = localChangeLogDir.listFiles();
+      if (localFiles != null) {
+        for (File file : localFiles) {
+          if (file.getName().startsWith(ChangeLogSegment.FILE_PREFIX)
+              && !retained.contains(file.getName())) {
+            file.delete();
+          }
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      disconnect();
+    }
+    return false;
+  }
+
+  /**
+   * Acknowledge to the master that the changes up to the record have been applied
+   */
+  public synchronized void ack(ChangeRecord record) {
+    stats.recordApplied(record.txid, record.timestamp);
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(17);
+      buffer.put(FileReplicationServer.OP_ACK).putLong(record.txid).putLong(record.timestamp);
+      buffer.flip();
+      FileReplicationServer.writeFully(connect(), buffer);
+    } catch (IOException e) {
+      disconnect();
+    }
+  }
+
+  public boolean stop() {
+    if (backgroundThread != null) {
+      backgroundThread.interrupt();
+    }
+    disconnect();
+    return true;
+  }
+
+  /**
+   * Replicate the change log periodically in a background thread
+   */
+  public boolean runInBackground() {
+    backgroundThread = new Thread(new Runnable() {
+      public void run() {
+        try {
+          int sleep = 1000;
+          while (true) {
+            Thread.sleep(sleep);
+            if (replicateChangeLog()) {
+              sleep = 1000;
+            } else {
+              sleep = Math.min(2 * sleep, 2 * 60 * 1000);
+              System.out.println("Failed to replicate the change log from " + remoteHost + ":"
+                  + remotePort + " retrying in " + sleep / 1000 + " seconds");
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, "file-replication-changelog-" + remoteHost + ":" + remotePort);
+    backgroundThread.start();
+    return true;
+  }
+
+  private SocketChannel connect() throws IOException {
+    if (channel == null || !channel.isOpen()) {
+      channel = SocketChannel.open();
+      try {
+        channel.socket().setTcpNoDelay(true);
+        channel.socket().connect(new InetSocketAddress(remoteHost, remotePort), CONNECT_TIMEOUT_MS);
+      } catch (IOException e) {
+        disconnect();
+        throw e;
+      }
+    }
+    return channel;
+  }
+
+  private synchronized void disconnect() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      channel = null;
+    }
+  }
+
+  private List<String> list(byte root) throws IOException {
+    SocketChannel channel = connect();
+    ByteBuffer request = ByteBuffer.allocate(2);
+    request.put(FileReplicationServer.OP_LIST).put(root).flip();
+    FileReplicationServer.writeFully(channel, request);
+    int count = FileReplicationServer.readFully(channel, 4).getInt();
+    List<String> names = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      short length = FileReplicationServer.readFully(channel, 2).getShort();
+      names.add(FileReplicationServer.readString(channel, length));
+    }
+    return names;
+  }
+
+  private void sync(byte root, List<String> paths) throws IOException {
+    SocketChannel channel = connect();
+    File rootDir = root == FileReplicationServer.ROOT_CHANGE_LOG ? localChangeLogDir
+        : localFileStoreDir;
+    int sent = 0;
+    int received = 0;
+    while (received < paths.size()) {
+      while (sent < paths.size() && sent - received < MAX_PIPELINED_REQUESTS) {
+        String path = paths.get(sent++);
+        sendSyncRequest(channel, root, path, new File(rootDir, path));
+      }
+      receiveFile(channel, new File(rootDir, paths.get(received++)));
+    }
+  }
+
+  private void sendSyncRequest(SocketChannel channel, byte root, String path, File localFile)
+      throws IOException {
+    int[] checksums = new int[0];
+    if (localFile.isFile()) {
+      try (FileChannel fileChannel =
+          FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+        checksums = FileReplicationServer.checksums(fileChannel, fileChannel.size());
+      }
+    }
+    byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer request = ByteBuffer.allocate(8 + pathBytes.length + 4 * checksums.length);
+    request.put(FileReplicationServer.OP_SYNC).put(root);
+    request.putShort((short) pathBytes.length).put(pathBytes);
+    request.putInt(checksums.length);
+    request.asIntBuffer().put(checksums);
+    request.position(request.limit()).flip();
+    FileReplicationServer.writeFully(channel, request);
+  }
+
+  private void receiveFile(SocketChannel channel, File localFile) throws IOException {
+    ByteBuffer header = FileReplicationServer.readFully(channel, 12);
+    long length = header.getLong();
+    int rangeCount = header.getInt();
+    if (length < 0) {
+      if (localFile.isFile()) {
+        System.out.println("Deleting " + localFile + " removed on the master");
+        localFile.delete();
+      }
+      return;
+    }
+    localFile.getParentFile().mkdirs();
+    long transferred = 0;
+    try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      // Size the file first, transferFrom does not write past the end of the file
+      if (fileChannel.size() > length) {
+        fileChannel.truncate(length);
+      } else if (fileChannel.size() < length) {
+        fileChannel.write(ByteBuffer.allocate(1), length - 1);
+      }
+      for (int i = 0; i < rangeCount; i++) {
+        ByteBuffer range = FileReplicationServer.readFully(channel, 16);
+        long offset = range.getLong();
+        long rangeLength = range.getLong();
+        receiveFully(channel, fileChannel, offset, rangeLength);
+        transferred += rangeLength;
+      }
+    }
+    stats.recordFile(transferred, length - transferred);
+  }
+
+  private static void receiveFully(SocketChannel channel, FileChannel fileChannel, long position,
+      long count) throws IOException {
+    while (count > 0) {
+      long received = fileChannel.transferFrom(channel, position, count);
+      if (received <= 0) {
+        // transferFrom does not report the end of the stream, read directly to detect it
+        ByteBuffer buffer =
+            ByteBuffer.allocate((int) Math.min(count, FileReplicationServer.CHUNK_SIZE));
+        if (channel.read(buffer) < 0) {
+          throw new EOFException("Replication channel closed");
+        }
+        buffer.flip();
+        received = buffer.remaining();
+        long writePosition = position;
+        while (buffer.hasRemaining()) {
+          writePosition += fileChannel.write(buffer, writePosition);
+        }
+      }
+      position += received;
+      count -= received;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    // Replicates data/localhost_12000 to data/localhost_12001 on localhost
+    FileReplicationServer server = new FileReplicationServer(13000,
+        "data/localhost_12000/translog", "data/localhost_12000/filestore");
+    server.start();
+    FileReplicationClient client = new FileReplicationClient("localhost", 13000,
+        "data/localhost_12001/translog", "data/localhost_12001/filestore");
+    client.replicateChangeLog();
+    ChangeLogReader reader = new ChangeLogReader("data/localhost_12001/translog");
+    List<ChangeRecord> changes = reader.getChangeSince(null);
+    Set<String> paths = new HashSet<String>();
+    for (ChangeRecord change : changes) {
+      paths.add(change.file);
+    }
+    client.replicate(paths);
+    client.ack(changes.get(changes.size() - 1));
+    System.out.println("Client: " + client.getStats());
+    client.stop();
+    server.stop();
+  }
+}
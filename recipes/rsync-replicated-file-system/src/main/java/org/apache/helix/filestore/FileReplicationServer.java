@@ -0,0 +1,456 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * Serves the change log and the file store of the master to the slaves. A slave sends the
+ * checksums of the chunks of its local copy of a file and the server streams back only the chunks
+ * that differ, using {@link FileChannel#transferTo} so the data does not go through the heap.
+ * Requests are read ahead of the responses, so a slave can pipeline the requests of a whole batch
+ * of changes and acknowledge the batch once it is applied.
+ */
+public class FileReplicationServer {
+  static final byte OP_LIST = 1;
+  static final byte OP_SYNC = 2;
+  static final byte OP_ACK = 3;
+
+  static final byte ROOT_CHANGE_LOG = 0;
+  static final byte ROOT_FILE_STORE = 1;
+
+  static final int CHUNK_SIZE = 64 * 1024;
+  // Files are mapped in windows of this size to compute the chunk checksums
+  private static final int CHECKSUM_WINDOW = 1024 * CHUNK_SIZE;
+  // The slave extends its copy with zeros, so the zeroed chunks past its end are not sent. This
+  // skips the unused part of the preallocated change log segments.
+  private static final int ZERO_CHUNK_CHECKSUM = zeroChecksum(CHUNK_SIZE);
+  // Largest file that can be replicated, bounds the checksums a slave can send for a file
+  static final long MAX_FILE_SIZE = 16L * 1024 * 1024 * 1024;
+  static final int MAX_CHUNK_COUNT = (int) (MAX_FILE_SIZE / CHUNK_SIZE);
+
+  public static final int DEFAULT_PORT_OFFSET = 1000;
+
+  private final int port;
+  private final File changeLogDir;
+  private final File fileStoreDir;
+  private final ReplicationStats stats;
+  private final Map<String, Long> ackedTxids;
+  private final Set<Connection> connections;
+  private ServerSocketChannel serverChannel;
+  private Thread acceptThread;
+
+  public FileReplicationServer(int port, String changeLogDir, String fileStoreDir) {
+    this.port = port;
+    this.changeLogDir = new File(changeLogDir);
+    this.fileStoreDir = new File(fileStoreDir);
+    stats = new ReplicationStats();
+    ackedTxids = new ConcurrentHashMap<String, Long>();
+    connections = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+  }
+
+  /**
+   * The replication port is read from the "replication_port" field of the instance config and
+   * defaults to the instance port plus {@link #DEFAULT_PORT_OFFSET}
+   */
+  public static int getReplicationPort(InstanceConfig instanceConfig) {
+    String replicationPort = instanceConfig.getRecord().getSimpleField("replication_port");
+    if (replicationPort != null) {
+      return Integer.parseInt(replicationPort);
+    }
+    return Integer.parseInt(instanceConfig.getPort()) + DEFAULT_PORT_OFFSET;
+  }
+
+  public void start() throws IOException {
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().setReuseAddress(true);
+    serverChannel.socket().bind(new InetSocketAddress(port));
+    acceptThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        acceptConnections();
+      }
+    }, "file-replication-server-" + getLocalPort());
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+    System.out.println("File replication server listening on port " + getLocalPort());
+  }
+
+  public void stop() {
+    try {
+      if (serverChannel != null) {
+        serverChannel.close();
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+    System.out.println("File replication server stopped. " + stats);
+  }
+
+  /**
+   * @return the port the server is listening on, which is chosen by the system if the server was
+   *         created with port 0
+   */
+  public int getLocalPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  public ReplicationStats getStats() {
+    return stats;
+  }
+
+  /**
+   * @return the last txid acknowledged by each slave, keyed by the slave address
+   */
+  public Map<String, Long> getAckedTxids() {
+    return Collections.unmodifiableMap(ackedTxids);
+  }
+
+  private void acceptConnections() {
+    try {
+      while (serverChannel.isOpen()) {
+        SocketChannel channel = serverChannel.accept();
+        Connection connection = new Connection(channel);
+        connections.add(connection);
+        connection.start();
+      }
+    } catch (ClosedChannelException e) {
+      // stopped
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private File getRootDir(byte root) throws IOException {
+    switch (root) {
+    case ROOT_CHANGE_LOG:
+      return changeLogDir;
+    case ROOT_FILE_STORE:
+      return fileStoreDir;
+    default:
+      throw new IOException("Unknown replication root:" + root);
+    }
+  }
+
+  /**
+   * @return the file for the path under the root, or null if the path points outside of it
+   */
+  private File resolve(byte root, String path) throws IOException {
+    File rootDir = getRootDir(root).getCanonicalFile();
+    File file = new File(rootDir, path).getCanonicalFile();
+    if (!file.getPath().startsWith(rootDir.getPath() + File.separator)) {
+      return null;
+    }
+    return file;
+  }
+
+  /**
+   * A slave connection. The requests are read on the connection thread and answered in order by
+   * the responder thread.
+   */
+  private class Connection {
+    private final SocketChannel channel;
+    private final String remoteAddress;
+    private final BlockingQueue<Request> requests;
+    private Thread readerThread;
+    private Thread responderThread;
+
+    Connection(SocketChannel channel) throws IOException {
+      this.channel = channel;
+      channel.socket().setTcpNoDelay(true);
+      remoteAddress = channel.socket().getRemoteSocketAddress().toString();
+      requests = new LinkedBlockingQueue<Request>();
+    }
+
+    void start() {
+      readerThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          readRequests();
+        }
+      }, "file-replication-reader-" + remoteAddress);
+      responderThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          respond();
+        }
+      }, "file-replication-responder-" + remoteAddress);
+      readerThread.setDaemon(true);
+      responderThread.setDaemon(true);
+      readerThread.start();
+      responderThread.start();
+    }
+
+    void close() {
+      connections.remove(this);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      if (responderThread != null) {
+        responderThread.interrupt();
+      }
+    }
+
+    private void readRequests() {
+      try {
+        ByteBuffer op = ByteBuffer.allocate(1);
+        while (true) {
+          op.clear();
+          if (channel.read(op) < 0) {
+            break;
+          }
+          if (op.position() == 0) {
+            continue;
+          }
+          Request request = new Request();
+          request.op = op.get(0);
+          switch (request.op) {
+          case OP_LIST:
+            request.root = readFully(channel, 1).get();
+            requests.put(request);
+            break;
+          case OP_SYNC:
+            ByteBuffer header = readFully(channel, 3);
+            request.root = header.get();
+            request.path = readString(channel, header.getShort());
+            int chunkCount = readFully(channel, 4).getInt();
+            if (chunkCount < 0 || chunkCount > MAX_CHUNK_COUNT) {
+              throw new IOException("Invalid chunk count " + chunkCount + " for " + request.path
+                  + ", files are limited to " + MAX_FILE_SIZE + " bytes");
+            }
+            request.checksums = new int[chunkCount];
+            readFully(channel, 4 * chunkCount).asIntBuffer().get(request.checksums);
+            requests.put(request);
+            break;
+          case OP_ACK:
+            ByteBuffer ack = readFully(channel, 16);
+            long txid = ack.getLong();
+            stats.recordApplied(txid, ack.getLong());
+            ackedTxids.put(remoteAddress, txid);
+            break;
+          default:
+            throw new IOException("Unknown replication request:" + request.op);
+          }
+        }
+      } catch (ClosedChannelException | EOFException e) {
+        // slave disconnected
+      } catch (Exception e) {
+        e.printStackTrace();
+      } finally {
+        close();
+      }
+    }
+
+    private void respond() {
+      try {
+        while (channel.isOpen()) {
+          Request request = requests.take();
+          if (request.op == OP_LIST) {
+            sendList(request.root);
+          } else {
+            sendFile(request.root, request.path, request.checksums);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ClosedChannelException e) {
+        // slave disconnected
+      } catch (IOException e) {
+        e.printStackTrace();
+        close();
+      }
+    }
+
+    private void sendList(byte root) throws IOException {
+      File[] files = getRootDir(root).listFiles();
+      List<byte[]> names = new ArrayList<byte[]>();
+      int size = 4;
+      if (files != null) {
+        for (File file : files) {
+          if (file.isFile()) {
+            byte[] name = file.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 2 + name.length;
+          }
+        }
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      buffer.putInt(names.size());
+      for (byte[] name : names) {
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+      }
+      buffer.flip();
+      writeFully(channel, buffer);
+    }
+
+    /**
+     * Response: long length (-1 if the file does not exist) | int range count | for each range,
+     * long offset | long length | data. The ranges are sent from the end of the file to the
+     * beginning, so that a record of the change log is complete on the slave before the chunk
+     * holding its length is written.
+     */
+    private void sendFile(byte root, String path, int[] remoteChecksums) throws IOException {
+      File file = resolve(root, path);
+      if (file == null || !file.isFile()) {
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putLong(-1).putInt(0).flip();
+        writeFully(channel, header);
+        return;
+      }
+      try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        long length = fileChannel.size();
+        int[] checksums = checksums(fileChannel, length);
+        List<long[]> ranges = new ArrayList<long[]>();
+        long[] current = null;
+        for (int i = 0; i < checksums.length; i++) {
+          long offset = (long) i * CHUNK_SIZE;
+          long chunkLength = Math.min(CHUNK_SIZE, length - offset);
+          int expected = i < remoteChecksums.length ? remoteChecksums[i]
+              : chunkLength == CHUNK_SIZE ? ZERO_CHUNK_CHECKSUM : zeroChecksum((int) chunkLength);
+          if (checksums[i] == expected) {
+            current = null;
+            continue;
+          }
+          if (current == null) {
+            current = new long[] {
+                offset, chunkLength
+            };
+            ranges.add(current);
+          } else {
+            current[1] += chunkLength;
+          }
+        }
+        Collections.reverse(ranges);
+
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putLong(length).putInt(ranges.size()).flip();
+        writeFully(channel, header);
+        long transferred = 0;
+        ByteBuffer rangeHeader = ByteBuffer.allocate(16);
+        for (long[] range : ranges) {
+          rangeHeader.clear();
+          rangeHeader.putLong(range[0]).putLong(range[1]).flip();
+          writeFully(channel, rangeHeader);
+          transferFully(fileChannel, range[0], range[1], channel);
+          transferred += range[1];
+        }
+        stats.recordFile(transferred, length - transferred);
+      }
+    }
+  }
+
+  private static class Request {
+    byte op;
+    byte root;
+    String path;
+    int[] checksums;
+  }
+
+  /**
+   * @return the CRC32 of each {@link #CHUNK_SIZE} chunk of the first length bytes of the file
+   */
+  static int[] checksums(FileChannel fileChannel, long length) throws IOException {
+    int[] checksums = new int[(int) ((length + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+    CRC32 crc = new CRC32();
+    int chunk = 0;
+    for (long windowStart = 0; windowStart < length; windowStart += CHECKSUM_WINDOW) {
+      long windowSize = Math.min(CHECKSUM_WINDOW, length - windowStart);
+      MappedByteBuffer window =
+          fileChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+      for (int offset = 0; offset < windowSize; offset += CHUNK_SIZE) {
+        window.limit((int) Math.min(offset + CHUNK_SIZE, windowSize));
+        window.position(offset);
+        crc.reset();
+        crc.update(window);
+        checksums[chunk++] = (int) crc.getValue();
+      }
+    }
+    return checksums;
+  }
+
+  private static int zeroChecksum(int length) {
+    CRC32 crc = new CRC32();
+    crc.update(new byte[length]);
+    return (int) crc.getValue();
+  }
+
+  static ByteBuffer readFully(ReadableByteChannel channel, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("Replication channel closed");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  static String readString(ReadableByteChannel channel, int length) throws IOException {
+    return new String(readFully(channel, length).array(), StandardCharsets.UTF_8);
+  }
+
+  static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void transferFully(FileChannel fileChannel, long position, long count,
+      WritableByteChannel target) throws IOException {
+    while (count > 0) {
+      long transferred = fileChannel.transferTo(position, count, target);
+      if (transferred <= 0 && position >= fileChannel.size()) {
+        throw new IOException("File truncated during the transfer");
+      }
+      position += transferred;
+      count -= transferred;
+    }
+  }
+}
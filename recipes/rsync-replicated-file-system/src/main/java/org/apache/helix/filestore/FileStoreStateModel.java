@@ -98,6 +98,8 @@ public class FileStoreStateModel extends StateModel {
 
   private FileSystemWatchService service;
 
+  private FileReplicationServer replicationServer;
+
   private InstanceConfig instanceConfig;
 
   public FileStoreStateModel(HelixManager manager, String resource, String partition) {
@@ -168,6 +170,11 @@ public class FileStoreStateModel extends StateModel {
     long now = System.currentTimeMillis();
     service = new FileSystemWatchService(fileStoreDir, now, generator);
     service.start();
+    // Serve the change log and the files to the slaves
+    replicationServer =
+        new FileReplicationServer(FileReplicationServer.getReplicationPort(instanceConfig),
+            changeLogDir, fileStoreDir);
+    replicationServer.start();
     System.out.println(_serverId + " transitioned from " + message.getFromState() + " to "
         + message.getToState() + " for " + _partition);
   }
@@ -183,6 +190,7 @@ public class FileStoreStateModel extends StateModel {
   public void onBecomeSlaveFromMaster(Message message, NotificationContext context)
       throws Exception {
     service.stop();
+    replicationServer.stop();
     LOG.info(_serverId + " transitioning from " + message.getFromState() + " to "
         + message.getToState() + " for " + _partition);
     replicator.start();
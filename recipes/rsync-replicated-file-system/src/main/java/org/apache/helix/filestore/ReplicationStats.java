@@ -0,0 +1,97 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replication counters kept by {@link FileReplicationServer} and {@link FileReplicationClient}:
+ * the bytes transferred and skipped by the chunk checksums, the throughput and the replication
+ * lag of the last change applied.
+ */
+public class ReplicationStats {
+  private final long startTime;
+  private final AtomicLong filesReplicated = new AtomicLong();
+  private final AtomicLong bytesTransferred = new AtomicLong();
+  private final AtomicLong bytesSkipped = new AtomicLong();
+  private final AtomicLong lastTxid = new AtomicLong(-1);
+  private final AtomicLong lastLagMs = new AtomicLong();
+
+  public ReplicationStats() {
+    startTime = System.currentTimeMillis();
+  }
+
+  public void recordFile(long transferred, long skipped) {
+    filesReplicated.incrementAndGet();
+    bytesTransferred.addAndGet(transferred);
+    bytesSkipped.addAndGet(skipped);
+  }
+
+  /**
+   * Record that the change with the given txid, made on the master at the given time, has been
+   * applied
+   */
+  public void recordApplied(long txid, long changeTimestamp) {
+    lastTxid.set(txid);
+    lastLagMs.set(Math.max(0, System.currentTimeMillis() - changeTimestamp));
+  }
+
+  public long getFilesReplicated() {
+    return filesReplicated.get();
+  }
+
+  public long getBytesTransferred() {
+    return bytesTransferred.get();
+  }
+
+  public long getBytesSkipped() {
+    return bytesSkipped.get();
+  }
+
+  public long getLastTxid() {
+    return lastTxid.get();
+  }
+
+  /**
+   * @return the time between the last applied change and its replication, in milliseconds
+   */
+  public long getReplicationLagMs() {
+    return lastLagMs.get();
+  }
+
+  /**
+   * @return the average number of bytes transferred per second since the stats were created
+   */
+  public double getThroughput() {
+    long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+    return bytesTransferred.get() * 1000.0 / elapsed;
+  }
+
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("files:").append(getFilesReplicated());
+    sb.append(" transferred:").append(getBytesTransferred());
+    sb.append(" skipped:").append(getBytesSkipped());
+    sb.append(" throughput(B/s):").append(String.format("%.1f", getThroughput()));
+    sb.append(" lastTxid:").append(getLastTxid());
+    sb.append(" lag(ms):").append(getReplicationLagMs());
+    return sb.toString();
+  }
+}
@@ -36,15 +36,11 @@ public class Replicator extends RoutingTableProvider {
   private final String resourceName;
   AtomicBoolean isReplicationInitiated;
   AtomicBoolean isReplicationStarted;
-  RsyncInvoker rsyncInvoker;
+  FileReplicationClient changeLogReplicationClient;
   private ChangeLogProcessor processor;
   private FileSystemWatchService watchService;
   private ChangeLogReader reader;
 
-  public void setRsyncInvoker(RsyncInvoker rsyncInvoker) {
-    this.rsyncInvoker = rsyncInvoker;
-  }
-
   public Replicator(InstanceConfig localInstanceConfig, String resourceName, String partition) {
     this.localInstanceConfig = localInstanceConfig;
     this.resourceName = resourceName;
@@ -84,32 +80,32 @@ public class Replicator extends RoutingTableProvider {
 
   public void startReplication(InstanceConfig masterInstanceConfig) throws Exception {
     String remoteHost = masterInstanceConfig.getHostName();
-    String remoteChangeLogDir = masterInstanceConfig.getRecord().getSimpleField("change_log_dir");
-    String remoteFilestoreDir = masterInstanceConfig.getRecord().getSimpleField("file_store_dir");
+    int remotePort = FileReplicationServer.getReplicationPort(masterInstanceConfig);
 
     String localChangeLogDir = localInstanceConfig.getRecord().getSimpleField("change_log_dir");
     String localFilestoreDir = localInstanceConfig.getRecord().getSimpleField("file_store_dir");
     String localcheckpointDir = localInstanceConfig.getRecord().getSimpleField("check_point_dir");
-    // setup rsync for the change log directory
-    setupRsync(remoteHost, remoteChangeLogDir, localChangeLogDir);
+    // replicate the change log directory in the background
+    setupChangeLogReplication(remoteHost, remotePort, localChangeLogDir, localFilestoreDir);
     reader = new ChangeLogReader(localChangeLogDir);
     watchService = new FileSystemWatchService(localChangeLogDir, reader);
     processor =
-        new ChangeLogProcessor(reader, remoteHost, remoteFilestoreDir, localFilestoreDir,
-            localcheckpointDir);
+        new ChangeLogProcessor(reader, remoteHost, remotePort, localChangeLogDir,
+            localFilestoreDir, localcheckpointDir);
     watchService.start();
     processor.start();
     isReplicationStarted.set(true);
   }
 
-  private void setupRsync(String remoteHost, String remoteBaseDir, String localBaseDir)
-      throws Exception {
-    rsyncInvoker = new RsyncInvoker(remoteHost, remoteBaseDir, localBaseDir);
-    boolean started = rsyncInvoker.runInBackground();
+  private void setupChangeLogReplication(String remoteHost, int remotePort,
+      String localChangeLogDir, String localFilestoreDir) throws Exception {
+    changeLogReplicationClient =
+        new FileReplicationClient(remoteHost, remotePort, localChangeLogDir, localFilestoreDir);
+    boolean started = changeLogReplicationClient.runInBackground();
     if (started) {
-      System.out.println("Rsync thread started in background");
+      System.out.println("Change log replication thread started in background");
     } else {
-      throw new Exception("Unable to start rsync thread");
+      throw new Exception("Unable to start change log replication thread");
     }
   }
 
@@ -117,7 +113,7 @@ public class Replicator extends RoutingTableProvider {
     if (isReplicationStarted.get()) {
       System.out.println("Stopping replication from current master:"
           + currentMasterConfig.getInstanceName());
-      rsyncInvoker.stop();
+      changeLogReplicationClient.stop();
       watchService.stop();
       processor.stop();
     }
@@ -143,7 +139,9 @@ public class Replicator extends RoutingTableProvider {
     record.setSimpleField("change_log_dir", "data/localhost_12001/translog");
     record.setSimpleField("file_store_dir", "data/localhost_12001/filestore");
     record.setSimpleField("check_point_dir", "data/localhost_12001/checkpoint");
-    InstanceConfig masterInstanceConfig = new InstanceConfig("localhost_12001");
+    InstanceConfig masterInstanceConfig = new InstanceConfig("localhost_12000");
+    masterInstanceConfig.setHostName("localhost");
+    masterInstanceConfig.setPort("12000");
     record = masterInstanceConfig.getRecord();
     record.setSimpleField("change_log_dir", "data/localhost_12000/translog");
     record.setSimpleField("file_store_dir", "data/localhost_12000/filestore");
@@ -0,0 +1,126 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.helix.filestore.FileSystemWatchService.ChangeType;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestChangeLogReader {
+  private static final long GEN = 1;
+  private String _dir;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    _dir = Files.createTempDirectory("changeLogReader").toString();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    TestChangeLogSegment.deleteDir(new File(_dir));
+  }
+
+  @Test
+  public void testReadAcrossSegments() throws Exception {
+    ChangeLogGenerator generator = new ChangeLogGenerator(_dir, GEN, 0);
+    int numRecords = ChangeLogGenerator.MAX_ENTRIES_PER_SEGMENT + 50;
+    append(generator, 1, numRecords);
+
+    // The segment rolls once it holds MAX_ENTRIES_PER_SEGMENT records
+    Assert.assertEquals(ChangeLogSegment.listSegmentNumbers(_dir), Arrays.asList(1, 2));
+    ChangeLogSegment first = ChangeLogSegment.openForRead(_dir, 1);
+    first.findOffsetAfter(Long.MAX_VALUE);
+    Assert.assertEquals(first.getRecordCount(), ChangeLogGenerator.MAX_ENTRIES_PER_SEGMENT);
+    Assert.assertEquals(ChangeLogSegment.readFirstTxid(_dir, 2),
+        txid(ChangeLogGenerator.MAX_ENTRIES_PER_SEGMENT + 1));
+
+    // Read everything back in order, following the roll to the next segment
+    ChangeLogReader reader = new ChangeLogReader(_dir);
+    ChangeRecord last = null;
+    for (int seq = 1; seq <= numRecords; ) {
+      List<ChangeRecord> changes = reader.getChangeSince(last);
+      Assert.assertFalse(changes.isEmpty());
+      for (ChangeRecord record : changes) {
+        Assert.assertEquals(record.txid, txid(seq));
+        Assert.assertEquals(record.file, "/data/file_" + seq);
+        seq++;
+      }
+      last = changes.get(changes.size() - 1);
+    }
+    Assert.assertEquals(last.changeLogFileName, "log.2");
+  }
+
+  @Test
+  public void testRetentionAndResumeFromDeletedSegment() throws Exception {
+    ChangeLogGenerator generator = new ChangeLogGenerator(_dir, GEN, 0);
+    int perSegment = ChangeLogGenerator.MAX_ENTRIES_PER_SEGMENT;
+    append(generator, 1, perSegment);
+
+    // Checkpoint in the first segment
+    ChangeLogReader reader = new ChangeLogReader(_dir);
+    List<ChangeRecord> changes = reader.getChangeSince(null);
+    ChangeRecord checkpoint = changes.get(changes.size() - 1);
+    Assert.assertEquals(checkpoint.changeLogFileName, "log.1");
+
+    // Fill enough segments for the retention to remove the first ones
+    int numSegments = ChangeLogGenerator.MAX_SEGMENTS_RETAINED + 2;
+    append(generator, perSegment + 1, numSegments * perSegment + 1);
+    List<Integer> numbers = ChangeLogSegment.listSegmentNumbers(_dir);
+    Assert.assertEquals(numbers.size(), ChangeLogGenerator.MAX_SEGMENTS_RETAINED);
+    int oldest = numbers.get(0);
+    Assert.assertEquals(oldest, numSegments + 1 - ChangeLogGenerator.MAX_SEGMENTS_RETAINED + 1);
+    Assert.assertEquals(numbers.get(numbers.size() - 1).intValue(), numSegments + 1);
+
+    // The records after the checkpoint are gone, resume from the oldest retained record
+    changes = new ChangeLogReader(_dir).getChangeSince(checkpoint);
+    Assert.assertEquals(changes.get(0).txid, txid((oldest - 1) * perSegment + 1));
+    Assert.assertEquals(changes.get(0).changeLogFileName, ChangeLogSegment.FILE_PREFIX + oldest);
+
+    // A checkpoint whose segment is gone but whose txid is retained resumes right after it,
+    // including in the middle of an index interval
+    for (int seq : new int[] { (oldest - 1) * perSegment + 1, (oldest + 2) * perSegment + 63,
+        (oldest + 2) * perSegment + 64, (oldest + 5) * perSegment + 1000 }) {
+      ChangeRecord deletedCheckpoint = new ChangeRecord();
+      deletedCheckpoint.txid = txid(seq);
+      deletedCheckpoint.changeLogFileName = "log.1";
+      changes = new ChangeLogReader(_dir).getChangeSince(deletedCheckpoint);
+      Assert.assertEquals(changes.get(0).txid, txid(seq + 1));
+      Assert.assertEquals(changes.get(0).file, "/data/file_" + (seq + 1));
+    }
+  }
+
+  private static void append(ChangeLogGenerator generator, int fromSeq, int toSeq) {
+    for (int seq = fromSeq; seq <= toSeq; seq++) {
+      Assert.assertTrue(generator.appendChange("/data/file_" + seq, ChangeType.MODIFY));
+    }
+  }
+
+  private static long txid(long seq) {
+    return (GEN << 32) + seq;
+  }
+}
@@ -0,0 +1,178 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestChangeLogSegment {
+  private String _dir;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    _dir = Files.createTempDirectory("changeLogSegment").toString();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    deleteDir(new File(_dir));
+  }
+
+  @Test
+  public void testAppendReadRoundTrip() throws IOException {
+    ChangeLogSegment segment =
+        ChangeLogSegment.openForAppend(_dir, 1, ChangeLogSegment.DEFAULT_CAPACITY);
+    List<ChangeRecord> written = new ArrayList<ChangeRecord>();
+    for (int i = 0; i < 10; i++) {
+      ChangeRecord record = createRecord(i + 1, "/data/file_" + i + (i % 2 == 0 ? "_é" : ""));
+      Assert.assertTrue(segment.append(record));
+      Assert.assertEquals(record.changeLogFileName, "log.1");
+      written.add(record);
+    }
+    segment.force();
+    Assert.assertEquals(segment.getRecordCount(), 10);
+    Assert.assertEquals(ChangeLogSegment.readFirstTxid(_dir, 1), 1);
+
+    // A reader sees the same records, and nothing after the last one
+    ChangeLogSegment reader = ChangeLogSegment.openForRead(_dir, 1);
+    long offset = 0;
+    for (ChangeRecord expected : written) {
+      ChangeRecord record = reader.read(offset);
+      Assert.assertNotNull(record);
+      Assert.assertEquals(record.txid, expected.txid);
+      Assert.assertEquals(record.type, expected.type);
+      Assert.assertEquals(record.timestamp, expected.timestamp);
+      Assert.assertEquals(record.file, expected.file);
+      Assert.assertEquals(record.startOffset, expected.startOffset);
+      Assert.assertEquals(record.endOffset, expected.endOffset);
+      offset = record.endOffset;
+    }
+    Assert.assertNull(reader.read(offset));
+
+    // Reopening for append continues after the existing records
+    ChangeLogSegment reopened =
+        ChangeLogSegment.openForAppend(_dir, 1, ChangeLogSegment.DEFAULT_CAPACITY);
+    Assert.assertEquals(reopened.getRecordCount(), 10);
+    ChangeRecord next = createRecord(11, "/data/next");
+    Assert.assertTrue(reopened.append(next));
+    Assert.assertEquals(next.startOffset, offset);
+    // Records appended in place are visible without mapping the file again
+    Assert.assertFalse(reader.remapIfReplaced());
+    Assert.assertEquals(reader.read(offset).file, "/data/next");
+  }
+
+  @Test
+  public void testRemapIfReplaced() throws IOException {
+    ChangeLogSegment segment =
+        ChangeLogSegment.openForAppend(_dir, 1, ChangeLogSegment.DEFAULT_CAPACITY);
+    Assert.assertTrue(segment.append(createRecord(1, "/data/first")));
+    ChangeLogSegment reader = ChangeLogSegment.openForRead(_dir, 1);
+    Assert.assertFalse(reader.remapIfReplaced());
+
+    // Replace the segment with a copy holding one more record, the way rsync does
+    File copyDir = Files.createTempDirectory(new File(_dir).toPath(), "copy").toFile();
+    Files.copy(new File(_dir, "log.1").toPath(), new File(copyDir, "log.1").toPath());
+    ChangeRecord next = createRecord(2, "/data/next");
+    Assert.assertTrue(ChangeLogSegment.openForAppend(copyDir.getPath(), 1,
+        ChangeLogSegment.DEFAULT_CAPACITY).append(next));
+    Files.move(new File(copyDir, "log.1").toPath(), new File(_dir, "log.1").toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Assert.assertNull(reader.read(next.startOffset));
+
+    Assert.assertTrue(reader.remapIfReplaced());
+    Assert.assertEquals(reader.read(next.startOffset).file, "/data/next");
+    Assert.assertFalse(reader.remapIfReplaced());
+  }
+
+  @Test
+  public void testSegmentFull() throws IOException {
+    ChangeLogSegment segment = ChangeLogSegment.openForAppend(_dir, 1, 256);
+    int appended = 0;
+    while (segment.append(createRecord(appended + 1, "/data/file"))) {
+      appended++;
+    }
+    Assert.assertTrue(appended > 0);
+    Assert.assertEquals(segment.getRecordCount(), appended);
+
+    // An empty segment has no first record yet
+    ChangeLogSegment.openForAppend(_dir, 2, 256);
+    Assert.assertEquals(ChangeLogSegment.readFirstTxid(_dir, 2), -1L);
+  }
+
+  @Test
+  public void testFindOffsetAfter() throws IOException {
+    // Cover several index intervals of 64 records, the txids increase by 2
+    int numRecords = 300;
+    ChangeLogSegment segment =
+        ChangeLogSegment.openForAppend(_dir, 1, ChangeLogSegment.DEFAULT_CAPACITY);
+    List<ChangeRecord> written = new ArrayList<ChangeRecord>();
+    for (int i = 0; i < numRecords; i++) {
+      ChangeRecord record = createRecord(2 * (i + 1), "/data/file_" + i);
+      Assert.assertTrue(segment.append(record));
+      written.add(record);
+    }
+
+    // A fresh reader builds its index while seeking
+    ChangeLogSegment reader = ChangeLogSegment.openForRead(_dir, 1);
+    for (ChangeLogSegment s : new ChangeLogSegment[] { reader, segment }) {
+      Assert.assertEquals(s.findOffsetAfter(0), 0);
+      Assert.assertEquals(s.findOffsetAfter(1), 0);
+      for (int i : new int[] { 0, 62, 63, 64, 65, 127, 128, 200, numRecords - 2 }) {
+        long txid = written.get(i).txid;
+        // Right after the record with the txid, and right after a txid in between two records
+        Assert.assertEquals(s.findOffsetAfter(txid), written.get(i + 1).startOffset);
+        Assert.assertEquals(s.findOffsetAfter(txid + 1), written.get(i + 1).startOffset);
+        Assert.assertEquals(s.findOffsetAfter(txid - 1), written.get(i).startOffset);
+      }
+      // After the last record
+      long endOffset = written.get(numRecords - 1).endOffset;
+      Assert.assertEquals(s.findOffsetAfter(written.get(numRecords - 1).txid), endOffset);
+      Assert.assertEquals(s.findOffsetAfter(Long.MAX_VALUE), endOffset);
+    }
+  }
+
+  static ChangeRecord createRecord(long txid, String file) {
+    ChangeRecord record = new ChangeRecord();
+    record.txid = txid;
+    record.type = (short) (txid % FileSystemWatchService.ChangeType.values().length);
+    record.timestamp = 1000L + txid;
+    record.file = file;
+    return record;
+  }
+
+  static void deleteDir(File dir) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        deleteDir(file);
+      }
+    }
+    dir.delete();
+  }
+}
@@ -0,0 +1,176 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestFileReplication {
+  private static final int CHUNK_SIZE = FileReplicationServer.CHUNK_SIZE;
+
+  private File _masterDir;
+  private File _slaveDir;
+  private FileReplicationServer _server;
+  private FileReplicationClient _client;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    _masterDir = Files.createTempDirectory("replicationMaster").toFile();
+    _slaveDir = Files.createTempDirectory("replicationSlave").toFile();
+    // Port 0 lets the system pick a free port
+    _server = new FileReplicationServer(0, new File(_masterDir, "translog").getPath(),
+        new File(_masterDir, "filestore").getPath());
+    _server.start();
+    _client = new FileReplicationClient("localhost", _server.getLocalPort(),
+        new File(_slaveDir, "translog").getPath(), new File(_slaveDir, "filestore").getPath());
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    _client.stop();
+    _server.stop();
+    TestChangeLogSegment.deleteDir(_masterDir);
+    TestChangeLogSegment.deleteDir(_slaveDir);
+  }
+
+  @Test
+  public void testReplicateChangedAndDeletedFiles() throws Exception {
+    // 3 full chunks and a partial one, identical on both sides but for the second chunk
+    byte[] content = new byte[3 * CHUNK_SIZE + 1000];
+    new Random(7).nextBytes(content);
+    byte[] slaveContent = content.clone();
+    Arrays.fill(slaveContent, CHUNK_SIZE, 2 * CHUNK_SIZE, (byte) 0);
+    writeFile(new File(_masterDir, "filestore/dir/changed"), content);
+    writeFile(new File(_slaveDir, "filestore/dir/changed"), slaveContent);
+    // Deleted on the master
+    writeFile(new File(_slaveDir, "filestore/deleted"), "stale".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertTrue(_client.replicate(Arrays.asList("dir/changed", "deleted")));
+
+    Assert.assertEquals(Files.readAllBytes(new File(_slaveDir, "filestore/dir/changed").toPath()),
+        content);
+    Assert.assertFalse(new File(_slaveDir, "filestore/deleted").exists());
+
+    // Only the changed chunk is sent, the deleted file is not counted
+    ReplicationStats clientStats = _client.getStats();
+    Assert.assertEquals(clientStats.getFilesReplicated(), 1);
+    Assert.assertEquals(clientStats.getBytesTransferred(), CHUNK_SIZE);
+    Assert.assertEquals(clientStats.getBytesSkipped(), content.length - CHUNK_SIZE);
+    Assert.assertTrue(clientStats.getThroughput() > 0);
+    ReplicationStats serverStats = _server.getStats();
+    Assert.assertEquals(serverStats.getBytesTransferred(), CHUNK_SIZE);
+    Assert.assertEquals(serverStats.getBytesSkipped(), content.length - CHUNK_SIZE);
+
+    // A new file is sent in full, an up to date file is skipped
+    byte[] added = "added".getBytes(StandardCharsets.UTF_8);
+    writeFile(new File(_masterDir, "filestore/added"), added);
+    Assert.assertTrue(_client.replicate(Arrays.asList("added", "dir/changed")));
+    Assert.assertEquals(Files.readAllBytes(new File(_slaveDir, "filestore/added").toPath()),
+        added);
+    Assert.assertEquals(clientStats.getFilesReplicated(), 3);
+    Assert.assertEquals(clientStats.getBytesTransferred(), CHUNK_SIZE + added.length);
+    Assert.assertEquals(clientStats.getBytesSkipped(), 2L * content.length - CHUNK_SIZE);
+
+    // The lag is measured from the time of the change on the master to its ack
+    ChangeRecord record = TestChangeLogSegment.createRecord(42, "/data/added");
+    record.timestamp = System.currentTimeMillis() - 500;
+    _client.ack(record);
+    Assert.assertEquals(clientStats.getLastTxid(), 42);
+    Assert.assertTrue(clientStats.getReplicationLagMs() >= 500);
+    long deadline = System.currentTimeMillis() + 10000;
+    while (serverStats.getLastTxid() != 42 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(serverStats.getLastTxid(), 42);
+    Assert.assertTrue(serverStats.getReplicationLagMs() >= 500);
+    Assert.assertEquals(_server.getAckedTxids().size(), 1);
+    Assert.assertEquals(_server.getAckedTxids().values().iterator().next(), Long.valueOf(42));
+  }
+
+  @Test
+  public void testReplicateChangeLogSkipsCompleteSegments() throws Exception {
+    byte[] content = "records".getBytes(StandardCharsets.UTF_8);
+    writeFile(new File(_masterDir, "translog/log.1"), content);
+    writeFile(new File(_masterDir, "translog/log.2"), content);
+    ReplicationStats clientStats = _client.getStats();
+    Assert.assertTrue(_client.replicateChangeLog());
+    Assert.assertEquals(clientStats.getFilesReplicated(), 2);
+
+    // Only the newest segment can still change
+    byte[] appended = "records appended".getBytes(StandardCharsets.UTF_8);
+    writeFile(new File(_masterDir, "translog/log.2"), appended);
+    Assert.assertTrue(_client.replicateChangeLog());
+    Assert.assertEquals(clientStats.getFilesReplicated(), 3);
+    Assert.assertEquals(Files.readAllBytes(new File(_slaveDir, "translog/log.2").toPath()),
+        appended);
+
+    // The segment that was the newest is synced once more after the master moves on
+    writeFile(new File(_masterDir, "translog/log.3"), content);
+    Assert.assertTrue(_client.replicateChangeLog());
+    Assert.assertEquals(clientStats.getFilesReplicated(), 5);
+    Assert.assertTrue(_client.replicateChangeLog());
+    Assert.assertEquals(clientStats.getFilesReplicated(), 6);
+
+    // A segment missing locally is synced again, one removed on the master is deleted
+    new File(_slaveDir, "translog/log.2").delete();
+    new File(_masterDir, "translog/log.1").delete();
+    Assert.assertTrue(_client.replicateChangeLog());
+    Assert.assertEquals(clientStats.getFilesReplicated(), 8);
+    Assert.assertEquals(Files.readAllBytes(new File(_slaveDir, "translog/log.2").toPath()),
+        appended);
+    Assert.assertFalse(new File(_slaveDir, "translog/log.1").exists());
+  }
+
+  @Test
+  public void testRejectInvalidChunkCount() throws Exception {
+    SocketChannel channel =
+        SocketChannel.open(new InetSocketAddress("localhost", _server.getLocalPort()));
+    try {
+      byte[] path = "file".getBytes(StandardCharsets.UTF_8);
+      ByteBuffer request = ByteBuffer.allocate(8 + path.length);
+      request.put(FileReplicationServer.OP_SYNC).put(FileReplicationServer.ROOT_FILE_STORE);
+      request.putShort((short) path.length).put(path);
+      request.putInt(FileReplicationServer.MAX_CHUNK_COUNT + 1).flip();
+      FileReplicationServer.writeFully(channel, request);
+
+      // The server drops the connection instead of allocating the checksums
+      Assert.assertEquals(channel.read(ByteBuffer.allocate(1)), -1);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private static void writeFile(File file, byte[] content) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content);
+  }
+}
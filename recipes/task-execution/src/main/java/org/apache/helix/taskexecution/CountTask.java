@@ -53,7 +53,7 @@ public class CountTask extends Task {
     long start = partitionNum * bucketSize;
     long end = start + bucketSize - 1;
     List<String> events = resultStore.lrange(_eventSource, start, end);
-    Map<String, Integer> counts = new HashMap<String, Integer>();
+    Map<String, Long> counts = new HashMap<String, Long>();
     for (String event : events) {
       String[] fields = event.split(",");
       if (_groupByCol.equals("gender")) {
@@ -67,13 +67,11 @@ public class CountTask extends Task {
       }
     }
 
-    for (String key : counts.keySet()) {
-      resultStore.hincrBy(_eventSource + "_" + _groupByCol + "_counts", key, counts.get(key));
-    }
+    resultStore.hincrByAll(_eventSource + "_" + _groupByCol + "_counts", counts);
   }
 
-  private void incrementGroupCount(String group, Map<String, Integer> counts) {
-    int count = (counts.containsKey(group) ? counts.get(group) : 0);
+  private void incrementGroupCount(String group, Map<String, Long> counts) {
+    long count = (counts.containsKey(group) ? counts.get(group) : 0);
     counts.put(group, count + 1);
   }
 
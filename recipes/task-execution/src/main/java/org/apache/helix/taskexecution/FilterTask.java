@@ -19,6 +19,7 @@ package org.apache.helix.taskexecution;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -49,11 +50,13 @@ public class FilterTask extends Task {
     long end = start + bucketSize - 1;
     List<String> events = resultStore.lrange(_dataSource, start, end);
     String outputList = (_dataSource.equals(IMPRESSIONS) ? FILTERED_IMPRESSIONS : FILTERED_CLICKS);
+    List<String> filteredEvents = new ArrayList<String>(events.size());
     for (String event : events) {
       if (!isFraudulent(event)) {
-        resultStore.rpush(outputList, event);
+        filteredEvents.add(event);
       }
     }
+    resultStore.rpushAll(outputList, filteredEvents);
   }
 
   private boolean isFraudulent(String event) {
@@ -19,6 +19,7 @@ package org.apache.helix.taskexecution;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,14 +53,16 @@ public class JoinTask extends Task {
     long start = partitionNum * bucketSize;
     long end = start + bucketSize - 1;
     List<String> impressions = resultStore.lrange(_impressionList, start, end);
+    List<String> joinedClicks = new ArrayList<String>();
     for (String impression : impressions) {
       String[] fields = impression.split(",");
       if (clickIndex.containsKey(fields[0])) {
         String clickId = clickIndex.get(fields[0])[0];
         String joinedClick = clickId + "," + impression;
-        resultStore.rpush(JOINED_CLICKS, joinedClick);
+        joinedClicks.add(joinedClick);
       }
     }
+    resultStore.rpushAll(JOINED_CLICKS, joinedClicks);
   }
 
   // return map of impression id to click (fields of the click event)
@@ -0,0 +1,236 @@
+package org.apache.helix.taskexecution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded {@link TaskResultStore} for workers running in the same JVM. The list values are
+ * stored off-heap in direct byte buffer blocks, so large intermediate results do not add to the
+ * garbage collection work, and the calls do not pay a network round trip.
+ */
+public class OffHeapTaskResultStore implements TaskResultStore {
+  private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  private final int _blockSize;
+  private final ConcurrentMap<String, OffHeapList> _lists;
+  private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> _hashes;
+
+  public OffHeapTaskResultStore() {
+    this(DEFAULT_BLOCK_SIZE);
+  }
+
+  public OffHeapTaskResultStore(int blockSize) {
+    _blockSize = blockSize;
+    _lists = new ConcurrentHashMap<String, OffHeapList>();
+    _hashes = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
+  }
+
+  @Override
+  public boolean exists(String key) throws Exception {
+    return _lists.containsKey(key) || _hashes.containsKey(key);
+  }
+
+  @Override
+  public void del(String key) throws Exception {
+    _lists.remove(key);
+    _hashes.remove(key);
+  }
+
+  @Override
+  public long llen(String key) throws Exception {
+    OffHeapList list = _lists.get(key);
+    return list == null ? 0 : list.size();
+  }
+
+  @Override
+  public void rpush(String key, String value) throws Exception {
+    rpushAll(key, Collections.singletonList(value));
+  }
+
+  @Override
+  public void rpushAll(String key, List<String> values) throws Exception {
+    if (values.isEmpty()) {
+      return;
+    }
+    OffHeapList list = _lists.get(key);
+    if (list == null) {
+      OffHeapList newList = new OffHeapList(_blockSize);
+      list = _lists.putIfAbsent(key, newList);
+      if (list == null) {
+        list = newList;
+      }
+    }
+    list.addAll(values);
+  }
+
+  @Override
+  public List<String> lrange(String key, long start, long end) throws Exception {
+    OffHeapList list = _lists.get(key);
+    if (list == null) {
+      return Collections.emptyList();
+    }
+    return list.range(start, end);
+  }
+
+  @Override
+  public void ltrim(String key, long start, long end) throws Exception {
+    OffHeapList list = _lists.get(key);
+    if (list == null) {
+      return;
+    }
+    OffHeapList trimmed = new OffHeapList(_blockSize);
+    trimmed.addAll(list.range(start, end));
+    if (trimmed.size() == 0) {
+      _lists.remove(key, list);
+    } else {
+      _lists.replace(key, list, trimmed);
+    }
+  }
+
+  @Override
+  public Long hincrBy(String key, String field, long value) throws Exception {
+    return getCounter(key, field).addAndGet(value);
+  }
+
+  @Override
+  public void hincrByAll(String key, Map<String, Long> increments) throws Exception {
+    for (Map.Entry<String, Long> increment : increments.entrySet()) {
+      getCounter(key, increment.getKey()).addAndGet(increment.getValue());
+    }
+  }
+
+  @Override
+  public Map<String, String> hgetAll(String key) throws Exception {
+    Map<String, String> fields = new HashMap<String, String>();
+    ConcurrentMap<String, AtomicLong> hash = _hashes.get(key);
+    if (hash != null) {
+      for (Map.Entry<String, AtomicLong> field : hash.entrySet()) {
+        fields.put(field.getKey(), Long.toString(field.getValue().get()));
+      }
+    }
+    return fields;
+  }
+
+  @Override
+  public Map<String, Map<String, String>> hgetAll(List<String> keys) throws Exception {
+    Map<String, Map<String, String>> hashes = new HashMap<String, Map<String, String>>();
+    for (String key : keys) {
+      hashes.put(key, hgetAll(key));
+    }
+    return hashes;
+  }
+
+  private AtomicLong getCounter(String key, String field) {
+    ConcurrentMap<String, AtomicLong> hash = _hashes.get(key);
+    if (hash == null) {
+      ConcurrentMap<String, AtomicLong> newHash = new ConcurrentHashMap<String, AtomicLong>();
+      hash = _hashes.putIfAbsent(key, newHash);
+      if (hash == null) {
+        hash = newHash;
+      }
+    }
+    AtomicLong counter = hash.get(field);
+    if (counter == null) {
+      AtomicLong newCounter = new AtomicLong();
+      counter = hash.putIfAbsent(field, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * List of UTF-8 encoded values appended to direct buffer blocks. Only the location of each value
+   * is kept on-heap.
+   */
+  private static class OffHeapList {
+    private final int _blockSize;
+    private final List<ByteBuffer> _blocks = new ArrayList<ByteBuffer>();
+    // block index in the high 32 bits, offset in the block in the low 32 bits
+    private long[] _locations = new long[16];
+    private int[] _lengths = new int[16];
+    private int _size;
+
+    OffHeapList(int blockSize) {
+      _blockSize = blockSize;
+    }
+
+    synchronized int size() {
+      return _size;
+    }
+
+    synchronized void addAll(List<String> values) {
+      for (String value : values) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer block = _blocks.isEmpty() ? null : _blocks.get(_blocks.size() - 1);
+        if (block == null || block.remaining() < bytes.length) {
+          block = ByteBuffer.allocateDirect(Math.max(_blockSize, bytes.length));
+          _blocks.add(block);
+        }
+        if (_size == _locations.length) {
+          _locations = Arrays.copyOf(_locations, _size * 2);
+          _lengths = Arrays.copyOf(_lengths, _size * 2);
+        }
+        _locations[_size] = ((long) (_blocks.size() - 1) << 32) | block.position();
+        _lengths[_size] = bytes.length;
+        block.put(bytes);
+        _size++;
+      }
+    }
+
+    /**
+     * Values from start to end inclusive. Negative indexes count from the end of the list, as in
+     * Redis LRANGE.
+     */
+    synchronized List<String> range(long start, long end) {
+      if (start < 0) {
+        start = Math.max(0, _size + start);
+      }
+      if (end < 0) {
+        end = _size + end;
+      }
+      end = Math.min(end, _size - 1);
+      if (start > end) {
+        return Collections.emptyList();
+      }
+      List<String> values = new ArrayList<String>((int) (end - start + 1));
+      for (int i = (int) start; i <= end; i++) {
+        ByteBuffer block = _blocks.get((int) (_locations[i] >>> 32)).duplicate();
+        block.position((int) _locations[i]);
+        byte[] bytes = new byte[_lengths[i]];
+        block.get(bytes);
+        values.add(new String(bytes, StandardCharsets.UTF_8));
+      }
+      return values;
+    }
+  }
+}
@@ -19,12 +19,15 @@ package org.apache.helix.taskexecution;
  * under the License.
  */
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 public class RedisTaskResultStore implements TaskResultStore {
   private JedisPool _jedisPool;
@@ -43,6 +46,16 @@ public class RedisTaskResultStore implements TaskResultStore {
     }
   }
 
+  @Override
+  public void del(String key) throws Exception {
+    Jedis jedis = _jedisPool.getResource();
+    try {
+      jedis.del(key);
+    } finally {
+      _jedisPool.returnResource(jedis);
+    }
+  }
+
   @Override
   public void rpush(String key, String value) throws Exception {
     Jedis jedis = _jedisPool.getResource();
@@ -53,6 +66,19 @@ public class RedisTaskResultStore implements TaskResultStore {
     }
   }
 
+  @Override
+  public void rpushAll(String key, List<String> values) throws Exception {
+    if (values.isEmpty()) {
+      return;
+    }
+    Jedis jedis = _jedisPool.getResource();
+    try {
+      jedis.rpush(key, values.toArray(new String[values.size()]));
+    } finally {
+      _jedisPool.returnResource(jedis);
+    }
+  }
+
   @Override
   public List<String> lrange(String key, long start, long end) throws Exception {
     Jedis jedis = _jedisPool.getResource();
@@ -102,4 +128,39 @@ public class RedisTaskResultStore implements TaskResultStore {
       _jedisPool.returnResource(jedis);
     }
   }
+
+  @Override
+  public void hincrByAll(String key, Map<String, Long> increments) throws Exception {
+    Jedis jedis = _jedisPool.getResource();
+    try {
+      Pipeline pipeline = jedis.pipelined();
+      for (Map.Entry<String, Long> increment : increments.entrySet()) {
+        pipeline.hincrBy(key, increment.getKey(), increment.getValue());
+      }
+      pipeline.sync();
+    } finally {
+      _jedisPool.returnResource(jedis);
+    }
+  }
+
+  @Override
+  public Map<String, Map<String, String>> hgetAll(List<String> keys) throws Exception {
+    Jedis jedis = _jedisPool.getResource();
+    try {
+      Pipeline pipeline = jedis.pipelined();
+      Map<String, Response<Map<String, String>>> responses =
+          new HashMap<String, Response<Map<String, String>>>();
+      for (String key : keys) {
+        responses.put(key, pipeline.hgetAll(key));
+      }
+      pipeline.sync();
+      Map<String, Map<String, String>> hashes = new HashMap<String, Map<String, String>>();
+      for (Map.Entry<String, Response<Map<String, String>>> response : responses.entrySet()) {
+        hashes.put(response.getKey(), response.getValue().get());
+      }
+      return hashes;
+    } finally {
+      _jedisPool.returnResource(jedis);
+    }
+  }
 }
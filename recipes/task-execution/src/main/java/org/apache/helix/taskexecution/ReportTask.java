@@ -19,6 +19,8 @@ package org.apache.helix.taskexecution;
  * under the License.
  */
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,23 +37,25 @@ public class ReportTask extends Task {
   protected void executeImpl(String resourceName, int numPartitions, int partitionNum)
       throws Exception {
     System.out.println("Running reports task");
+    String impCountsByCountry = FilterTask.FILTERED_IMPRESSIONS + "_country_counts";
+    String clickCountsByCountry = JoinTask.JOINED_CLICKS + "_country_counts";
+    String impCountsByGender = FilterTask.FILTERED_IMPRESSIONS + "_gender_counts";
+    String clickCountsByGender = JoinTask.JOINED_CLICKS + "_gender_counts";
+    List<String> tableNames = Arrays.asList(impCountsByCountry, clickCountsByCountry,
+        impCountsByGender, clickCountsByGender);
+    Map<String, Map<String, String>> counts = resultStore.hgetAll(tableNames);
 
     System.out.println("Impression counts per country");
-    printCounts(FilterTask.FILTERED_IMPRESSIONS + "_country_counts");
+    System.out.println(counts.get(impCountsByCountry));
 
     System.out.println("Click counts per country");
-    printCounts(JoinTask.JOINED_CLICKS + "_country_counts");
+    System.out.println(counts.get(clickCountsByCountry));
 
     System.out.println("Impression counts per gender");
-    printCounts(FilterTask.FILTERED_IMPRESSIONS + "_gender_counts");
+    System.out.println(counts.get(impCountsByGender));
 
     System.out.println("Click counts per gender");
-    printCounts(JoinTask.JOINED_CLICKS + "_gender_counts");
-  }
-
-  private void printCounts(String tableName) throws Exception {
-    Map<String, String> counts = resultStore.hgetAll(tableName);
-    System.out.println(counts);
+    System.out.println(counts.get(clickCountsByGender));
   }
 
 }
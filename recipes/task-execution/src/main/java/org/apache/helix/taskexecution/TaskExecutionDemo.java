@@ -21,6 +21,8 @@ package org.apache.helix.taskexecution;
 
 import java.io.File;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -65,13 +67,12 @@ public class TaskExecutionDemo {
   private static final int NUM_IMP_EVENTS = 10000;
 
   public static void main(String[] args) throws Exception {
-    if (args.length != 3) {
-      System.err.println("USAGE: java TaskExecutionDemo zkPort redisHost redisPort");
+    if (args.length != 1 && args.length != 3) {
+      System.err.println("USAGE: java TaskExecutionDemo zkPort [redisHost redisPort]");
+      System.err.println("Without a redis server the results are kept in an embedded store");
       System.exit(1);
     }
 
-    String redisHost = args[1];
-    int redisPort = Integer.parseInt(args[2]);
     ZkServer server = null;
     try {
       String baseDir = "/tmp/TaskExecutionDemo/";
@@ -100,7 +101,12 @@ public class TaskExecutionDemo {
       startController(zkAddr, clusterName);
 
       TaskFactory taskFactory = new AnalyticsTaskFactory();
-      TaskResultStore taskResultStore = new RedisTaskResultStore(redisHost, redisPort, 1000);
+      TaskResultStore taskResultStore;
+      if (args.length == 3) {
+        taskResultStore = new RedisTaskResultStore(args[1], Integer.parseInt(args[2]), 1000);
+      } else {
+        taskResultStore = new OffHeapTaskResultStore();
+      }
 
       populateDummyData(taskResultStore);
 
@@ -118,7 +124,7 @@ public class TaskExecutionDemo {
     }
   }
 
-  private static void populateDummyData(TaskResultStore taskResultStore) throws Exception {
+  static void populateDummyData(TaskResultStore taskResultStore) throws Exception {
     float fraudProbability = 0.01f;
     float clickProbability = 0.01f;
     int numImps = NUM_IMP_EVENTS;
@@ -129,6 +135,8 @@ public class TaskExecutionDemo {
     String[] genders = {
         "M", "F", "UNKNOWN"
     };
+    List<String> impEvents = new ArrayList<String>(numImps);
+    List<String> clickEvents = new ArrayList<String>();
     for (int i = 0; i < numImps; i++) {
       boolean isFraudulent = (rand.nextFloat() <= fraudProbability);
       String impEventId = "" + Math.abs(rand.nextLong());
@@ -136,7 +144,7 @@ public class TaskExecutionDemo {
       impEvent += "," + isFraudulent;
       impEvent += "," + countries[rand.nextInt(countries.length)];
       impEvent += "," + genders[rand.nextInt(genders.length)];
-      taskResultStore.rpush(FilterTask.IMPRESSIONS, impEvent);
+      impEvents.add(impEvent);
 
       boolean isClick = (rand.nextFloat() <= clickProbability);
       if (isClick) {
@@ -144,9 +152,11 @@ public class TaskExecutionDemo {
         isFraudulent = (rand.nextFloat() <= fraudProbability);
         clickEvent += "," + isFraudulent;
         clickEvent += "," + impEventId;
-        taskResultStore.rpush(FilterTask.CLICKS, clickEvent);
+        clickEvents.add(clickEvent);
       }
     }
+    taskResultStore.rpushAll(FilterTask.IMPRESSIONS, impEvents);
+    taskResultStore.rpushAll(FilterTask.CLICKS, clickEvents);
     System.out.println("Done populating dummy data");
   }
 
@@ -175,7 +185,7 @@ public class TaskExecutionDemo {
     }
   }
 
-  private static Dag getAnalyticsDag() {
+  static Dag getAnalyticsDag() {
     Dag dag = new Dag();
     dag.addNode(new Node("filterImps", 10, ""));
     dag.addNode(new Node("filterClicks", 5, ""));
@@ -22,18 +22,39 @@ package org.apache.helix.taskexecution;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Store for the intermediate results of the tasks, with Redis list and hash semantics. The batched
+ * methods let a task write or read all its results in one call instead of one call per key.
+ */
 public interface TaskResultStore {
   public boolean exists(String key) throws Exception;
 
+  public void del(String key) throws Exception;
+
   public long llen(String key) throws Exception;
 
   public void rpush(String key, String value) throws Exception;
 
+  /**
+   * Append all the values to the list in order
+   */
+  public void rpushAll(String key, List<String> values) throws Exception;
+
   public List<String> lrange(final String key, final long start, final long end) throws Exception;
 
   public void ltrim(final String key, final long start, final long end) throws Exception;
 
   public Long hincrBy(final String key, final String field, final long value) throws Exception;
 
+  /**
+   * Increment all the fields of the hash by the given values
+   */
+  public void hincrByAll(final String key, final Map<String, Long> increments) throws Exception;
+
   public Map<String, String> hgetAll(final String key) throws Exception;
+
+  /**
+   * @return the fields of each of the hashes, keyed by the hash key
+   */
+  public Map<String, Map<String, String>> hgetAll(final List<String> keys) throws Exception;
 }
@@ -0,0 +1,126 @@
+package org.apache.helix.taskexecution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.helix.taskexecution.Dag.Node;
+
+/**
+ * Runs the tasks of the analytics dag of {@link TaskExecutionDemo} against a
+ * {@link TaskResultStore} and reports the time taken. The task partitions are executed directly,
+ * without a Helix cluster, so that only the cost of the result store is measured. The
+ * {@link OffHeapTaskResultStore} is always measured, and the {@link RedisTaskResultStore} if a
+ * redis server is given.
+ */
+public class TaskResultStoreBenchmark {
+  private static final int NUM_THREADS = 10;
+  private static final int DEFAULT_ITERATIONS = 5;
+
+  private static final List<String> KEYS = Arrays.asList(FilterTask.IMPRESSIONS,
+      FilterTask.CLICKS, FilterTask.FILTERED_IMPRESSIONS, FilterTask.FILTERED_CLICKS,
+      JoinTask.JOINED_CLICKS, FilterTask.FILTERED_IMPRESSIONS + "_country_counts",
+      FilterTask.FILTERED_IMPRESSIONS + "_gender_counts", JoinTask.JOINED_CLICKS
+          + "_country_counts", JoinTask.JOINED_CLICKS + "_gender_counts");
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 0 && args.length != 2 && args.length != 3) {
+      System.err
+          .println("USAGE: java TaskResultStoreBenchmark [redisHost redisPort [iterations]]");
+      System.exit(1);
+    }
+    int iterations = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      long offHeapMs = run(new OffHeapTaskResultStore(), iterations, executor);
+      System.out.println("OffHeapTaskResultStore: " + offHeapMs / iterations + " ms per dag run");
+      if (args.length >= 2) {
+        long redisMs = run(new RedisTaskResultStore(args[0], Integer.parseInt(args[1]), 1000),
+            iterations, executor);
+        System.out.println("RedisTaskResultStore: " + redisMs / iterations + " ms per dag run");
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * @return the total time in ms taken by the dag runs, excluding the data population
+   */
+  private static long run(TaskResultStore resultStore, int iterations, ExecutorService executor)
+      throws Exception {
+    Dag dag = TaskExecutionDemo.getAnalyticsDag();
+    TaskFactory taskFactory = new AnalyticsTaskFactory();
+    long totalMs = 0;
+    for (int i = 0; i < iterations; i++) {
+      for (String key : KEYS) {
+        resultStore.del(key);
+      }
+      TaskExecutionDemo.populateDummyData(resultStore);
+      long start = System.currentTimeMillis();
+      runDag(dag, taskFactory, resultStore, executor);
+      totalMs += System.currentTimeMillis() - start;
+    }
+    return totalMs;
+  }
+
+  /**
+   * Execute the nodes of the dag once their parents are done, running the partitions of each node
+   * in parallel
+   */
+  private static void runDag(Dag dag, TaskFactory taskFactory, TaskResultStore resultStore,
+      ExecutorService executor) throws Exception {
+    Set<String> completed = new HashSet<String>();
+    while (completed.size() < dag.getNodeIds().size()) {
+      for (String id : dag.getNodeIds()) {
+        final Node node = dag.getNode(id);
+        if (completed.contains(id)
+            || (node.getParentIds() != null && !completed.containsAll(node.getParentIds()))) {
+          continue;
+        }
+        final Task task = taskFactory.createTask(id, node.getParentIds(), null, resultStore);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int partition = 0; partition < node.getNumPartitions(); partition++) {
+          final int partitionNum = partition;
+          futures.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              task.executeImpl(node.getId(), node.getNumPartitions(), partitionNum);
+              return null;
+            }
+          }));
+        }
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+        completed.add(id);
+      }
+    }
+  }
+}
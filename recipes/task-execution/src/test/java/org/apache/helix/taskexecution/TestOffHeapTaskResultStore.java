@@ -0,0 +1,169 @@
+package org.apache.helix.taskexecution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestOffHeapTaskResultStore {
+  // Small blocks so the lists span several blocks
+  private static final int BLOCK_SIZE = 16;
+
+  @Test
+  public void testLrange() throws Exception {
+    TaskResultStore store = new OffHeapTaskResultStore(BLOCK_SIZE);
+    List<String> values = values(10);
+    store.rpushAll("list", values);
+
+    Assert.assertEquals(store.llen("list"), 10);
+    Assert.assertEquals(store.lrange("list", 0, -1), values);
+    Assert.assertEquals(store.lrange("list", 2, 4), values.subList(2, 5));
+    // Negative indexes count from the end of the list
+    Assert.assertEquals(store.lrange("list", -3, -1), values.subList(7, 10));
+    Assert.assertEquals(store.lrange("list", 1, -2), values.subList(1, 9));
+    Assert.assertEquals(store.lrange("list", -1, -1), values.subList(9, 10));
+    // Out of range indexes are clamped to the list
+    Assert.assertEquals(store.lrange("list", -100, 2), values.subList(0, 3));
+    Assert.assertEquals(store.lrange("list", 5, 100), values.subList(5, 10));
+    Assert.assertTrue(store.lrange("list", 7, 3).isEmpty());
+    Assert.assertTrue(store.lrange("list", 10, 20).isEmpty());
+    Assert.assertTrue(store.lrange("list", -3, -5).isEmpty());
+    Assert.assertTrue(store.lrange("missing", 0, -1).isEmpty());
+  }
+
+  @Test
+  public void testValuesLargerThanBlock() throws Exception {
+    TaskResultStore store = new OffHeapTaskResultStore(BLOCK_SIZE);
+    char[] chars = new char[3 * BLOCK_SIZE];
+    Arrays.fill(chars, 'x');
+    String large = new String(chars);
+    store.rpush("list", "small");
+    store.rpush("list", large);
+    // Multi-byte characters are stored as UTF-8
+    String accented = "\u00e9t\u00e9";
+    store.rpush("list", accented);
+
+    Assert.assertEquals(store.lrange("list", 0, -1), Arrays.asList("small", large, accented));
+  }
+
+  @Test
+  public void testLtrim() throws Exception {
+    TaskResultStore store = new OffHeapTaskResultStore(BLOCK_SIZE);
+    List<String> values = values(10);
+    store.rpushAll("list", values);
+
+    store.ltrim("list", 1, -2);
+    Assert.assertEquals(store.lrange("list", 0, -1), values.subList(1, 9));
+    store.ltrim("list", -3, 100);
+    Assert.assertEquals(store.lrange("list", 0, -1), values.subList(6, 9));
+
+    // The trimmed list can still be appended to
+    store.rpush("list", "last");
+    Assert.assertEquals(store.llen("list"), 4);
+    Assert.assertEquals(store.lrange("list", -1, -1), Collections.singletonList("last"));
+
+    // Trimming to an empty range removes the list
+    store.ltrim("list", 5, 1);
+    Assert.assertFalse(store.exists("list"));
+    Assert.assertEquals(store.llen("list"), 0);
+    store.ltrim("missing", 0, -1);
+    Assert.assertFalse(store.exists("missing"));
+  }
+
+  @Test
+  public void testHashes() throws Exception {
+    TaskResultStore store = new OffHeapTaskResultStore(BLOCK_SIZE);
+    Assert.assertEquals(store.hincrBy("hash1", "a", 2), Long.valueOf(2));
+    Assert.assertEquals(store.hincrBy("hash1", "a", -5), Long.valueOf(-3));
+
+    Map<String, Long> increments = new HashMap<String, Long>();
+    increments.put("a", 10L);
+    increments.put("b", 1L);
+    store.hincrByAll("hash1", increments);
+    store.hincrByAll("hash1", Collections.singletonMap("b", 1L));
+    store.hincrByAll("hash2", Collections.singletonMap("c", 7L));
+
+    Map<String, String> hash1 = new HashMap<String, String>();
+    hash1.put("a", "7");
+    hash1.put("b", "2");
+    Assert.assertEquals(store.hgetAll("hash1"), hash1);
+    Assert.assertTrue(store.hgetAll("missing").isEmpty());
+
+    // Multi-key hgetAll returns an empty hash for a missing key
+    Map<String, Map<String, String>> hashes =
+        store.hgetAll(Arrays.asList("hash1", "hash2", "missing"));
+    Assert.assertEquals(hashes.size(), 3);
+    Assert.assertEquals(hashes.get("hash1"), hash1);
+    Assert.assertEquals(hashes.get("hash2"), Collections.singletonMap("c", "7"));
+    Assert.assertTrue(hashes.get("missing").isEmpty());
+    Assert.assertTrue(store.hgetAll(Collections.<String> emptyList()).isEmpty());
+  }
+
+  @Test
+  public void testBatchedMethods() throws Exception {
+    TaskResultStore store = new OffHeapTaskResultStore(BLOCK_SIZE);
+    List<String> values = values(25);
+
+    // rpushAll appends in order, as the same rpush calls would
+    store.rpushAll("batched", values.subList(0, 10));
+    store.rpushAll("batched", values.subList(10, 25));
+    for (String value : values) {
+      store.rpush("single", value);
+    }
+    Assert.assertEquals(store.lrange("batched", 0, -1), values);
+    Assert.assertEquals(store.lrange("batched", 0, -1), store.lrange("single", 0, -1));
+
+    // An empty batch does not create the list
+    store.rpushAll("empty", Collections.<String> emptyList());
+    Assert.assertFalse(store.exists("empty"));
+
+    // hincrByAll adds up as the same hincrBy calls would
+    Map<String, Long> increments = new HashMap<String, Long>();
+    for (int i = 0; i < 5; i++) {
+      increments.put("field" + i, (long) i);
+      store.hincrBy("singleHash", "field" + i, i);
+    }
+    store.hincrByAll("batchedHash", increments);
+    Assert.assertEquals(store.hgetAll("batchedHash"), store.hgetAll("singleHash"));
+    store.hincrByAll("emptyHash", Collections.<String, Long> emptyMap());
+    Assert.assertFalse(store.exists("emptyHash"));
+
+    store.del("batched");
+    store.del("batchedHash");
+    Assert.assertFalse(store.exists("batched"));
+    Assert.assertFalse(store.exists("batchedHash"));
+    Assert.assertTrue(store.exists("single"));
+  }
+
+  private static List<String> values(int count) {
+    List<String> values = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      values.add("value_" + i);
+    }
+    return values;
+  }
+}
@@ -60,6 +60,28 @@ public class ZkSystemPropertyKeys {
   public static final String ZK_SERIALIZER_ZNRECORD_WRITE_SIZE_LIMIT_BYTES =
       "zk.serializer.znrecord.write.size.limit.bytes";
 
+  /**
+   * Setting this property to true in system properties enables lazy deserialization in ZNRecord's
+   * two serializers. The deserialized ZNRecord only indexes the serialized fields, and parses the
+   * simple, map and list fields on their first access. A single map field is parsed alone by
+   * {@link org.apache.helix.zookeeper.datamodel.ZNRecord#getMapField(String)}.
+   * <p>
+   * The default value is "false" (disabled).
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_LAZY_DESERIALIZATION_ENABLED =
+      "zk.serializer.znrecord.lazy.deserialization.enabled";
+
+  /**
+   * Setting this property to true in system properties makes ZNRecord keep its simple, map and
+   * list fields in hash maps instead of sorted maps, which makes the field lookups constant time.
+   * The iteration order of the fields is then unspecified, and ZNRecord's two serializers sort the
+   * fields by key when writing, so the serialized data is the same as with sorted maps.
+   * <p>
+   * The default value is "false" (sorted maps).
+   */
+  public static final String ZK_ZNRECORD_HASH_FIELD_MAPS_ENABLED =
+      "zk.znrecord.hash.field.maps.enabled";
+
   /**
    * This property determines the behavior of ZkClient issuing an sync() to server upon new session
    * established.
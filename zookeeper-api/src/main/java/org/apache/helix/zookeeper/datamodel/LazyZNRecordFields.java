@@ -0,0 +1,243 @@
+package org.apache.helix.zookeeper.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * The serialized form of the simple, map and list fields of a {@link ZNRecord} that have not been
+ * parsed yet. {@link #parse(byte[])} only indexes where each section, and each map field, is
+ * located in the serialized bytes. The sections are parsed when the record first accesses them,
+ * and a single map field can be parsed alone by {@link ZNRecord#getMapField(String)}.
+ * The parsed maps are created by {@link ZNRecord#createFieldMap()}, the same as the maps of an
+ * eagerly deserialized record.
+ */
+public final class LazyZNRecordFields {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  // Offset of a map field whose value is null
+  private static final int NULL_VALUE = -1;
+  // Read once, since the property is checked for every deserialized record
+  private static volatile boolean _enabled =
+      Boolean.getBoolean(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_LAZY_DESERIALIZATION_ENABLED);
+
+  private final byte[] _bytes;
+  private final int _simpleFieldsStart;
+  private final int _simpleFieldsEnd;
+  private final int _listFieldsStart;
+  private final int _listFieldsEnd;
+  // map field key -> {start, end} of its value
+  private final Map<String, int[]> _mapFieldOffsets;
+  // Map fields that have been parsed alone, so that the same instance is returned afterwards
+  private final Map<String, Map<String, String>> _parsedMapFields = new HashMap<>();
+
+  // Sections that still need to be parsed into the record
+  volatile boolean _simpleFieldsPending;
+  volatile boolean _mapFieldsPending;
+  volatile boolean _listFieldsPending;
+
+  private LazyZNRecordFields(byte[] bytes, int simpleFieldsStart, int simpleFieldsEnd,
+      int listFieldsStart, int listFieldsEnd, Map<String, int[]> mapFieldOffsets) {
+    _bytes = bytes;
+    _simpleFieldsStart = simpleFieldsStart;
+    _simpleFieldsEnd = simpleFieldsEnd;
+    _listFieldsStart = listFieldsStart;
+    _listFieldsEnd = listFieldsEnd;
+    _mapFieldOffsets = mapFieldOffsets;
+    _simpleFieldsPending = true;
+    _mapFieldsPending = true;
+    _listFieldsPending = true;
+  }
+
+  /**
+   * @return true if lazy deserialization is enabled by
+   *         {@link ZkSystemPropertyKeys#ZK_SERIALIZER_ZNRECORD_LAZY_DESERIALIZATION_ENABLED}
+   */
+  public static boolean isEnabled() {
+    return _enabled;
+  }
+
+  /**
+   * Override the value that was read from the system property, so that tests can switch lazy
+   * deserialization in one JVM.
+   * @param enabled true to deserialize new records lazily
+   */
+  @VisibleForTesting
+  public static void setEnabled(boolean enabled) {
+    _enabled = enabled;
+  }
+
+  /**
+   * Create a ZNRecord whose fields are parsed lazily from the given uncompressed JSON bytes.
+   * @param bytes the JSON bytes written by ZNRecordSerializer or ZNRecordStreamingSerializer
+   * @return the lazy ZNRecord, or null if the bytes contain anything other than the id and the
+   *         simple, map and list fields (e.g. a raw payload), which must be deserialized eagerly
+   * @throws IOException if the bytes are not valid JSON
+   */
+  public static ZNRecord parse(byte[] bytes) throws IOException {
+    String id = null;
+    int[] simpleFields = null;
+    int[] listFields = null;
+    Map<String, int[]> mapFieldOffsets = null;
+
+    try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken valueToken = parser.nextToken();
+        if ("id".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+          id = parser.getText();
+        } else if (valueToken != JsonToken.START_OBJECT) {
+          return null;
+        } else if ("simpleFields".equals(fieldName)) {
+          simpleFields = skipValue(parser);
+        } else if ("listFields".equals(fieldName)) {
+          listFields = skipValue(parser);
+        } else if ("mapFields".equals(fieldName)) {
+          mapFieldOffsets = ZNRecord.createFieldMap();
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken mapToken = parser.nextToken();
+            if (mapToken == JsonToken.VALUE_NULL) {
+              mapFieldOffsets.put(key, new int[] {NULL_VALUE, NULL_VALUE});
+            } else if (mapToken == JsonToken.START_OBJECT) {
+              mapFieldOffsets.put(key, skipValue(parser));
+            } else {
+              return null;
+            }
+          }
+        } else {
+          return null;
+        }
+      }
+    }
+    if (id == null || simpleFields == null || listFields == null || mapFieldOffsets == null) {
+      return null;
+    }
+    return new ZNRecord(id, new LazyZNRecordFields(bytes, simpleFields[0], simpleFields[1],
+        listFields[0], listFields[1], mapFieldOffsets));
+  }
+
+  /**
+   * Skip the object the parser is at, and return its {start, end} offsets.
+   */
+  private static int[] skipValue(JsonParser parser) throws IOException {
+    int start = (int) parser.getTokenLocation().getByteOffset();
+    parser.skipChildren();
+    return new int[] {start, (int) parser.getCurrentLocation().getByteOffset()};
+  }
+
+  Map<String, String> parseSimpleFields() {
+    try (JsonParser parser = createParser(_simpleFieldsStart, _simpleFieldsEnd)) {
+      return readStringMap(parser);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to parse simple fields", e);
+    }
+  }
+
+  Map<String, List<String>> parseListFields() {
+    try (JsonParser parser = createParser(_listFieldsStart, _listFieldsEnd)) {
+      Map<String, List<String>> listFields = ZNRecord.createFieldMap();
+      parser.nextToken();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String key = parser.getCurrentName();
+        if (parser.nextToken() == JsonToken.VALUE_NULL) {
+          listFields.put(key, null);
+          continue;
+        }
+        List<String> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          list.add(readString(parser));
+        }
+        listFields.put(key, list);
+      }
+      return listFields;
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to parse list fields", e);
+    }
+  }
+
+  Map<String, Map<String, String>> parseMapFields() {
+    Map<String, Map<String, String>> mapFields = ZNRecord.createFieldMap();
+    synchronized (_parsedMapFields) {
+      for (String key : _mapFieldOffsets.keySet()) {
+        mapFields.put(key, getMapField(key));
+      }
+    }
+    return mapFields;
+  }
+
+  boolean containsMapField(String key) {
+    return _mapFieldOffsets.containsKey(key);
+  }
+
+  /**
+   * Parse a single map field, the parsed map is shared by later calls and by
+   * {@link #parseMapFields()}, so changes made to it are kept.
+   */
+  Map<String, String> getMapField(String key) {
+    int[] offsets = _mapFieldOffsets.get(key);
+    if (offsets == null || offsets[0] == NULL_VALUE) {
+      return null;
+    }
+    synchronized (_parsedMapFields) {
+      Map<String, String> mapField = _parsedMapFields.get(key);
+      if (mapField == null) {
+        try (JsonParser parser = createParser(offsets[0], offsets[1])) {
+          mapField = readStringMap(parser);
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to parse map field " + key, e);
+        }
+        _parsedMapFields.put(key, mapField);
+      }
+      return mapField;
+    }
+  }
+
+  private JsonParser createParser(int start, int end) throws IOException {
+    return JSON_FACTORY.createParser(_bytes, start, end - start);
+  }
+
+  private static Map<String, String> readStringMap(JsonParser parser) throws IOException {
+    Map<String, String> map = ZNRecord.createFieldMap();
+    parser.nextToken();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String key = parser.getCurrentName();
+      parser.nextToken();
+      map.put(key, readString(parser));
+    }
+    return map;
+  }
+
+  private static String readString(JsonParser parser) throws IOException {
+    return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+  }
+}
@@ -20,9 +20,11 @@ package org.apache.helix.zookeeper.datamodel;
  */
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.ToLongFunction;
 
 import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.serializer.JacksonPayloadSerializer;
@@ -32,6 +34,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +65,10 @@ public class ZNRecord {
   @JsonIgnore(true)
   public static final int SIZE_LIMIT = 1000 * 1024; // leave a margin out of 1M
 
+  // Read once, since the property is checked for every new record
+  private static volatile boolean _hashFieldMapsEnabled =
+      Boolean.getBoolean(ZkSystemPropertyKeys.ZK_ZNRECORD_HASH_FIELD_MAPS_ENABLED);
+
   // We don't want the _deltaList to be serialized and deserialized
   private List<ZNRecordDelta> _deltaList = new ArrayList<ZNRecordDelta>();
 
@@ -81,6 +88,18 @@ public class ZNRecord {
 
   private long _ephemeralOwner;
 
+  // The serialized fields that have not been parsed yet, null once all of them are parsed
+  private volatile LazyZNRecordFields _lazyFields;
+
+  // Increased by every modification of the simple, map and list fields
+  private volatile int _fieldModCount;
+  // {field modification count, content hash} of the last computed content hash
+  private volatile long[] _contentHash;
+  // The views returned by the getters, created again when the fields are replaced
+  private ZNRecordFieldViews.MapView<String> _simpleFieldsView;
+  private ZNRecordFieldViews.MapView<Map<String, String>> _mapFieldsView;
+  private ZNRecordFieldViews.MapView<List<String>> _listFieldsView;
+
   /**
    * Initialize with an identifier
    * @param id
@@ -88,11 +107,29 @@ public class ZNRecord {
   @JsonCreator
   public ZNRecord(@JsonProperty("id") String id) {
     this.id = id;
-    simpleFields = new TreeMap<>();
-    mapFields = new TreeMap<>();
-    listFields = new TreeMap<>();
+    if (isHashFieldMapsEnabled()) {
+      simpleFields = new HashMap<>();
+      mapFields = new HashMap<>();
+      listFields = new HashMap<>();
+    } else {
+      simpleFields = new TreeMap<>();
+      mapFields = new TreeMap<>();
+      listFields = new TreeMap<>();
+    }
+    rawPayload = null;
+    _serializer = new JacksonPayloadSerializer();
+  }
+
+  /**
+   * Initialize with fields that are parsed from their serialized form on first access
+   * @param id
+   * @param lazyFields
+   */
+  ZNRecord(String id, LazyZNRecordFields lazyFields) {
+    this.id = id;
     rawPayload = null;
     _serializer = new JacksonPayloadSerializer();
+    _lazyFields = lazyFields;
   }
 
   /**
@@ -110,9 +147,9 @@ public class ZNRecord {
    */
   public ZNRecord(ZNRecord record, String id) {
     this(id);
-    simpleFields.putAll(record.getSimpleFields());
-    mapFields.putAll(record.getMapFields());
-    listFields.putAll(record.getListFields());
+    simpleFields.putAll(record.simpleFields());
+    mapFields.putAll(record.mapFields());
+    listFields.putAll(record.listFields());
     if (record.rawPayload != null) {
       rawPayload = new byte[record.rawPayload.length];
       System.arraycopy(record.rawPayload, 0, rawPayload, 0, record.rawPayload.length);
@@ -125,6 +162,32 @@ public class ZNRecord {
     _ephemeralOwner = record.getEphemeralOwner();
   }
 
+  /**
+   * @return true if the fields are kept in hash maps, as set by
+   *         {@link ZkSystemPropertyKeys#ZK_ZNRECORD_HASH_FIELD_MAPS_ENABLED}
+   */
+  public static boolean isHashFieldMapsEnabled() {
+    return _hashFieldMapsEnabled;
+  }
+
+  /**
+   * Override the field map kind that was read from the system property, so that tests can compare
+   * the two kinds in one JVM.
+   * @param enabled true to keep the fields of new records in hash maps
+   */
+  @VisibleForTesting
+  public static void setHashFieldMapsEnabled(boolean enabled) {
+    _hashFieldMapsEnabled = enabled;
+  }
+
+  /**
+   * Create an empty map for a map field, of the same kind as the maps that hold the fields
+   * @return a HashMap if {@link #isHashFieldMapsEnabled()}, otherwise a TreeMap
+   */
+  public static <V> Map<String, V> createFieldMap() {
+    return isHashFieldMapsEnabled() ? new HashMap<>() : new TreeMap<>();
+  }
+
   /**
    * Set a custom {@link PayloadSerializer} to allow including arbitrary data
    * @param serializer
@@ -154,11 +217,17 @@ public class ZNRecord {
 
   /**
    * Get all plain key, value fields
-   * @return Map of simple fields
+   * @return Map of simple fields, which writes through to this record
    */
   @JsonProperty
   public Map<String, String> getSimpleFields() {
-    return simpleFields;
+    Map<String, String> fields = simpleFields();
+    ZNRecordFieldViews.MapView<String> view = _simpleFieldsView;
+    if (fields != null && (view == null || !view.isViewOf(fields))) {
+      view = ZNRecordFieldViews.simpleFieldsView(this, fields);
+      _simpleFieldsView = view;
+    }
+    return fields == null ? null : view;
   }
 
   /**
@@ -167,16 +236,24 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setSimpleFields(Map<String, String> simpleFields) {
-    this.simpleFields = simpleFields;
+    discardLazySimpleFields();
+    invalidateContentHash();
+    this.simpleFields = ZNRecordFieldViews.unwrap(simpleFields);
   }
 
   /**
    * Get all fields whose values are key, value properties
-   * @return all map fields
+   * @return all map fields, which write through to this record
    */
   @JsonProperty
   public Map<String, Map<String, String>> getMapFields() {
-    return mapFields;
+    Map<String, Map<String, String>> fields = mapFields();
+    ZNRecordFieldViews.MapView<Map<String, String>> view = _mapFieldsView;
+    if (fields != null && (view == null || !view.isViewOf(fields))) {
+      view = ZNRecordFieldViews.mapFieldsView(this, fields);
+      _mapFieldsView = view;
+    }
+    return fields == null ? null : view;
   }
 
   /**
@@ -185,16 +262,24 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setMapFields(Map<String, Map<String, String>> mapFields) {
-    this.mapFields = mapFields;
+    discardLazyMapFields();
+    invalidateContentHash();
+    this.mapFields = ZNRecordFieldViews.unwrap(mapFields);
   }
 
   /**
    * Get all fields whose values are a list of values
-   * @return all list fields
+   * @return all list fields, which write through to this record
    */
   @JsonProperty
   public Map<String, List<String>> getListFields() {
-    return listFields;
+    Map<String, List<String>> fields = listFields();
+    ZNRecordFieldViews.MapView<List<String>> view = _listFieldsView;
+    if (fields != null && (view == null || !view.isViewOf(fields))) {
+      view = ZNRecordFieldViews.listFieldsView(this, fields);
+      _listFieldsView = view;
+    }
+    return fields == null ? null : view;
   }
 
   /**
@@ -203,7 +288,9 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setListFields(Map<String, List<String>> listFields) {
-    this.listFields = listFields;
+    discardLazyListFields();
+    invalidateContentHash();
+    this.listFields = ZNRecordFieldViews.unwrap(listFields);
   }
 
   /**
@@ -213,7 +300,8 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setSimpleField(String k, String v) {
-    simpleFields.put(k, v);
+    invalidateContentHash();
+    simpleFields().put(k, v);
   }
 
   /**
@@ -223,7 +311,8 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setSimpleFieldIfAbsent(String k, String v) {
-    simpleFields.putIfAbsent(k, v);
+    invalidateContentHash();
+    simpleFields().putIfAbsent(k, v);
   }
 
   @JsonProperty
@@ -284,7 +373,8 @@ public class ZNRecord {
    * @param v
    */
   public void setMapField(String k, Map<String, String> v) {
-    mapFields.put(k, v);
+    invalidateContentHash();
+    mapFields().put(k, ZNRecordFieldViews.unwrap(v));
   }
 
   /**
@@ -293,7 +383,8 @@ public class ZNRecord {
    * @param v
    */
   public void setListField(String k, List<String> v) {
-    listFields.put(k, v);
+    invalidateContentHash();
+    listFields().put(k, ZNRecordFieldViews.unwrap(v));
   }
 
   /**
@@ -302,7 +393,7 @@ public class ZNRecord {
    * @return String field
    */
   public String getSimpleField(String k) {
-    return simpleFields.get(k);
+    return simpleFields().get(k);
   }
 
   /**
@@ -311,7 +402,12 @@ public class ZNRecord {
    * @return String --> String map
    */
   public Map<String, String> getMapField(String k) {
-    return mapFields.get(k);
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null && lazyFields._mapFieldsPending) {
+      // Only parse the requested map field
+      return ZNRecordFieldViews.mapFieldView(this, lazyFields.getMapField(k));
+    }
+    return ZNRecordFieldViews.mapFieldView(this, mapFields.get(k));
   }
 
   /**
@@ -320,7 +416,7 @@ public class ZNRecord {
    * @return String list
    */
   public List<String> getListField(String k) {
-    return listFields.get(k);
+    return ZNRecordFieldViews.listFieldView(this, listFields().get(k));
   }
 
   /**
@@ -508,13 +604,13 @@ public class ZNRecord {
   public String toString() {
     StringBuffer sb = new StringBuffer();
     sb.append(id + ", ");
-    if (simpleFields != null) {
+    if (simpleFields() != null) {
       sb.append(simpleFields);
     }
-    if (mapFields != null) {
+    if (mapFields() != null) {
       sb.append(mapFields);
     }
-    if (listFields != null) {
+    if (listFields() != null) {
       sb.append(listFields);
     }
     return sb.toString();
@@ -536,24 +632,28 @@ public class ZNRecord {
       merge(record.getDeltaList());
       return;
     }
-    simpleFields.putAll(record.simpleFields);
-    for (String key : record.mapFields.keySet()) {
-      Map<String, String> map = mapFields.get(key);
+    invalidateContentHash();
+    simpleFields().putAll(record.simpleFields());
+    Map<String, Map<String, String>> mapFields = mapFields();
+    for (Map.Entry<String, Map<String, String>> entry : record.mapFields().entrySet()) {
+      Map<String, String> map = mapFields.get(entry.getKey());
       if (map != null) {
-        map.putAll(record.mapFields.get(key));
+        map.putAll(entry.getValue());
       } else {
-        mapFields.put(key, record.mapFields.get(key));
+        mapFields.put(entry.getKey(), entry.getValue());
       }
     }
-    for (String key : record.listFields.keySet()) {
+    Map<String, List<String>> listFields = listFields();
+    Map<String, List<String>> recordListFields = record.listFields();
+    for (String key : recordListFields.keySet()) {
       // Default merge logic could introduce duplicated values. For example, old Record has list field
       // with value [1, 2, 3]. New Record is exactly same as previous one. Merged result will be
       // [1, 2, 3, 1, 2, 3].
       List<String> list = listFields.get(key);
       if (list != null) {
-        list.addAll(record.listFields.get(key));
+        list.addAll(recordListFields.get(key));
       } else {
-        listFields.put(key, record.listFields.get(key));
+        listFields.put(key, recordListFields.get(key));
       }
     }
   }
@@ -569,9 +669,10 @@ public class ZNRecord {
    */
   public void update(ZNRecord record) {
     if (record != null) {
-      simpleFields.putAll(record.simpleFields);
-      listFields.putAll(record.listFields);
-      mapFields.putAll(record.mapFields);
+      invalidateContentHash();
+      simpleFields().putAll(record.simpleFields());
+      listFields().putAll(record.listFields());
+      mapFields().putAll(record.mapFields());
     }
   }
 
@@ -628,6 +729,90 @@ public class ZNRecord {
     return true;
   }
 
+  /**
+   * Get a 64-bit hash of the simple, map and list fields, which are the fields compared by
+   * {@link #equals(Object)}. Records that are equal have the same content hash, so records with
+   * different content hashes are not equal. Equal hashes do not prove that records are equal.
+   * The hash is cached until the fields are modified, either through the setters or through the
+   * maps and lists returned by the getters. Modifications made through a map or list that was
+   * passed to a setter, after it was passed, are not detected.
+   * @return the content hash
+   */
+  @JsonIgnore(true)
+  public long getContentHash() {
+    int modCount = _fieldModCount;
+    long[] contentHash = _contentHash;
+    if (contentHash != null && contentHash[0] == modCount) {
+      return contentHash[1];
+    }
+    long hash = computeContentHash();
+    _contentHash = new long[] { modCount, hash };
+    return hash;
+  }
+
+  /**
+   * Drop the cached content hash. Called before every modification of the fields.
+   */
+  void invalidateContentHash() {
+    _fieldModCount++;
+  }
+
+  private long computeContentHash() {
+    long hash = 17;
+    hash = hash * 31 + hashMap(simpleFields(), ZNRecord::hashString);
+    hash = hash * 31 + hashMap(mapFields(), map -> hashMap(map, ZNRecord::hashString));
+    hash = hash * 31 + hashMap(listFields(), ZNRecord::hashList);
+    return hash;
+  }
+
+  /**
+   * The hash does not depend on the iteration order, so that equal maps of different types have
+   * the same hash.
+   */
+  private static <V> long hashMap(Map<String, V> map, ToLongFunction<V> valueHashFunc) {
+    if (map == null) {
+      return 0;
+    }
+    long hash = map.size();
+    for (Map.Entry<String, V> entry : map.entrySet()) {
+      V value = entry.getValue();
+      hash += mix(hashString(entry.getKey()) * 31 + (value == null ? 0
+          : valueHashFunc.applyAsLong(value)));
+    }
+    return hash;
+  }
+
+  private static long hashList(List<String> list) {
+    long hash = 1;
+    for (String value : list) {
+      hash = hash * 31 + hashString(value);
+    }
+    return mix(hash);
+  }
+
+  // FNV-1a
+  private static long hashString(String value) {
+    if (value == null) {
+      return 0;
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  // The finalizer of MurmurHash3
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
   /**
    * Subtract value from this ZNRecord
    * Note: does not support subtract in each list in list fields or map in
@@ -635,6 +820,10 @@ public class ZNRecord {
    * @param value
    */
   public void subtract(ZNRecord value) {
+    invalidateContentHash();
+    Map<String, String> simpleFields = simpleFields();
+    Map<String, Map<String, String>> mapFields = mapFields();
+    Map<String, List<String>> listFields = listFields();
     for (String key : value.getSimpleFields().keySet()) {
       simpleFields.remove(key);
     }
@@ -661,6 +850,88 @@ public class ZNRecord {
     }
   }
 
+  private Map<String, String> simpleFields() {
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null && lazyFields._simpleFieldsPending) {
+      synchronized (lazyFields) {
+        if (lazyFields._simpleFieldsPending) {
+          simpleFields = lazyFields.parseSimpleFields();
+          lazyFields._simpleFieldsPending = false;
+          releaseLazyFields(lazyFields);
+        }
+      }
+    }
+    return simpleFields;
+  }
+
+  private Map<String, Map<String, String>> mapFields() {
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null && lazyFields._mapFieldsPending) {
+      synchronized (lazyFields) {
+        if (lazyFields._mapFieldsPending) {
+          mapFields = lazyFields.parseMapFields();
+          lazyFields._mapFieldsPending = false;
+          releaseLazyFields(lazyFields);
+        }
+      }
+    }
+    return mapFields;
+  }
+
+  private Map<String, List<String>> listFields() {
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null && lazyFields._listFieldsPending) {
+      synchronized (lazyFields) {
+        if (lazyFields._listFieldsPending) {
+          listFields = lazyFields.parseListFields();
+          lazyFields._listFieldsPending = false;
+          releaseLazyFields(lazyFields);
+        }
+      }
+    }
+    return listFields;
+  }
+
+  private void discardLazySimpleFields() {
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null) {
+      synchronized (lazyFields) {
+        lazyFields._simpleFieldsPending = false;
+        releaseLazyFields(lazyFields);
+      }
+    }
+  }
+
+  private void discardLazyMapFields() {
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null) {
+      synchronized (lazyFields) {
+        lazyFields._mapFieldsPending = false;
+        releaseLazyFields(lazyFields);
+      }
+    }
+  }
+
+  private void discardLazyListFields() {
+    LazyZNRecordFields lazyFields = _lazyFields;
+    if (lazyFields != null) {
+      synchronized (lazyFields) {
+        lazyFields._listFieldsPending = false;
+        releaseLazyFields(lazyFields);
+      }
+    }
+  }
+
+  /**
+   * Drop the serialized bytes once every section is parsed. Must hold the lock of lazyFields.
+   */
+  private void releaseLazyFields(LazyZNRecordFields lazyFields) {
+    if (!lazyFields._simpleFieldsPending && !lazyFields._mapFieldsPending
+        && !lazyFields._listFieldsPending) {
+      _lazyFields = null;
+    }
+  }
+
   /**
    * Get the version of this record
    * @return version number
@@ -0,0 +1,359 @@
+package org.apache.helix.zookeeper.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Views of the fields of a {@link ZNRecord} that are returned by its getters. A modification made
+ * through a view, or through a map or list obtained from it, invalidates the content hash of the
+ * record. The views write through to the maps and lists that the record holds.
+ */
+final class ZNRecordFieldViews {
+  private ZNRecordFieldViews() {
+  }
+
+  /**
+   * @return the view of the simple fields, or null if the fields are null
+   */
+  static MapView<String> simpleFieldsView(ZNRecord record, Map<String, String> fields) {
+    return fields == null ? null : new MapView<>(record, fields, null);
+  }
+
+  /**
+   * @return the view of the map fields, or null if the fields are null
+   */
+  static MapView<Map<String, String>> mapFieldsView(ZNRecord record,
+      Map<String, Map<String, String>> fields) {
+    return fields == null ? null
+        : new MapView<>(record, fields, mapField -> mapFieldView(record, mapField));
+  }
+
+  /**
+   * @return the view of the list fields, or null if the fields are null
+   */
+  static MapView<List<String>> listFieldsView(ZNRecord record,
+      Map<String, List<String>> fields) {
+    return fields == null ? null
+        : new MapView<>(record, fields, listField -> listFieldView(record, listField));
+  }
+
+  /**
+   * @return the view of a single map field, or null if the field is null
+   */
+  static Map<String, String> mapFieldView(ZNRecord record, Map<String, String> mapField) {
+    return mapField == null ? null : new MapView<>(record, mapField, null);
+  }
+
+  /**
+   * @return the view of a single list field, or null if the field is null
+   */
+  static List<String> listFieldView(ZNRecord record, List<String> listField) {
+    return listField == null ? null : new ListView(record, listField);
+  }
+
+  /**
+   * @return the map or list behind the given view, or the given object if it is not a view. The
+   *         records hold the underlying maps and lists, so that views are not nested.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> T unwrap(T value) {
+    if (value instanceof MapView) {
+      return (T) ((MapView<?>) value)._fields;
+    }
+    if (value instanceof ListView) {
+      return (T) ((ListView) value)._fields;
+    }
+    return value;
+  }
+
+  static final class MapView<V> extends AbstractMap<String, V> {
+    private final ZNRecord _record;
+    private final Map<String, V> _fields;
+    // Creates the views of the values, null if the values are immutable
+    private final Function<V, V> _valueView;
+    private Set<Entry<String, V>> _entrySet;
+    private Set<String> _keySet;
+
+    private MapView(ZNRecord record, Map<String, V> fields, Function<V, V> valueView) {
+      _record = record;
+      _fields = fields;
+      _valueView = valueView;
+    }
+
+    /**
+     * @return true if this is a view of the given map
+     */
+    boolean isViewOf(Map<String, V> fields) {
+      return _fields == fields;
+    }
+
+    private V view(V value) {
+      return _valueView == null || value == null ? value : _valueView.apply(value);
+    }
+
+    @Override
+    public int size() {
+      return _fields.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return _fields.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return _fields.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      return _fields.containsValue(unwrap(value));
+    }
+
+    @Override
+    public V get(Object key) {
+      return view(_fields.get(key));
+    }
+
+    @Override
+    public V put(String key, V value) {
+      _record.invalidateContentHash();
+      return view(_fields.put(key, unwrap(value)));
+    }
+
+    @Override
+    public V remove(Object key) {
+      _record.invalidateContentHash();
+      return view(_fields.remove(key));
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> map) {
+      _record.invalidateContentHash();
+      for (Entry<? extends String, ? extends V> entry : map.entrySet()) {
+        _fields.put(entry.getKey(), unwrap(entry.getValue()));
+      }
+    }
+
+    @Override
+    public void clear() {
+      _record.invalidateContentHash();
+      _fields.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+      if (_keySet == null) {
+        _keySet = new AbstractSet<String>() {
+          @Override
+          public Iterator<String> iterator() {
+            Iterator<Entry<String, V>> iterator = entrySet().iterator();
+            return new Iterator<String>() {
+              @Override
+              public boolean hasNext() {
+                return iterator.hasNext();
+              }
+
+              @Override
+              public String next() {
+                return iterator.next().getKey();
+              }
+
+              @Override
+              public void remove() {
+                iterator.remove();
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return _fields.size();
+          }
+
+          @Override
+          public boolean contains(Object key) {
+            return _fields.containsKey(key);
+          }
+
+          @Override
+          public boolean remove(Object key) {
+            if (!_fields.containsKey(key)) {
+              return false;
+            }
+            MapView.this.remove(key);
+            return true;
+          }
+
+          @Override
+          public void clear() {
+            MapView.this.clear();
+          }
+        };
+      }
+      return _keySet;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+      if (_entrySet == null) {
+        _entrySet = new AbstractSet<Entry<String, V>>() {
+          @Override
+          public Iterator<Entry<String, V>> iterator() {
+            Iterator<Entry<String, V>> iterator = _fields.entrySet().iterator();
+            return new Iterator<Entry<String, V>>() {
+              @Override
+              public boolean hasNext() {
+                return iterator.hasNext();
+              }
+
+              @Override
+              public Entry<String, V> next() {
+                Entry<String, V> entry = iterator.next();
+                return new SimpleEntry<String, V>(entry.getKey(), view(entry.getValue())) {
+                  @Override
+                  public V setValue(V value) {
+                    _record.invalidateContentHash();
+                    super.setValue(value);
+                    return view(entry.setValue(unwrap(value)));
+                  }
+                };
+              }
+
+              @Override
+              public void remove() {
+                _record.invalidateContentHash();
+                iterator.remove();
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return _fields.size();
+          }
+
+          @Override
+          public void clear() {
+            MapView.this.clear();
+          }
+        };
+      }
+      return _entrySet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o == this || _fields.equals(unwrap(o));
+    }
+
+    @Override
+    public int hashCode() {
+      return _fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return _fields.toString();
+    }
+  }
+
+  static final class ListView extends AbstractList<String> {
+    private final ZNRecord _record;
+    private final List<String> _fields;
+
+    private ListView(ZNRecord record, List<String> fields) {
+      _record = record;
+      _fields = fields;
+    }
+
+    @Override
+    public String get(int index) {
+      return _fields.get(index);
+    }
+
+    @Override
+    public int size() {
+      return _fields.size();
+    }
+
+    @Override
+    public String set(int index, String element) {
+      _record.invalidateContentHash();
+      return _fields.set(index, element);
+    }
+
+    @Override
+    public void add(int index, String element) {
+      _record.invalidateContentHash();
+      _fields.add(index, element);
+      modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+      _record.invalidateContentHash();
+      String removed = _fields.remove(index);
+      modCount++;
+      return removed;
+    }
+
+    @Override
+    public void clear() {
+      _record.invalidateContentHash();
+      _fields.clear();
+      modCount++;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return _fields.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      return _fields.indexOf(o);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o == this || _fields.equals(unwrap(o));
+    }
+
+    @Override
+    public int hashCode() {
+      return _fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return _fields.toString();
+    }
+  }
+}
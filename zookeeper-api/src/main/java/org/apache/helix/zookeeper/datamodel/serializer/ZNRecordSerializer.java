@@ -28,6 +28,7 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.helix.zookeeper.datamodel.LazyZNRecordFields;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.introspect.CodehausJacksonIntrospector;
 import org.apache.helix.zookeeper.util.GZipCompressionUtil;
@@ -90,7 +91,12 @@ public class ZNRecordSerializer implements ZkSerializer {
     boolean isCompressed = false;
 
     try {
-      mapper.writeValue(baos, data);
+      if (ZNRecord.isHashFieldMapsEnabled()) {
+        // Hash maps are written in the key order, the same as the sorted maps
+        mapper.writer(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValue(baos, data);
+      } else {
+        mapper.writeValue(baos, data);
+      }
       serializedBytes = baos.toByteArray();
       // apply compression if needed
       if (ZNRecordUtil.shouldCompress(record, serializedBytes.length)) {
@@ -131,10 +137,17 @@ public class ZNRecordSerializer implements ZkSerializer {
     mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     try {
       //decompress the data if its already compressed
+      byte[] uncompressedBytes = bytes;
       if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
+        uncompressedBytes = GZipCompressionUtil.uncompress(bais);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
+      if (LazyZNRecordFields.isEnabled()) {
+        ZNRecord lazyRecord = LazyZNRecordFields.parse(uncompressedBytes);
+        if (lazyRecord != null) {
+          return lazyRecord;
+        }
+      }
 
       return mapper.readValue(bais, ZNRecord.class);
     } catch (Exception e) {
@@ -22,12 +22,16 @@ package org.apache.helix.zookeeper.datamodel.serializer;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.helix.zookeeper.datamodel.LazyZNRecordFields;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.util.GZipCompressionUtil;
 import org.apache.helix.zookeeper.util.ZNRecordUtil;
@@ -57,6 +61,18 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
     return max;
   }
 
+  /**
+   * Hash maps are written in the key order, the same as the sorted maps.
+   */
+  private static Collection<String> keysInOrder(Map<String, ?> map) {
+    if (map instanceof SortedMap || !ZNRecord.isHashFieldMapsEnabled()) {
+      return map.keySet();
+    }
+    List<String> keys = new ArrayList<>(map.keySet());
+    Collections.sort(keys);
+    return keys;
+  }
+
   @Override
   public byte[] serialize(Object data) throws ZkMarshallingError {
     if (!(data instanceof ZNRecord)) {
@@ -95,7 +111,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // write simepleFields
       g.writeRaw("\n  ");
       g.writeObjectFieldStart("simpleFields");
-      for (String key : record.getSimpleFields().keySet()) {
+      for (String key : keysInOrder(record.getSimpleFields())) {
         g.writeRaw("\n    ");
         g.writeStringField(key, record.getSimpleField(key));
       }
@@ -105,7 +121,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // write listFields
       g.writeRaw("\n  ");
       g.writeObjectFieldStart("listFields");
-      for (String key : record.getListFields().keySet()) {
+      for (String key : keysInOrder(record.getListFields())) {
         // g.writeStringField(key, record.getListField(key).toString());
 
         // g.writeObjectFieldStart(key);
@@ -125,12 +141,12 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // write mapFields
       g.writeRaw("\n  ");
       g.writeObjectFieldStart("mapFields");
-      for (String key : record.getMapFields().keySet()) {
+      for (String key : keysInOrder(record.getMapFields())) {
         // g.writeStringField(key, record.getMapField(key).toString());
         g.writeRaw("\n    ");
         g.writeObjectFieldStart(key);
         Map<String, String> map = record.getMapField(key);
-        for (String mapKey : map.keySet()) {
+        for (String mapKey : keysInOrder(map)) {
           g.writeRaw("\n      ");
           g.writeStringField(mapKey, map.get(mapKey));
         }
@@ -198,10 +214,17 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
 
     try {
       // decompress the data if its already compressed
+      byte[] uncompressedBytes = bytes;
       if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
+        uncompressedBytes = GZipCompressionUtil.uncompress(bais);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
+      if (LazyZNRecordFields.isEnabled()) {
+        ZNRecord lazyRecord = LazyZNRecordFields.parse(uncompressedBytes);
+        if (lazyRecord != null) {
+          return lazyRecord;
+        }
+      }
       JsonFactory f = new JsonFactory();
       JsonParser jp = f.createJsonParser(bais);
 
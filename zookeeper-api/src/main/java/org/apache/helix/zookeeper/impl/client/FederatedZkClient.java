@@ -22,6 +22,7 @@ package org.apache.helix.zookeeper.impl.client;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -40,10 +41,13 @@ import org.apache.helix.zookeeper.zkclient.IZkDataListener;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.ZkConnection;
 import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
+import org.apache.helix.zookeeper.zkclient.exception.ZkException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.apache.helix.zookeeper.zkclient.serialize.BasicZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Op;
 import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.ZooDefs;
@@ -464,6 +468,56 @@ public class FederatedZkClient implements RealmAwareZkClient {
     getZkClient(path).asyncDelete(path, cb);
   }
 
+  /**
+   * Reads the data of multiple paths, which may belong to different ZK realms. The paths are
+   * grouped by realm and read with async calls, so all the realms are read in parallel.
+   * @param paths the paths to read
+   * @return the data in the same order as the paths, null for a path that does not exist
+   */
+  public <T> List<T> readData(List<String> paths) {
+    List<ZkAsyncCallbacks.GetDataCallbackHandler> callbacks =
+        fanOut(paths, ZkAsyncCallbacks.GetDataCallbackHandler::new, ZkClient::asyncGetData);
+    List<T> results = new ArrayList<>(paths.size());
+    for (int i = 0; i < paths.size(); i++) {
+      ZkAsyncCallbacks.GetDataCallbackHandler cb = callbacks.get(i);
+      results.add(isFound(cb, paths.get(i)) ? deserialize(cb.getData(), paths.get(i)) : null);
+    }
+    return results;
+  }
+
+  /**
+   * Gets the children of multiple paths, which may belong to different ZK realms. The paths are
+   * grouped by realm and read with async calls, so all the realms are read in parallel.
+   * @param paths the paths to get the children of
+   * @return the children in the same order as the paths, null for a path that does not exist
+   */
+  public List<List<String>> getChildren(List<String> paths) {
+    List<ZkAsyncCallbacks.GetChildrenCallbackHandler> callbacks =
+        fanOut(paths, ZkAsyncCallbacks.GetChildrenCallbackHandler::new, ZkClient::asyncGetChildren);
+    List<List<String>> results = new ArrayList<>(paths.size());
+    for (int i = 0; i < paths.size(); i++) {
+      ZkAsyncCallbacks.GetChildrenCallbackHandler cb = callbacks.get(i);
+      results.add(isFound(cb, paths.get(i)) ? cb.getChildren() : null);
+    }
+    return results;
+  }
+
+  /**
+   * Checks the existence of multiple paths, which may belong to different ZK realms. The paths are
+   * grouped by realm and checked with async calls, so all the realms are checked in parallel.
+   * @param paths the paths to check
+   * @return whether each path exists, in the same order as the paths
+   */
+  public List<Boolean> exists(List<String> paths) {
+    List<ZkAsyncCallbacks.ExistsCallbackHandler> callbacks =
+        fanOut(paths, ZkAsyncCallbacks.ExistsCallbackHandler::new, ZkClient::asyncExists);
+    List<Boolean> results = new ArrayList<>(paths.size());
+    for (int i = 0; i < paths.size(); i++) {
+      results.add(isFound(callbacks.get(i), paths.get(i)));
+    }
+    return results;
+  }
+
   @Override
   public void watchForData(String path) {
     getZkClient(path).watchForData(path);
@@ -609,11 +663,66 @@ public class FederatedZkClient implements RealmAwareZkClient {
     return getZkClient(path).create(path, dataObject, acl, mode, ttl);
   }
 
+  /**
+   * Issues an async call for each path to the client of its realm, and waits for all of them.
+   * The calls of all the realms are sent before waiting, so the realms are served in parallel.
+   */
+  private <C extends ZkAsyncCallbacks.DefaultCallback> List<C> fanOut(List<String> paths,
+      Supplier<C> callbackFactory, AsyncCall<C> asyncCall) {
+    checkClosedState();
+
+    // ZK realm -> indexes of the paths in the realm
+    Map<String, List<Integer>> realmToIndexes = new HashMap<>();
+    for (int i = 0; i < paths.size(); i++) {
+      realmToIndexes.computeIfAbsent(getZkRealm(paths.get(i)), k -> new ArrayList<>()).add(i);
+    }
+
+    List<C> callbacks = new ArrayList<>(Collections.nCopies(paths.size(), null));
+    for (Map.Entry<String, List<Integer>> entry : realmToIndexes.entrySet()) {
+      ZkClient zkClient = getZkClientByRealm(entry.getKey());
+      for (int index : entry.getValue()) {
+        C cb = callbackFactory.get();
+        callbacks.set(index, cb);
+        asyncCall.call(zkClient, paths.get(index), cb);
+      }
+    }
+
+    for (C cb : callbacks) {
+      if (!cb.waitForSuccess()) {
+        throw new ZkInterruptedException(
+            new InterruptedException("Interrupted waiting for the result of " + cb.getPath()));
+      }
+    }
+    return callbacks;
+  }
+
+  /**
+   * @return true if the path exists, false if it does not exist
+   * @throws ZkException if the call failed for another reason
+   */
+  private boolean isFound(ZkAsyncCallbacks.DefaultCallback cb, String path) {
+    KeeperException.Code code = KeeperException.Code.get(cb.getRc());
+    if (code == KeeperException.Code.OK) {
+      return true;
+    }
+    if (code == KeeperException.Code.NONODE) {
+      return false;
+    }
+    throw ZkException.create(KeeperException.create(code, path));
+  }
+
+  private interface AsyncCall<C extends ZkAsyncCallbacks.DefaultCallback> {
+    void call(ZkClient zkClient, String path, C cb);
+  }
+
   private ZkClient getZkClient(String path) {
     // If FederatedZkClient is closed, should not return ZkClient.
     checkClosedState();
 
-    String zkRealm = getZkRealm(path);
+    return getZkClientByRealm(getZkRealm(path));
+  }
+
+  private ZkClient getZkClientByRealm(String zkRealm) {
     // Use this zkClient reference to protect the returning zkClient from being null because of
     // race condition. Once we get the reference, even _zkRealmToZkClientMap is cleared by closed(),
     // this zkClient is not null which guarantees the returned value not null.
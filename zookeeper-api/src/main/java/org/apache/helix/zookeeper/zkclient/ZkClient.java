@@ -228,6 +228,47 @@ public class ZkClient implements Watcher {
     }
   }
 
+  /*
+   * Data read on behalf of all the prefetching listeners of one data change event. The first
+   * prefetching listener reads the node; the others receive the same deserialized object.
+   */
+  private class ZkPrefetchedData {
+    private final String _path;
+    private Object _data = null;
+    private boolean _fetched = false;
+    private boolean _nodeMissing = false;
+
+    public ZkPrefetchedData(String path) {
+      _path = path;
+    }
+
+    /*
+     * Note this method is not thread safe. It is only called from the event thread.
+     *
+     * @return the prefetched data
+     * @throws ZkNoNodeException if the node was gone when the data was read
+     */
+    public Object getData() {
+      if (_fetched) {
+        if (_monitor != null) {
+          _monitor.increasePrefetchReadSavedCounter();
+        }
+      } else {
+        _fetched = true;
+        try {
+          _data = readData(_path, null, !_usePersistWatcher);
+        } catch (ZkNoNodeException e) {
+          _nodeMissing = true;
+          throw e;
+        }
+      }
+      if (_nodeMissing) {
+        throw new ZkNoNodeException("Node " + _path + " does not exist when prefetching data");
+      }
+      return _data;
+    }
+  }
+
   protected ZkClient(IZkConnection zkConnection, int connectionTimeout, long operationRetryTimeout,
       PathBasedZkSerializer zkSerializer, String monitorType, String monitorKey,
       String monitorInstanceName, boolean monitorRootPathOnly, boolean connectOnInit, boolean usePersistWatcher) {
@@ -1868,6 +1909,7 @@ public class ZkClient implements Watcher {
       final OptionalLong notificationTime, boolean pathExists, EventType eventType) {
     try {
       final ZkPathStatRecord pathStatRecord = new ZkPathStatRecord(path);
+      final ZkPrefetchedData prefetchedData = new ZkPrefetchedData(path);
       // Trigger listener callbacks
       for (final IZkDataListenerEntry listener : listeners) {
         _eventThread.send(new ZkEventThread.ZkEvent(
@@ -1899,8 +1941,8 @@ public class ZkClient implements Watcher {
               if (listener.isPrefetchData()) {
                 LOG.debug("zkclient {} Prefetch data for path: {}", _uid, path);
                 try {
-                  // TODO: the data is redundantly read multiple times when multiple listeners exist
-                  data = readData(path, null, !_usePersistWatcher);
+                  // The node is read once per event and the listeners share the same object
+                  data = prefetchedData.getData();
                 } catch (ZkNoNodeException e) {
                   LOG.warn("zkclient {} Prefetch data for path: {} failed.", _uid, path, e);
                   listener.getDataListener().handleDataDeleted(path);
@@ -2461,6 +2503,28 @@ public class ZkClient implements Watcher {
     }
   }
 
+  public void asyncGetChildren(final String path,
+      final ZkAsyncCallbacks.GetChildrenCallbackHandler cb) {
+    final long startT = System.currentTimeMillis();
+    try {
+      retryUntilConnected(() -> {
+        ((ZkConnection) getConnection()).getZookeeper().getChildren(path, null, cb,
+            new ZkAsyncRetryCallContext(_asyncCallRetryThread, cb, _monitor, startT, 0, true) {
+              @Override
+              protected void doRetry() {
+                asyncGetChildren(path, cb);
+              }
+            });
+        return null;
+      });
+    } catch (RuntimeException e) {
+      // Process callback to release caller from waiting
+      cb.processResult(KeeperException.Code.APIERROR.intValue(), path,
+          new ZkAsyncCallMonitorContext(_monitor, startT, 0, true), null);
+      throw e;
+    }
+  }
+
   public void asyncExists(final String path, final ZkAsyncCallbacks.ExistsCallbackHandler cb) {
     final long startT = System.currentTimeMillis();
     try {
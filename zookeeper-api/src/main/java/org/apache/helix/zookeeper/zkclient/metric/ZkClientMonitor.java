@@ -62,6 +62,7 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _dataChangeEventCounter;
   private SimpleDynamicMetric<Long> _outstandingRequestGauge;
   private SimpleDynamicMetric<Long> _znodeCompressCounter;
+  private SimpleDynamicMetric<Long> _prefetchReadSavedCounter;
 
   private ZkThreadMetric _zkEventThreadMetric;
 
@@ -87,6 +88,7 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     _dataChangeEventCounter = new SimpleDynamicMetric<>("DataChangeEventCounter", 0L);
     _outstandingRequestGauge = new SimpleDynamicMetric<>("OutstandingRequestGauge", 0L);
     _znodeCompressCounter = new SimpleDynamicMetric<>("CompressedZnodeWriteCounter", 0L);
+    _prefetchReadSavedCounter = new SimpleDynamicMetric<>("PrefetchReadSavedCounter", 0L);
 
     if (zkEventThread != null) {
       boolean result = setAndInitZkEventThreadMonitor(zkEventThread);
@@ -133,6 +135,7 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     attributeList.add(_stateChangeEventCounter);
     attributeList.add(_expiredSessionCounter);
     attributeList.add(_znodeCompressCounter);
+    attributeList.add(_prefetchReadSavedCounter);
     if (_zkEventThreadMetric != null) {
       attributeList.add(_zkEventThreadMetric);
     }
@@ -203,6 +206,12 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     }
   }
 
+  public void increasePrefetchReadSavedCounter() {
+    synchronized (_prefetchReadSavedCounter) {
+      _prefetchReadSavedCounter.updateValue(_prefetchReadSavedCounter.getValue() + 1);
+    }
+  }
+
   public void recordDataPropagationLatency(String path, long latencyMilliSec) {
     findZkClientPathMonitor(path, (m) -> m.recordDataPropagationLatency(latencyMilliSec));
   }
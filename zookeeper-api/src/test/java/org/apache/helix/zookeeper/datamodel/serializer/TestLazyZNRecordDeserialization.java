@@ -0,0 +1,142 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.datamodel.LazyZNRecordFields;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class TestLazyZNRecordDeserialization {
+
+  @BeforeClass
+  public void beforeClass() {
+    LazyZNRecordFields.setEnabled(true);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    LazyZNRecordFields.setEnabled(Boolean
+        .getBoolean(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_LAZY_DESERIALIZATION_ENABLED));
+  }
+
+  @Test
+  public void testLazyRecordEqualsEagerRecord() {
+    ZNRecord record = createRecord();
+    for (ZkSerializer serializer : Arrays
+        .asList(new ZNRecordSerializer(), new ZNRecordStreamingSerializer())) {
+      byte[] bytes = serializer.serialize(record);
+      ZNRecord lazyRecord = (ZNRecord) serializer.deserialize(bytes);
+      Assert.assertEquals(lazyRecord.getId(), record.getId());
+      Assert.assertEquals(lazyRecord, record);
+      Assert.assertEquals(lazyRecord.getContentHash(), record.getContentHash());
+      Assert.assertEquals(lazyRecord.getMapFields(), record.getMapFields());
+      Assert.assertEquals(lazyRecord.getListFields(), record.getListFields());
+      // Serializing the lazy record gives the same bytes
+      Assert.assertEquals(serializer.serialize(lazyRecord), bytes);
+    }
+  }
+
+  @Test
+  public void testPartialAccessAndMutation() {
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    ZNRecord record = createRecord();
+    record.setMapField("nullMap", null);
+    ZNRecord lazyRecord = (ZNRecord) serializer.deserialize(serializer.serialize(record));
+
+    // A single map field is parsed alone, and keeps its identity after all map fields are parsed
+    Map<String, String> partition = lazyRecord.getMapField("partition_1");
+    Assert.assertEquals(partition.get("instance_1"), "MASTER");
+    Assert.assertNull(lazyRecord.getMapField("nonExisting"));
+    Assert.assertNull(lazyRecord.getMapField("nullMap"));
+    partition.put("instance_1", "SLAVE");
+    Assert.assertSame(lazyRecord.getMapFields().get("partition_1"), partition);
+    Assert.assertEquals(lazyRecord.getMapField("partition_1").get("instance_1"), "SLAVE");
+
+    lazyRecord.setSimpleField("newKey", "newValue");
+    Assert.assertEquals(lazyRecord.getSimpleField("newKey"), "newValue");
+    Assert.assertEquals(lazyRecord.getSimpleField("key_1"), "value_1");
+
+    lazyRecord.setListFields(new HashMap<>());
+    Assert.assertTrue(lazyRecord.getListFields().isEmpty());
+
+    ZNRecord copy = new ZNRecord(lazyRecord);
+    Assert.assertEquals(copy, lazyRecord);
+  }
+
+  @Test
+  public void testModifiedLazyRecordSerializesAsEagerRecord() {
+    ZNRecord record = createRecord();
+    for (ZkSerializer serializer : Arrays
+        .asList(new ZNRecordSerializer(), new ZNRecordStreamingSerializer())) {
+      byte[] bytes = serializer.serialize(record);
+      ZNRecord lazyRecord = (ZNRecord) serializer.deserialize(bytes);
+      LazyZNRecordFields.setEnabled(false);
+      ZNRecord eagerRecord;
+      try {
+        eagerRecord = (ZNRecord) serializer.deserialize(bytes);
+      } finally {
+        LazyZNRecordFields.setEnabled(true);
+      }
+
+      // Keys added later are written in the same order as for an eagerly deserialized record
+      for (ZNRecord deserialized : Arrays.asList(lazyRecord, eagerRecord)) {
+        deserialized.getMapField("partition_5").put("instance_0", "OFFLINE");
+        deserialized.setMapField("a_partition", new HashMap<>());
+        deserialized.setSimpleField("a_key", "value");
+      }
+      Assert.assertEquals(serializer.serialize(lazyRecord), serializer.serialize(eagerRecord));
+    }
+  }
+
+  @Test
+  public void testEagerFallback() {
+    ZNRecord record = createRecord();
+    record.setRawPayload(new byte[] {1, 2, 3});
+    for (ZkSerializer serializer : Arrays
+        .asList(new ZNRecordSerializer(), new ZNRecordStreamingSerializer())) {
+      ZNRecord deserialized = (ZNRecord) serializer.deserialize(serializer.serialize(record));
+      Assert.assertEquals(deserialized, record);
+      Assert.assertEquals(deserialized.getRawPayload(), record.getRawPayload());
+    }
+  }
+
+  private ZNRecord createRecord() {
+    ZNRecord record = new ZNRecord("lazyRecord");
+    for (int i = 0; i < 10; i++) {
+      record.setSimpleField("key_" + i, "value_" + i);
+      Map<String, String> map = new HashMap<>();
+      map.put("instance_" + i, "MASTER");
+      map.put("instance_" + (i + 1), "SLAVE");
+      record.setMapField("partition_" + i, map);
+      record.setListField("partition_" + i, Arrays.asList("instance_" + i, "instance_" + (i + 1)));
+    }
+    return record;
+  }
+}
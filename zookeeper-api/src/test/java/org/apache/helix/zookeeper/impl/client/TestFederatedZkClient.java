@@ -21,7 +21,9 @@ package org.apache.helix.zookeeper.impl.client;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -354,6 +356,49 @@ public class TestFederatedZkClient extends RealmAwareZkClientTestBase {
     Assert.assertFalse(_realmAwareZkClient.exists(TEST_REALM_TWO_VALID_PATH));
   }
 
+  /*
+   * Tests the batch reads spanning multiple realms return the results in the input order.
+   */
+  @Test(dependsOnMethods = "testMultiRealmCRUD")
+  public void testMultiRealmBatchRead() {
+    FederatedZkClient federatedZkClient = (FederatedZkClient) _realmAwareZkClient;
+    ZNRecord realmOneZnRecord = new ZNRecord("realmOne");
+    ZNRecord realmTwoZnRecord = new ZNRecord("realmTwo");
+    _realmAwareZkClient.createPersistent(TEST_REALM_ONE_VALID_PATH, true);
+    _realmAwareZkClient.writeData(TEST_REALM_ONE_VALID_PATH, realmOneZnRecord);
+    _realmAwareZkClient.createPersistent(TEST_REALM_TWO_VALID_PATH, true);
+    _realmAwareZkClient.writeData(TEST_REALM_TWO_VALID_PATH, realmTwoZnRecord);
+
+    String realmOneMissingPath = TEST_REALM_ONE_VALID_PATH + "/missing";
+    String realmOneParentPath = TEST_SHARDING_KEY_PREFIX + "/1/a/b";
+    List<String> paths = Arrays.asList(TEST_REALM_TWO_VALID_PATH, realmOneMissingPath,
+        TEST_REALM_ONE_VALID_PATH, realmOneParentPath);
+
+    List<ZNRecord> records = federatedZkClient.readData(paths);
+    Assert.assertEquals(records,
+        Arrays.asList(realmTwoZnRecord, null, realmOneZnRecord, null));
+
+    Assert.assertEquals(federatedZkClient.exists(paths), Arrays.asList(true, false, true, true));
+
+    List<List<String>> children = federatedZkClient.getChildren(paths);
+    Assert.assertEquals(children.get(0), Collections.emptyList());
+    Assert.assertNull(children.get(1));
+    Assert.assertEquals(children.get(2), Collections.emptyList());
+    Assert.assertEquals(children.get(3), Collections.singletonList("c"));
+
+    Assert.assertTrue(federatedZkClient.readData(Collections.emptyList()).isEmpty());
+
+    try {
+      federatedZkClient.exists(Arrays.asList(TEST_REALM_ONE_VALID_PATH, TEST_INVALID_PATH));
+      Assert.fail("Exists should fail on an invalid path.");
+    } catch (NoSuchElementException ex) {
+      // Expected
+    }
+
+    Assert.assertTrue(_realmAwareZkClient.delete(TEST_REALM_ONE_VALID_PATH));
+    Assert.assertTrue(_realmAwareZkClient.delete(TEST_REALM_TWO_VALID_PATH));
+  }
+
   /**
    * This tests the routing data update feature only enabled when
    * RoutingSystemPropertyKeys.UPDATE_ROUTING_DATA_ON_CACHE_MISS is set to true.
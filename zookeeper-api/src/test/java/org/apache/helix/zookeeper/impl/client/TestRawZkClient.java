@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -572,6 +573,63 @@ public class TestRawZkClient extends ZkTestBase {
     _zkClient.delete(TEST_PATH);
   }
 
+  @Test
+  public void testPrefetchDataReadOncePerEvent()
+      throws Exception {
+    final String TEST_KEY = "testPrefetchDataReadOncePerEvent";
+    ZkClient.Builder builder = new ZkClient.Builder();
+    builder.setZkServer(ZkTestBase.ZK_ADDR).setMonitorKey(TEST_KEY).setMonitorType(TEST_TAG)
+        .setMonitorRootPathOnly(true);
+    ZkClient zkClient = builder.build();
+    zkClient.setZkSerializer(new ZNRecordSerializer());
+
+    String TEST_PATH = TEST_ROOT + "/test_prefetch_read_once";
+    if (!zkClient.exists(TEST_PATH)) {
+      zkClient.createPersistent(TEST_PATH, true);
+    }
+    zkClient.writeData(TEST_PATH, new ZNRecord("init"));
+
+    final int listenerCount = 3;
+    final List<Object> receivedData = new CopyOnWriteArrayList<>();
+    final CountDownLatch latch = new CountDownLatch(listenerCount);
+    try {
+      for (int i = 0; i < listenerCount; i++) {
+        zkClient.subscribeDataChanges(TEST_PATH, new IZkDataListener() {
+          @Override
+          public void handleDataChange(String dataPath, Object data) {
+            receivedData.add(data);
+            latch.countDown();
+          }
+
+          @Override
+          public void handleDataDeleted(String dataPath) {
+          }
+        });
+      }
+
+      MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = MBeanRegistrar
+          .buildObjectName(MonitorDomainNames.HelixZkClient.name(), ZkClientMonitor.MONITOR_TYPE,
+              TEST_TAG, ZkClientMonitor.MONITOR_KEY, TEST_KEY);
+      Assert.assertEquals((long) beanServer.getAttribute(name, "PrefetchReadSavedCounter"), 0);
+
+      zkClient.writeData(TEST_PATH, new ZNRecord("changed"));
+      Assert.assertTrue(latch.await(TestHelper.WAIT_DURATION, TimeUnit.MILLISECONDS));
+
+      // All the prefetching listeners receive the object of the single read
+      Assert.assertEquals(receivedData.size(), listenerCount);
+      Assert.assertEquals(((ZNRecord) receivedData.get(0)).getId(), "changed");
+      for (Object data : receivedData) {
+        Assert.assertSame(data, receivedData.get(0));
+      }
+      Assert.assertEquals((long) beanServer.getAttribute(name, "PrefetchReadSavedCounter"),
+          listenerCount - 1);
+    } finally {
+      zkClient.delete(TEST_PATH);
+      zkClient.close();
+    }
+  }
+
   @Test(dependsOnMethods = "testZkClientMonitor")
   void testPendingRequestGauge()
       throws Exception {